@@ -4,8 +4,8 @@ import it.unipr.sowide.actodes.actor.MessagePattern;
 import it.unipr.sowide.actodes.filtering.constraint.IsInstance;
 import it.unipr.sowide.util.annotations.Namespace;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Set of internal methods used by {@link ActoDataCaseFactory} implementation
@@ -13,7 +13,9 @@ import java.util.Map;
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  * @implNote all type - message pattern pairs are cached in static maps, so
- * only one pattern is created and reused for each type.
+ * only one pattern is created and reused for each type. The maps are
+ * concurrent, since a behavior adopted by an actor (e.g. with a behavior
+ * change) defines its cases in the thread of the actor.
  */
 @Namespace
 public class IsInstancePatterns {
@@ -21,9 +23,9 @@ public class IsInstancePatterns {
     } // don't instantiate
 
     private static final Map<Class<?>, IsInstance> alreadyCreatedConstraints
-            = new HashMap<>();
+            = new ConcurrentHashMap<>();
     private static final Map<Class<?>, MessagePattern> alreadyCreatedPatterns
-            = new HashMap<>();
+            = new ConcurrentHashMap<>();
 
 
     static IsInstance isInstance(Class<?> clazz) {
@@ -32,6 +32,7 @@ public abstract class Engine extends ActoDataBaseBehavior {
 
     @Override
     public final void actoDataNodeCases(ActoDataCaseFactory c) {
+        toBeNotified.defineFragmentCases(this, c);
         components().forEach(comp -> comp.defineFragmentCases(this, c));
         engineCases(c);
     }
@@ -17,7 +17,8 @@ import it.unipr.sowide.actodes.registry.Reference;
 
 
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -27,24 +28,25 @@ import java.util.function.Supplier;
  * application. Many methods can be used to declare the existence of needed
  * actors. A completed structure can then be passed to the constructor of a
  * {@link Master} which will create all the declared actors and connect all the
- * declared links between them right at the start of the application.
+ * declared links between them right at the start of the application. The
+ * actors of each kind are created in the order in which they are declared.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
 public class ActoDataStructure {
 
     private final Set<AcquirerDescriptor<?>> acquirerDescriptors
-            = new HashSet<>();
+            = new LinkedHashSet<>();
     private final Set<PreprocessorDescriptor<?, ?>> preprocessorDescriptors
-            = new HashSet<>();
+            = new LinkedHashSet<>();
     private final Set<EngineDescriptor> engineDescriptors
-            = new HashSet<>();
+            = new LinkedHashSet<>();
     private final Set<DataSetManagerDescriptor<?, ?>> dataSetManagerDescriptors
-            = new HashSet<>();
+            = new LinkedHashSet<>();
     private final Set<ControllerDescriptor> controllerDescriptors
-            = new HashSet<>();
+            = new LinkedHashSet<>();
     private final Set<ReporterDescriptor<?>> reporterDescriptors
-            = new HashSet<>();
+            = new LinkedHashSet<>();
 
     /**
      * Declares an {@link Acquirer}.
@@ -266,7 +268,7 @@ public class ActoDataStructure {
     public Map<Reference, NodeInterface> buildStructure(Master creator) {
         creator.actorLog("Building initial structure");
 
-        Map<NodeDescriptor, NodeInterface> tmpInterfaces = new HashMap<>();
+        Map<NodeDescriptor, NodeInterface> tmpInterfaces = new LinkedHashMap<>();
 
 
         for (NodeDescriptor descriptor : getAllDescriptors()) {
@@ -1,10 +1,21 @@
 import it.unipr.sowide.islands.IslandEnvironment;
+import it.unipr.sowide.islands.aggregates.SumAggregate;
+import it.unipr.sowide.util.BinaryCodec;
 
 import java.util.Collection;
 
 public class AverageEnvironment extends IslandEnvironment {
 
     public static class AverageInstance extends Instance {
+
+        /**
+         * Encodes the instances in binary migrations.
+         */
+        static final BinaryCodec<Instance> CODEC = BinaryCodec.of(
+                (instance, out) -> out.putDouble(((AverageInstance)instance).value),
+                in -> new AverageInstance(in.getDouble())
+        );
+
         double value;
         AverageInstance(double value){ this.value = value; }
 
@@ -14,6 +25,8 @@ public class AverageEnvironment extends IslandEnvironment {
         }
     }
 
+    private final SumAggregate values = registerAggregate(new SumAggregate(instance -> ((AverageInstance)instance).value));
+
     public AverageEnvironment() { }
 
     public AverageEnvironment(Collection<AverageInstance> instances) {
@@ -21,13 +34,18 @@ public class AverageEnvironment extends IslandEnvironment {
     }
 
     public double getAverage() {
-        return instances.stream().mapToDouble(instance -> ((AverageInstance)instance).value).average().orElse(0.0);
+        return values.getMean();
     }
 
     protected IslandEnvironment createEnvironment() {
         return new AverageEnvironment();
     }
 
+    @Override
+    protected BinaryCodec<Instance> instanceCodec() {
+        return AverageInstance.CODEC;
+    }
+
     @Override
     public String toString() {
         return "Environment: Average: " + getAverage() + ", instances: " + instances.size();
@@ -1,14 +1,28 @@
 import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.util.BinaryCodec;
 
 public class AverageIndividual extends IslandIndividual {
 
+    /**
+     * Encodes the genome in binary migrations.
+     */
+    static final BinaryCodec<IslandIndividual> CODEC = BinaryCodec.of(
+            (individual, out) -> out.putDouble(((AverageIndividual) individual).value),
+            in -> new AverageIndividual(in.getDouble())
+    );
+
     public final double value;
 
     public AverageIndividual(double value) {
         this.value = value;
     }
 
+    @Override
+    public long structuralHash() {
+        return Double.doubleToLongBits(value);
+    }
+
     @Override
     public IslandIndividual copyIndividualWithoutMetaData() {
         return new AverageIndividual(value);
@@ -3,6 +3,7 @@ import it.unipr.sowide.islands.IslandEngine;
 import it.unipr.sowide.islands.IslandEnvironment;
 import it.unipr.sowide.islands.IslandIndividual;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.util.RandomUtils;
 
@@ -41,6 +42,11 @@ public class AverageIslandEngine extends IslandEngine {
         return new Pair<>(new AverageIndividual(child1Value), new AverageIndividual(child2Value));
     }
 
+    @Override
+    protected BinaryCodec<IslandIndividual> individualCodec() {
+        return AverageIndividual.CODEC;
+    }
+
     @Override
     public double evaluate(IslandIndividual individual, IslandEnvironment environment) {
         return - Math.abs(((AverageEnvironment) environment).getAverage() - ((AverageIndividual)individual).value);
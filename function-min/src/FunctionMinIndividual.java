@@ -1,9 +1,18 @@
 import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.RandomUtils;
 
 public class FunctionMinIndividual extends IslandIndividual {
 
+    /**
+     * Encodes the genome in binary migrations.
+     */
+    static final BinaryCodec<IslandIndividual> CODEC = BinaryCodec.of(
+            (individual, out) -> BinaryCodec.putDoubles(out, ((FunctionMinIndividual) individual).values),
+            in -> new FunctionMinIndividual(BinaryCodec.getDoubles(in))
+    );
+
     public double[] values = new double[Function.VARIABLES];
 
     public FunctionMinIndividual(RandomUtils random) {
@@ -30,6 +39,16 @@ public class FunctionMinIndividual extends IslandIndividual {
         return this;
     }
 
+    @Override
+    public long structuralHash() {
+        long hash = 0;
+        for (double value : values) {
+            hash = (hash ^ Double.doubleToLongBits(value)) * 0x100000001B3L;
+            hash = Long.rotateLeft(hash, 7);
+        }
+        return hash;
+    }
+
     @Override
     public String toString() {
         return "function min individual .toString todo";
@@ -3,6 +3,7 @@ import it.unipr.sowide.islands.IslandEngine;
 import it.unipr.sowide.islands.IslandEnvironment;
 import it.unipr.sowide.islands.IslandIndividual;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.util.RandomUtils;
 
@@ -47,6 +48,11 @@ public class FunctionMinIslandEngine extends IslandEngine {
         return new Pair<>(new FunctionMinIndividual(child1Values), new FunctionMinIndividual(child2Values));
     }
 
+    @Override
+    protected BinaryCodec<IslandIndividual> individualCodec() {
+        return FunctionMinIndividual.CODEC;
+    }
+
     @Override
     public double evaluate(IslandIndividual individual, IslandEnvironment environment) {
         FunctionMinIndividual ind = (FunctionMinIndividual) individual;
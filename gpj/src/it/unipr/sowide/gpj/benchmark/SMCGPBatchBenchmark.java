@@ -0,0 +1,216 @@
+package it.unipr.sowide.gpj.benchmark;
+
+import it.unipr.sowide.gpj.smcgp32.SMC32PatternArguments;
+import it.unipr.sowide.gpj.smcgp32.SMCGP32;
+import it.unipr.sowide.gpj.smcgp32.SMCGP32DataSet;
+import it.unipr.sowide.gpj.smcgp32.SMCGP32SimpleEvaluation;
+import it.unipr.sowide.gpj.smcgp64.SMC64PatternArguments;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64DataSet;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64SimpleEvaluation;
+import it.unipr.sowide.gpj.tree.Operation;
+import it.unipr.sowide.gpj.tree.Tree;
+import it.unipr.sowide.gpj.tree.TreeInitMethod;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the batch evaluation of SMCGP-32 and SMCGP-64 trees gives the
+ * same results of the scalar one: {@code fitnessSMCTreeBatch} is compared
+ * with {@code fitnessSMCTree}, and {@code evaluateClassifierBatch} with
+ * {@code evaluateClassifier} for each class. The SMCGP-64 batch evaluation
+ * emulates the {@code int} masks {@code 1 << j} of the scalar one, whose
+ * bits 31 to 63 are tested together, so the datasets start with the extreme
+ * values and the trees include the bare terminals.
+ * <p>
+ * The trees are random, of height 1 to {@link #MAX_HEIGHT}, and are
+ * evaluated on a dataset of random instances and on one smaller than a
+ * batch. The program prints the time of the two evaluations, and exits with
+ * status 1 if any result differs.
+ * <p>
+ * Usage: {@code SMCGPBatchBenchmark [cases]}
+ */
+public class SMCGPBatchBenchmark {
+
+    private static final int TREES = 300;
+    private static final int MAX_HEIGHT = 8;
+    private static final int SMALL_CASES = 7;
+
+    private static int mismatches = 0;
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        RandomUtils random = new RandomUtils(42);
+
+        check64(random, cases);
+        check64(random, SMALL_CASES);
+        check32(random, cases);
+        check32(random, SMALL_CASES);
+
+        if (mismatches > 0) {
+            System.out.println(mismatches + " batch results differ");
+            System.exit(1);
+        }
+        System.out.println("all the batch results are equal");
+    }
+
+    private static void check64(RandomUtils random, int cases) {
+        List<Operation<Long, SMC64PatternArguments>> operations =
+                SMCGP64.createOperationsSet(random);
+        SMCGP64DataSet data = new SMCGP64DataSet();
+        // the extreme values first, then random ones
+        data.put(0L, 0L, 0);
+        data.put(-1L, -1L, 1);
+        data.put(Long.MIN_VALUE, Long.MAX_VALUE, 2);
+        data.put(1L << 31, 1L << 32, 0);
+        data.put(0x7FFFFFFFL, 0xFFFFFFFFL, 3);
+        while (data.size() < cases) {
+            data.put(
+                    random.nextLong(), random.nextLong(),
+                    random.nextInt(SMCGP64.N_CLASSES)
+            );
+        }
+        List<Tree<Long, SMC64PatternArguments>> trees =
+                randomTrees(random, operations);
+
+        long scalarTime = 0;
+        long batchTime = 0;
+        for (Tree<Long, SMC64PatternArguments> tree : trees) {
+            long start = System.nanoTime();
+            double scalar = SMCGP64.fitnessSMCTree(tree, data);
+            long middle = System.nanoTime();
+            double batch = SMCGP64.fitnessSMCTreeBatch(tree, data);
+            batchTime += System.nanoTime() - middle;
+            scalarTime += middle - start;
+            if (Double.compare(scalar, batch) != 0) {
+                mismatch("SMCGP-64 fitness", scalar + " != " + batch, tree);
+            }
+            for (int clas = 0; clas < SMCGP64.N_CLASSES; clas++) {
+                SMCGP64SimpleEvaluation expected =
+                        SMCGP64.evaluateClassifier(tree, clas, data);
+                SMCGP64SimpleEvaluation actual =
+                        SMCGP64.evaluateClassifierBatch(tree, clas, data);
+                if (!equal(expected, actual)) {
+                    mismatch(
+                            "SMCGP-64 evaluation of class " + clas,
+                            expected + " != " + actual, tree
+                    );
+                }
+            }
+        }
+        report("SMCGP-64", data.size(), scalarTime, batchTime);
+    }
+
+    private static void check32(RandomUtils random, int cases) {
+        List<Operation<Integer, SMC32PatternArguments>> operations =
+                SMCGP32.createOperationSet(random);
+        SMCGP32DataSet data = new SMCGP32DataSet();
+        // the extreme values first, then random ones
+        data.put(0, 0, 0, 0, 0);
+        data.put(-1, -1, -1, -1, 1);
+        data.put(Integer.MIN_VALUE, Integer.MAX_VALUE, 1, -2, 2);
+        while (data.size() < cases) {
+            data.put(
+                    random.nextInt(), random.nextInt(),
+                    random.nextInt(), random.nextInt(),
+                    random.nextInt(SMCGP32.N_CLASSES)
+            );
+        }
+        List<Tree<Integer, SMC32PatternArguments>> trees =
+                randomTrees(random, operations);
+
+        long scalarTime = 0;
+        long batchTime = 0;
+        for (Tree<Integer, SMC32PatternArguments> tree : trees) {
+            long start = System.nanoTime();
+            double scalar = SMCGP32.fitnessSMCTree(tree, data);
+            long middle = System.nanoTime();
+            double batch = SMCGP32.fitnessSMCTreeBatch(tree, data);
+            batchTime += System.nanoTime() - middle;
+            scalarTime += middle - start;
+            if (Double.compare(scalar, batch) != 0) {
+                mismatch("SMCGP-32 fitness", scalar + " != " + batch, tree);
+            }
+            for (int clas = 0; clas < SMCGP32.N_CLASSES; clas++) {
+                SMCGP32SimpleEvaluation expected =
+                        SMCGP32.evaluateClassifier(tree, clas, data);
+                SMCGP32SimpleEvaluation actual =
+                        SMCGP32.evaluateClassifierBatch(tree, clas, data);
+                if (!equal(expected, actual)) {
+                    mismatch(
+                            "SMCGP-32 evaluation of class " + clas,
+                            expected + " != " + actual, tree
+                    );
+                }
+            }
+        }
+        report("SMCGP-32", data.size(), scalarTime, batchTime);
+    }
+
+    /**
+     * @return random trees of all the heights, grown and full, in equal
+     * numbers
+     */
+    private static <T, C> List<Tree<T, C>> randomTrees(
+            RandomUtils random,
+            List<Operation<T, C>> operations
+    ) {
+        List<Tree<T, C>> trees = new ArrayList<>();
+        for (int i = 0; i < TREES; i++) {
+            trees.add(Tree.randomTree(
+                    random,
+                    operations,
+                    1 + i % MAX_HEIGHT,
+                    i % 2 == 0 ? TreeInitMethod.GROW : TreeInitMethod.FULL
+            ));
+        }
+        return trees;
+    }
+
+    private static boolean equal(
+            SMCGP64SimpleEvaluation expected,
+            SMCGP64SimpleEvaluation actual
+    ) {
+        return Double.compare(expected.getFPR(), actual.getFPR()) == 0
+                && Double.compare(expected.getFNR(), actual.getFNR()) == 0
+                && Double.compare(expected.getTPR(), actual.getTPR()) == 0
+                && Double.compare(expected.getTNR(), actual.getTNR()) == 0
+                && expected.getBestBit() == actual.getBestBit()
+                && Double.compare(
+                expected.getBestFitness(), actual.getBestFitness()
+        ) == 0;
+    }
+
+    private static boolean equal(
+            SMCGP32SimpleEvaluation expected,
+            SMCGP32SimpleEvaluation actual
+    ) {
+        return Double.compare(expected.getFPR(), actual.getFPR()) == 0
+                && Double.compare(expected.getFNR(), actual.getFNR()) == 0
+                && Double.compare(expected.getTPR(), actual.getTPR()) == 0
+                && Double.compare(expected.getTNR(), actual.getTNR()) == 0
+                && expected.getBestBit() == actual.getBestBit()
+                && Double.compare(
+                expected.getBestFitness(), actual.getBestFitness()
+        ) == 0;
+    }
+
+    private static void mismatch(String what, String values, Tree<?, ?> tree) {
+        mismatches++;
+        System.out.println("MISMATCH: " + what + ": " + values + ": " + tree);
+    }
+
+    private static void report(
+            String width,
+            int cases,
+            long scalarTime,
+            long batchTime
+    ) {
+        System.out.printf(
+                "%s, %d cases, %d trees: fitness %d ms (scalar) -> %d ms (batch)%n",
+                width, cases, TREES, scalarTime / 1_000_000, batchTime / 1_000_000
+        );
+    }
+}
@@ -0,0 +1,228 @@
+package it.unipr.sowide.gpj.benchmark;
+
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.core.HallOfFame;
+import it.unipr.sowide.gpj.core.Individual;
+import it.unipr.sowide.gpj.core.breeding.selection.DistinctRandomSelection;
+import it.unipr.sowide.gpj.core.breeding.selection.EliteSelection;
+import it.unipr.sowide.gpj.core.breeding.selection.TournamentSelection;
+import it.unipr.sowide.util.RandomUtils;
+import it.unipr.sowide.util.promise.Promise;
+import it.unipr.sowide.util.promise.Promises;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Compares the selection operators and the hall of fame with the
+ * {@link TreeSet} based implementations they replaced, on populations of
+ * 500 to 100k individuals. Prints the average time of an operation, after a
+ * warm-up.
+ * <p>
+ * Usage: {@code SelectionBenchmark [iterations]}
+ */
+public class SelectionBenchmark {
+
+    private static final int[] POPULATION_SIZES = {500, 5_000, 20_000, 100_000};
+    private static final int TOURNAMENT_SIZE = 7;
+    private static final int ELITE_SIZE = 10;
+    private static final int EMIGRANTS = 10;
+    private static final int HALL_OF_FAME_SIZE = 10;
+
+    /**
+     * prevents the JIT from removing the benchmarked code
+     */
+    private static long blackhole = 0;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        RandomUtils random = new RandomUtils(42);
+        EvolutionContext context = new EvolutionContext() {
+            @Override
+            public RandomUtils getRandom() {
+                return random;
+            }
+
+            @Override
+            public void putStatistic(String key, Double value) {
+            }
+
+            @Override
+            public int getCurrentGeneration() {
+                return 0;
+            }
+        };
+
+        for (int size : POPULATION_SIZES) {
+            List<BenchmarkIndividual> population = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                // few distinct fitnesses, as in the first generations
+                population.add(new BenchmarkIndividual(random.randomInt(0, 100)));
+            }
+
+            TournamentSelection<BenchmarkIndividual> tournament =
+                    new TournamentSelection<>(TOURNAMENT_SIZE);
+            EliteSelection<BenchmarkIndividual> elite = new EliteSelection<>();
+            DistinctRandomSelection<BenchmarkIndividual> distinct =
+                    new DistinctRandomSelection<>();
+
+            System.out.println("population size: " + size);
+            run("tournament (TreeSet)", iterations, population,
+                    p -> consume(treeSetTournament(random, p, p.size())));
+            run("tournament", iterations, population,
+                    p -> tournament.select(context, p, p.size())
+                            .then(SelectionBenchmark::consume).compel());
+            run("elite (TreeSet)", iterations, population,
+                    p -> consume(treeSetElite(p, ELITE_SIZE)));
+            run("elite", iterations, population,
+                    p -> elite.select(context, p, ELITE_SIZE)
+                            .then(SelectionBenchmark::consume).compel());
+            run("distinct random (ArrayList)", iterations, population,
+                    p -> consume(arrayListDistinct(random, p, EMIGRANTS)));
+            run("distinct random", iterations, population,
+                    p -> distinct.select(context, p, EMIGRANTS)
+                            .then(SelectionBenchmark::consume).compel());
+            run("hall of fame (TreeSet)", iterations, population,
+                    p -> blackhole += treeSetHallOfFame(p, HALL_OF_FAME_SIZE).size());
+            run("hall of fame", iterations, population, p -> {
+                HallOfFame<BenchmarkIndividual> hall =
+                        new HallOfFame<>(HALL_OF_FAME_SIZE);
+                hall.pushRankings(p);
+                blackhole += hall.getBestIndividuals().size();
+            });
+        }
+        System.out.println("(" + blackhole + ")");
+    }
+
+    private static void run(
+            String name,
+            int iterations,
+            List<BenchmarkIndividual> population,
+            Consumer<List<BenchmarkIndividual>> operation
+    ) {
+        for (int i = 0; i < iterations; i++) {
+            operation.accept(population);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.accept(population);
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / iterations;
+        System.out.printf("  %-30s %12.1f us/op%n", name, micros);
+    }
+
+    private static void consume(List<BenchmarkIndividual> selected) {
+        blackhole += selected.size();
+    }
+
+    private static List<BenchmarkIndividual> treeSetTournament(
+            RandomUtils random,
+            List<BenchmarkIndividual> population,
+            int targetPopSize
+    ) {
+        List<BenchmarkIndividual> result = new ArrayList<>();
+        for (int i = 0; i < targetPopSize; i++) {
+            SortedSet<BenchmarkIndividual> picked = new TreeSet<>();
+            for (int j = 0; j < TOURNAMENT_SIZE; j++) {
+                picked.add(random.pick(population));
+            }
+            result.add(picked.first());
+        }
+        return result;
+    }
+
+    private static List<BenchmarkIndividual> treeSetElite(
+            List<BenchmarkIndividual> population,
+            int targetPopSize
+    ) {
+        SortedSet<BenchmarkIndividual> best = new TreeSet<>();
+        for (BenchmarkIndividual individual : population) {
+            best.add(individual);
+            if (best.size() > targetPopSize) {
+                best.remove(best.last());
+            }
+        }
+        return new ArrayList<>(best);
+    }
+
+    private static List<BenchmarkIndividual> arrayListDistinct(
+            RandomUtils random,
+            List<BenchmarkIndividual> population,
+            int targetPopSize
+    ) {
+        List<BenchmarkIndividual> tmp = new ArrayList<>(population);
+        List<BenchmarkIndividual> result = new ArrayList<>();
+        while (result.size() < targetPopSize) {
+            result.add(tmp.remove(random.randomInt(0, tmp.size())));
+        }
+        return result;
+    }
+
+    private static SortedSet<BenchmarkIndividual> treeSetHallOfFame(
+            List<BenchmarkIndividual> population,
+            int size
+    ) {
+        SortedSet<BenchmarkIndividual> hall = new TreeSet<>();
+        for (BenchmarkIndividual individual : population) {
+            hall.add(individual);
+            if (hall.size() > size) {
+                hall.remove(hall.last());
+            }
+        }
+        return hall;
+    }
+
+    private static final class BenchmarkIndividual implements Individual {
+        private final double fitness;
+        private boolean inHallOfFame = false;
+
+        private BenchmarkIndividual(double fitness) {
+            this.fitness = fitness;
+        }
+
+        @Override
+        public Promise<Individual, Throwable> copyIndividual() {
+            return Promises.immediatelyResolve(new BenchmarkIndividual(fitness));
+        }
+
+        @Override
+        public int getBirthGeneration() {
+            return 0;
+        }
+
+        @Override
+        public void setBirthGeneration(int gen) {
+        }
+
+        @Override
+        public Optional<Double> getFitness() {
+            return Optional.of(fitness);
+        }
+
+        @Override
+        public void setFitness(double value) {
+        }
+
+        @Override
+        public void resetFitness() {
+        }
+
+        @Override
+        public void kill() {
+        }
+
+        @Override
+        public boolean isInHallOfFame() {
+            return inHallOfFame;
+        }
+
+        @Override
+        public void setInHallOfFame(boolean inHallOfFame) {
+            this.inHallOfFame = inHallOfFame;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package it.unipr.sowide.gpj.benchmark;
+
+import it.unipr.sowide.gpj.smcgp64.SMC64PatternArguments;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64DataSet;
+import it.unipr.sowide.gpj.tree.CompiledTree;
+import it.unipr.sowide.gpj.tree.LongBinaryFunction;
+import it.unipr.sowide.gpj.tree.LongContextTerminal;
+import it.unipr.sowide.gpj.tree.Operation;
+import it.unipr.sowide.gpj.tree.SubtreeCache;
+import it.unipr.sowide.gpj.tree.Tree;
+import it.unipr.sowide.gpj.tree.TreeInitMethod;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the fitnesses of SMCGP-64 trees computed with a
+ * {@link SubtreeCache} are the same computed without it, and measures the
+ * time saved by the cache.
+ * <p>
+ * A population is bred for some generations by crossovers between random
+ * parents, so the individuals share more and more subtrees; at each
+ * generation the cache is updated with the offspring, which is evaluated
+ * with and without the cache. Halfway, some instances are added to the
+ * dataset and its version changes, to check that the cache is invalidated.
+ * Finally, two different subtrees with the same structural hash are built,
+ * to check that the values of one are not loaded for the other. The program
+ * exits with status 1 if any fitness or value differs.
+ * <p>
+ * Usage: {@code SubtreeCacheBenchmark [cases] [budget-mb]}
+ */
+public class SubtreeCacheBenchmark {
+
+    private static final int TREES = 500;
+    private static final int GENERATIONS = 20;
+    private static final int INITIAL_HEIGHT = 6;
+    private static final int MAX_HEIGHT = 12;
+    private static final int ADDED_CASES = 1000;
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+        long budget = (args.length > 1 ? Long.parseLong(args[1]) : 64)
+                * 1024 * 1024;
+        RandomUtils random = new RandomUtils(42);
+        List<Operation<Long, SMC64PatternArguments>> operations =
+                SMCGP64.createOperationsSet(random);
+
+        SMCGP64DataSet data = new SMCGP64DataSet();
+        while (data.size() < cases) {
+            data.put(random.nextLong(), random.nextLong(), random.nextInt(2));
+        }
+        long[] version = {0};
+        SubtreeCache<Long, SMC64PatternArguments> cache =
+                new SubtreeCache<>(data, () -> version[0], budget);
+
+        List<Tree<Long, SMC64PatternArguments>> population = new ArrayList<>();
+        for (int i = 0; i < TREES; i++) {
+            population.add(Tree.randomTree(
+                    random, operations, INITIAL_HEIGHT, TreeInitMethod.FULL
+            ));
+        }
+
+        int mismatches = 0;
+        long totalWithout = 0;
+        long totalWith = 0;
+        for (int generation = 0; generation < GENERATIONS; generation++) {
+            if (generation == GENERATIONS / 2) {
+                for (int i = 0; i < ADDED_CASES; i++) {
+                    data.put(random.nextLong(), random.nextLong(), random.nextInt(2));
+                }
+                version[0]++;
+            }
+            List<Tree<Long, SMC64PatternArguments>> offspring = new ArrayList<>();
+            for (int i = 0; i < TREES; i++) {
+                offspring.add(Tree.crossover(
+                        random, random.pick(population), random.pick(population),
+                        MAX_HEIGHT
+                ).get1());
+            }
+            population = offspring;
+
+            long start = System.nanoTime();
+            double[] expected = new double[TREES];
+            for (int i = 0; i < TREES; i++) {
+                expected[i] = SMCGP64.fitnessSMCTreeBatch(population.get(i), data);
+            }
+            long without = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            cache.update(population);
+            long update = System.nanoTime() - start;
+            double[] actual = new double[TREES];
+            for (int i = 0; i < TREES; i++) {
+                actual[i] = SMCGP64.fitnessSMCTreeBatch(
+                        population.get(i), data, cache
+                );
+            }
+            long with = System.nanoTime() - start;
+
+            for (int i = 0; i < TREES; i++) {
+                if (Double.compare(expected[i], actual[i]) != 0) {
+                    mismatches++;
+                    System.out.println("MISMATCH: " + expected[i] + " != "
+                            + actual[i] + ": " + population.get(i));
+                }
+            }
+            totalWithout += without;
+            totalWith += with;
+            System.out.printf(
+                    "generation %2d: avg size %6.1f, cached %4d (+%d -%d),"
+                            + " %5.1f MB, hits %6d, update %5d ms,"
+                            + " %5d -> %5d ms%n",
+                    generation, averageSize(population), cache.size(),
+                    cache.getLastAdmitted(), cache.getLastEvicted(),
+                    cache.getUsedMemory() / (1024.0 * 1024.0), cache.getHits(),
+                    update / 1_000_000, without / 1_000_000, with / 1_000_000
+            );
+        }
+        System.out.printf(
+                "total: %d -> %d ms%n", totalWithout / 1_000_000,
+                totalWith / 1_000_000
+        );
+        if (!checkCollision(random, data)) {
+            mismatches++;
+            System.out.println("MISMATCH: the values of a colliding subtree"
+                    + " have been loaded");
+        }
+        if (mismatches > 0) {
+            System.out.println(mismatches + " fitnesses or values differ");
+            System.exit(1);
+        }
+        System.out.println("all the fitnesses are equal");
+    }
+
+    /**
+     * Caches {@code AND(PAT1, PAT1)} and compiles with the cache a tree with
+     * the same names, and so the same hash, whose terminal reads the second
+     * pattern instead.
+     *
+     * @return true if the tree is evaluated without loading the values of
+     * the cached one
+     */
+    private static boolean checkCollision(
+            RandomUtils random,
+            SMCGP64DataSet data
+    ) {
+        LongBinaryFunction<SMC64PatternArguments> and =
+                new LongBinaryFunction<>("AND", (l1, l2) -> l1 & l2);
+        Tree<Long, SMC64PatternArguments> cached = Tree.randomTree(
+                random,
+                List.of(and, new LongContextTerminal<>(
+                        "PAT1",
+                        SMCGP64DataSet.PATTERN1_COLUMN,
+                        SMC64PatternArguments::getPat1
+                )),
+                2,
+                TreeInitMethod.FULL
+        );
+        Tree<Long, SMC64PatternArguments> colliding = Tree.randomTree(
+                random,
+                List.of(and, new LongContextTerminal<>(
+                        "PAT1",
+                        SMCGP64DataSet.PATTERN2_COLUMN,
+                        SMC64PatternArguments::getPat2
+                )),
+                2,
+                TreeInitMethod.FULL
+        );
+        if (cached.structuralHash() != colliding.structuralHash()) {
+            throw new IllegalStateException("The subtrees do not collide");
+        }
+
+        SubtreeCache<Long, SMC64PatternArguments> cache =
+                new SubtreeCache<>(data, 1024L * 1024 * 1024);
+        cache.update(List.of(cached, cached));
+        if (cache.size() != 1) {
+            throw new IllegalStateException("The subtree is not cached");
+        }
+        int length = Math.min(data.size(), 1024);
+        CompiledTree<Long, SMC64PatternArguments> program =
+                cache.compile(colliding);
+        long[] actual = program.evalBatch(
+                data, 0, length, program.newBatchStack(length)
+        );
+        for (int i = 0; i < length; i++) {
+            if (actual[i] != data.getPattern2(i)) {
+                return false;
+            }
+        }
+        return cache.getHits() == 0;
+    }
+
+    private static double averageSize(List<Tree<Long, SMC64PatternArguments>> trees) {
+        long size = 0;
+        for (Tree<Long, SMC64PatternArguments> tree : trees) {
+            size += tree.size();
+        }
+        return (double) size / trees.size();
+    }
+}
@@ -0,0 +1,127 @@
+package it.unipr.sowide.gpj.benchmark;
+
+import it.unipr.sowide.gpj.smcgp64.SMC64PatternArguments;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.tree.Operation;
+import it.unipr.sowide.gpj.tree.Tree;
+import it.unipr.sowide.gpj.tree.TreeInitMethod;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Measures the throughput of the crossover and of the mutations of the
+ * trees, of their copies and of the queries of their size and height, on
+ * SMCGP-64 trees of height 12 to 17. Prints the average time of an
+ * operation, after a warm-up, and the bytes it allocates.
+ * <p>
+ * Usage: {@code TreeCrossoverBenchmark [iterations]}
+ */
+public class TreeCrossoverBenchmark {
+
+    private static final int[] HEIGHTS = {12, 14, 17};
+    private static final int TREES = 200;
+    private static final int INITIAL_HEIGHT = 6;
+    private static final int BREEDING_ROUNDS = 50;
+
+    /**
+     * prevents the JIT from removing the benchmarked code
+     */
+    private static long blackhole = 0;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        RandomUtils random = new RandomUtils(42);
+        List<Operation<Long, SMC64PatternArguments>> operations =
+                SMCGP64.createOperationsSet(random);
+
+        for (int height : HEIGHTS) {
+            List<Tree<Long, SMC64PatternArguments>> trees = new ArrayList<>(TREES);
+            for (int i = 0; i < TREES; i++) {
+                trees.add(Tree.randomTree(
+                        random, operations, INITIAL_HEIGHT, TreeInitMethod.FULL
+                ));
+            }
+            // the trees grow to the limit by crossovers, keeping the larger
+            // child, like the bloat of an evolution
+            for (int i = 0; i < TREES * BREEDING_ROUNDS; i++) {
+                int index = random.nextInt(TREES);
+                Tree<Long, SMC64PatternArguments> child = Tree.crossover(
+                        random, trees.get(index), random.pick(trees), height
+                ).get1();
+                if (child.size() >= trees.get(index).size()) {
+                    trees.set(index, child);
+                }
+            }
+            long nodes = 0;
+            for (Tree<Long, SMC64PatternArguments> tree : trees) {
+                nodes += tree.size();
+            }
+
+            System.out.println("height: " + height + ", average size: " + nodes / TREES);
+            run("copy", iterations, random, trees, (t1, t2) -> {
+                t1.copyIndividual().then(copy -> blackhole += copy.hashCode()).compel();
+            });
+            run("crossover", iterations, random, trees, (t1, t2) -> {
+                blackhole += Tree.crossover(random, t1, t2, height).get1().size();
+            });
+            run("structural mutation", iterations, random, trees, (t1, t2) -> {
+                blackhole += Tree.structuralMutation(random, t1, height).size();
+            });
+            run("headless chicken mutation", iterations, random, trees, (t1, t2) -> {
+                blackhole += Tree.headlessChickenMutation(
+                        random, t1, operations, 4, height
+                ).size();
+            });
+            run("node mutation", iterations, random, trees, (t1, t2) -> {
+                blackhole += Tree.mutateNodeSameArity(random, t1, operations).size();
+            });
+            run("subtree mutation", iterations, random, trees, (t1, t2) -> {
+                blackhole += Tree.changeSubTreeMutation(
+                        random, t1, operations, height, 4, height
+                ).size();
+            });
+            run("size and height", iterations, random, trees, (t1, t2) -> {
+                blackhole += t1.size() + t1.height();
+            });
+        }
+        System.out.println("(" + blackhole + ")");
+    }
+
+    private static void run(
+            String name,
+            int iterations,
+            RandomUtils random,
+            List<Tree<Long, SMC64PatternArguments>> trees,
+            BiConsumer<Tree<Long, SMC64PatternArguments>, Tree<Long, SMC64PatternArguments>> operation
+    ) {
+        for (int i = 0; i < iterations; i++) {
+            operation.accept(random.pick(trees), random.pick(trees));
+        }
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.accept(random.pick(trees), random.pick(trees));
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / iterations;
+        double bytes = (allocatedBytes() - allocated) / (double) iterations;
+        System.out.printf("  %-30s %12.2f us/op %12.0f B/op%n", name, micros, bytes);
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far, or 0 if the JVM
+     * does not measure them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
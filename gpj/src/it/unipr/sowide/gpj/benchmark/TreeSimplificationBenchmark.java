@@ -0,0 +1,258 @@
+package it.unipr.sowide.gpj.benchmark;
+
+import it.unipr.sowide.gpj.smcgp64.SMC64PatternArguments;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64DataSet;
+import it.unipr.sowide.gpj.tree.CompiledTree;
+import it.unipr.sowide.gpj.tree.Operation;
+import it.unipr.sowide.gpj.tree.Tree;
+import it.unipr.sowide.gpj.tree.TreeInitMethod;
+import it.unipr.sowide.gpj.tree.TreeStore;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the simplification and the interning of SMCGP-64 trees (see
+ * {@link SMCGP64#createSimplifier(List)}) do not change their values, and
+ * measures how much they reduce the nodes stored and the instructions
+ * evaluated for each fitness case.
+ * <p>
+ * The trees, of height 12 and 17, are bred by crossovers and structural
+ * mutations, and small random trees are added to exercise the rules. Each
+ * tree is evaluated, before and after, on random fitness cases with
+ * {@link Tree#eval(Object)}, and after with
+ * {@link CompiledTree#evalLong(Object, long[])} and
+ * {@link CompiledTree#evalBatch}: the program exits with status 1 if any
+ * value differs.
+ * <p>
+ * Usage: {@code TreeSimplificationBenchmark [cases]}
+ */
+public class TreeSimplificationBenchmark {
+
+    private static final int[] HEIGHTS = {12, 17};
+    private static final int TREES = 500;
+    private static final int SMALL_TREES = 5000;
+    private static final int INITIAL_HEIGHT = 6;
+    private static final int BREEDING_ROUNDS = 50;
+    private static final int CHECKED_CASES = 64;
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * prevents the JIT from removing the benchmarked code
+     */
+    private static long blackhole = 0;
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+        RandomUtils random = new RandomUtils(42);
+        List<Operation<Long, SMC64PatternArguments>> operations =
+                SMCGP64.createOperationsSet(random);
+
+        SMCGP64DataSet data = new SMCGP64DataSet();
+        // the extreme values first, then random ones
+        data.put(0L, 0L, 0);
+        data.put(-1L, 0L, 0);
+        data.put(0L, -1L, 0);
+        data.put(Long.MIN_VALUE, Long.MAX_VALUE, 0);
+        while (data.size() < cases) {
+            data.put(random.nextLong(), random.nextLong(), 0);
+        }
+
+        int mismatches = 0;
+        for (int height : HEIGHTS) {
+            List<Tree<Long, SMC64PatternArguments>> trees =
+                    breed(random, operations, height);
+            // the small trees are only checked, the measures are of the bred
+            // population
+            for (int i = 0; i < SMALL_TREES; i++) {
+                trees.add(Tree.randomTree(
+                        random, operations, 2 + random.nextInt(4), TreeInitMethod.GROW
+                ));
+            }
+
+            long[][] expected = new long[trees.size()][];
+            List<Tree<Long, SMC64PatternArguments>> originals =
+                    new ArrayList<>(trees.size());
+            for (int i = 0; i < trees.size(); i++) {
+                expected[i] = evalTree(trees.get(i), data);
+                originals.add(trees.get(i).copyTree());
+            }
+
+            TreeStore<Long, SMC64PatternArguments> store =
+                    new TreeStore<>(SMCGP64.createSimplifier(operations));
+            List<Tree<Long, SMC64PatternArguments>> interned =
+                    new ArrayList<>(trees.size());
+            for (Tree<Long, SMC64PatternArguments> tree : trees) {
+                interned.add(store.intern(tree));
+            }
+
+            for (int i = 0; i < interned.size(); i++) {
+                Tree<Long, SMC64PatternArguments> tree = interned.get(i);
+                if (!equal(expected[i], evalTree(tree, data))
+                        || !equal(expected[i], evalLong(tree, data))
+                        || !equal(expected[i], evalBatch(tree, data, CHECKED_CASES))) {
+                    mismatches++;
+                    System.out.println("MISMATCH: " + originals.get(i) + "\n -> " + tree);
+                }
+            }
+
+            System.out.println("height: " + height + ", trees: " + TREES);
+            System.out.printf(
+                    "  %-30s %12d -> %d%n", "small trees nodes",
+                    totalSize(originals.subList(TREES, trees.size())),
+                    totalSize(interned.subList(TREES, trees.size()))
+            );
+            trees = trees.subList(0, TREES);
+            originals = originals.subList(0, TREES);
+            interned = interned.subList(0, TREES);
+            System.out.printf(
+                    "  %-30s %12d -> %d%n", "nodes",
+                    totalSize(originals), totalSize(interned)
+            );
+            System.out.printf(
+                    "  %-30s %12d -> %d%n", "distinct nodes",
+                    TreeStore.countNodes(trees), TreeStore.countNodes(interned)
+            );
+            System.out.printf(
+                    "  %-30s %12d -> %d%n", "instructions per case",
+                    instructions(originals), instructions(interned)
+            );
+            double before = time(originals, data);
+            double after = time(interned, data);
+            System.out.printf(
+                    "  %-30s %12.2f -> %.2f ns/case%n", "batch evaluation",
+                    before, after
+            );
+        }
+        System.out.println("(" + blackhole + ")");
+        if (mismatches > 0) {
+            System.out.println(mismatches + " simplified trees differ");
+            System.exit(1);
+        }
+        System.out.println("all the simplified trees are equivalent");
+    }
+
+    /**
+     * Grows a population by crossovers and structural mutations, keeping
+     * the larger child, like the bloat of an evolution.
+     */
+    private static List<Tree<Long, SMC64PatternArguments>> breed(
+            RandomUtils random,
+            List<Operation<Long, SMC64PatternArguments>> operations,
+            int height
+    ) {
+        List<Tree<Long, SMC64PatternArguments>> trees = new ArrayList<>();
+        for (int i = 0; i < TREES; i++) {
+            trees.add(Tree.randomTree(
+                    random, operations, INITIAL_HEIGHT, TreeInitMethod.FULL
+            ));
+        }
+        for (int i = 0; i < TREES * BREEDING_ROUNDS; i++) {
+            int index = random.nextInt(TREES);
+            Tree<Long, SMC64PatternArguments> child = random.nextBoolean()
+                    ? Tree.crossover(
+                    random, trees.get(index), random.pick(trees), height
+            ).get1()
+                    : Tree.structuralMutation(random, trees.get(index), height);
+            if (child.size() >= trees.get(index).size()) {
+                trees.set(index, child);
+            }
+        }
+        return trees;
+    }
+
+    private static long[] evalTree(
+            Tree<Long, SMC64PatternArguments> tree,
+            SMCGP64DataSet data
+    ) {
+        long[] result = new long[CHECKED_CASES];
+        SMC64PatternArguments context = new SMC64PatternArguments();
+        for (int i = 0; i < result.length; i++) {
+            context.setPat1(data.getPattern1(i));
+            context.setPat2(data.getPattern2(i));
+            result[i] = tree.eval(context);
+        }
+        return result;
+    }
+
+    private static long[] evalLong(
+            Tree<Long, SMC64PatternArguments> tree,
+            SMCGP64DataSet data
+    ) {
+        CompiledTree<Long, SMC64PatternArguments> program = tree.compile();
+        long[] stack = program.newLongStack();
+        long[] result = new long[CHECKED_CASES];
+        SMC64PatternArguments context = new SMC64PatternArguments();
+        for (int i = 0; i < result.length; i++) {
+            context.setPat1(data.getPattern1(i));
+            context.setPat2(data.getPattern2(i));
+            result[i] = program.evalLong(context, stack);
+        }
+        return result;
+    }
+
+    private static long[] evalBatch(
+            Tree<Long, SMC64PatternArguments> tree,
+            SMCGP64DataSet data,
+            int length
+    ) {
+        CompiledTree<Long, SMC64PatternArguments> program = tree.compile();
+        return program.evalBatch(data, 0, length, program.newBatchStack(length))
+                .clone();
+    }
+
+    private static boolean equal(long[] expected, long[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long totalSize(List<Tree<Long, SMC64PatternArguments>> trees) {
+        long size = 0;
+        for (Tree<Long, SMC64PatternArguments> tree : trees) {
+            size += tree.size();
+        }
+        return size;
+    }
+
+    private static long instructions(List<Tree<Long, SMC64PatternArguments>> trees) {
+        long instructions = 0;
+        for (Tree<Long, SMC64PatternArguments> tree : trees) {
+            instructions += tree.compile().length();
+        }
+        return instructions;
+    }
+
+    /**
+     * @return the average time to evaluate a tree on a fitness case, in
+     * batch, after a warm-up
+     */
+    private static double time(
+            List<Tree<Long, SMC64PatternArguments>> trees,
+            SMCGP64DataSet data
+    ) {
+        evalAll(trees, data);
+        long start = System.nanoTime();
+        evalAll(trees, data);
+        return (System.nanoTime() - start) / ((double) trees.size() * data.size());
+    }
+
+    private static void evalAll(
+            List<Tree<Long, SMC64PatternArguments>> trees,
+            SMCGP64DataSet data
+    ) {
+        for (Tree<Long, SMC64PatternArguments> tree : trees) {
+            CompiledTree<Long, SMC64PatternArguments> program = tree.compile();
+            long[][] stack = program.newBatchStack(BATCH_SIZE);
+            for (int from = 0; from < data.size(); from += BATCH_SIZE) {
+                int length = Math.min(BATCH_SIZE, data.size() - from);
+                blackhole += program.evalBatch(data, from, length, stack)[0];
+            }
+        }
+    }
+}
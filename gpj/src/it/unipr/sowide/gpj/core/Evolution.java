@@ -10,8 +10,11 @@ import it.unipr.sowide.util.promise.Promises;
 import it.unipr.sowide.util.promise.Unit;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
@@ -148,12 +151,13 @@ public class Evolution<I extends Individual> {
         }).thenAwait((__) -> evaluator.updateEvaluationsAsync(currentPopulation)
         ).thenAwait((Integer evaluationsCount) -> {
             this.evaluationsCount.addAndGet(evaluationsCount);
+            evaluator.putStatistics(evolutionContext);
             logbook.logEvaluationsDone(evaluationsCount);
             var currentGenBest = hallOfFame.pushRankings(currentPopulation);
             if (currentGenBest != null) {
                 logbook.logGenerationBest(currentGenBest);
             }
-            logbook.logAllTimeBest(hallOfFame.getBestIndividuals().first());
+            logbook.logAllTimeBest(hallOfFame.bestIndividual());
             if (target != null && currentGenBest != null
                     && currentGenBest.getFitness().isPresent()
                     && currentGenBest.compareTo(target) <= 0) {
@@ -289,9 +293,16 @@ public class Evolution<I extends Individual> {
                 currentPopulation,
                 howManyEmigrants
         ).then((emigrants) -> {
+            /*
+             removed by identity: equals can match a different individual,
+             e.g. one with the same fitness, and the emigrant would then
+             stay in this population too
+             */
+            Set<I> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removed.addAll(emigrants);
+            currentPopulation.removeIf(removed::contains);
             for (I emigrant : emigrants) {
-                currentPopulation.remove(emigrant);
-                hallOfFame.getBestIndividuals().remove(emigrant);
+                hallOfFame.remove(emigrant);
             }
         });
     }
@@ -306,6 +317,31 @@ public class Evolution<I extends Individual> {
         hallOfFame.pushRankings(immigrants);
     }
 
+    /**
+     * Replaces the state of this evolution with a previously saved one, e.g.
+     * to resume it from a checkpoint. The hall of fame is rebuilt from the
+     * specified individuals, which can also belong to the population.
+     *
+     * @param population       the population
+     * @param hallOfFame       the individuals in the hall of fame
+     * @param generation       the number of executed generations
+     * @param evaluationsCount the number of performed evaluations
+     */
+    public void restore(
+            List<I> population,
+            List<I> hallOfFame,
+            int generation,
+            int evaluationsCount
+    ) {
+        currentPopulation.clear();
+        currentPopulation.addAll(population);
+        this.hallOfFame.clear();
+        this.hallOfFame.pushRankings(hallOfFame);
+        this.evaluationsCount.set(evaluationsCount);
+
+        logbook.logPopulationRestored(generation, currentPopulation.size());
+    }
+
     /**
      * @return the hall of fame
      */
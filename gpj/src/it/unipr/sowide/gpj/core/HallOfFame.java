@@ -2,9 +2,10 @@ package it.unipr.sowide.gpj.core;
 
 import it.unipr.sowide.util.Require;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
 /**
  * Contains the best individuals encountered in an evolution.
@@ -15,7 +16,12 @@ import java.util.TreeSet;
 public class HallOfFame<I extends Individual> {
 
     private final int size;
-    private final SortedSet<I> hall = new TreeSet<>();
+
+    /**
+     * a bounded binary heap with the worst individual of the hall at the root
+     */
+    private final Object[] heap;
+    private int count = 0;
 
     /**
      * An hall of fame that keeps the specified number of best individuals.
@@ -25,11 +31,15 @@ public class HallOfFame<I extends Individual> {
     public HallOfFame(int size) {
         Require.strictlyPositive(size);
         this.size = size;
+        this.heap = new Object[size];
     }
 
     /**
      * Method used update the hall of fame, and, in the process, retrieve the
-     * best individual of the provided population.
+     * best individual of the provided population. Most of the individuals
+     * are rejected with a single comparison with the worst individual of the
+     * hall. As in a sorted set, an individual is not added if an individual
+     * that compares equal to it is already in the hall.
      *
      * @param pop the population used to update the hall of fame
      * @return the best individual found in {@code pop}
@@ -44,31 +54,134 @@ public class HallOfFame<I extends Individual> {
                     submittedBest = ind;
                 }
             }
-            hall.add(ind);
-            if (hall.size() > size) {
-                I last = hall.last();
-                last.setInHallOfFame(false);
-                hall.remove(last);
-            }
+            push(ind);
         }
-        hall.forEach(i -> i.setInHallOfFame(true));
         return submittedBest;
     }
 
+    private void push(I ind) {
+        if (count == size && ind.compareTo(at(0)) >= 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (ind.compareTo(at(i)) == 0) {
+                return;
+            }
+        }
+
+        ind.setInHallOfFame(true);
+        if (count < size) {
+            heap[count] = ind;
+            siftUp(count++);
+        } else {
+            at(0).setInHallOfFame(false);
+            heap[0] = ind;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Removes an individual from the hall of fame, if present.
+     *
+     * @param ind the individual
+     * @return true if the individual was in the hall of fame
+     */
+    public boolean remove(I ind) {
+        for (int i = 0; i < count; i++) {
+            if (heap[i] == ind) {
+                ind.setInHallOfFame(false);
+                heap[i] = heap[--count];
+                heap[count] = null;
+                if (i < count) {
+                    siftDown(i);
+                    siftUp(i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all the individuals from the hall of fame.
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            at(i).setInHallOfFame(false);
+            heap[i] = null;
+        }
+        count = 0;
+    }
+
     /**
-     * Returns a sorted set with the best individuals. The first individual in
-     * the set is the best fit.
+     * Returns a list with the best individuals. The first individual in
+     * the list is the best fit.
      *
      * @return the best individuals
      */
-    public SortedSet<I> getBestIndividuals() {
-        return hall;
+    public List<I> getBestIndividuals() {
+        List<I> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(at(i));
+        }
+        result.sort(Comparator.naturalOrder());
+        return result;
     }
 
     /**
      * @return the best individual in the hall of fame
      */
     public I bestIndividual() {
-        return getBestIndividuals().first();
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        I best = at(0);
+        for (int i = 1; i < count; i++) {
+            if (at(i).compareTo(best) < 0) {
+                best = at(i);
+            }
+        }
+        return best;
+    }
+
+    @SuppressWarnings("unchecked")
+    private I at(int i) {
+        return (I) heap[i];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (at(i).compareTo(at(parent)) <= 0) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < count && at(left).compareTo(at(worst)) > 0) {
+                worst = left;
+            }
+            if (right < count && at(right).compareTo(at(worst)) > 0) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
     }
 }
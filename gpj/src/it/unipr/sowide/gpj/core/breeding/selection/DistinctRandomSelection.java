@@ -2,30 +2,54 @@ package it.unipr.sowide.gpj.core.breeding.selection;
 
 import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.gpj.core.Individual;
+import it.unipr.sowide.util.RandomUtils;
 import it.unipr.sowide.util.promise.Promise;
 import it.unipr.sowide.util.promise.Promises;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Selects distinct individuals at random, by a partial Fisher-Yates shuffle
+ * of the indices of the population. The shuffled indices are kept as they
+ * are between calls: a partial shuffle of any permutation is still uniform,
+ * so, while the size of the population does not change, a selection costs
+ * O(targetPopSize).
+ *
+ * @param <I> the type of the individuals
+ */
 public class DistinctRandomSelection<I extends Individual> extends Selection<I> {
 
+    private int[] indices = new int[0];
+    private int permutationSize = 0;
+
     @Override
     public Promise<List<I>, Throwable> select(
             EvolutionContext evolutionContext,
             List<I> oldPopulation,
             int targetPopSize
     ) {
-        List<I> tmp = new ArrayList<>(oldPopulation);
-        List<I> result = new ArrayList<>();
-        while (result.size() < targetPopSize) {
-            int index = evolutionContext.getRandom().randomInt(
-                    0,
-                    tmp.size()
-            );
-            result.add(tmp.remove(index));
+        RandomUtils random = evolutionContext.getRandom();
+        int size = oldPopulation.size();
+        if (size != permutationSize) {
+            if (indices.length < size) {
+                indices = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+            permutationSize = size;
+        }
+
+        List<I> result = new ArrayList<>(targetPopSize);
+        for (int i = 0; i < targetPopSize; i++) {
+            // throws if more individuals than available are requested
+            int j = i + random.randomInt(0, size - i);
+            int picked = indices[j];
+            indices[j] = indices[i];
+            indices[i] = picked;
+            result.add(oldPopulation.get(picked));
         }
-        tmp.clear();
         return Promises.immediatelyResolve(result);
     }
 }
@@ -7,25 +7,31 @@ import it.unipr.sowide.util.promise.Promises;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
+/**
+ * Selects the best individuals, the best first, by partial selection on the
+ * fitnesses of the population.
+ *
+ * @param <I> the type of the individuals
+ */
 public class EliteSelection<I extends Individual> extends Selection<I> {
+
+    private final PopulationRanking<I> ranking = new PopulationRanking<>();
+
     @Override
     public Promise<List<I>, Throwable> select(
             EvolutionContext evolutionContext,
             List<I> oldPopulation,
             int targetPopSize
     ) {
-        SortedSet<I> best = new TreeSet<>();
+        ranking.rank(oldPopulation);
+        int howMany = Math.min(targetPopSize, ranking.size());
+        int[] best = ranking.best(howMany);
 
-        for (I desc : oldPopulation) {
-            best.add(desc);
-            if (best.size() > targetPopSize) {
-                best.remove(best.last());
-            }
+        List<I> result = new ArrayList<>(howMany);
+        for (int i = 0; i < howMany; i++) {
+            result.add(ranking.get(best[i]));
         }
-
-        return Promises.immediatelyResolve(new ArrayList<>(best));
+        return Promises.immediatelyResolve(result);
     }
 }
@@ -0,0 +1,236 @@
+package it.unipr.sowide.gpj.core.breeding.selection;
+
+import it.unipr.sowide.gpj.core.Individual;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The fitnesses of a population, extracted once in a primitive array so that
+ * the selection operators can compare the individuals by their index without
+ * unboxing the fitness at each comparison. The ranking is consistent with
+ * {@link Individual#MAXIMIZE} and {@link Individual#MINIMIZE}; if the
+ * individuals use other comparators, it falls back to
+ * {@link Individual#compareTo(Individual)}.
+ * <p>
+ * The buffers are reused by the following calls to {@link #rank(List)}, so
+ * an instance should be owned by a single operator and it is not
+ * thread-safe.
+ *
+ * @param <I> the type of the individuals
+ */
+public class PopulationRanking<I extends Individual> {
+
+    /**
+     * below this size, the ranges are sorted by insertion
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private List<I> population = List.of();
+
+    /**
+     * for each individual, a key such that lower keys are better
+     */
+    private long[] keys = new long[0];
+
+    private int[] indices = new int[0];
+
+    private boolean primitive = false;
+
+    /**
+     * bounds of the elements equal to the pivot after {@link #partition}
+     */
+    private int equalsStart;
+    private int equalsEnd;
+
+    /**
+     * Extracts the fitnesses of the population, in O(n).
+     *
+     * @param population the population to be ranked
+     */
+    public void rank(List<I> population) {
+        this.population = population;
+        int size = population.size();
+        if (keys.length < size) {
+            keys = new long[size];
+            indices = new int[size];
+        }
+
+        primitive = true;
+        for (int i = 0; i < size && primitive; i++) {
+            I individual = population.get(i);
+            Optional<Double> fitness = individual.getFitness();
+            if (individual.comparator() == Individual.MAXIMIZE) {
+                // unevaluated individuals first, then NaN, then the highest
+                keys[i] = fitness.isEmpty() ?
+                        Long.MIN_VALUE :
+                        fitness.get().isNaN() ?
+                                Long.MIN_VALUE + 1 :
+                                -sortableBits(fitness.get());
+            } else if (individual.comparator() == Individual.MINIMIZE) {
+                // the lowest first, then NaN, then unevaluated individuals
+                keys[i] = fitness.isEmpty() ?
+                        Long.MAX_VALUE :
+                        fitness.get().isNaN() ?
+                                Long.MAX_VALUE - 1 :
+                                sortableBits(fitness.get());
+            } else {
+                primitive = false;
+            }
+        }
+    }
+
+    /**
+     * Maps a (non NaN) double to a long with the same ordering of
+     * {@link Double#compare(double, double)}, far from the extremes of the
+     * long range, which are used for unevaluated individuals and NaN.
+     */
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the size of the last ranked population
+     */
+    public int size() {
+        return population.size();
+    }
+
+    /**
+     * @param index the index of an individual
+     * @return the individual in the last ranked population
+     */
+    public I get(int index) {
+        return population.get(index);
+    }
+
+    /**
+     * Compares two individuals of the last ranked population.
+     *
+     * @param i the index of the first individual
+     * @param j the index of the second individual
+     * @return a negative value if the first individual is better, a positive
+     * value if the second one is better, 0 otherwise
+     */
+    public int compare(int i, int j) {
+        if (primitive) {
+            return Long.compare(keys[i], keys[j]);
+        }
+        return population.get(i).compareTo(population.get(j));
+    }
+
+    /**
+     * Returns a buffer with the indices {@code 0 ... size() - 1} of the last
+     * ranked population, which can be freely permutated by the caller until
+     * the next call to this method or to {@link #best(int)}.
+     *
+     * @return the buffer; it may be longer than {@link #size()}
+     */
+    public int[] indices() {
+        for (int i = 0; i < size(); i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * Finds the best {@code howMany} individuals by partial selection, in
+     * O(n) on average, and sorts only them.
+     *
+     * @param howMany how many individuals to find
+     * @return a buffer whose first {@code min(howMany, size())} elements are
+     * the indices of the best individuals, the best first
+     */
+    public int[] best(int howMany) {
+        int[] result = indices();
+        int k = Math.min(howMany, size());
+        if (k <= 0) {
+            return result;
+        }
+
+        int lo = 0;
+        int hi = size() - 1;
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            partition(result, lo, hi);
+            if (k - 1 < equalsStart) {
+                hi = equalsStart - 1;
+            } else if (k - 1 > equalsEnd) {
+                lo = equalsEnd + 1;
+            } else {
+                break;
+            }
+        }
+        if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(result, lo, hi);
+        }
+
+        sort(result, 0, k - 1);
+        return result;
+    }
+
+    private void sort(int[] a, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            partition(a, lo, hi);
+            int lessEnd = equalsStart - 1;
+            int greaterStart = equalsEnd + 1;
+            // recurses on the smaller part to bound the stack depth
+            if (lessEnd - lo < hi - greaterStart) {
+                sort(a, lo, lessEnd);
+                lo = greaterStart;
+            } else {
+                sort(a, greaterStart, hi);
+                hi = lessEnd;
+            }
+        }
+        insertionSort(a, lo, hi);
+    }
+
+    private void insertionSort(int[] a, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            int x = a[i];
+            int j = i - 1;
+            while (j >= lo && compare(a[j], x) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = x;
+        }
+    }
+
+    /**
+     * Three-way partition around the median of three, which keeps the
+     * selection deterministic and linear also when many individuals have the
+     * same fitness. Sets {@link #equalsStart} and {@link #equalsEnd} to the
+     * bounds of the individuals equal to the pivot.
+     */
+    private void partition(int[] a, int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (compare(a[mid], a[lo]) < 0) swap(a, mid, lo);
+        if (compare(a[hi], a[lo]) < 0) swap(a, hi, lo);
+        if (compare(a[hi], a[mid]) < 0) swap(a, hi, mid);
+        int pivot = a[mid];
+
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            int c = compare(a[i], pivot);
+            if (c < 0) {
+                swap(a, lt++, i++);
+            } else if (c > 0) {
+                swap(a, i, gt--);
+            } else {
+                i++;
+            }
+        }
+        equalsStart = lt;
+        equalsEnd = gt;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
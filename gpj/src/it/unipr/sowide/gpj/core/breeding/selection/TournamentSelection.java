@@ -2,17 +2,24 @@ package it.unipr.sowide.gpj.core.breeding.selection;
 
 import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.gpj.core.Individual;
+import it.unipr.sowide.util.RandomUtils;
 import it.unipr.sowide.util.promise.Promise;
 import it.unipr.sowide.util.promise.Promises;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
+/**
+ * Selects each individual as the best of {@code tournamentSize} individuals
+ * picked at random. The fitnesses are extracted once per selection, so each
+ * tournament costs {@code tournamentSize} primitive comparisons.
+ *
+ * @param <I> the type of the individuals
+ */
 public class TournamentSelection<I extends Individual> extends Selection<I> {
 
     private final int tournamentSize;
+    private final PopulationRanking<I> ranking = new PopulationRanking<>();
 
     public TournamentSelection(int tournamentSize) {
         this.tournamentSize = tournamentSize;
@@ -24,17 +31,25 @@ public class TournamentSelection<I extends Individual> extends Selection<I> {
             List<I> oldPopulation,
             int targetPopSize
     ) {
-        List<I> result = new ArrayList<>();
-        for (int i = 0; i < targetPopSize; i++) {
+        List<I> result = new ArrayList<>(targetPopSize);
+        if (oldPopulation.isEmpty()) {
+            return Promises.immediatelyResolve(result);
+        }
 
-            SortedSet<I> picked = new TreeSet<>();
-            while (picked.size() < tournamentSize) {
-                picked.add(evolutionContext.getRandom().pick(oldPopulation));
+        RandomUtils random = evolutionContext.getRandom();
+        ranking.rank(oldPopulation);
+        int size = ranking.size();
+        for (int i = 0; i < targetPopSize; i++) {
+            // on ties, the first picked individual wins
+            int winner = random.randomInt(0, size);
+            for (int j = 1; j < tournamentSize; j++) {
+                int picked = random.randomInt(0, size);
+                if (ranking.compare(picked, winner) < 0) {
+                    winner = picked;
+                }
             }
 
-
-            result.add(picked.first());
-
+            result.add(ranking.get(winner));
         }
         return Promises.immediatelyResolve(result);
     }
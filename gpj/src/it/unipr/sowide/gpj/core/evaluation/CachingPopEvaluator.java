@@ -0,0 +1,241 @@
+package it.unipr.sowide.gpj.core.evaluation;
+
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.core.Individual;
+import it.unipr.sowide.util.Require;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Updates the fitnesses of a population through another evaluator, reusing
+ * the fitnesses already computed for individuals with the same structure
+ * (e.g. copies of elite individuals, reproduced individuals, children equal
+ * to a parent and immigrants).
+ * <p>
+ * The fitnesses are stored in a bounded cache, keyed by a 64-bit structural
+ * hash of the individuals, that evicts the least recently used entries. Each
+ * fitness is stored with the genome of the individual, and it is reused only
+ * for individuals with an equal genome, so the individuals with the same hash
+ * are not mistaken for each other. The
+ * cache is scoped to a version of the environment used to compute the
+ * fitnesses: when the version changes (e.g. because some instances of data
+ * migrated), all the cached fitnesses are dropped.
+ * <p>
+ * The numbers of cache hits and misses of each generation are reported as
+ * statistics of the generation.
+ *
+ * @param <I> the type of the individual
+ */
+public class CachingPopEvaluator<I extends Individual>
+        implements SyncPopulationEvaluator<I> {
+
+    private final SyncPopulationEvaluator<I> evaluator;
+    private final ToLongFunction<? super I> structuralHash;
+    private final Function<? super I, ?> genome;
+    private final LongSupplier environmentVersion;
+    private final Map<Long, Entry> cache;
+    private long cachedVersion;
+
+    private int lastHits = 0;
+    private int lastMisses = 0;
+    private long totalHits = 0;
+    private long totalMisses = 0;
+
+    /**
+     * Updates the fitnesses of a population, caching them.
+     *
+     * @param evaluator          the evaluator that computes the fitnesses
+     *                           not in the cache
+     * @param structuralHash     computes a hash of an individual that
+     *                           depends only on its structure (i.e. equal
+     *                           for individuals with the same fitness)
+     * @param genome             returns the genome of an individual, as an
+     *                           object that is not affected by the later
+     *                           changes of the individual and that is equal
+     *                           to the genome of another individual if and
+     *                           only if they have the same structure
+     * @param environmentVersion returns the current version of the
+     *                           environment used to compute the fitnesses
+     * @param capacity           the maximum number of cached fitnesses
+     */
+    public CachingPopEvaluator(
+            SyncPopulationEvaluator<I> evaluator,
+            ToLongFunction<? super I> structuralHash,
+            Function<? super I, ?> genome,
+            LongSupplier environmentVersion,
+            int capacity
+    ) {
+        Require.nonNull(evaluator, structuralHash, genome, environmentVersion);
+        Require.strictlyPositive(capacity, "capacity");
+        this.evaluator = evaluator;
+        this.structuralHash = structuralHash;
+        this.genome = genome;
+        this.environmentVersion = environmentVersion;
+        this.cachedVersion = environmentVersion.getAsLong();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Updates the fitnesses of a population, caching them, with an
+     * environment that never changes.
+     *
+     * @param evaluator      the evaluator that computes the fitnesses not in
+     *                       the cache
+     * @param structuralHash computes a hash of an individual that depends
+     *                       only on its structure
+     * @param genome         returns the genome of an individual, compared
+     *                       with the one of the cached fitness
+     * @param capacity       the maximum number of cached fitnesses
+     */
+    public CachingPopEvaluator(
+            SyncPopulationEvaluator<I> evaluator,
+            ToLongFunction<? super I> structuralHash,
+            Function<? super I, ?> genome,
+            int capacity
+    ) {
+        this(evaluator, structuralHash, genome, () -> 0L, capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the individuals whose structure is neither in the cache nor
+     * shared with another individual of the population are evaluated by the
+     * underlying evaluator, and only these are counted.
+     **/
+    @Override
+    public int updateEvaluations(List<I> population) {
+        long version = environmentVersion.getAsLong();
+        if (version != cachedVersion) {
+            cache.clear();
+            cachedVersion = version;
+        }
+        int hits = 0;
+        List<I> toEvaluate = new ArrayList<>();
+        Map<Entry, List<I>> duplicates = new HashMap<>();
+        for (I individual : population) {
+            if (individual.getFitness().isPresent()) {
+                continue;
+            }
+            Entry key = new Entry(
+                    structuralHash.applyAsLong(individual),
+                    genome.apply(individual)
+            );
+            Entry cached = cache.get(key.hash);
+            if (cached != null && cached.equals(key)) {
+                individual.setFitness(cached.fitness);
+                hits++;
+                continue;
+            }
+            List<I> sameGenome = duplicates.get(key);
+            if (sameGenome == null) {
+                duplicates.put(key, new ArrayList<>(List.of(individual)));
+                toEvaluate.add(individual);
+            } else {
+                // evaluated once, with the first of the individuals
+                sameGenome.add(individual);
+                hits++;
+            }
+        }
+        int evaluations = evaluator.updateEvaluations(toEvaluate);
+        for (Map.Entry<Entry, List<I>> entry : duplicates.entrySet()) {
+            List<I> sameGenome = entry.getValue();
+            I evaluated = sameGenome.get(0);
+            if (evaluated.getFitness().isEmpty()) {
+                continue;
+            }
+            Entry key = entry.getKey();
+            key.fitness = evaluated.getFitness().get();
+            // replaces the fitness of another genome with the same hash
+            cache.put(key.hash, key);
+            for (int i = 1; i < sameGenome.size(); i++) {
+                sameGenome.get(i).setFitness(key.fitness);
+            }
+        }
+        lastHits = hits;
+        lastMisses = toEvaluate.size();
+        totalHits += hits;
+        totalMisses += toEvaluate.size();
+        return evaluations;
+    }
+
+    /**
+     * @return the number of individuals whose fitness was taken from the
+     * cache in the last evaluation
+     */
+    public int getLastHits() {
+        return lastHits;
+    }
+
+    /**
+     * @return the number of individuals that were not found in the cache
+     * in the last evaluation
+     */
+    public int getLastMisses() {
+        return lastMisses;
+    }
+
+    /**
+     * @return the number of cache hits since the creation of this evaluator
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return the number of cache misses since the creation of this
+     * evaluator
+     */
+    public long getTotalMisses() {
+        return totalMisses;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void putStatistics(EvolutionContext context) {
+        evaluator.putStatistics(context);
+        context.putStatistic("fitness_cache_hits", (double) lastHits);
+        context.putStatistic("fitness_cache_misses", (double) lastMisses);
+    }
+
+    /**
+     * A genome with its hash and, once computed, its fitness. Two entries
+     * are equal if they have the same genome.
+     */
+    private static final class Entry {
+        private final long hash;
+        private final Object genome;
+        private double fitness;
+
+        private Entry(long hash, Object genome) {
+            this.hash = hash;
+            this.genome = genome;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Entry
+                    && hash == ((Entry) obj).hash
+                    && genome.equals(((Entry) obj).genome);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+}
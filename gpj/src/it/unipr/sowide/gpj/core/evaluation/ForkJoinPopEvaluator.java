@@ -0,0 +1,301 @@
+package it.unipr.sowide.gpj.core.evaluation;
+
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.core.Individual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Updates the fitnesses of a population with a blocking call, using a
+ * {@link ForkJoinPool} and splitting the population in chunks of similar
+ * estimated cost (e.g. the size of a tree), instead of similar size.
+ * <p>
+ * The pool is either provided by the user or shared by all the evaluators
+ * of the JVM that do not specify one (see {@link #sharedPool()}). Since the
+ * work of each call is split in several chunks per worker, the workers of a
+ * shared pool interleave the chunks of concurrent evolutions, such as the
+ * ones of the islands of the same JVM, instead of serving them one at a
+ * time.
+ * <p>
+ * After each evaluation, the latency of the call and the utilisation of the
+ * pool (the fraction of the capacity of the pool spent evaluating for this
+ * call) are reported as statistics of the generation.
+ *
+ * @param <I> the type of the individual
+ */
+public class ForkJoinPopEvaluator<I extends Individual>
+        implements SyncPopulationEvaluator<I> {
+
+    /**
+     * The number of chunks in which the work of a call is split, for each
+     * worker of the pool
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final SyncIndividualEvaluator<I> evaluator;
+    private final ToLongFunction<? super I> costEstimator;
+    private final ForkJoinPool pool;
+
+    private volatile long lastLatencyNanos = 0;
+    private volatile double lastUtilisation = 0.0;
+
+    /**
+     * Updates the fitnesses of a population, using the specified pool.
+     *
+     * @param evaluator     the method used to compute the fitness of each
+     *                      individual
+     * @param costEstimator estimates the relative cost of the evaluation of
+     *                      an individual
+     * @param pool          the pool that executes the evaluations
+     */
+    public ForkJoinPopEvaluator(
+            SyncIndividualEvaluator<I> evaluator,
+            ToLongFunction<? super I> costEstimator,
+            ForkJoinPool pool
+    ) {
+        this.evaluator = evaluator;
+        this.costEstimator = costEstimator;
+        this.pool = pool;
+    }
+
+    /**
+     * Updates the fitnesses of a population, using the pool shared by the
+     * evaluators of the JVM.
+     *
+     * @param evaluator     the method used to compute the fitness of each
+     *                      individual
+     * @param costEstimator estimates the relative cost of the evaluation of
+     *                      an individual
+     */
+    public ForkJoinPopEvaluator(
+            SyncIndividualEvaluator<I> evaluator,
+            ToLongFunction<? super I> costEstimator
+    ) {
+        this(evaluator, costEstimator, sharedPool());
+    }
+
+    /**
+     * Updates the fitnesses of a population, using the pool shared by the
+     * evaluators of the JVM and passing to the evaluator a context for each
+     * worker (see
+     * {@link SyncContextIndividualEvaluator#withContextPerThread(Supplier)}).
+     *
+     * @param contextFactory creates the context of a worker
+     * @param evaluator      the method used to compute the fitness of each
+     *                       individual
+     * @param costEstimator  estimates the relative cost of the evaluation of
+     *                       an individual
+     * @param <C>            the type of the context
+     */
+    public <C> ForkJoinPopEvaluator(
+            Supplier<? extends C> contextFactory,
+            SyncContextIndividualEvaluator<I, C> evaluator,
+            ToLongFunction<? super I> costEstimator
+    ) {
+        this(evaluator.withContextPerThread(contextFactory), costEstimator);
+    }
+
+    /**
+     * Returns the pool shared by the evaluators that do not specify one. It
+     * is distinct from the {@link ForkJoinPool#commonPool() common pool}, so
+     * that evaluations do not compete with parallel streams, and has one
+     * worker for each available processor.
+     *
+     * @return the shared pool
+     */
+    public static ForkJoinPool sharedPool() {
+        return SharedPool.POOL;
+    }
+
+    private static final class SharedPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors()
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public int updateEvaluations(List<I> population) {
+        List<I> toEvaluate = new ArrayList<>();
+        for (I individual : population) {
+            if (individual.getFitness().isEmpty()) {
+                toEvaluate.add(individual);
+            }
+        }
+        double[] fitnesses = evaluateAll(toEvaluate, evaluator);
+        for (int i = 0; i < fitnesses.length; i++) {
+            toEvaluate.get(i).setFitness(fitnesses[i]);
+        }
+        return toEvaluate.size();
+    }
+
+    /**
+     * Computes a value for each of the specified individuals, in the pool of
+     * this evaluator and with the same cost-aware chunking used to compute
+     * the fitnesses, but without changing the individuals. This is useful,
+     * for example, to evaluate a population on a validation set.
+     *
+     * @param individuals the individuals
+     * @param evaluator   the method used to compute the value of each
+     *                    individual
+     * @return the computed values, in the order of the individuals
+     */
+    public double[] evaluateAll(
+            List<? extends I> individuals,
+            SyncIndividualEvaluator<I> evaluator
+    ) {
+        List<? extends I> list = individuals instanceof RandomAccess ?
+                individuals :
+                new ArrayList<>(individuals);
+        int n = list.size();
+        double[] results = new double[n];
+        long[] costPrefix = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            long cost = Math.max(1, costEstimator.applyAsLong(list.get(i)));
+            costPrefix[i + 1] = costPrefix[i] + cost;
+        }
+        int parallelism = pool.getParallelism();
+        long threshold = Math.max(
+                1,
+                costPrefix[n] / ((long) parallelism * CHUNKS_PER_WORKER)
+        );
+        LongAdder busyNanos = new LongAdder();
+        long start = System.nanoTime();
+        if (n > 0) {
+            pool.invoke(new Chunk(
+                    list,
+                    evaluator,
+                    results,
+                    costPrefix,
+                    threshold,
+                    busyNanos,
+                    0,
+                    n
+            ));
+        }
+        long latency = System.nanoTime() - start;
+        lastLatencyNanos = latency;
+        lastUtilisation = latency == 0 ?
+                0.0 :
+                busyNanos.sum() / ((double) latency * parallelism);
+        return results;
+    }
+
+    /**
+     * @return the duration, in nanoseconds, of the last evaluation
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    /**
+     * @return the fraction of the capacity of the pool spent evaluating
+     * individuals during the last evaluation, between 0 and 1
+     */
+    public double getLastUtilisation() {
+        return lastUtilisation;
+    }
+
+    /**
+     * @return the pool that executes the evaluations
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void putStatistics(EvolutionContext context) {
+        context.putStatistic("evaluation_latency_ms", lastLatencyNanos / 1e6);
+        context.putStatistic("evaluation_pool_utilisation", lastUtilisation);
+    }
+
+    /**
+     * Evaluates the individuals from {@code from} (inclusive) to {@code to}
+     * (exclusive), splitting the range in two halves of similar cost while
+     * its cost exceeds the threshold.
+     */
+    private final class Chunk extends RecursiveAction {
+        private final List<? extends I> individuals;
+        private final SyncIndividualEvaluator<I> evaluator;
+        private final double[] results;
+        private final long[] costPrefix;
+        private final long threshold;
+        private final LongAdder busyNanos;
+        private final int from;
+        private final int to;
+
+        private Chunk(
+                List<? extends I> individuals,
+                SyncIndividualEvaluator<I> evaluator,
+                double[] results,
+                long[] costPrefix,
+                long threshold,
+                LongAdder busyNanos,
+                int from,
+                int to
+        ) {
+            this.individuals = individuals;
+            this.evaluator = evaluator;
+            this.results = results;
+            this.costPrefix = costPrefix;
+            this.threshold = threshold;
+            this.busyNanos = busyNanos;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1
+                    && costPrefix[to] - costPrefix[from] > threshold) {
+                int middle = splitPoint();
+                invokeAll(split(from, middle), split(middle, to));
+                return;
+            }
+            long start = System.nanoTime();
+            for (int i = from; i < to; i++) {
+                results[i] = evaluator.evaluate(individuals.get(i));
+            }
+            busyNanos.add(System.nanoTime() - start);
+        }
+
+        /**
+         * @return the index, strictly between {@code from} and {@code to},
+         * that divides the range in two halves of cost as similar as possible
+         */
+        private int splitPoint() {
+            long half = (costPrefix[from] + costPrefix[to]) / 2;
+            int index = Arrays.binarySearch(costPrefix, from + 1, to, half);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return Math.max(from + 1, Math.min(to - 1, index));
+        }
+
+        private Chunk split(int from, int to) {
+            return new Chunk(
+                    individuals,
+                    evaluator,
+                    results,
+                    costPrefix,
+                    threshold,
+                    busyNanos,
+                    from,
+                    to
+            );
+        }
+    }
+}
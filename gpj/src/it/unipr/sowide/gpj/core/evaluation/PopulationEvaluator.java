@@ -1,5 +1,6 @@
 package it.unipr.sowide.gpj.core.evaluation;
 
+import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.gpj.core.Individual;
 import it.unipr.sowide.util.promise.Promise;
 
@@ -23,4 +24,13 @@ public interface PopulationEvaluator<I extends Individual> {
     Promise<Integer, Throwable> updateEvaluationsAsync(
             List<I> population
     );
+
+    /**
+     * Puts in the context the statistics about the last evaluation of a
+     * population, if any. By default, it does nothing.
+     *
+     * @param context the context of the evolution
+     */
+    default void putStatistics(EvolutionContext context) {
+    }
 }
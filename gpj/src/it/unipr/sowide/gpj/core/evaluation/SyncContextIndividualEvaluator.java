@@ -0,0 +1,41 @@
+package it.unipr.sowide.gpj.core.evaluation;
+
+import it.unipr.sowide.gpj.core.Individual;
+
+import java.util.function.Supplier;
+
+/**
+ * Evaluates an individual with a blocking call, using a mutable context
+ * (e.g. the frame of the variables of a tree, see
+ * {@link it.unipr.sowide.gpj.tree.VariableSlots}) that is owned by the
+ * calling thread, so that it is not shared by parallel evaluations.
+ *
+ * @param <I> the type of individual
+ * @param <C> the type of the context
+ */
+@FunctionalInterface
+public interface SyncContextIndividualEvaluator<I extends Individual, C> {
+    /**
+     * Evaluates an individual.
+     *
+     * @param individual the individual
+     * @param context    the context, that no other thread is using
+     * @return the fitness value
+     */
+    double evaluate(I individual, C context);
+
+    /**
+     * Returns an evaluator that passes to this one a context for each
+     * thread, created the first time the thread evaluates an individual and
+     * reused afterwards.
+     *
+     * @param contextFactory creates the context of a thread
+     * @return the evaluator
+     */
+    default SyncIndividualEvaluator<I> withContextPerThread(
+            Supplier<? extends C> contextFactory
+    ) {
+        ThreadLocal<C> contexts = ThreadLocal.withInitial(contextFactory);
+        return individual -> evaluate(individual, contexts.get());
+    }
+}
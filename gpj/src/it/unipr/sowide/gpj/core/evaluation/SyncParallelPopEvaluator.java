@@ -4,6 +4,7 @@ import it.unipr.sowide.gpj.core.Individual;
 
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Updates the fitnesses of a population with a blocking call, using
@@ -27,6 +28,23 @@ public class SyncParallelPopEvaluator<I extends Individual>
         this.evaluator = evaluator;
     }
 
+    /**
+     * Updates the fitnesses of a population, passing to the evaluator a
+     * context for each thread (see
+     * {@link SyncContextIndividualEvaluator#withContextPerThread(Supplier)}).
+     *
+     * @param contextFactory creates the context of a thread
+     * @param evaluator      the method used to compute the fitness of each
+     *                       individual
+     * @param <C>            the type of the context
+     */
+    public <C> SyncParallelPopEvaluator(
+            Supplier<? extends C> contextFactory,
+            SyncContextIndividualEvaluator<I, C> evaluator
+    ) {
+        this(evaluator.withContextPerThread(contextFactory));
+    }
+
     /**
      * {@inheritDoc}
      **/
@@ -40,6 +40,22 @@ public class EvolutionLogbook {
         addEntry(new PopInitializedEntry(generationCount, popSize));
     }
 
+    /**
+     * Adds an entry that logs that the population has been restored, e.g.
+     * from a checkpoint, at the specified generation.
+     *
+     * @param generation the generation at which the population was saved
+     * @param popSize    the size of the population.
+     */
+    public void logPopulationRestored(int generation, int popSize) {
+        statistics = null;
+        generationCount = generation;
+        addEntry(new SimpleInfoEntry(
+                generationCount,
+                "Population of " + popSize + " individuals restored"
+        ));
+    }
+
     /**
      * Allows to logger systems to receive text messages corresponding to entries
      * added to this logbook, as they are provided.
@@ -1,7 +1,7 @@
 package it.unipr.sowide.gpj.smcgp32;
 
 import it.unipr.sowide.gpj.core.breeding.KillOldIndividuals;
-import it.unipr.sowide.gpj.core.evaluation.SyncParallelPopEvaluator;
+import it.unipr.sowide.gpj.core.evaluation.ForkJoinPopEvaluator;
 import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.gpj.core.breeding.PreserveIndividuals;
 import it.unipr.sowide.gpj.core.breeding.SequentialBreeding;
@@ -13,12 +13,14 @@ import it.unipr.sowide.gpj.core.breeding.selection.EliteSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.RandomSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.TournamentSelection;
 import it.unipr.sowide.gpj.tree.*;
+import it.unipr.sowide.util.BitSliceCounter;
 import it.unipr.sowide.util.RandomUtils;
 import it.unipr.sowide.util.annotations.Namespace;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -38,41 +40,41 @@ public class SMCGP32 {
      */
     public static List<Operation<Integer, SMC32PatternArguments>>
     createOperationSet(RandomUtils random) {
-        BinaryFunction<Integer, SMC32PatternArguments> fAND
-                = new BinaryFunction<>("AND", (l1, l2) -> l1 & l2);
+        IntBinaryFunction<SMC32PatternArguments> fAND
+                = new IntBinaryFunction<>("AND", (l1, l2) -> l1 & l2);
 
-        BinaryFunction<Integer, SMC32PatternArguments> fOR
-                = new BinaryFunction<>("OR", (l1, l2) -> l1 | l2);
+        IntBinaryFunction<SMC32PatternArguments> fOR
+                = new IntBinaryFunction<>("OR", (l1, l2) -> l1 | l2);
 
-        BinaryFunction<Integer, SMC32PatternArguments> fNAND
-                = new BinaryFunction<>("NAND", (l1, l2) -> ~(l1 & l2));
+        IntBinaryFunction<SMC32PatternArguments> fNAND
+                = new IntBinaryFunction<>("NAND", (l1, l2) -> ~(l1 & l2));
 
-        BinaryFunction<Integer, SMC32PatternArguments> fNOR
-                = new BinaryFunction<>("NOR", (l1, l2) -> ~(l1 | l2));
+        IntBinaryFunction<SMC32PatternArguments> fNOR
+                = new IntBinaryFunction<>("NOR", (l1, l2) -> ~(l1 | l2));
 
-        BinaryFunction<Integer, SMC32PatternArguments> fXOR
-                = new BinaryFunction<>("XOR", (l1, l2) -> l1 ^ l2);
+        IntBinaryFunction<SMC32PatternArguments> fXOR
+                = new IntBinaryFunction<>("XOR", (l1, l2) -> l1 ^ l2);
 
-        UnaryFunction<Integer, SMC32PatternArguments> fNOT
-                = new UnaryFunction<>("NOT", (l) -> ~l);
+        IntUnaryFunction<SMC32PatternArguments> fNOT
+                = new IntUnaryFunction<>("NOT", (l) -> ~l);
 
-        UnaryFunction<Integer, SMC32PatternArguments> fSHL1
-                = new UnaryFunction<>("SHL1", (l) -> (l << 1) | (l >> 31));
+        IntUnaryFunction<SMC32PatternArguments> fSHL1
+                = new IntUnaryFunction<>("SHL1", (l) -> (l << 1) | (l >> 31));
 
-        UnaryFunction<Integer, SMC32PatternArguments> fSHL2
-                = new UnaryFunction<>("SHL2", (l) -> (l << 2) | (l >> 30));
+        IntUnaryFunction<SMC32PatternArguments> fSHL2
+                = new IntUnaryFunction<>("SHL2", (l) -> (l << 2) | (l >> 30));
 
-        UnaryFunction<Integer, SMC32PatternArguments> fSHL4
-                = new UnaryFunction<>("SHL4", (l) -> (l << 4) | (l >> 28));
+        IntUnaryFunction<SMC32PatternArguments> fSHL4
+                = new IntUnaryFunction<>("SHL4", (l) -> (l << 4) | (l >> 28));
 
-        UnaryFunction<Integer, SMC32PatternArguments> fSHR1
-                = new UnaryFunction<>("SHR1", (l) -> (l >> 1) | (l << 31));
+        IntUnaryFunction<SMC32PatternArguments> fSHR1
+                = new IntUnaryFunction<>("SHR1", (l) -> (l >> 1) | (l << 31));
 
-        UnaryFunction<Integer, SMC32PatternArguments> fSHR2
-                = new UnaryFunction<>("SHR2", (l) -> (l >> 2) | (l << 30));
+        IntUnaryFunction<SMC32PatternArguments> fSHR2
+                = new IntUnaryFunction<>("SHR2", (l) -> (l >> 2) | (l << 30));
 
-        UnaryFunction<Integer, SMC32PatternArguments> fSHR4
-                = new UnaryFunction<>("SHR4", (l) -> (l >> 4) | (l << 28));
+        IntUnaryFunction<SMC32PatternArguments> fSHR4
+                = new IntUnaryFunction<>("SHR4", (l) -> (l >> 4) | (l << 28));
 
         Constant<Integer, SMC32PatternArguments> f0
                 = new Constant<>(0);
@@ -80,24 +82,32 @@ public class SMCGP32 {
         Constant<Integer, SMC32PatternArguments> f1
                 = new Constant<>(1);
 
-        ContextDependentTerminal<Integer, SMC32PatternArguments>
-                fPAT1 = new ContextDependentTerminal<>(
-                "PAT1", SMC32PatternArguments::getPat1
+        IntContextTerminal<SMC32PatternArguments>
+                fPAT1 = new IntContextTerminal<>(
+                "PAT1",
+                SMCGP32DataSet.PATTERN1_COLUMN,
+                SMC32PatternArguments::getPat1
         );
 
-        ContextDependentTerminal<Integer, SMC32PatternArguments>
-                fPAT2 = new ContextDependentTerminal<>(
-                "PAT2", SMC32PatternArguments::getPat2
+        IntContextTerminal<SMC32PatternArguments>
+                fPAT2 = new IntContextTerminal<>(
+                "PAT2",
+                SMCGP32DataSet.PATTERN2_COLUMN,
+                SMC32PatternArguments::getPat2
         );
 
-        ContextDependentTerminal<Integer, SMC32PatternArguments>
-                fPAT3 = new ContextDependentTerminal<>(
-                "PAT3", SMC32PatternArguments::getPat3
+        IntContextTerminal<SMC32PatternArguments>
+                fPAT3 = new IntContextTerminal<>(
+                "PAT3",
+                SMCGP32DataSet.PATTERN3_COLUMN,
+                SMC32PatternArguments::getPat3
         );
 
-        ContextDependentTerminal<Integer, SMC32PatternArguments>
-                fPAT4 = new ContextDependentTerminal<>(
-                "PAT4", SMC32PatternArguments::getPat4
+        IntContextTerminal<SMC32PatternArguments>
+                fPAT4 = new IntContextTerminal<>(
+                "PAT4",
+                SMCGP32DataSet.PATTERN4_COLUMN,
+                SMC32PatternArguments::getPat4
         );
 
         LateInitConstant<Integer, SMC32PatternArguments> fERC
@@ -136,6 +146,56 @@ public class SMCGP32 {
     }
 
 
+    /**
+     * Creates the simplifier of the trees built from the operations of
+     * {@link #createOperationSet(RandomUtils)}: it evaluates the constant
+     * subexpressions and removes the redundant ones, like {@code NOT(NOT(x))},
+     * {@code XOR(x, x)} or {@code AND(x, 0)}. The shifts are not
+     * rotations, so their chains are not merged.
+     *
+     * @param operations the operations of the trees
+     * @return the simplifier
+     */
+    @SuppressWarnings("unchecked")
+    public static TreeSimplifier<Integer, SMC32PatternArguments> createSimplifier(
+            List<Operation<Integer, SMC32PatternArguments>> operations
+    ) {
+        Map<String, Operation<Integer, SMC32PatternArguments>> byName = operations.stream()
+                .collect(Collectors.toMap(
+                        Operation::getName,
+                        op -> op,
+                        (op1, op2) -> op1
+                ));
+        var fAND = (Function2<Integer, SMC32PatternArguments>) byName.get("AND");
+        var fOR = (Function2<Integer, SMC32PatternArguments>) byName.get("OR");
+        var fNAND = (Function2<Integer, SMC32PatternArguments>) byName.get("NAND");
+        var fNOR = (Function2<Integer, SMC32PatternArguments>) byName.get("NOR");
+        var fXOR = (Function2<Integer, SMC32PatternArguments>) byName.get("XOR");
+        var fNOT = (Function1<Integer, SMC32PatternArguments>) byName.get("NOT");
+
+        return new TreeSimplifier<Integer, SMC32PatternArguments>()
+                .addRule(TreeSimplifier.foldConstants(operations.stream()
+                        .filter(op -> op.arity() > 0)
+                        .collect(Collectors.toList())))
+                .addRule(TreeSimplifier.involution(fNOT))
+                .addRule(TreeSimplifier.fuse(fNOT, fAND, fNAND))
+                .addRule(TreeSimplifier.fuse(fNOT, fOR, fNOR))
+                .addRule(TreeSimplifier.fuse(fNOT, fNAND, fAND))
+                .addRule(TreeSimplifier.fuse(fNOT, fNOR, fOR))
+                .addRule(TreeSimplifier.idempotent(fAND))
+                .addRule(TreeSimplifier.idempotent(fOR))
+                .addRule(TreeSimplifier.sameArguments(fNAND, fNOT))
+                .addRule(TreeSimplifier.sameArguments(fNOR, fNOT))
+                .addRule(TreeSimplifier.selfCancelling(fXOR, 0))
+                .addRule(TreeSimplifier.annihilator(fAND, 0, 0))
+                .addRule(TreeSimplifier.annihilator(fOR, -1, -1))
+                .addRule(TreeSimplifier.annihilator(fNAND, 0, -1))
+                .addRule(TreeSimplifier.annihilator(fNOR, -1, 0))
+                .addRule(TreeSimplifier.identity(fAND, -1))
+                .addRule(TreeSimplifier.identity(fOR, 0))
+                .addRule(TreeSimplifier.identity(fXOR, 0));
+    }
+
     public static final int N_CLASSES = 10;
     public static final int N_BIT = 32;
     public static final double STARTING_FITNESS = 10000000000.0;
@@ -162,18 +222,11 @@ public class SMCGP32 {
     ) {
         int[][] freq = new int[N_BIT][N_CLASSES];
         int[] frtot = new int[N_BIT];
-        int[] indmin = new int[N_CLASSES];
-
-        double[] fmin = new double[N_CLASSES];
-
-        for (int i = 0; i < N_CLASSES; i++) {
-            fmin[i] = STARTING_FITNESS;
-        }
-
-        int ind_hits = 0;
-        double ind_r_fitness;
 
         SMC32PatternArguments c = new SMC32PatternArguments();
+        CompiledTree<Integer, SMC32PatternArguments> program =
+                individual.compile();
+        long[] stack = program.newLongStack();
 
         for (int i = 0; i < data.size(); i++) {
             c.setPat1(data.getPattern1(i));
@@ -183,7 +236,7 @@ public class SMCGP32 {
 
             int index = data.getClass(i);
 
-            int risp = individual.eval(c);
+            int risp = (int) program.evalLong(c, stack);
 
             for (int j = 0; j < N_BIT; j++) {
                 if ((risp & (1 << j)) != 0) {
@@ -193,10 +246,62 @@ public class SMCGP32 {
             }
         }
 
+        int[] selectedFreq = new int[N_BIT];
+        for (int j = 0; j < N_BIT; j++) {
+            selectedFreq[j] = freq[j][selectedClassifier];
+        }
+        return fitnessFromFrequencies(individual, data, selectedFreq, frtot);
+    }
+
+    /**
+     * Computes the fitness of a tree in the context of a SMCGP-32 evolution,
+     * like {@link #fitnessSMCTree(Tree, SMCGP32DataSet)}, but evaluating the
+     * tree on {@link #BATCH_SIZE} instances at once and counting the output
+     * bits with {@link BitSliceCounter}s.
+     *
+     * @param individual the tree whose fitness is being computed
+     * @param data       the dataset used to test the individual's ability to
+     *                   classify correctly
+     * @return the fitness
+     */
+    public static double fitnessSMCTreeBatch(
+            Tree<Integer, SMC32PatternArguments> individual,
+            SMCGP32DataSet data
+    ) {
+        BitSliceCounter total = new BitSliceCounter();
+        BitSliceCounter selected = new BitSliceCounter();
+        countOutputBits(individual, data, selectedClassifier, total, selected);
+
+        int[] selectedFreq = new int[N_BIT];
+        int[] frtot = new int[N_BIT];
+        for (int j = 0; j < N_BIT; j++) {
+            selectedFreq[j] = (int) selected.count(j);
+            frtot[j] = (int) total.count(j);
+        }
+        return fitnessFromFrequencies(individual, data, selectedFreq, frtot);
+    }
+
+    private static double fitnessFromFrequencies(
+            Tree<Integer, SMC32PatternArguments> individual,
+            SMCGP32DataSet data,
+            int[] selectedFreq,
+            int[] frtot
+    ) {
+        int[] indmin = new int[N_CLASSES];
+
+        double[] fmin = new double[N_CLASSES];
+
+        for (int i = 0; i < N_CLASSES; i++) {
+            fmin[i] = STARTING_FITNESS;
+        }
+
+        int ind_hits = 0;
+        double ind_r_fitness;
+
         for (int i = 0; i < N_BIT; i++) {
-            int fp = frtot[i] - freq[i][selectedClassifier];
+            int fp = frtot[i] - selectedFreq[i];
             int fn = data.getCaseCountForClass(selectedClassifier)
-                    - freq[i][selectedClassifier];
+                    - selectedFreq[i];
             double fit2 = fp * fp + fn * fn;
             if (fit2 < fmin[selectedClassifier]) {
                 fmin[selectedClassifier] = fit2;
@@ -204,7 +309,7 @@ public class SMCGP32 {
             }
         }
 
-        ind_hits += freq[indmin[selectedClassifier]][selectedClassifier];
+        ind_hits += selectedFreq[indmin[selectedClassifier]];
 
         ind_r_fitness = fmin[selectedClassifier];
 
@@ -245,6 +350,9 @@ public class SMCGP32 {
         int ndata = 0;
 
         SMC32PatternArguments c = new SMC32PatternArguments();
+        CompiledTree<Integer, SMC32PatternArguments> program =
+                classifier.compile();
+        long[] stack = program.newLongStack();
         for (int j = 0; j < testSet.size(); j++) {
             c.setPat1(testSet.getPattern1(j));
             c.setPat2(testSet.getPattern2(j));
@@ -258,7 +366,7 @@ public class SMCGP32 {
                 ndata++;
             }
 
-            Integer treeResult = classifier.eval(c);
+            int treeResult = (int) program.evalLong(c, stack);
             for (int i = 0; i < N_BIT; i++) {
                 int resultBit = (1 << i) & treeResult;
 
@@ -279,6 +387,55 @@ public class SMCGP32 {
 
         }
 
+        return evaluationFromCounts(classifier, tp, tn, fp, fn, pdata, ndata);
+    }
+
+    /**
+     * Evaluates a classifier, like
+     * {@link #evaluateClassifier(Tree, int, SMCGP32DataSet)}, but evaluating
+     * the tree on {@link #BATCH_SIZE} instances at once and counting the
+     * output bits with {@link BitSliceCounter}s.
+     *
+     * @param classifier the classifier being evaluated
+     * @param clas       the class the classifier tries to classify
+     * @param testSet    the dataset used as test set
+     * @return an object with the results
+     */
+    public static SMCGP32SimpleEvaluation evaluateClassifierBatch(
+            Tree<Integer, SMC32PatternArguments> classifier,
+            int clas,
+            SMCGP32DataSet testSet
+    ) {
+        BitSliceCounter total = new BitSliceCounter();
+        BitSliceCounter positives = new BitSliceCounter();
+        countOutputBits(classifier, testSet, clas, total, positives);
+
+        int pdata = testSet.getCaseCountForClass(clas);
+        int ndata = testSet.size() - pdata;
+
+        int[] tp = new int[N_BIT];
+        int[] tn = new int[N_BIT];
+        int[] fp = new int[N_BIT];
+        int[] fn = new int[N_BIT];
+        for (int i = 0; i < N_BIT; i++) {
+            tp[i] = (int) positives.count(i);
+            fp[i] = (int) total.count(i) - tp[i];
+            fn[i] = pdata - tp[i];
+            tn[i] = ndata - fp[i];
+        }
+
+        return evaluationFromCounts(classifier, tp, tn, fp, fn, pdata, ndata);
+    }
+
+    private static SMCGP32SimpleEvaluation evaluationFromCounts(
+            Tree<Integer, SMC32PatternArguments> classifier,
+            int[] tp,
+            int[] tn,
+            int[] fp,
+            int[] fn,
+            int pdata,
+            int ndata
+    ) {
         final double dataSum = pdata + ndata;
         List<Double> fitVector = IntStream.range(0, N_BIT)
                 .parallel()
@@ -322,6 +479,41 @@ public class SMCGP32 {
     }
 
 
+    /**
+     * The number of instances evaluated at once in batch evaluation
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    /**
+     * Evaluates the tree on all the instances of the dataset and counts, for
+     * each bit of the output, in how many instances it is set
+     * ({@code total}) and in how many instances of class {@code clas} it is
+     * set ({@code ofClass}).
+     */
+    private static void countOutputBits(
+            Tree<Integer, SMC32PatternArguments> tree,
+            SMCGP32DataSet data,
+            int clas,
+            BitSliceCounter total,
+            BitSliceCounter ofClass
+    ) {
+        CompiledTree<Integer, SMC32PatternArguments> program = tree.compile();
+        long[][] stack = program.newBatchStack(BATCH_SIZE);
+        byte[] classes = data.getClassColumn();
+        for (int from = 0; from < data.size(); from += BATCH_SIZE) {
+            int length = Math.min(BATCH_SIZE, data.size() - from);
+            long[] outputs = program.evalBatch(data, from, length, stack);
+            for (int i = 0; i < length; i++) {
+                // only the low 32 bits hold the int output
+                long output = outputs[i] & 0xFFFFFFFFL;
+                total.add(output);
+                if (classes[from + i] == clas) {
+                    ofClass.add(output);
+                }
+            }
+        }
+    }
+
     public static void main(String[] argv) throws IOException {
         String trainPath32;
         String testPath32;
@@ -341,8 +533,8 @@ public class SMCGP32 {
         File trainSetFile = new File(trainPath32);
         File testSetFile = new File(testPath32);
 
-        trainData.parseInstancesFromFile(trainSetFile);
-        testData.parseInstancesFromFile(testSetFile);
+        trainData.loadInstancesWithSidecar(trainSetFile);
+        testData.loadInstancesWithSidecar(testSetFile);
 
 
         System.out.println("#(train instances): " + trainData.size());
@@ -361,10 +553,13 @@ public class SMCGP32 {
                 5,
                 7,
                 operations,
-                new SyncParallelPopEvaluator<>(individual -> fitnessSMCTree(
-                        individual,
-                        trainData
-                )),
+                new ForkJoinPopEvaluator<>(
+                        individual -> fitnessSMCTreeBatch(
+                                individual,
+                                trainData
+                        ),
+                        Tree::size
+                ),
                 new KillOldIndividuals<>(
                         new PreserveIndividuals<>(
                                 1,
@@ -400,6 +595,10 @@ public class SMCGP32 {
                                                         }
                                                 )
                                         )
+                                ).addBreedingPhase(
+                                        new TreeSimplification<>(
+                                                createSimplifier(operations)
+                                        )
                                 )
                         )
                 )
@@ -416,7 +615,7 @@ public class SMCGP32 {
 
             var bestIndividual = hallOfFame.bestIndividual();
 
-            SMCGP32SimpleEvaluation evaluation = evaluateClassifier(
+            SMCGP32SimpleEvaluation evaluation = evaluateClassifierBatch(
                     bestIndividual, 0, testData);
 
             System.out.println(evaluation.toString());
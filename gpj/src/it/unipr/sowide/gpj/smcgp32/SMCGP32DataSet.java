@@ -1,64 +1,249 @@
 package it.unipr.sowide.gpj.smcgp32;
 
+import it.unipr.sowide.gpj.tree.ColumnarInput;
+import it.unipr.sowide.util.BinaryColumns;
 import it.unipr.sowide.util.RandomUtils;
 import it.unipr.sowide.util.Require;
+import it.unipr.sowide.util.UnsignedTextColumns;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
  * A collection of data instances in the form of a tuple of 4 32-bit values.
+ * <p>
+ * The instances are stored by column, in primitive arrays that grow as new
+ * instances are inserted, and duplicate instances are discarded by means of
+ * an open-addressing hash table of instance indexes.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
-public class SMCGP32DataSet {
+public class SMCGP32DataSet implements ColumnarInput {
 
     public final static String numberPattern = "\\d+";
-    private final List<SMCGP32Instance> instances = new ArrayList<>();
-    private final HashSet<SMCGP32Instance> instanceHashSet = new HashSet<>();
+
+    /**
+     * Indexes of the columns of the four patterns, in batch evaluation
+     */
+    public final static int PATTERN1_COLUMN = 0;
+    public final static int PATTERN2_COLUMN = 1;
+    public final static int PATTERN3_COLUMN = 2;
+    public final static int PATTERN4_COLUMN = 3;
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    /**
+     * The binary format starts with the magic number, the version and the
+     * number of instances (as little-endian ints), followed by the columns of
+     * the four patterns (as little-endian ints) and the one of the classes
+     * (as bytes).
+     */
+    private final static int BINARY_MAGIC = 0x33434D53; // "SMC3"
+    private final static int BINARY_VERSION = 1;
+    private final static int BINARY_HEADER_SIZE = 3 * Integer.BYTES;
+    private final static int BINARY_INSTANCE_SIZE = 4 * Integer.BYTES + 1;
+
+    private int[] patterns1 = new int[INITIAL_CAPACITY];
+    private int[] patterns2 = new int[INITIAL_CAPACITY];
+    private int[] patterns3 = new int[INITIAL_CAPACITY];
+    private int[] patterns4 = new int[INITIAL_CAPACITY];
+    private byte[] classes = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Open-addressing hash table (linear probing) of the inserted instances:
+     * each slot contains the index of an instance plus one, or zero if empty.
+     * Its length is a power of two, kept at least twice the size.
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
     private final int[] instancesCounts = new int[SMCGP32.N_CLASSES];
 
     /**
      * Inserts a new instance in the dataset using the four patterns and the
-     * specified class.
+     * specified class. The instance is discarded if it is already in the
+     * dataset.
      */
     public void put(int pat1, int pat2, int pat3, int pat4, int clas) {
-        SMCGP32Instance instance = new SMCGP32Instance(
-                clas,
-                pat1,
-                pat2,
-                pat3,
-                pat4
+        if (clas < 0 || clas >= SMCGP32.N_CLASSES) {
+            throw new IllegalArgumentException("Invalid class: " + clas);
+        }
+        int slot = findSlot(pat1, pat2, pat3, pat4, clas);
+        if (slots[slot] != 0) {
+            return;
+        }
+        if (size == patterns1.length) {
+            ensureCapacity(size * 2);
+        }
+        patterns1[size] = pat1;
+        patterns2[size] = pat2;
+        patterns3[size] = pat3;
+        patterns4[size] = pat4;
+        classes[size] = (byte) clas;
+        size++;
+        slots[slot] = size;
+        instancesCounts[clas]++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+    }
+
+    /**
+     * Makes room for at least {@code capacity} instances, so that they can
+     * be inserted without growing the columns again.
+     *
+     * @param capacity the expected number of instances
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > patterns1.length) {
+            patterns1 = Arrays.copyOf(patterns1, capacity);
+            patterns2 = Arrays.copyOf(patterns2, capacity);
+            patterns3 = Arrays.copyOf(patterns3, capacity);
+            patterns4 = Arrays.copyOf(patterns4, capacity);
+            classes = Arrays.copyOf(classes, capacity);
+        }
+        if (capacity * 2 > slots.length) {
+            rehash(Integer.highestOneBit(capacity * 2 - 1) << 1);
+        }
+    }
+
+    private static int hash(int pat1, int pat2, int pat3, int pat4, int clas) {
+        long h = ((long) pat1 << 32 | (pat2 & 0xFFFFFFFFL))
+                * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(
+                ((long) pat3 << 32 | (pat4 & 0xFFFFFFFFL))
+                        * 0xC2B2AE3D27D4EB4FL,
+                31
         );
-        putInstance(instance);
+        h = (h ^ clas) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return the slot that contains the specified instance, or the empty
+     * slot where it should be inserted
+     */
+    private int findSlot(int pat1, int pat2, int pat3, int pat4, int clas) {
+        int mask = slots.length - 1;
+        int slot = hash(pat1, pat2, pat3, pat4, clas) & mask;
+        while (slots[slot] != 0) {
+            int i = slots[slot] - 1;
+            if (patterns1[i] == pat1
+                    && patterns2[i] == pat2
+                    && patterns3[i] == pat3
+                    && patterns4[i] == pat4
+                    && classes[i] == clas) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        int mask = length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(
+                    patterns1[i],
+                    patterns2[i],
+                    patterns3[i],
+                    patterns4[i],
+                    classes[i]
+            ) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
     }
 
     /**
      * @return the number of instances in the dataset
      */
+    @Override
     public int size() {
-        return instances.size();
+        return size;
     }
 
 
     public int getPattern1(int instance) {
-        return instances.get(instance).getPat1();
+        return patterns1[Objects.checkIndex(instance, size)];
     }
 
     public int getPattern2(int instance) {
-        return instances.get(instance).getPat2();
+        return patterns2[Objects.checkIndex(instance, size)];
     }
 
     public int getPattern3(int instance) {
-        return instances.get(instance).getPat3();
+        return patterns3[Objects.checkIndex(instance, size)];
     }
 
     public int getPattern4(int instance) {
-        return instances.get(instance).getPat4();
+        return patterns4[Objects.checkIndex(instance, size)];
     }
 
     public int getClass(int instance) {
-        return instances.get(instance).getClas();
+        return classes[Objects.checkIndex(instance, size)];
+    }
+
+    /**
+     * Returns the column of the first patterns, without copying it. Only the
+     * first {@link #size()} elements are meaningful; the array must not be
+     * modified, and it is no longer used by the dataset once the column
+     * grows because of an insertion.
+     *
+     * @return the backing array of the first patterns
+     */
+    public int[] getPattern1Column() {
+        return patterns1;
+    }
+
+    /**
+     * Returns the column of the second patterns, without copying it, under
+     * the same terms of {@link #getPattern1Column()}.
+     *
+     * @return the backing array of the second patterns
+     */
+    public int[] getPattern2Column() {
+        return patterns2;
+    }
+
+    /**
+     * Returns the column of the third patterns, without copying it, under
+     * the same terms of {@link #getPattern1Column()}.
+     *
+     * @return the backing array of the third patterns
+     */
+    public int[] getPattern3Column() {
+        return patterns3;
+    }
+
+    /**
+     * Returns the column of the fourth patterns, without copying it, under
+     * the same terms of {@link #getPattern1Column()}.
+     *
+     * @return the backing array of the fourth patterns
+     */
+    public int[] getPattern4Column() {
+        return patterns4;
+    }
+
+    /**
+     * Returns the column of the classes, without copying it, under the same
+     * terms of {@link #getPattern1Column()}.
+     *
+     * @return the backing array of the classes
+     */
+    public byte[] getClassColumn() {
+        return classes;
     }
 
     /**
@@ -73,45 +258,291 @@ public class SMCGP32DataSet {
 
 
 
-    private void parseInstance(Scanner scanLine) {
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void loadColumn(
+            int column,
+            int from,
+            int length,
+            long[] destination
+    ) {
+        Objects.checkFromIndexSize(from, length, size);
+        int[] source;
+        switch (column) {
+            case PATTERN1_COLUMN:
+                source = patterns1;
+                break;
+            case PATTERN2_COLUMN:
+                source = patterns2;
+                break;
+            case PATTERN3_COLUMN:
+                source = patterns3;
+                break;
+            case PATTERN4_COLUMN:
+                source = patterns4;
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Invalid column: " + column
+                );
+        }
+        for (int i = 0; i < length; i++) {
+            destination[i] = source[from + i];
+        }
+    }
 
-        String p1 = scanLine.next(numberPattern);
-        String p2 = scanLine.next(numberPattern);
-        String p3 = scanLine.next(numberPattern);
-        String p4 = scanLine.next(numberPattern);
-        int clas = scanLine.nextInt();
+    /**
+     * @return a new {@link SMCGP32Instance} with the values of the instance
+     * at the specified index
+     */
+    public SMCGP32Instance getInstance(int index) {
+        Objects.checkIndex(index, size);
+        return new SMCGP32Instance(
+                classes[index],
+                patterns1[index],
+                patterns2[index],
+                patterns3[index],
+                patterns4[index]
+        );
+    }
 
-        int ip1 = Integer.parseUnsignedInt(p1);
-        int ip2 = Integer.parseUnsignedInt(p2);
-        int ip3 = Integer.parseUnsignedInt(p3);
-        int ip4 = Integer.parseUnsignedInt(p4);
+    public void putInstance(SMCGP32Instance instance) {
+        put(
+                instance.getPat1(),
+                instance.getPat2(),
+                instance.getPat3(),
+                instance.getPat4(),
+                instance.getClas()
+        );
+    }
 
-        this.put(ip1, ip2, ip3, ip4, clas);
+    /**
+     * Inserts the instances read from a text file, with the format accepted
+     * by {@link #loadInstancesFromFile(File)}.
+     */
+    public void parseInstancesFromFile(File file) throws IOException {
+        loadInstancesFromFile(file);
+    }
 
+    /**
+     * Inserts the instances read from a text file. The first line of the
+     * file contains the number of instances and, as in the original
+     * Scanner-based parser, the second line is skipped too; each of the
+     * following lines contains the four patterns, as unsigned decimal
+     * numbers, and the class of an instance.
+     * <p>
+     * The file is memory-mapped and parsed in parallel (see
+     * {@link UnsignedTextColumns}); the instances are then inserted in the
+     * order of the file.
+     *
+     * @param file the text file
+     * @throws IOException if the file cannot be read
+     */
+    public void loadInstancesFromFile(File file) throws IOException {
+        long[][] columns = UnsignedTextColumns.parse(file.toPath(), 2, 5);
+        int count = columns[0].length;
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            put(
+                    toPattern(columns[0][i]),
+                    toPattern(columns[1][i]),
+                    toPattern(columns[2][i]),
+                    toPattern(columns[3][i]),
+                    toClass(columns[4][i])
+            );
+        }
     }
 
-    public SMCGP32Instance getInstance(int index) {
-        return instances.get(index);
+    private static int toPattern(long value) {
+        if ((value & 0xFFFFFFFF00000000L) != 0) {
+            throw new NumberFormatException(
+                    "Pattern out of range: " + Long.toUnsignedString(value)
+            );
+        }
+        return (int) value;
     }
 
-    public void putInstance(SMCGP32Instance instance) {
-        if (!instanceHashSet.contains(instance)) {
-            instances.add(instance);
-            instanceHashSet.add(instance);
-            instancesCounts[instance.getClas()]++;
+    private static int toClass(long value) {
+        if (Long.compareUnsigned(value, SMCGP32.N_CLASSES) >= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid class: " + Long.toUnsignedString(value)
+            );
         }
+        return (int) value;
     }
 
-    public void parseInstancesFromFile(File file) throws IOException {
-        try (Scanner reader = new Scanner(new FileReader(file))) {
-            String countLine = reader.nextLine();
+    /**
+     * Like {@link #loadInstancesFromFile(File)}, but keeps a binary copy of
+     * the instances of the file in a sidecar file (see
+     * {@link #sidecarFile(File)}). If the sidecar is not older than the text
+     * file, it is read in its place; otherwise, it is (re)written after
+     * parsing the text file. Failing to write the sidecar is not an error.
+     *
+     * @param file the text file
+     * @throws IOException if the text file or the sidecar cannot be read
+     */
+    public void loadInstancesWithSidecar(File file) throws IOException {
+        File sidecar = sidecarFile(file);
+        if (sidecar.isFile() && sidecar.lastModified() >= file.lastModified()) {
+            readBinary(sidecar);
+            return;
+        }
+        SMCGP32DataSet loaded = size == 0 ? this : new SMCGP32DataSet();
+        loaded.loadInstancesFromFile(file);
+        Path temporary = null;
+        boolean moved = false;
+        try {
+            temporary = Files.createTempFile(
+                    sidecar.getAbsoluteFile().toPath().getParent(),
+                    sidecar.getName(),
+                    ".tmp"
+            );
+            loaded.writeBinary(temporary.toFile());
+            try {
+                Files.move(
+                        temporary,
+                        sidecar.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE
+                );
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(
+                        temporary,
+                        sidecar.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            }
+            moved = true;
+        } catch (IOException e) {
+            System.err.println("Cannot write " + sidecar + ": " + e);
+        } finally {
+            // a partial sidecar must not be left in the directory of the dataset
+            if (temporary != null && !moved) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    System.err.println("Cannot delete " + temporary + ": " + e);
+                }
+            }
+        }
+        if (loaded != this) {
+            for (int i = 0; i < loaded.size; i++) {
+                put(
+                        loaded.patterns1[i],
+                        loaded.patterns2[i],
+                        loaded.patterns3[i],
+                        loaded.patterns4[i],
+                        loaded.classes[i]
+                );
+            }
+        }
+    }
 
-            while (reader.hasNextLine() || reader.hasNext(numberPattern)) {
-                if (reader.hasNextLine()) {
-                    reader.nextLine();
+    /**
+     * @return the binary sidecar file used by
+     * {@link #loadInstancesWithSidecar(File)} for the specified text file,
+     * which has the same path with the {@code .bin} extension appended
+     */
+    public static File sidecarFile(File file) {
+        return new File(file.getPath() + ".bin");
+    }
+
+    /**
+     * Writes all the instances of the dataset to a file, in a compact
+     * binary format that can be read by {@link #readBinary(File)}.
+     *
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(BINARY_MAGIC)
+                    .putInt(BINARY_VERSION)
+                    .putInt(size);
+            BinaryColumns.writeBytes(
+                    channel,
+                    header.array(),
+                    BINARY_HEADER_SIZE
+            );
+            BinaryColumns.writeInts(channel, patterns1, size);
+            BinaryColumns.writeInts(channel, patterns2, size);
+            BinaryColumns.writeInts(channel, patterns3, size);
+            BinaryColumns.writeInts(channel, patterns4, size);
+            BinaryColumns.writeBytes(channel, classes, size);
+        }
+    }
+
+    /**
+     * Inserts the instances read from a file written by
+     * {@link #writeBinary(File)}. If the dataset is empty, the columns are
+     * read in bulk, without checking for duplicates.
+     *
+     * @param file the binary file
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    public void readBinary(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.READ
+        )) {
+            byte[] headerBytes = new byte[BINARY_HEADER_SIZE];
+            long position = BinaryColumns.readBytes(
+                    channel,
+                    0,
+                    headerBytes,
+                    BINARY_HEADER_SIZE
+            );
+            ByteBuffer header = ByteBuffer.wrap(headerBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != BINARY_MAGIC
+                    || header.getInt() != BINARY_VERSION) {
+                throw new IOException("Not a binary SMCGP32 dataset: " + file);
+            }
+            int count = header.getInt();
+            if (count < 0 || channel.size() != BINARY_HEADER_SIZE
+                    + (long) count * BINARY_INSTANCE_SIZE) {
+                throw new IOException("Corrupted binary dataset: " + file);
+            }
+            boolean bulk = size == 0;
+            int[] pat1 = bulk ? null : new int[count];
+            int[] pat2 = bulk ? null : new int[count];
+            int[] pat3 = bulk ? null : new int[count];
+            int[] pat4 = bulk ? null : new int[count];
+            byte[] clas = bulk ? null : new byte[count];
+            ensureCapacity(size + count);
+            if (bulk) {
+                pat1 = patterns1;
+                pat2 = patterns2;
+                pat3 = patterns3;
+                pat4 = patterns4;
+                clas = classes;
+            }
+            position = BinaryColumns.readInts(channel, position, pat1, count);
+            position = BinaryColumns.readInts(channel, position, pat2, count);
+            position = BinaryColumns.readInts(channel, position, pat3, count);
+            position = BinaryColumns.readInts(channel, position, pat4, count);
+            BinaryColumns.readBytes(channel, position, clas, count);
+            for (int i = 0; i < count; i++) {
+                toClass(clas[i]);
+            }
+            if (bulk) {
+                for (int i = 0; i < count; i++) {
+                    instancesCounts[clas[i]]++;
                 }
-                if (reader.hasNext(numberPattern)) {
-                    this.parseInstance(reader);
+                size = count;
+                rehash(slots.length);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    put(pat1[i], pat2[i], pat3[i], pat4[i], clas[i]);
                 }
             }
         }
@@ -119,13 +550,13 @@ public class SMCGP32DataSet {
 
     public void dumpToFile(File file) {
         try (BufferedWriter w = new BufferedWriter(new FileWriter(file))) {
-            w.write(instances.size() + "\n");
-            for (SMCGP32Instance instance : instances) {
-                w.write(Integer.toUnsignedString(instance.getPat1()) + " ");
-                w.write(Integer.toUnsignedString(instance.getPat2()) + " ");
-                w.write(Integer.toUnsignedString(instance.getPat3()) + " ");
-                w.write(Integer.toUnsignedString(instance.getPat4()) + " ");
-                w.write("" + instance.getClas());
+            w.write(size + "\n");
+            for (int i = 0; i < size; i++) {
+                w.write(Integer.toUnsignedString(patterns1[i]) + " ");
+                w.write(Integer.toUnsignedString(patterns2[i]) + " ");
+                w.write(Integer.toUnsignedString(patterns3[i]) + " ");
+                w.write(Integer.toUnsignedString(patterns4[i]) + " ");
+                w.write("" + classes[i]);
                 w.write("\n");
             }
         } catch (IOException e) {
@@ -134,26 +565,36 @@ public class SMCGP32DataSet {
     }
 
     public void dumpToSet(HashSet<SMCGP32Instance> data) {
-        data.addAll(instanceHashSet);
+        for (int i = 0; i < size; i++) {
+            data.add(getInstance(i));
+        }
     }
 
     public List<SMCGP32DataSet> randomSplit(int parts, RandomUtils random) {
         Require.nonNull(random);
         Require.strictlyPositive(parts);
-        List<SMCGP32Instance> instances = new ArrayList<>(this.instances);
-        Collections.shuffle(instances, random.getJavaRandom());
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        Collections.shuffle(indexes, random.getJavaRandom());
         List<SMCGP32DataSet> result = new ArrayList<>();
-        int part = instances.size() / parts;
-        int rest = instances.size() % parts; // the first gets the rest
+        int part = size / parts;
+        int rest = size % parts; // the first gets the rest
+        int next = 0;
         for (int i = 0; i < parts; i++) {
             var subDataset = new SMCGP32DataSet();
-            if (i == 0) {
-                for (int j = 0; j < rest; j++) {
-                    subDataset.putInstance(instances.remove(0));
-                }
-            }
-            for (int j = 0; j < part; j++) {
-                subDataset.putInstance(instances.remove(0));
+            int count = i == 0 ? rest + part : part;
+            subDataset.ensureCapacity(count);
+            for (int j = 0; j < count; j++) {
+                int k = indexes.get(next++);
+                subDataset.put(
+                        patterns1[k],
+                        patterns2[k],
+                        patterns3[k],
+                        patterns4[k],
+                        classes[k]
+                );
             }
             result.add(subDataset);
         }
@@ -55,4 +55,14 @@ public class SMCGP32Instance {
         return getPat4() == that.getPat4();
     }
 
+    @Override
+    public int hashCode() {
+        int result = getClas();
+        result = 31 * result + getPat1();
+        result = 31 * result + getPat2();
+        result = 31 * result + getPat3();
+        result = 31 * result + getPat4();
+        return result;
+    }
+
 }
@@ -1,6 +1,6 @@
 package it.unipr.sowide.gpj.smcgp64;
 
-import it.unipr.sowide.gpj.core.evaluation.SyncParallelPopEvaluator;
+import it.unipr.sowide.gpj.core.evaluation.ForkJoinPopEvaluator;
 import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.gpj.core.HallOfFame;
 import it.unipr.sowide.gpj.core.breeding.FillingReproduction;
@@ -14,10 +14,13 @@ import it.unipr.sowide.gpj.core.breeding.selection.EliteSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.RandomSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.TournamentSelection;
 import it.unipr.sowide.gpj.tree.*;
+import it.unipr.sowide.util.BitSliceCounter;
 import it.unipr.sowide.util.RandomUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -36,74 +39,74 @@ public class SMCGP64 {
     public static List<Operation<Long, SMC64PatternArguments>>
     createOperationsSet(RandomUtils random) {
 
-        BinaryFunction<Long, SMC64PatternArguments> fAND =
-                new BinaryFunction<>(
+        LongBinaryFunction<SMC64PatternArguments> fAND =
+                new LongBinaryFunction<>(
                         "AND",
                         (l1, l2) -> l1 & l2
                 );
 
-        BinaryFunction<Long, SMC64PatternArguments> fOR =
-                new BinaryFunction<>(
+        LongBinaryFunction<SMC64PatternArguments> fOR =
+                new LongBinaryFunction<>(
                         "OR",
                         (l1, l2) -> l1 | l2
                 );
 
-        BinaryFunction<Long, SMC64PatternArguments> fNAND =
-                new BinaryFunction<>(
+        LongBinaryFunction<SMC64PatternArguments> fNAND =
+                new LongBinaryFunction<>(
                         "NAND",
                         (l1, l2) -> ~(l1 & l2)
                 );
 
-        BinaryFunction<Long, SMC64PatternArguments> fNOR =
-                new BinaryFunction<>(
+        LongBinaryFunction<SMC64PatternArguments> fNOR =
+                new LongBinaryFunction<>(
                         "NOR",
                         (l1, l2) -> ~(l1 | l2)
                 );
 
-        BinaryFunction<Long, SMC64PatternArguments> fXOR =
-                new BinaryFunction<>(
+        LongBinaryFunction<SMC64PatternArguments> fXOR =
+                new LongBinaryFunction<>(
                         "XOR",
                         (l1, l2) -> l1 ^ l2
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fNOT =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fNOT =
+                new LongUnaryFunction<>(
                         "NOT",
                         (l) -> ~l
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fSHL1 =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fSHL1 =
+                new LongUnaryFunction<>(
                         "SHL1",
                         (l) -> (l << 1) | (l >> 31)
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fSHL2 =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fSHL2 =
+                new LongUnaryFunction<>(
                         "SHL2",
                         (l) -> (l << 2) | (l >> 30)
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fSHL4 =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fSHL4 =
+                new LongUnaryFunction<>(
                         "SHL4",
                         (l) -> (l << 4) | (l >> 28)
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fSHR1 =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fSHR1 =
+                new LongUnaryFunction<>(
                         "SHR1",
                         (l) -> (l >> 1) | (l << 31)
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fSHR2 =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fSHR2 =
+                new LongUnaryFunction<>(
                         "SHR2",
                         (l) -> (l >> 2) | (l << 30)
                 );
 
-        UnaryFunction<Long, SMC64PatternArguments> fSHR4 =
-                new UnaryFunction<>(
+        LongUnaryFunction<SMC64PatternArguments> fSHR4 =
+                new LongUnaryFunction<>(
                         "SHR4",
                         (l) -> (l >> 4) | (l << 28)
                 );
@@ -112,14 +115,18 @@ public class SMCGP64 {
 
         Constant<Long, SMC64PatternArguments> f1 = new Constant<>(1L);
 
-        ContextDependentTerminal<Long, SMC64PatternArguments> fPAT1 =
-                new ContextDependentTerminal<>(
-                        "PAT1", SMC64PatternArguments::getPat1
+        LongContextTerminal<SMC64PatternArguments> fPAT1 =
+                new LongContextTerminal<>(
+                        "PAT1",
+                        SMCGP64DataSet.PATTERN1_COLUMN,
+                        SMC64PatternArguments::getPat1
                 );
 
-        ContextDependentTerminal<Long, SMC64PatternArguments> fPAT2 =
-                new ContextDependentTerminal<>(
-                        "PAT2", SMC64PatternArguments::getPat2
+        LongContextTerminal<SMC64PatternArguments> fPAT2 =
+                new LongContextTerminal<>(
+                        "PAT2",
+                        SMCGP64DataSet.PATTERN2_COLUMN,
+                        SMC64PatternArguments::getPat2
                 );
 
         LateInitConstant<Long, SMC64PatternArguments> fERC =
@@ -155,6 +162,56 @@ public class SMCGP64 {
     }
 
 
+    /**
+     * Creates the simplifier of the trees built from the operations of
+     * {@link #createOperationsSet(RandomUtils)}: it evaluates the constant
+     * subexpressions and removes the redundant ones, like {@code NOT(NOT(x))},
+     * {@code XOR(x, x)} or {@code AND(x, 0)}. The shifts are not
+     * rotations, so their chains are not merged.
+     *
+     * @param operations the operations of the trees
+     * @return the simplifier
+     */
+    @SuppressWarnings("unchecked")
+    public static TreeSimplifier<Long, SMC64PatternArguments> createSimplifier(
+            List<Operation<Long, SMC64PatternArguments>> operations
+    ) {
+        Map<String, Operation<Long, SMC64PatternArguments>> byName = operations.stream()
+                .collect(Collectors.toMap(
+                        Operation::getName,
+                        op -> op,
+                        (op1, op2) -> op1
+                ));
+        var fAND = (Function2<Long, SMC64PatternArguments>) byName.get("AND");
+        var fOR = (Function2<Long, SMC64PatternArguments>) byName.get("OR");
+        var fNAND = (Function2<Long, SMC64PatternArguments>) byName.get("NAND");
+        var fNOR = (Function2<Long, SMC64PatternArguments>) byName.get("NOR");
+        var fXOR = (Function2<Long, SMC64PatternArguments>) byName.get("XOR");
+        var fNOT = (Function1<Long, SMC64PatternArguments>) byName.get("NOT");
+
+        return new TreeSimplifier<Long, SMC64PatternArguments>()
+                .addRule(TreeSimplifier.foldConstants(operations.stream()
+                        .filter(op -> op.arity() > 0)
+                        .collect(Collectors.toList())))
+                .addRule(TreeSimplifier.involution(fNOT))
+                .addRule(TreeSimplifier.fuse(fNOT, fAND, fNAND))
+                .addRule(TreeSimplifier.fuse(fNOT, fOR, fNOR))
+                .addRule(TreeSimplifier.fuse(fNOT, fNAND, fAND))
+                .addRule(TreeSimplifier.fuse(fNOT, fNOR, fOR))
+                .addRule(TreeSimplifier.idempotent(fAND))
+                .addRule(TreeSimplifier.idempotent(fOR))
+                .addRule(TreeSimplifier.sameArguments(fNAND, fNOT))
+                .addRule(TreeSimplifier.sameArguments(fNOR, fNOT))
+                .addRule(TreeSimplifier.selfCancelling(fXOR, 0L))
+                .addRule(TreeSimplifier.annihilator(fAND, 0L, 0L))
+                .addRule(TreeSimplifier.annihilator(fOR, -1L, -1L))
+                .addRule(TreeSimplifier.annihilator(fNAND, 0L, -1L))
+                .addRule(TreeSimplifier.annihilator(fNOR, -1L, 0L))
+                .addRule(TreeSimplifier.identity(fAND, -1L))
+                .addRule(TreeSimplifier.identity(fOR, 0L))
+                .addRule(TreeSimplifier.identity(fXOR, 0L));
+    }
+
     public static final int N_CLASSES = 10;
     public static final int N_BIT = 64;
     public static final double STARTING_FITNESS = 10000000000.0;
@@ -176,18 +233,10 @@ public class SMCGP64 {
     public static double fitnessSMCTree(Tree<Long, SMC64PatternArguments> individual, SMCGP64DataSet data) {
         int[][] freq = new int[N_BIT][N_CLASSES];
         int[] frtot = new int[N_BIT];
-        int[] indmin = new int[N_CLASSES];
-
-        double[] fmin = new double[N_CLASSES];
-
-        for (int i = 0; i < N_CLASSES; i++) {
-            fmin[i] = STARTING_FITNESS;
-        }
-
-        int ind_hits = 0;
-        double ind_r_fitness;
 
         SMC64PatternArguments c = new SMC64PatternArguments();
+        CompiledTree<Long, SMC64PatternArguments> program = individual.compile();
+        long[] stack = program.newLongStack();
 
         for (int i = 0; i < data.size(); i++) {
             c.setPat1(data.getPattern1(i));
@@ -195,7 +244,7 @@ public class SMCGP64 {
 
             int index = data.getClass(i);
 
-            long risp = individual.eval(c);
+            long risp = program.evalLong(c, stack);
 
             for (int j = 0; j < N_BIT; j++) {
                 if ((risp & (1 << j)) != 0) {
@@ -205,9 +254,83 @@ public class SMCGP64 {
             }
         }
 
+        int[] selectedFreq = new int[N_BIT];
+        for (int j = 0; j < N_BIT; j++) {
+            selectedFreq[j] = freq[j][selectedClassifier];
+        }
+        return fitnessFromFrequencies(individual, data, selectedFreq, frtot);
+    }
+
+    /**
+     * Computes the fitness of a tree in the context of a SMCGP-64 evolution,
+     * like {@link #fitnessSMCTree(Tree, SMCGP64DataSet)}, but evaluating the
+     * tree on {@link #BATCH_SIZE} instances at once and counting the output
+     * bits with {@link BitSliceCounter}s.
+     *
+     * @param individual the tree whose fitness is being computed
+     * @param data       the dataset used to test the individual's ability to
+     *                   classify correctly
+     * @return the fitness
+     */
+    public static double fitnessSMCTreeBatch(
+            Tree<Long, SMC64PatternArguments> individual,
+            SMCGP64DataSet data
+    ) {
+        return fitnessSMCTreeBatch(individual, data, null);
+    }
+
+    /**
+     * Computes the fitness of a tree like
+     * {@link #fitnessSMCTreeBatch(Tree, SMCGP64DataSet)}, loading the values
+     * of its subtrees cached in a {@link SubtreeCache} of the dataset.
+     *
+     * @param individual the tree whose fitness is being computed
+     * @param data       the dataset used to test the individual's ability to
+     *                   classify correctly
+     * @param cache      the cache of the subtrees on the dataset, or null
+     * @return the fitness
+     */
+    public static double fitnessSMCTreeBatch(
+            Tree<Long, SMC64PatternArguments> individual,
+            SMCGP64DataSet data,
+            SubtreeCache<Long, SMC64PatternArguments> cache
+    ) {
+        CompiledTree<Long, SMC64PatternArguments> program = cache != null
+                ? cache.compile(individual)
+                : individual.compile();
+        BitSliceCounter total = new BitSliceCounter();
+        BitSliceCounter selected = new BitSliceCounter();
+        countOutputBits(program, data, selectedClassifier, total, selected);
+
+        int[] selectedFreq = new int[N_BIT];
+        int[] frtot = new int[N_BIT];
+        for (int j = 0; j < N_BIT; j++) {
+            selectedFreq[j] = (int) selected.count(testedBit(j));
+            frtot[j] = (int) total.count(testedBit(j));
+        }
+        return fitnessFromFrequencies(individual, data, selectedFreq, frtot);
+    }
+
+    private static double fitnessFromFrequencies(
+            Tree<Long, SMC64PatternArguments> individual,
+            SMCGP64DataSet data,
+            int[] selectedFreq,
+            int[] frtot
+    ) {
+        int[] indmin = new int[N_CLASSES];
+
+        double[] fmin = new double[N_CLASSES];
+
+        for (int i = 0; i < N_CLASSES; i++) {
+            fmin[i] = STARTING_FITNESS;
+        }
+
+        int ind_hits = 0;
+        double ind_r_fitness;
+
         for (int i = 0; i < N_BIT; i++) {
-            int fp = frtot[i] - freq[i][selectedClassifier];
-            int fn = data.getCaseCountForClass(selectedClassifier) - freq[i][selectedClassifier];
+            int fp = frtot[i] - selectedFreq[i];
+            int fn = data.getCaseCountForClass(selectedClassifier) - selectedFreq[i];
             double fit2 = fp * fp + fn * fn;
             if (fit2 < fmin[selectedClassifier]) {
                 fmin[selectedClassifier] = fit2;
@@ -215,7 +338,7 @@ public class SMCGP64 {
             }
         }
 
-        ind_hits += freq[indmin[selectedClassifier]][selectedClassifier];
+        ind_hits += selectedFreq[indmin[selectedClassifier]];
 
         ind_r_fitness = fmin[selectedClassifier];
 
@@ -257,6 +380,8 @@ public class SMCGP64 {
         int ndata = 0;
 
         SMC64PatternArguments c = new SMC64PatternArguments();
+        CompiledTree<Long, SMC64PatternArguments> program = classifier.compile();
+        long[] stack = program.newLongStack();
         for (int j = 0; j < testSet.size(); j++) {
             c.setPat1(testSet.getPattern1(j));
             c.setPat2(testSet.getPattern2(j));
@@ -268,7 +393,7 @@ public class SMCGP64 {
                 ndata++;
             }
 
-            Long treeResult = classifier.eval(c);
+            long treeResult = program.evalLong(c, stack);
             for (int i = 0; i < N_BIT; i++) {
                 long resultBit = (1 << i) & treeResult;
 
@@ -289,6 +414,57 @@ public class SMCGP64 {
 
         }
 
+        return evaluationFromCounts(classifier, tp, tn, fp, fn, pdata, ndata);
+    }
+
+    /**
+     * Evaluates a classifier, like
+     * {@link #evaluateClassifier(Tree, int, SMCGP64DataSet)}, but evaluating
+     * the tree on {@link #BATCH_SIZE} instances at once and counting the
+     * output bits with {@link BitSliceCounter}s.
+     *
+     * @param classifier the classifier being evaluated
+     * @param clas       the class the classifier tries to classify
+     * @param testSet    the dataset used as test set
+     * @return an object with the results
+     */
+    public static SMCGP64SimpleEvaluation evaluateClassifierBatch(
+            Tree<Long, SMC64PatternArguments> classifier,
+            int clas,
+            SMCGP64DataSet testSet
+    ) {
+        BitSliceCounter total = new BitSliceCounter();
+        BitSliceCounter positives = new BitSliceCounter();
+        countOutputBits(
+                classifier.compile(), testSet, clas, total, positives
+        );
+
+        int pdata = testSet.getCaseCountForClass(clas);
+        int ndata = testSet.size() - pdata;
+
+        int[] tp = new int[N_BIT];
+        int[] tn = new int[N_BIT];
+        int[] fp = new int[N_BIT];
+        int[] fn = new int[N_BIT];
+        for (int i = 0; i < N_BIT; i++) {
+            tp[i] = (int) positives.count(testedBit(i));
+            fp[i] = (int) total.count(testedBit(i)) - tp[i];
+            fn[i] = pdata - tp[i];
+            tn[i] = ndata - fp[i];
+        }
+
+        return evaluationFromCounts(classifier, tp, tn, fp, fn, pdata, ndata);
+    }
+
+    private static SMCGP64SimpleEvaluation evaluationFromCounts(
+            Tree<Long, SMC64PatternArguments> classifier,
+            int[] tp,
+            int[] tn,
+            int[] fp,
+            int[] fn,
+            int pdata,
+            int ndata
+    ) {
         final double dataSum = pdata + ndata;
         List<Double> fitVector = IntStream.range(0, N_BIT)
                 .parallel()
@@ -333,7 +509,65 @@ public class SMCGP64 {
     }
 
 
-    public static void main(String[] argv) {
+    /**
+     * The number of instances evaluated at once in batch evaluation
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    /**
+     * The memory budget, in bytes, of the cache of the subtrees of the
+     * population on the training set
+     */
+    public static final long SUBTREE_CACHE_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * Evaluates the program on all the instances of the dataset and counts,
+     * for each bit of the output, in how many instances it is set
+     * ({@code total}) and in how many instances of class {@code clas} it is
+     * set ({@code ofClass}). The outputs are first mapped by
+     * {@link #maskedOutput(long)}, so the count of each tested bit must be
+     * read at the position {@link #testedBit(int)}.
+     */
+    private static void countOutputBits(
+            CompiledTree<Long, SMC64PatternArguments> program,
+            SMCGP64DataSet data,
+            int clas,
+            BitSliceCounter total,
+            BitSliceCounter ofClass
+    ) {
+        long[][] stack = program.newBatchStack(BATCH_SIZE);
+        byte[] classes = data.getClassColumn();
+        for (int from = 0; from < data.size(); from += BATCH_SIZE) {
+            int length = Math.min(BATCH_SIZE, data.size() - from);
+            long[] outputs = program.evalBatch(data, from, length, stack);
+            for (int i = 0; i < length; i++) {
+                long output = maskedOutput(outputs[i]);
+                total.add(output);
+                if (classes[from + i] == clas) {
+                    ofClass.add(output);
+                }
+            }
+        }
+    }
+
+    /**
+     * The scalar evaluation tests the bit {@code j} of the output with the
+     * {@code int} mask {@code 1 << j}, which, once widened to {@code long},
+     * selects the bit {@code j % 32}, except for {@code j % 32 == 31}, where
+     * it selects all the bits from 31 to 63. This maps an output to a word
+     * whose bit {@link #testedBit(int) testedBit(j)} is set if and only if the
+     * scalar test of the bit {@code j} succeeds.
+     */
+    private static long maskedOutput(long output) {
+        long high = output >>> 31;
+        return (output & 0x7FFFFFFFL) | ((-high >>> 63) << 31);
+    }
+
+    private static int testedBit(int j) {
+        return j % 32;
+    }
+
+    public static void main(String[] argv) throws IOException {
         String trainPath64;
         String testPath64;
         if (argv.length != 2) {
@@ -351,8 +585,8 @@ public class SMCGP64 {
         File trainSetFile = new File(trainPath64);
         File testSetFile = new File(testPath64);
 
-        trainData.parseInstancesFromFile(trainSetFile);
-        testData.parseInstancesFromFile(testSetFile);
+        trainData.loadInstancesWithSidecar(trainSetFile);
+        testData.loadInstancesWithSidecar(testSetFile);
 
 
         System.out.println("#(train instances): " + trainData.size());
@@ -364,6 +598,8 @@ public class SMCGP64 {
         double cxPb = 0.80;
         int maxTreeHeight = 12;
         int tournSize = 7;
+        SubtreeCache<Long, SMC64PatternArguments> subtreeCache =
+                new SubtreeCache<>(trainData, SUBTREE_CACHE_BUDGET);
         TreeEvolution<Long, SMC64PatternArguments> evolution;
         evolution = new TreeEvolution<>(
                 random,
@@ -371,10 +607,17 @@ public class SMCGP64 {
                 5,
                 7,
                 operations,
-                new SyncParallelPopEvaluator<>(individual -> fitnessSMCTree(
-                        individual,
-                        trainData
-                )),
+                new SubtreeCachePopEvaluator<>(
+                        new ForkJoinPopEvaluator<>(
+                                individual -> fitnessSMCTreeBatch(
+                                        individual,
+                                        trainData,
+                                        subtreeCache
+                                ),
+                                Tree::size
+                        ),
+                        subtreeCache
+                ),
                 new PreserveIndividuals<>(
                         1, new EliteSelection<>(), new RandomSelection<>(),
                         new SequentialBreeding<Tree<Long, SMC64PatternArguments>>(
@@ -410,6 +653,10 @@ public class SMCGP64 {
                                                 }
                                         )
                                 )
+                        ).addBreedingPhase(
+                                new TreeSimplification<>(
+                                        createSimplifier(operations)
+                                )
                         )
                 )
 
@@ -425,10 +672,10 @@ public class SMCGP64 {
                     evolution.getHallOfFame();
 
             Tree<Long, SMC64PatternArguments> best =
-                    hallOfFame.getBestIndividuals().first();
+                    hallOfFame.bestIndividual();
 
             SMCGP64SimpleEvaluation evaluation =
-                    evaluateClassifier(best, 0, testData);
+                    evaluateClassifierBatch(best, 0, testData);
 
             System.out.println(evaluation.toString());
         } catch (InterruptedException e) {
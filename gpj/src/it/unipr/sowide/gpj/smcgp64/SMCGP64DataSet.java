@@ -1,59 +1,203 @@
 package it.unipr.sowide.gpj.smcgp64;
 
+import it.unipr.sowide.gpj.tree.ColumnarInput;
+import it.unipr.sowide.util.BinaryColumns;
+import it.unipr.sowide.util.UnsignedTextColumns;
+
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * A collection of data instances in the form of a tuple of 2 64-bit values.
+ * <p>
+ * The instances are stored by column, in primitive arrays that grow as new
+ * instances are inserted, and duplicate instances are discarded by means of
+ * an open-addressing hash table of instance indexes.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
-public class SMCGP64DataSet {
+public class SMCGP64DataSet implements ColumnarInput {
 
     public final static String numberPattern = "\\d+";
-    private final List<SMCGP64Instance> instances = new ArrayList<>();
-    private final HashSet<SMCGP64Instance> instanceHashSet = new HashSet<>();
+
+    /**
+     * Index of the column of the first patterns, in batch evaluation
+     */
+    public final static int PATTERN1_COLUMN = 0;
+
+    /**
+     * Index of the column of the second patterns, in batch evaluation
+     */
+    public final static int PATTERN2_COLUMN = 1;
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    /**
+     * The binary format starts with the magic number, the version and the
+     * number of instances (as little-endian ints), followed by the column of
+     * the first patterns, the one of the second patterns (as little-endian
+     * longs) and the one of the classes (as bytes).
+     */
+    private final static int BINARY_MAGIC = 0x36434D53; // "SMC6"
+    private final static int BINARY_VERSION = 1;
+    private final static int BINARY_HEADER_SIZE = 3 * Integer.BYTES;
+    private final static int BINARY_INSTANCE_SIZE = 2 * Long.BYTES + 1;
+
+    private long[] patterns1 = new long[INITIAL_CAPACITY];
+    private long[] patterns2 = new long[INITIAL_CAPACITY];
+    private byte[] classes = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Open-addressing hash table (linear probing) of the inserted instances:
+     * each slot contains the index of an instance plus one, or zero if empty.
+     * Its length is a power of two, kept at least twice the size.
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
     private final int[] instancesCounts = new int[SMCGP64.N_CLASSES];
 
     /**
      * Inserts a new instance in the dataset using the two patterns and the
-     * specified class.
+     * specified class. The instance is discarded if it is already in the
+     * dataset.
      */
     public void put(long pat1, long pat2, int clas) {
-        SMCGP64Instance instance = new SMCGP64Instance(clas, pat1, pat2);
-        putInstance(instance);
+        if (clas < 0 || clas >= SMCGP64.N_CLASSES) {
+            throw new IllegalArgumentException("Invalid class: " + clas);
+        }
+        int slot = findSlot(pat1, pat2, clas);
+        if (slots[slot] != 0) {
+            return;
+        }
+        if (size == patterns1.length) {
+            ensureCapacity(size * 2);
+        }
+        patterns1[size] = pat1;
+        patterns2[size] = pat2;
+        classes[size] = (byte) clas;
+        size++;
+        slots[slot] = size;
+        instancesCounts[clas]++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+    }
+
+    /**
+     * Makes room for at least {@code capacity} instances, so that they can
+     * be inserted without growing the columns again.
+     *
+     * @param capacity the expected number of instances
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > patterns1.length) {
+            patterns1 = Arrays.copyOf(patterns1, capacity);
+            patterns2 = Arrays.copyOf(patterns2, capacity);
+            classes = Arrays.copyOf(classes, capacity);
+        }
+        if (capacity * 2 > slots.length) {
+            rehash(Integer.highestOneBit(capacity * 2 - 1) << 1);
+        }
+    }
+
+    private static int hash(long pat1, long pat2, int clas) {
+        long h = pat1 * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(pat2 * 0xC2B2AE3D27D4EB4FL, 31);
+        h = (h ^ clas) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
     }
 
-    private void putInstance(SMCGP64Instance instance) {
-        if (!instanceHashSet.contains(instance)) {
-            instances.add(instance);
-            instanceHashSet.add(instance);
-            instancesCounts[instance.getClas()]++;
+    /**
+     * @return the slot that contains the specified instance, or the empty
+     * slot where it should be inserted
+     */
+    private int findSlot(long pat1, long pat2, int clas) {
+        int mask = slots.length - 1;
+        int slot = hash(pat1, pat2, clas) & mask;
+        while (slots[slot] != 0) {
+            int i = slots[slot] - 1;
+            if (patterns1[i] == pat1
+                    && patterns2[i] == pat2
+                    && classes[i] == clas) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        int mask = length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(patterns1[i], patterns2[i], classes[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
         }
     }
 
     /**
      * @return the number of instances in the dataset
      */
+    @Override
     public int size() {
-        return instances.size();
+        return size;
     }
 
     public long getPattern1(int instance) {
-        return instances.get(instance).getPat1();
+        return patterns1[Objects.checkIndex(instance, size)];
     }
 
     public long getPattern2(int instance) {
-        return instances.get(instance).getPat2();
+        return patterns2[Objects.checkIndex(instance, size)];
     }
 
     public int getClass(int instance) {
-        return instances.get(instance).getClas();
+        return classes[Objects.checkIndex(instance, size)];
+    }
+
+    /**
+     * Returns the column of the first patterns, without copying it. Only the
+     * first {@link #size()} elements are meaningful; the array must not be
+     * modified, and it is no longer used by the dataset once the column
+     * grows because of an insertion.
+     *
+     * @return the backing array of the first patterns
+     */
+    public long[] getPattern1Column() {
+        return patterns1;
+    }
+
+    /**
+     * Returns the column of the second patterns, without copying it, under
+     * the same terms of {@link #getPattern1Column()}.
+     *
+     * @return the backing array of the second patterns
+     */
+    public long[] getPattern2Column() {
+        return patterns2;
+    }
+
+    /**
+     * Returns the column of the classes, without copying it, under the same
+     * terms of {@link #getPattern1Column()}.
+     *
+     * @return the backing array of the classes
+     */
+    public byte[] getClassColumn() {
+        return classes;
     }
 
     /**
@@ -66,36 +210,251 @@ public class SMCGP64DataSet {
         return instancesCounts[clas];
     }
 
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void loadColumn(
+            int column,
+            int from,
+            int length,
+            long[] destination
+    ) {
+        Objects.checkFromIndexSize(from, length, size);
+        switch (column) {
+            case PATTERN1_COLUMN:
+                System.arraycopy(patterns1, from, destination, 0, length);
+                break;
+            case PATTERN2_COLUMN:
+                System.arraycopy(patterns2, from, destination, 0, length);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Invalid column: " + column
+                );
+        }
+    }
+
+    /**
+     * @return a new {@link SMCGP64Instance} with the values of the instance
+     * at the specified index
+     */
     public SMCGP64Instance getInstance(int index) {
-        return instances.get(index);
+        Objects.checkIndex(index, size);
+        return new SMCGP64Instance(
+                classes[index],
+                patterns1[index],
+                patterns2[index]
+        );
     }
 
-    private void parseInstance(Scanner scanLine) {
+    /**
+     * Inserts the instances read from a text file, with the format accepted
+     * by {@link #loadInstancesFromFile(File)}, printing the stack trace of
+     * any I/O error.
+     */
+    public void parseInstancesFromFile(File file) {
+        try {
+            loadInstancesFromFile(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        String p1 = scanLine.next(numberPattern);
-        String p2 = scanLine.next(numberPattern);
-        int clas = scanLine.nextInt();
+    /**
+     * Inserts the instances read from a text file. The first line of the
+     * file contains the number of instances and, as in the original
+     * Scanner-based parser, the second line is skipped too; each of the
+     * following lines contains the two patterns, as unsigned decimal
+     * numbers, and the class of an instance.
+     * <p>
+     * The file is memory-mapped and parsed in parallel (see
+     * {@link UnsignedTextColumns}); the instances are then inserted in the
+     * order of the file.
+     *
+     * @param file the text file
+     * @throws IOException if the file cannot be read
+     */
+    public void loadInstancesFromFile(File file) throws IOException {
+        long[][] columns = UnsignedTextColumns.parse(file.toPath(), 2, 3);
+        int count = columns[0].length;
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            put(columns[0][i], columns[1][i], toClass(columns[2][i]));
+        }
+    }
+
+    private static int toClass(long value) {
+        if (Long.compareUnsigned(value, SMCGP64.N_CLASSES) >= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid class: " + Long.toUnsignedString(value)
+            );
+        }
+        return (int) value;
+    }
 
-        long ip1 = Long.parseUnsignedLong(p1);
-        long ip2 = Long.parseUnsignedLong(p2);
+    /**
+     * Like {@link #loadInstancesFromFile(File)}, but keeps a binary copy of
+     * the instances of the file in a sidecar file (see
+     * {@link #sidecarFile(File)}). If the sidecar is not older than the text
+     * file, it is read in its place; otherwise, it is (re)written after
+     * parsing the text file. Failing to write the sidecar is not an error.
+     *
+     * @param file the text file
+     * @throws IOException if the text file or the sidecar cannot be read
+     */
+    public void loadInstancesWithSidecar(File file) throws IOException {
+        File sidecar = sidecarFile(file);
+        if (sidecar.isFile() && sidecar.lastModified() >= file.lastModified()) {
+            readBinary(sidecar);
+            return;
+        }
+        SMCGP64DataSet loaded = size == 0 ? this : new SMCGP64DataSet();
+        loaded.loadInstancesFromFile(file);
+        Path temporary = null;
+        boolean moved = false;
+        try {
+            temporary = Files.createTempFile(
+                    sidecar.getAbsoluteFile().toPath().getParent(),
+                    sidecar.getName(),
+                    ".tmp"
+            );
+            loaded.writeBinary(temporary.toFile());
+            try {
+                Files.move(
+                        temporary,
+                        sidecar.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE
+                );
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(
+                        temporary,
+                        sidecar.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            }
+            moved = true;
+        } catch (IOException e) {
+            System.err.println("Cannot write " + sidecar + ": " + e);
+        } finally {
+            // a partial sidecar must not be left in the directory of the dataset
+            if (temporary != null && !moved) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    System.err.println("Cannot delete " + temporary + ": " + e);
+                }
+            }
+        }
+        if (loaded != this) {
+            for (int i = 0; i < loaded.size; i++) {
+                put(
+                        loaded.patterns1[i],
+                        loaded.patterns2[i],
+                        loaded.classes[i]
+                );
+            }
+        }
+    }
 
-        this.put(ip1, ip2, clas);
+    /**
+     * @return the binary sidecar file used by
+     * {@link #loadInstancesWithSidecar(File)} for the specified text file,
+     * which has the same path with the {@code .bin} extension appended
+     */
+    public static File sidecarFile(File file) {
+        return new File(file.getPath() + ".bin");
     }
 
-    public void parseInstancesFromFile(File file) {
-        try (Scanner reader = new Scanner(new FileReader(file))) {
-            String countLine = reader.nextLine();
+    /**
+     * Writes all the instances of the dataset to a file, in a compact
+     * binary format that can be read by {@link #readBinary(File)}.
+     *
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(BINARY_MAGIC)
+                    .putInt(BINARY_VERSION)
+                    .putInt(size);
+            BinaryColumns.writeBytes(
+                    channel,
+                    header.array(),
+                    BINARY_HEADER_SIZE
+            );
+            BinaryColumns.writeLongs(channel, patterns1, size);
+            BinaryColumns.writeLongs(channel, patterns2, size);
+            BinaryColumns.writeBytes(channel, classes, size);
+        }
+    }
 
-            while (reader.hasNextLine() || reader.hasNext(numberPattern)) {
-                if (reader.hasNextLine()) {
-                    reader.nextLine();
+    /**
+     * Inserts the instances read from a file written by
+     * {@link #writeBinary(File)}. If the dataset is empty, the columns are
+     * read in bulk, without checking for duplicates.
+     *
+     * @param file the binary file
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    public void readBinary(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.READ
+        )) {
+            byte[] headerBytes = new byte[BINARY_HEADER_SIZE];
+            long position = BinaryColumns.readBytes(
+                    channel,
+                    0,
+                    headerBytes,
+                    BINARY_HEADER_SIZE
+            );
+            ByteBuffer header = ByteBuffer.wrap(headerBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != BINARY_MAGIC
+                    || header.getInt() != BINARY_VERSION) {
+                throw new IOException("Not a binary SMCGP64 dataset: " + file);
+            }
+            int count = header.getInt();
+            if (count < 0 || channel.size() != BINARY_HEADER_SIZE
+                    + (long) count * BINARY_INSTANCE_SIZE) {
+                throw new IOException("Corrupted binary dataset: " + file);
+            }
+            boolean bulk = size == 0;
+            long[] pat1 = bulk ? null : new long[count];
+            long[] pat2 = bulk ? null : new long[count];
+            byte[] clas = bulk ? null : new byte[count];
+            ensureCapacity(size + count);
+            if (bulk) {
+                pat1 = patterns1;
+                pat2 = patterns2;
+                clas = classes;
+            }
+            position = BinaryColumns.readLongs(channel, position, pat1, count);
+            position = BinaryColumns.readLongs(channel, position, pat2, count);
+            BinaryColumns.readBytes(channel, position, clas, count);
+            for (int i = 0; i < count; i++) {
+                toClass(clas[i]);
+            }
+            if (bulk) {
+                for (int i = 0; i < count; i++) {
+                    instancesCounts[clas[i]]++;
                 }
-                if (reader.hasNext(numberPattern)) {
-                    this.parseInstance(reader);
+                size = count;
+                rehash(slots.length);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    put(pat1[i], pat2[i], clas[i]);
                 }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 }
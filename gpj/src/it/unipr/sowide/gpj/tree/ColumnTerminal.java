@@ -0,0 +1,13 @@
+package it.unipr.sowide.gpj.tree;
+
+/**
+ * A terminal which reads an input variable that, in batch evaluation, is
+ * provided by a column of a {@link ColumnarInput}.
+ */
+public interface ColumnTerminal {
+    /**
+     * @return the index of the column, or -1 if the terminal is not bound to
+     * a column
+     */
+    int getColumn();
+}
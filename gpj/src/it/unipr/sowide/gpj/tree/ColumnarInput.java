@@ -0,0 +1,24 @@
+package it.unipr.sowide.gpj.tree;
+
+/**
+ * A set of fitness cases stored by columns, one for each input variable, that
+ * can be used to evaluate a {@link CompiledTree} on many cases at once (see
+ * {@link CompiledTree#evalBatch(ColumnarInput, int, int, long[][])}).
+ */
+public interface ColumnarInput {
+    /**
+     * @return the number of fitness cases
+     */
+    int size();
+
+    /**
+     * Copies the values of a column for a range of fitness cases.
+     *
+     * @param column      the index of the column
+     * @param from        the index of the first fitness case
+     * @param length      the number of fitness cases
+     * @param destination the array where the values are copied, starting
+     *                    from index 0 (narrower types are sign-extended)
+     */
+    void loadColumn(int column, int from, int length, long[] destination);
+}
@@ -0,0 +1,514 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link Tree} flattened into a linear program in postfix order, which can
+ * be evaluated with a simple stack machine instead of walking the tree.
+ * <p>
+ * The program is made of an array of opcodes and an array of operands, which
+ * index a pool containing the constant values and the operations of the
+ * tree. When all the operations of the tree are {@link PrimitiveOperation}s
+ * (or constants of type {@link Long} or {@link Integer}), the program can
+ * also be evaluated on primitive values with
+ * {@link #evalLong(Object, long[])}; if, in addition, all its terminals are
+ * {@link ColumnTerminal}s, it can be evaluated on many fitness cases at once
+ * with {@link #evalBatch(ColumnarInput, int, int, long[][])}.
+ * <p>
+ * The program of a tree interned by a {@link TreeStore} evaluates each
+ * subtree that occurs more than once in the tree (as the same node) only
+ * once: its value is saved in a register, above the stack, and loaded where
+ * the subtree occurs again.
+ * <p>
+ * A program compiled by a {@link SubtreeCache} loads the values of the
+ * cached subtrees over the whole input of the cache, instead of evaluating
+ * them, so it can be evaluated only in batch, on that input.
+ * <p>
+ * Instances are immutable, so they can be shared between threads and between
+ * copies of the same tree.
+ *
+ * @param <T> the type of the result of the evaluation of the tree
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public final class CompiledTree<T, C> {
+    private static final byte CONSTANT = 0;
+    private static final byte TERMINAL = 1;
+    private static final byte UNARY = 2;
+    private static final byte BINARY = 3;
+    private static final byte STORE = 4;
+    private static final byte LOAD = 5;
+    private static final byte CACHED = 6;
+
+    private final byte[] opcodes;
+    private final int[] operands;
+    private final Object[] pool;
+    private final int maxStackSize;
+    private final int registers;
+
+    // non-null only when the tree can be evaluated on primitive values
+    private final long[] longPool;
+    private final PrimitiveOperation<C>[] primitivePool;
+
+    // non-null only when the tree can be evaluated in batch
+    private final int[] columnPool;
+
+    // non-null only when the values of some subtrees are loaded from a cache
+    private final ColumnarInput cachedInput;
+
+    /**
+     * Compiles the specified tree.
+     *
+     * @param tree          the tree
+     * @param reuseSubtrees if true, the subtrees that occur more than once in
+     *                      the tree are evaluated once
+     */
+    CompiledTree(Tree<T, C> tree, boolean reuseSubtrees) {
+        this(tree, reuseSubtrees, null);
+    }
+
+    /**
+     * Compiles the specified tree, loading the values of its subtrees found
+     * in a cache.
+     *
+     * @param tree          the tree
+     * @param reuseSubtrees if true, the subtrees that occur more than once in
+     *                      the tree are evaluated once
+     * @param cache         the cache of the values of the subtrees, or null
+     */
+    CompiledTree(
+            Tree<T, C> tree,
+            boolean reuseSubtrees,
+            SubtreeCache<T, C> cache
+    ) {
+        Assembler assembler = new Assembler(cache);
+        if (reuseSubtrees) {
+            assembler.countUses(tree);
+        }
+        this.maxStackSize = assembler.emit(tree, 0);
+        this.registers = assembler.registers.size();
+
+        int length = assembler.opcodes.size();
+        this.opcodes = new byte[length];
+        this.operands = new int[length];
+        for (int pc = 0; pc < length; pc++) {
+            opcodes[pc] = assembler.opcodes.get(pc);
+            operands[pc] = assembler.operands.get(pc);
+        }
+        this.pool = assembler.pool.toArray();
+
+        long[] longs = new long[pool.length];
+        @SuppressWarnings("unchecked")
+        PrimitiveOperation<C>[] primitives =
+                (PrimitiveOperation<C>[]) new PrimitiveOperation<?>[pool.length];
+        boolean primitive = true;
+        for (int i = 0; i < pool.length && primitive; i++) {
+            Object entry = pool[i];
+            if (entry instanceof PrimitiveOperation) {
+                @SuppressWarnings("unchecked")
+                PrimitiveOperation<C> op = (PrimitiveOperation<C>) entry;
+                primitives[i] = op;
+            } else if (entry instanceof Long || entry instanceof Integer) {
+                longs[i] = ((Number) entry).longValue();
+            } else if (!(entry instanceof long[])) {
+                primitive = false;
+            }
+        }
+        this.longPool = primitive ? longs : null;
+        this.primitivePool = primitive ? primitives : null;
+
+        int[] columns = new int[pool.length];
+        boolean batchable = primitive;
+        for (int pc = 0; pc < opcodes.length && batchable; pc++) {
+            if (opcodes[pc] == TERMINAL) {
+                Object terminal = pool[operands[pc]];
+                int column = terminal instanceof ColumnTerminal
+                        ? ((ColumnTerminal) terminal).getColumn()
+                        : -1;
+                columns[operands[pc]] = column;
+                batchable = column >= 0;
+            }
+        }
+        this.columnPool = batchable ? columns : null;
+        this.cachedInput = assembler.loadsCachedValues
+                ? cache.getInput()
+                : null;
+    }
+
+    /**
+     * Builds the code of a program; equal constants and identical
+     * operations share the same entry of the pool, and the subtrees used
+     * more than once share the same register.
+     */
+    private static final class Assembler {
+        private final List<Byte> opcodes = new ArrayList<>();
+        private final List<Integer> operands = new ArrayList<>();
+        private final List<Object> pool = new ArrayList<>();
+        private final Map<Object, Integer> constantIndexes = new HashMap<>();
+        private final Map<Object, Integer> operationIndexes =
+                new IdentityHashMap<>();
+        private final Map<Tree<?, ?>, Integer> uses = new IdentityHashMap<>();
+        private final Map<Tree<?, ?>, Integer> registers =
+                new IdentityHashMap<>();
+        private final SubtreeCache<?, ?> cache;
+        private boolean loadsCachedValues = false;
+
+        private Assembler(SubtreeCache<?, ?> cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Counts how many times each node is reached from the root; the
+         * nodes below a node reached more than once are counted once, since
+         * their values are computed once.
+         */
+        private void countUses(Tree<?, ?> tree) {
+            if (uses.merge(tree, 1, Integer::sum) == 1) {
+                if (tree.getArg1() != null) {
+                    countUses(tree.getArg1());
+                }
+                if (tree.getArg2() != null) {
+                    countUses(tree.getArg2());
+                }
+            }
+        }
+
+        private void register(byte opcode, int register) {
+            opcodes.add(opcode);
+            operands.add(register);
+        }
+
+        private void instruction(byte opcode, Object entry) {
+            var indexes = opcode == CONSTANT
+                    ? constantIndexes
+                    : operationIndexes;
+            Integer index = indexes.get(entry);
+            if (index == null) {
+                index = pool.size();
+                pool.add(entry);
+                indexes.put(entry, index);
+            }
+            opcodes.add(opcode);
+            operands.add(index);
+        }
+
+        /**
+         * Appends the postfix code of {@code tree} and returns the maximum
+         * stack size reached while evaluating it, starting from
+         * {@code depth}.
+         */
+        private <T, C> int emit(Tree<T, C> tree, int depth) {
+            long[] cached = cache != null ? cache.lookup(tree) : null;
+            if (cached != null) {
+                // the cache is consulted before descending into the subtree
+                instruction(CACHED, cached);
+                loadsCachedValues = true;
+                return depth + 1;
+            }
+            if (tree.size() > 1 && uses.getOrDefault(tree, 0) > 1) {
+                Integer register = registers.get(tree);
+                if (register != null) {
+                    register(LOAD, register);
+                    return depth + 1;
+                }
+                int max = emitNode(tree, depth);
+                register = registers.size();
+                registers.put(tree, register);
+                register(STORE, register);
+                return max;
+            }
+            return emitNode(tree, depth);
+        }
+
+        private <T, C> int emitNode(Tree<T, C> tree, int depth) {
+            Operation<T, C> operation = tree.getOperation();
+            Tree<T, C> arg1 = tree.getArg1();
+            Tree<T, C> arg2 = tree.getArg2();
+            if (operation instanceof Constant) {
+                instruction(
+                        CONSTANT,
+                        ((Constant<T, C>) operation).getValue()
+                );
+                return depth + 1;
+            } else if (operation instanceof Terminal) {
+                instruction(TERMINAL, operation);
+                return depth + 1;
+            } else if (operation instanceof Function1) {
+                // same argument resolution of Tree.eval(C)
+                Tree<T, C> arg = arg1 != null ? arg1 : arg2;
+                if (arg == null) {
+                    throw new RuntimeException(
+                            "Cannot apply unary function to no arguments"
+                    );
+                }
+                int max = emit(arg, depth);
+                instruction(UNARY, operation);
+                return max;
+            } else if (operation instanceof Function2) {
+                if (arg1 == null || arg2 == null) {
+                    throw new RuntimeException(
+                            "Cannot apply binary function to less than 2 " +
+                                    "arguments"
+                    );
+                }
+                int max1 = emit(arg1, depth);
+                int max2 = emit(arg2, depth + 1);
+                instruction(BINARY, operation);
+                return Math.max(max1, max2);
+            } else {
+                throw new RuntimeException(
+                        "Invalid operation"
+                );
+            }
+        }
+    }
+
+    /**
+     * @return the number of instructions of the program
+     */
+    public int length() {
+        return opcodes.length;
+    }
+
+    /**
+     * @return the size of the stack needed to evaluate the program,
+     * including its registers
+     */
+    public int getMaxStackSize() {
+        return maxStackSize + registers;
+    }
+
+    /**
+     * @return true if the program can be evaluated with
+     * {@link #evalLong(Object, long[])}
+     */
+    public boolean isPrimitive() {
+        return longPool != null && cachedInput == null;
+    }
+
+    /**
+     * @return true if the program can be evaluated with
+     * {@link #evalBatch(ColumnarInput, int, int, long[][])}
+     */
+    public boolean isBatchable() {
+        return columnPool != null;
+    }
+
+    /**
+     * @return a stack that can be passed to {@link #evalLong(Object, long[])}
+     */
+    public long[] newLongStack() {
+        return new long[maxStackSize + registers];
+    }
+
+    /**
+     * Evaluates the program using the input context. The result is the same
+     * of {@link Tree#eval(Object)} on the compiled tree.
+     *
+     * @param context the context
+     * @return the result value
+     * @throws IllegalStateException if the program loads the values of
+     *                               cached subtrees
+     */
+    @SuppressWarnings("unchecked")
+    public T eval(C context) {
+        if (cachedInput != null) {
+            throw new IllegalStateException(
+                    "The compiled tree can be evaluated only in batch"
+            );
+        }
+        Object[] stack = new Object[maxStackSize + registers];
+        int sp = 0;
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            int operand = operands[pc];
+            switch (opcodes[pc]) {
+                case CONSTANT:
+                    stack[sp++] = pool[operand];
+                    break;
+                case TERMINAL:
+                    stack[sp++] = ((Terminal<T, C>) pool[operand])
+                            .eval(context);
+                    break;
+                case UNARY:
+                    stack[sp - 1] = ((Function1<T, C>) pool[operand])
+                            .apply((T) stack[sp - 1], context);
+                    break;
+                case BINARY:
+                    sp--;
+                    stack[sp - 1] = ((Function2<T, C>) pool[operand])
+                            .apply((T) stack[sp - 1], (T) stack[sp], context);
+                    break;
+                case STORE:
+                    stack[maxStackSize + operand] = stack[sp - 1];
+                    break;
+                default:
+                    stack[sp++] = stack[maxStackSize + operand];
+                    break;
+            }
+        }
+        return (T) stack[0];
+    }
+
+    /**
+     * Evaluates the program on primitive values, using the input context.
+     *
+     * @param context the context
+     * @param stack   a stack of at least {@link #getMaxStackSize()} elements,
+     *                that can be reused between calls by the same thread
+     * @return the result value (sign-extended, if the type of the values of
+     * the tree is narrower than {@code long})
+     * @throws IllegalStateException if the program is not
+     *                               {@link #isPrimitive() primitive}
+     */
+    public long evalLong(C context, long[] stack) {
+        if (longPool == null) {
+            throw new IllegalStateException(
+                    "The compiled tree contains non-primitive operations"
+            );
+        }
+        if (cachedInput != null) {
+            throw new IllegalStateException(
+                    "The compiled tree can be evaluated only in batch"
+            );
+        }
+        int sp = 0;
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            int operand = operands[pc];
+            switch (opcodes[pc]) {
+                case CONSTANT:
+                    stack[sp++] = longPool[operand];
+                    break;
+                case TERMINAL:
+                    stack[sp++] = primitivePool[operand]
+                            .applyAsLong(0L, 0L, context);
+                    break;
+                case UNARY:
+                    stack[sp - 1] = primitivePool[operand]
+                            .applyAsLong(stack[sp - 1], 0L, context);
+                    break;
+                case BINARY:
+                    sp--;
+                    stack[sp - 1] = primitivePool[operand]
+                            .applyAsLong(stack[sp - 1], stack[sp], context);
+                    break;
+                case STORE:
+                    stack[maxStackSize + operand] = stack[sp - 1];
+                    break;
+                default:
+                    stack[sp++] = stack[maxStackSize + operand];
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * @param batchSize the maximum number of fitness cases evaluated by each
+     *                  call
+     * @return a stack that can be passed to
+     * {@link #evalBatch(ColumnarInput, int, int, long[][])}
+     */
+    public long[][] newBatchStack(int batchSize) {
+        return new long[maxStackSize + registers][batchSize];
+    }
+
+    /**
+     * Evaluates the program on a range of fitness cases at once: each
+     * instruction is applied to a whole column of values, so the cost of the
+     * dispatch is paid once per instruction instead of once per case.
+     *
+     * @param input  the fitness cases
+     * @param from   the index of the first fitness case evaluated
+     * @param length the number of fitness cases evaluated
+     * @param stack  a stack obtained by {@link #newBatchStack(int)}, with a
+     *               batch size of at least {@code length}
+     * @return the array with the results (sign-extended, if the type of the
+     * values of the tree is narrower than {@code long}) in the first
+     * {@code length} elements; it is part of {@code stack}, so it is
+     * overwritten by the next call
+     * @throws IllegalStateException    if the program is not
+     *                                  {@link #isBatchable() batchable}
+     * @throws IllegalArgumentException if the program loads the values of
+     *                                  cached subtrees and {@code input} is
+     *                                  not the input of the cache
+     */
+    public long[] evalBatch(
+            ColumnarInput input,
+            int from,
+            int length,
+            long[][] stack
+    ) {
+        if (columnPool == null) {
+            throw new IllegalStateException(
+                    "The compiled tree cannot be evaluated in batch"
+            );
+        }
+        if (cachedInput != null && input != cachedInput) {
+            throw new IllegalArgumentException(
+                    "The compiled tree can be evaluated only on the input " +
+                            "of its cache"
+            );
+        }
+        int sp = 0;
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            int operand = operands[pc];
+            switch (opcodes[pc]) {
+                case CONSTANT:
+                    Arrays.fill(stack[sp++], 0, length, longPool[operand]);
+                    break;
+                case TERMINAL:
+                    input.loadColumn(
+                            columnPool[operand],
+                            from,
+                            length,
+                            stack[sp++]
+                    );
+                    break;
+                case UNARY:
+                    primitivePool[operand].applyBatch(
+                            stack[sp - 1],
+                            stack[sp - 1],
+                            stack[sp - 1],
+                            length
+                    );
+                    break;
+                case BINARY:
+                    sp--;
+                    primitivePool[operand].applyBatch(
+                            stack[sp - 1],
+                            stack[sp],
+                            stack[sp - 1],
+                            length
+                    );
+                    break;
+                case STORE:
+                    System.arraycopy(
+                            stack[sp - 1], 0,
+                            stack[maxStackSize + operand], 0,
+                            length
+                    );
+                    break;
+                case LOAD:
+                    System.arraycopy(
+                            stack[maxStackSize + operand], 0,
+                            stack[sp++], 0,
+                            length
+                    );
+                    break;
+                default:
+                    System.arraycopy(
+                            (long[]) pool[operand], from,
+                            stack[sp++], 0,
+                            length
+                    );
+                    break;
+            }
+        }
+        return stack[0];
+    }
+}
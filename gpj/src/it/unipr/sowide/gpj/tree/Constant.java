@@ -30,4 +30,11 @@ public class Constant<T, C> implements Terminal<T, C> {
     public T eval(C context) {
         return value;
     }
+
+    /**
+     * @return the value of this constant
+     */
+    public T getValue() {
+        return value;
+    }
 }
@@ -0,0 +1,47 @@
+package it.unipr.sowide.gpj.tree;
+
+/**
+ * A terminal value that reads a variable from a slot of a frame of
+ * {@code double}s, which is the context of the evaluation (see
+ * {@link VariableSlots}).
+ */
+public class DoubleVariable extends ContextDependentTerminal<Double, double[]> {
+    private final int slot;
+
+    /**
+     * @param name the name of the variable
+     * @param slot the slot of the variable in the frames
+     */
+    public DoubleVariable(String name, int slot) {
+        super(name, (frame) -> frame[slot]);
+        this.slot = slot;
+    }
+
+    /**
+     * Creates a variable bound to its slot.
+     *
+     * @param slots the slots of the variables of the problem
+     * @param name  the name of the variable
+     * @return the variable
+     */
+    public static DoubleVariable bind(VariableSlots slots, String name) {
+        return new DoubleVariable(name, slots.bind(name));
+    }
+
+    /**
+     * @return the slot of the variable in the frames
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public DoubleVariable transformInit() {
+        return this;
+    }
+
+    @Override
+    public DoubleVariable copy() {
+        return new DoubleVariable(getName(), slot);
+    }
+}
@@ -0,0 +1,47 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A {@link BinaryFunction} on {@code int} values that can also be evaluated
+ * without boxing.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class IntBinaryFunction<C> extends BinaryFunction<Integer, C>
+        implements PrimitiveOperation<C> {
+    private final IntBinaryOperator operator;
+
+    public IntBinaryFunction(String name, IntBinaryOperator operator) {
+        super(name, operator::applyAsInt);
+        this.operator = operator;
+    }
+
+    @Override
+    public IntBinaryFunction<C> transformInit() {
+        return this;
+    }
+
+    @Override
+    public long applyAsLong(long arg1, long arg2, C context) {
+        return operator.applyAsInt((int) arg1, (int) arg2);
+    }
+
+    @Override
+    public void applyBatch(
+            long[] arg1,
+            long[] arg2,
+            long[] result,
+            int length
+    ) {
+        for (int i = 0; i < length; i++) {
+            result[i] = operator.applyAsInt((int) arg1[i], (int) arg2[i]);
+        }
+    }
+
+    @Override
+    public IntBinaryFunction<C> copy() {
+        return new IntBinaryFunction<>(getName(), operator);
+    }
+}
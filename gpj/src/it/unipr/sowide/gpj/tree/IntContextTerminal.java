@@ -0,0 +1,60 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link ContextDependentTerminal} with an {@code int} value that can also
+ * be evaluated without boxing.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class IntContextTerminal<C> extends ContextDependentTerminal<Integer, C>
+        implements PrimitiveOperation<C>, ColumnTerminal {
+    private final int column;
+    private final ToIntFunction<C> evaluate;
+
+    /**
+     * @param name     the name of the operation
+     * @param evaluate a function that takes the context in input
+     */
+    public IntContextTerminal(String name, ToIntFunction<C> evaluate) {
+        this(name, -1, evaluate);
+    }
+
+    /**
+     * @param name     the name of the operation
+     * @param column   the column that provides the value of the terminal in
+     *                 batch evaluation
+     * @param evaluate a function that takes the context in input
+     */
+    public IntContextTerminal(
+            String name,
+            int column,
+            ToIntFunction<C> evaluate
+    ) {
+        super(name, evaluate::applyAsInt);
+        this.column = column;
+        this.evaluate = evaluate;
+    }
+
+    @Override
+    public long applyAsLong(long arg1, long arg2, C context) {
+        return evaluate.applyAsInt(context);
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public IntContextTerminal<C> transformInit() {
+        return this;
+    }
+
+    @Override
+    public IntContextTerminal<C> copy() {
+        return new IntContextTerminal<>(getName(), column, evaluate);
+    }
+}
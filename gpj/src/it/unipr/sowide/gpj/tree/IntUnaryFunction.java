@@ -0,0 +1,47 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An {@link UnaryFunction} on {@code int} values that can also be evaluated
+ * without boxing.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class IntUnaryFunction<C> extends UnaryFunction<Integer, C>
+        implements PrimitiveOperation<C> {
+    private final IntUnaryOperator operator;
+
+    public IntUnaryFunction(String name, IntUnaryOperator operator) {
+        super(name, operator::applyAsInt);
+        this.operator = operator;
+    }
+
+    @Override
+    public IntUnaryFunction<C> transformInit() {
+        return this;
+    }
+
+    @Override
+    public long applyAsLong(long arg1, long arg2, C context) {
+        return operator.applyAsInt((int) arg1);
+    }
+
+    @Override
+    public void applyBatch(
+            long[] arg1,
+            long[] arg2,
+            long[] result,
+            int length
+    ) {
+        for (int i = 0; i < length; i++) {
+            result[i] = operator.applyAsInt((int) arg1[i]);
+        }
+    }
+
+    @Override
+    public IntUnaryFunction<C> copy() {
+        return new IntUnaryFunction<>(getName(), operator);
+    }
+}
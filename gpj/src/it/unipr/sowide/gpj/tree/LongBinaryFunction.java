@@ -0,0 +1,47 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A {@link BinaryFunction} on {@code long} values that can also be evaluated
+ * without boxing.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class LongBinaryFunction<C> extends BinaryFunction<Long, C>
+        implements PrimitiveOperation<C> {
+    private final LongBinaryOperator operator;
+
+    public LongBinaryFunction(String name, LongBinaryOperator operator) {
+        super(name, operator::applyAsLong);
+        this.operator = operator;
+    }
+
+    @Override
+    public LongBinaryFunction<C> transformInit() {
+        return this;
+    }
+
+    @Override
+    public long applyAsLong(long arg1, long arg2, C context) {
+        return operator.applyAsLong(arg1, arg2);
+    }
+
+    @Override
+    public void applyBatch(
+            long[] arg1,
+            long[] arg2,
+            long[] result,
+            int length
+    ) {
+        for (int i = 0; i < length; i++) {
+            result[i] = operator.applyAsLong(arg1[i], arg2[i]);
+        }
+    }
+
+    @Override
+    public LongBinaryFunction<C> copy() {
+        return new LongBinaryFunction<>(getName(), operator);
+    }
+}
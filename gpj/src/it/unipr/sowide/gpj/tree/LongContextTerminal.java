@@ -0,0 +1,60 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link ContextDependentTerminal} with a {@code long} value that can also
+ * be evaluated without boxing.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class LongContextTerminal<C> extends ContextDependentTerminal<Long, C>
+        implements PrimitiveOperation<C>, ColumnTerminal {
+    private final int column;
+    private final ToLongFunction<C> evaluate;
+
+    /**
+     * @param name     the name of the operation
+     * @param evaluate a function that takes the context in input
+     */
+    public LongContextTerminal(String name, ToLongFunction<C> evaluate) {
+        this(name, -1, evaluate);
+    }
+
+    /**
+     * @param name     the name of the operation
+     * @param column   the column that provides the value of the terminal in
+     *                 batch evaluation
+     * @param evaluate a function that takes the context in input
+     */
+    public LongContextTerminal(
+            String name,
+            int column,
+            ToLongFunction<C> evaluate
+    ) {
+        super(name, evaluate::applyAsLong);
+        this.column = column;
+        this.evaluate = evaluate;
+    }
+
+    @Override
+    public long applyAsLong(long arg1, long arg2, C context) {
+        return evaluate.applyAsLong(context);
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public LongContextTerminal<C> transformInit() {
+        return this;
+    }
+
+    @Override
+    public LongContextTerminal<C> copy() {
+        return new LongContextTerminal<>(getName(), column, evaluate);
+    }
+}
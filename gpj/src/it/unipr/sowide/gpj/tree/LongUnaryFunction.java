@@ -0,0 +1,47 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.function.LongUnaryOperator;
+
+/**
+ * An {@link UnaryFunction} on {@code long} values that can also be evaluated
+ * without boxing.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class LongUnaryFunction<C> extends UnaryFunction<Long, C>
+        implements PrimitiveOperation<C> {
+    private final LongUnaryOperator operator;
+
+    public LongUnaryFunction(String name, LongUnaryOperator operator) {
+        super(name, operator::applyAsLong);
+        this.operator = operator;
+    }
+
+    @Override
+    public LongUnaryFunction<C> transformInit() {
+        return this;
+    }
+
+    @Override
+    public long applyAsLong(long arg1, long arg2, C context) {
+        return operator.applyAsLong(arg1);
+    }
+
+    @Override
+    public void applyBatch(
+            long[] arg1,
+            long[] arg2,
+            long[] result,
+            int length
+    ) {
+        for (int i = 0; i < length; i++) {
+            result[i] = operator.applyAsLong(arg1[i]);
+        }
+    }
+
+    @Override
+    public LongUnaryFunction<C> copy() {
+        return new LongUnaryFunction<>(getName(), operator);
+    }
+}
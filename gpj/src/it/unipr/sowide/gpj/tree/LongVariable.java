@@ -0,0 +1,49 @@
+package it.unipr.sowide.gpj.tree;
+
+/**
+ * A terminal value that reads a variable from a slot of a frame of
+ * {@code long}s, which is the context of the evaluation (see
+ * {@link VariableSlots}). The slot is also the column of the variable in
+ * batch evaluation, so a {@link ColumnarInput} with a column for each slot
+ * provides the values of the variables for many fitness cases at once.
+ */
+public class LongVariable extends LongContextTerminal<long[]> {
+    private final int slot;
+
+    /**
+     * @param name the name of the variable
+     * @param slot the slot of the variable in the frames
+     */
+    public LongVariable(String name, int slot) {
+        super(name, slot, (frame) -> frame[slot]);
+        this.slot = slot;
+    }
+
+    /**
+     * Creates a variable bound to its slot.
+     *
+     * @param slots the slots of the variables of the problem
+     * @param name  the name of the variable
+     * @return the variable
+     */
+    public static LongVariable bind(VariableSlots slots, String name) {
+        return new LongVariable(name, slots.bind(name));
+    }
+
+    /**
+     * @return the slot of the variable in the frames
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public LongVariable transformInit() {
+        return this;
+    }
+
+    @Override
+    public LongVariable copy() {
+        return new LongVariable(getName(), slot);
+    }
+}
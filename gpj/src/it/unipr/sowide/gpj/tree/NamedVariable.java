@@ -4,7 +4,9 @@ import java.util.HashMap;
 
 /**
  * A Terminal value that extracts a named value from the context which is
- * defined as an {@link HashMap}.
+ * defined as an {@link HashMap}. The variables bound to the slots of a
+ * primitive frame ({@link DoubleVariable} and {@link LongVariable}, see
+ * {@link VariableSlots}) avoid the lookup by name at each evaluation.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
@@ -0,0 +1,47 @@
+package it.unipr.sowide.gpj.tree;
+
+/**
+ * An operation whose values can be represented by a primitive {@code long}.
+ * When all the operations of a tree implement this interface, the
+ * {@link CompiledTree} obtained from it can be evaluated without boxing (see
+ * {@link CompiledTree#evalLong(Object, long[])}).
+ * <p>
+ * Types narrower than {@code long} (e.g. {@code int}) are stored in the
+ * low-order bits of the value, sign-extended.
+ *
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public interface PrimitiveOperation<C> {
+    /**
+     * Evaluates the operation on primitive values. Arguments beyond the arity
+     * of the operation are ignored (and are passed as 0).
+     *
+     * @param arg1    the first argument
+     * @param arg2    the second argument
+     * @param context the context
+     * @return the result of the evaluation
+     */
+    long applyAsLong(long arg1, long arg2, C context);
+
+    /**
+     * Evaluates the operation on many pairs of arguments at once; no context
+     * is available in this case. For unary operations {@code arg2} is
+     * ignored. {@code result} may be the same array of one of the arguments.
+     *
+     * @param arg1   the first arguments
+     * @param arg2   the second arguments
+     * @param result the array where the results are stored
+     * @param length the number of evaluations
+     */
+    default void applyBatch(
+            long[] arg1,
+            long[] arg2,
+            long[] result,
+            int length
+    ) {
+        for (int i = 0; i < length; i++) {
+            result[i] = applyAsLong(arg1[i], arg2[i], null);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package it.unipr.sowide.gpj.tree;
+
+import it.unipr.sowide.util.Require;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A semantic cache of the subtrees of a population: it stores the values of
+ * the subtrees that occur frequently in the population over all the fitness
+ * cases of an input, keyed by their structural hash (see
+ * {@link Tree#structuralHash()}), so the building blocks shared by many
+ * individuals (e.g. inherited from common ancestors) are evaluated once per
+ * generation instead of once per individual. The programs compiled by the
+ * cache (see {@link #compile(Tree)}) consult it before descending into a
+ * subtree, and load the values of the cached subtrees instead of evaluating
+ * them. A subtree is loaded only if it has the same structure of the cached
+ * one (as defined by {@link TreeStore}), so the subtrees with the same hash
+ * are not mistaken for each other.
+ * <p>
+ * The cache is updated before the evaluation of each generation (see
+ * {@link #update(List)} and {@link SubtreeCachePopEvaluator}): the subtrees
+ * of at least {@link #MIN_SIZE} nodes that occur at least twice in the
+ * population are cached, preferring the ones that save more evaluations
+ * (their frequency times their size). The frequencies of the cached subtrees
+ * decay at each update; when the memory budget is full, the subtrees with the
+ * lowest score are evicted to make room for the ones with a higher score.
+ * <p>
+ * The values are scoped to a version of the input: when it changes (e.g.
+ * because some instances of data migrated), the cache is cleared.
+ * <p>
+ * Only the subtrees that can be evaluated in batch (see
+ * {@link CompiledTree#isBatchable()}) are cached, and the value of a subtree
+ * must depend only on the fitness case. The programs can be compiled by many
+ * threads at once, but not during an update.
+ *
+ * @param <T> the type of the result of the evaluation of the tree
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class SubtreeCache<T, C> {
+    /**
+     * The minimum size of a cached subtree: loading the values of a smaller
+     * one costs about as much as evaluating it.
+     */
+    public static final int MIN_SIZE = 3;
+
+    /**
+     * The factor by which the frequencies of the cached subtrees decay at
+     * each update
+     */
+    private static final double DECAY = 0.5;
+
+    /**
+     * The number of fitness cases evaluated at once to compute the values
+     * of a subtree
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    private final ColumnarInput input;
+    private final LongSupplier inputVersion;
+    private final long memoryBudget;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private long cachedVersion;
+    private int cachedSize;
+    private long usedMemory = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private int lastAdmitted = 0;
+    private int lastEvicted = 0;
+
+    /**
+     * @param input        the fitness cases on which the subtrees are
+     *                     evaluated
+     * @param inputVersion returns the current version of the input
+     * @param memoryBudget the maximum number of bytes of the cached values
+     */
+    public SubtreeCache(
+            ColumnarInput input,
+            LongSupplier inputVersion,
+            long memoryBudget
+    ) {
+        Require.nonNull(input, inputVersion);
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException(
+                    "The memory budget must be positive"
+            );
+        }
+        this.input = input;
+        this.inputVersion = inputVersion;
+        this.memoryBudget = memoryBudget;
+        this.cachedVersion = inputVersion.getAsLong();
+        this.cachedSize = input.size();
+    }
+
+    /**
+     * Creates a cache for an input that never changes.
+     *
+     * @param input        the fitness cases on which the subtrees are
+     *                     evaluated
+     * @param memoryBudget the maximum number of bytes of the cached values
+     */
+    public SubtreeCache(ColumnarInput input, long memoryBudget) {
+        this(input, () -> 0L, memoryBudget);
+    }
+
+    /**
+     * Updates the cache with the subtrees of the population that is going
+     * to be evaluated.
+     *
+     * @param population the population
+     */
+    public void update(List<? extends Tree<T, C>> population) {
+        long version = inputVersion.getAsLong();
+        if (version != cachedVersion || input.size() != cachedSize) {
+            invalidate();
+            cachedVersion = version;
+            cachedSize = input.size();
+        }
+        hits.reset();
+
+        Map<Long, Occurrences<T, C>> occurrences = new HashMap<>();
+        for (Tree<T, C> tree : population) {
+            count(tree, occurrences);
+        }
+
+        // the cached subtrees are aged, and counted again if they still occur
+        for (Map.Entry<Long, Entry> cached : entries.entrySet()) {
+            Occurrences<T, C> found = occurrences.remove(cached.getKey());
+            Entry entry = cached.getValue();
+            entry.frequency = entry.frequency * DECAY
+                    + (found != null ? found.count : 0);
+        }
+
+        List<Occurrences<T, C>> candidates = new ArrayList<>();
+        for (Occurrences<T, C> found : occurrences.values()) {
+            if (found.count >= 2) {
+                candidates.add(found);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(
+                (Occurrences<T, C> found) -> found.score()
+        ).reversed());
+
+        lastAdmitted = 0;
+        lastEvicted = 0;
+        long bytes = valuesBytes();
+        for (Occurrences<T, C> candidate : candidates) {
+            if (!makeRoom(bytes, candidate.score())) {
+                // the next candidates have lower scores
+                break;
+            }
+            long[] values = evaluate(candidate.subtree);
+            if (values != null) {
+                entries.put(
+                        candidate.subtree.structuralHash(),
+                        new Entry(values, candidate.subtree, candidate.count)
+                );
+                usedMemory += bytes;
+                lastAdmitted++;
+            }
+        }
+    }
+
+    /**
+     * Counts the occurrences of the subtrees of a tree, without descending
+     * into the cached ones, whose subtrees are not evaluated.
+     */
+    private void count(Tree<T, C> tree, Map<Long, Occurrences<T, C>> occurrences) {
+        if (tree.size() < MIN_SIZE) {
+            return;
+        }
+        long hash = tree.structuralHash();
+        occurrences.computeIfAbsent(hash, h -> new Occurrences<>(tree)).count++;
+        if (entries.containsKey(hash)) {
+            return;
+        }
+        if (tree.getArg1() != null) {
+            count(tree.getArg1(), occurrences);
+        }
+        if (tree.getArg2() != null) {
+            count(tree.getArg2(), occurrences);
+        }
+    }
+
+    /**
+     * Evicts the cached subtrees with the lowest scores, if lower than the
+     * specified one, until there is room for the specified number of bytes.
+     *
+     * @return true if there is room
+     */
+    private boolean makeRoom(long bytes, double score) {
+        if (bytes > memoryBudget) {
+            return false;
+        }
+        while (usedMemory + bytes > memoryBudget) {
+            Map.Entry<Long, Entry> victim = null;
+            for (Map.Entry<Long, Entry> cached : entries.entrySet()) {
+                if (victim == null
+                        || cached.getValue().score() < victim.getValue().score()) {
+                    victim = cached;
+                }
+            }
+            if (victim == null || victim.getValue().score() >= score) {
+                return false;
+            }
+            entries.remove(victim.getKey());
+            usedMemory -= bytes;
+            lastEvicted++;
+        }
+        return true;
+    }
+
+    /**
+     * @return the values of a subtree over the whole input, or null if it
+     * cannot be evaluated in batch
+     */
+    private long[] evaluate(Tree<T, C> subtree) {
+        CompiledTree<T, C> program = new CompiledTree<>(subtree, false, this);
+        if (!program.isBatchable()) {
+            return null;
+        }
+        long[] values = new long[input.size()];
+        long[][] stack = program.newBatchStack(BATCH_SIZE);
+        for (int from = 0; from < values.length; from += BATCH_SIZE) {
+            int length = Math.min(BATCH_SIZE, values.length - from);
+            long[] result = program.evalBatch(input, from, length, stack);
+            System.arraycopy(result, 0, values, from, length);
+        }
+        return values;
+    }
+
+    /**
+     * Compiles a tree, loading the values of its cached subtrees (see
+     * {@link CompiledTree}). If no subtree is cached, or if the tree cannot
+     * be evaluated in batch, the result is {@link Tree#compile()}.
+     *
+     * @param tree the tree
+     * @return the compiled program, that can be evaluated in batch on the
+     * input of this cache
+     */
+    public CompiledTree<T, C> compile(Tree<T, C> tree) {
+        if (entries.isEmpty()) {
+            return tree.compile();
+        }
+        CompiledTree<T, C> program =
+                new CompiledTree<>(tree, tree.isInterned(), this);
+        return program.isBatchable() ? program : tree.compile();
+    }
+
+    /**
+     * @return the values of a subtree, or null if it is not cached
+     */
+    long[] lookup(Tree<?, ?> subtree) {
+        if (subtree.size() < MIN_SIZE) {
+            return null;
+        }
+        Entry entry = entries.get(subtree.structuralHash());
+        // a different subtree with the same hash is a miss
+        if (entry == null
+                || !TreeStore.sameStructure(entry.subtree, subtree)) {
+            return null;
+        }
+        hits.increment();
+        return entry.values;
+    }
+
+    /**
+     * @return the input of the cache
+     */
+    public ColumnarInput getInput() {
+        return input;
+    }
+
+    /**
+     * Removes all the subtrees from the cache.
+     */
+    public void invalidate() {
+        entries.clear();
+        usedMemory = 0;
+    }
+
+    /**
+     * @return the number of cached subtrees
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of bytes of the cached values
+     */
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * @return the number of cached subtrees loaded by the programs compiled
+     * since the last update
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of subtrees cached by the last update
+     */
+    public int getLastAdmitted() {
+        return lastAdmitted;
+    }
+
+    /**
+     * @return the number of subtrees evicted by the last update
+     */
+    public int getLastEvicted() {
+        return lastEvicted;
+    }
+
+    private long valuesBytes() {
+        // the values plus the header of the array
+        return 8L * input.size() + 16;
+    }
+
+    private static final class Entry {
+        private final long[] values;
+        private final Tree<?, ?> subtree;
+        private double frequency;
+
+        private Entry(long[] values, Tree<?, ?> subtree, double frequency) {
+            this.values = values;
+            this.subtree = subtree;
+            this.frequency = frequency;
+        }
+
+        /**
+         * @return the number of evaluations of nodes saved for each fitness
+         * case, weighted by the frequency
+         */
+        private double score() {
+            return frequency * (subtree.size() - 1);
+        }
+    }
+
+    private static final class Occurrences<T, C> {
+        private final Tree<T, C> subtree;
+        private int count = 0;
+
+        private Occurrences(Tree<T, C> subtree) {
+            this.subtree = subtree;
+        }
+
+        private double score() {
+            return (double) count * (subtree.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package it.unipr.sowide.gpj.tree;
+
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.core.evaluation.SyncPopulationEvaluator;
+import it.unipr.sowide.util.Require;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Updates the fitnesses of a population of trees through another evaluator,
+ * after updating a {@link SubtreeCache} with the subtrees of the individuals
+ * to evaluate. The fitness function of the other evaluator should compile
+ * the trees with {@link SubtreeCache#compile(Tree)}, to use the cache.
+ * <p>
+ * The number of cached subtrees, their memory and the number of times they
+ * are loaded in each generation are reported as statistics of the
+ * generation.
+ *
+ * @param <T> the type of the result of the evaluation of the tree
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class SubtreeCachePopEvaluator<T, C>
+        implements SyncPopulationEvaluator<Tree<T, C>> {
+
+    private final SyncPopulationEvaluator<Tree<T, C>> evaluator;
+    private final SubtreeCache<T, C> cache;
+
+    /**
+     * @param evaluator the evaluator that computes the fitnesses
+     * @param cache     the cache used by the fitness function of the
+     *                  evaluator
+     */
+    public SubtreeCachePopEvaluator(
+            SyncPopulationEvaluator<Tree<T, C>> evaluator,
+            SubtreeCache<T, C> cache
+    ) {
+        Require.nonNull(evaluator, cache);
+        this.evaluator = evaluator;
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public int updateEvaluations(List<Tree<T, C>> population) {
+        List<Tree<T, C>> toEvaluate = new ArrayList<>();
+        for (Tree<T, C> individual : population) {
+            if (individual.getFitness().isEmpty()) {
+                toEvaluate.add(individual);
+            }
+        }
+        cache.update(toEvaluate);
+        return evaluator.updateEvaluations(population);
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void putStatistics(EvolutionContext context) {
+        evaluator.putStatistics(context);
+        context.putStatistic("subtree_cache_entries", (double) cache.size());
+        context.putStatistic("subtree_cache_hits", (double) cache.getHits());
+        context.putStatistic(
+                "subtree_cache_mb", cache.getUsedMemory() / (1024.0 * 1024.0)
+        );
+    }
+}
@@ -8,11 +8,16 @@ import it.unipr.sowide.util.promise.Promises;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * An individual that is a program represented by a tree of operations.
+ * <p>
+ * The structure of a tree is immutable, so the trees share their unchanged
+ * subtrees: the crossover and the mutations build new nodes only along the
+ * path from the root to the changed subtree, and a copy of an individual
+ * is a new root node. The metadata of an individual (fitness, birth
+ * generation, compiled program, ...) are the ones of its root.
  *
  * @param <T> the type of the result of the evaluation of the tree
  * @param <C> the type of the "context" in which the evaluation of the tree is
@@ -21,12 +26,29 @@ import java.util.stream.Collectors;
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
 public class Tree<T, C> implements Individual {
-    private Operation<T, C> operation;
-    private Tree<T, C> arg1 = null;
-    private Tree<T, C> arg2 = null;
+    private final Operation<T, C> operation;
+    private final Tree<T, C> arg1;
+    private final Tree<T, C> arg2;
     private int birthGeneration = 0;
     private Double fitness = null;
     private boolean inHallOfFame = false;
+    private CompiledTree<T, C> compiled = null;
+
+    /**
+     * True if the tree has been interned by a {@link TreeStore}, so its
+     * program evaluates its identical subtrees once.
+     */
+    private boolean interned = false;
+
+    /**
+     * The height, the size and the structural hash of the tree, cached since
+     * the evolution and the fitness functions query them for each individual
+     * (and for its subtrees); computed from the children when the node is
+     * created.
+     */
+    private final int height;
+    private final int size;
+    private final long structuralHash;
 
     /**
      * {@inheritDoc}
@@ -42,7 +64,7 @@ public class Tree<T, C> implements Individual {
      * @param terminal the terminal
      */
     public Tree(Terminal<T, C> terminal) {
-        operation = terminal;
+        this(terminal, null, null);
     }
 
     /**
@@ -53,8 +75,7 @@ public class Tree<T, C> implements Individual {
      * @param arg1      the argument expression
      */
     public Tree(Function1<T, C> function1, Tree<T, C> arg1) {
-        operation = function1;
-        this.arg1 = arg1;
+        this(function1, arg1, null);
     }
 
     /**
@@ -66,15 +87,19 @@ public class Tree<T, C> implements Individual {
      * @param arg2      the second argument expression
      */
     public Tree(Function2<T, C> function2, Tree<T, C> arg1, Tree<T, C> arg2) {
-        operation = function2;
-        this.arg1 = arg1;
-        this.arg2 = arg2;
+        this((Operation<T, C>) function2, arg1, arg2);
     }
 
     private Tree(Operation<T, C> operation, Tree<T, C> arg1, Tree<T, C> arg2) {
         this.operation = operation;
         this.arg1 = arg1;
         this.arg2 = arg2;
+        this.height = 1 + Math.max(
+                arg1 != null ? arg1.height : 0,
+                arg2 != null ? arg2.height : 0
+        );
+        this.size = 1 + (arg1 != null ? arg1.size : 0) + (arg2 != null ? arg2.size : 0);
+        this.structuralHash = structuralHash(operation, arg1, arg2);
     }
 
     static <T, C> Tree<T, C> treeNode(
@@ -158,47 +183,105 @@ public class Tree<T, C> implements Individual {
     }
 
     /**
-     * Creates a structural copy of the tree, without copying any metadata
+     * Returns the {@link CompiledTree} of this tree. The program is compiled
+     * the first time this method is called and it is cached in the root,
+     * and in its copies, since the structure of the tree does not change.
+     * If the tree has been interned by a {@link TreeStore}, the subtrees
+     * that occur more than once in it are evaluated once by the program.
      *
-     * @return the copied tree
+     * @return the compiled program
      */
-    public Tree<T, C> copyTree() {
-        var op = operation.copy();
-        Tree<T, C> a1 = null;
-        Tree<T, C> a2 = null;
-
-        if (arg1 != null) {
-            a1 = arg1.copyTree();
-        }
-        if (arg2 != null) {
-            a2 = arg2.copyTree();
+    public CompiledTree<T, C> compile() {
+        CompiledTree<T, C> result = compiled;
+        if (result == null) {
+            result = new CompiledTree<>(this, interned);
+            compiled = result;
         }
+        return result;
+    }
+
 
+    Operation<T, C> getOperation() {
+        return operation;
+    }
 
-        return new Tree<>(op, a1, a2);
+    Tree<T, C> getArg1() {
+        return arg1;
+    }
+
+    Tree<T, C> getArg2() {
+        return arg2;
+    }
+
+    boolean isInterned() {
+        return interned;
     }
 
     /**
-     * Creates a structural copy of the tree, copying the metadata too.
+     * Creates a copy of the tree, without copying any metadata. Since the
+     * structure of the trees is immutable, only the root is copied and the
+     * subtrees are shared.
+     *
+     * @return the copied tree
+     */
+    public Tree<T, C> copyTree() {
+        return new Tree<>(operation, arg1, arg2);
+    }
+
+    /**
+     * Creates a copy of the tree, copying the metadata too (including the
+     * cached {@link CompiledTree}, if present).
      *
      * @return the copied tree
      */
     public Tree<T, C> copyTreeWithMetadata() {
         var result = copyTree();
+        result.compiled = this.compiled;
+        result.interned = this.interned;
+        result.copyMetadata(this);
+        return result;
+    }
 
-        result.setBirthGeneration(this.getBirthGeneration());
+    /**
+     * Creates the root of an individual with the same structure of a node
+     * of a {@link TreeStore}, and the metadata of this tree. The fitness and
+     * the compiled program are kept only if the tree has not been simplified
+     * (i.e. made smaller, see {@link TreeSimplifier}), since the fitness can
+     * depend on the size of the tree.
+     *
+     * @param structure the interned node, equivalent to this tree
+     * @return the new tree
+     */
+    Tree<T, C> internedCopy(Tree<T, C> structure) {
+        Tree<T, C> result = structure == this ? this : structure.copyTree();
+        result.interned = true;
+        if (result != this) {
+            result.copyMetadata(this);
+            if (structure.size == size) {
+                result.compiled = compiled;
+            } else {
+                result.resetFitness();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the birth generation and the fitness of another tree, e.g. the
+     * one from which this tree has been derived.
+     */
+    private void copyMetadata(Tree<T, C> from) {
+        setBirthGeneration(from.getBirthGeneration());
 
-        var optFitness = this.getFitness();
+        var optFitness = from.getFitness();
 
         if (optFitness.isPresent()) {
-            result.setFitness(optFitness.get());
+            setFitness(optFitness.get());
         } else {
-            result.resetFitness();
+            resetFitness();
         }
-        return result;
     }
 
-
     /**
      * {@inheritDoc}
      **/
@@ -274,46 +357,61 @@ public class Tree<T, C> implements Individual {
 
 
     /**
-     * Computes the height of the tree (i.e. the depth of the expression).
+     * Returns the height of the tree (i.e. the depth of the expression).
      *
      * @return the height
      */
     public int height() {
-        if (arg1 == null) {
-            if (arg2 == null) {
-                return 1;
-            } else {
-                return 1 + arg2.height();
-            }
-        } else {
-            if (arg2 == null) {
-                return 1 + arg1.height();
-            } else {
-                return 1 + Math.max(arg1.height(), arg2.height());
-            }
-        }
+        return height;
     }
 
     /**
-     * Computes the size of the tree (i.e. the total number of nodes in the
+     * Returns the size of the tree (i.e. the total number of nodes in the
      * tree).
      *
      * @return the size of the tree
      */
     public int size() {
-        if (arg1 == null) {
-            if (arg2 == null) {
-                return 1;
-            } else {
-                return 1 + arg2.size();
-            }
-        } else {
-            if (arg2 == null) {
-                return 1 + arg1.size();
-            } else {
-                return 1 + arg1.size() + arg2.size();
-            }
+        return size;
+    }
+
+    /**
+     * Returns a 64-bit hash of the structure of the tree, that depends only
+     * on the names of the operations in the nodes and on their positions.
+     * Unlike {@link #equals(Object)}, it does not depend on the identity of
+     * the operations, so a tree and its copies have the same hash. It is
+     * computed when the node is created, from the hashes of the children.
+     *
+     * @return the structural hash of the tree
+     */
+    public long structuralHash() {
+        return structuralHash;
+    }
+
+    private static long structuralHash(
+            Operation<?, ?> operation,
+            Tree<?, ?> arg1,
+            Tree<?, ?> arg2
+    ) {
+        String name = operation != null ? operation.getName() : "";
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        hash = mix(hash);
+        if (arg1 != null) {
+            hash = mix(hash * 0x9E3779B97F4A7C15L + arg1.structuralHash);
+        }
+        if (arg2 != null) {
+            hash = mix(hash * 0xC2B2AE3D27D4EB4FL + arg2.structuralHash);
         }
+        return hash;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
     }
 
     /**
@@ -321,6 +419,10 @@ public class Tree<T, C> implements Individual {
      **/
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            // also for the subtrees shared by two trees
+            return true;
+        }
         if (obj instanceof Tree) {
             return Objects.equals(this.operation, ((Tree<?, ?>) obj).operation)
                     && Objects.equals(this.arg1, ((Tree<?, ?>) obj).arg1)
@@ -329,56 +431,102 @@ public class Tree<T, C> implements Individual {
         return super.equals(obj);
     }
 
+    /**
+     * A subtree of a tree, identified by its position in the pre-order
+     * visit of the tree (the root is at 0).
+     */
     static class Cutpoint<T, C> {
         private final Tree<T, C> currentSubTree;
-        private final Consumer<Tree<T, C>> treeConsumer;
+        private final int index;
 
-        public Cutpoint(
-                Tree<T, C> currentSubTree,
-                Consumer<Tree<T, C>> treeConsumer
-        ) {
+        public Cutpoint(Tree<T, C> currentSubTree, int index) {
             this.currentSubTree = currentSubTree;
-            this.treeConsumer = treeConsumer;
+            this.index = index;
         }
 
         public Tree<T, C> getCurrentSubTree() {
             return currentSubTree;
         }
 
-        public Consumer<Tree<T, C>> getTreeConsumer() {
-            return treeConsumer;
+        public int getIndex() {
+            return index;
         }
     }
 
+    /**
+     * Selects the subtrees that are children of the nodes of height
+     * {@code atHeight + 1}, from left to right, in a single pass that only
+     * visits the nodes taller than {@code atHeight}.
+     *
+     * @param atHeight the height of the parents of the selected subtrees,
+     *                 minus one
+     * @return the cutpoints of the selected subtrees
+     */
     List<Cutpoint<T, C>> selectCutpoints(int atHeight) {
-        int myHeight = this.height();
-        if (atHeight < 1 || atHeight >= myHeight) {
-            return List.of();
-        } else if (atHeight + 1 == myHeight) {
+        List<Cutpoint<T, C>> result = new ArrayList<>();
+        if (atHeight >= 1) {
+            collectCutpoints(atHeight, 0, result);
+        }
+        return result;
+    }
+
+    private void collectCutpoints(
+            int atHeight,
+            int index,
+            List<Cutpoint<T, C>> result
+    ) {
+        if (atHeight >= height) {
+            return;
+        }
+        // the pre-order positions of the children
+        int index1 = index + 1;
+        int index2 = index1 + (arg1 != null ? arg1.size : 0);
+        if (atHeight + 1 == height) {
             if (operation instanceof Terminal) {
-                return List.of();
-            } else if (operation instanceof Function1) {
-                return List.of(new Cutpoint<>(arg1, t -> {
-                    arg1 = t;
-                }));
-            } else {
-                return List.of(
-                        new Cutpoint<>(arg1, t -> arg1 = t),
-                        new Cutpoint<>(arg2, t -> arg2 = t)
-                );
+                return;
+            }
+            result.add(new Cutpoint<>(arg1, index1));
+            if (!(operation instanceof Function1)) {
+                result.add(new Cutpoint<>(arg2, index2));
             }
         } else {
-            List<Cutpoint<T, C>> result = new ArrayList<>();
             if (arg1 != null) {
-                result.addAll(arg1.selectCutpoints(atHeight));
+                arg1.collectCutpoints(atHeight, index1, result);
             }
             if (arg2 != null) {
-                result.addAll(arg2.selectCutpoints(atHeight));
+                arg2.collectCutpoints(atHeight, index2, result);
             }
-            return result;
         }
     }
 
+    /**
+     * Creates a tree where the subtree at a cutpoint is replaced, sharing
+     * all the other subtrees with this tree: only the nodes from the root to
+     * the parent of the cutpoint are created. The new tree has the birth
+     * generation and the fitness of this tree.
+     *
+     * @param cutpoint a cutpoint of this tree, not the root
+     * @param subtree  the subtree that replaces the one at the cutpoint
+     * @return the new tree
+     */
+    private Tree<T, C> replace(Cutpoint<T, C> cutpoint, Tree<T, C> subtree) {
+        Tree<T, C> result = replace(cutpoint.getIndex(), subtree);
+        result.copyMetadata(this);
+        return result;
+    }
+
+    private Tree<T, C> replace(int index, Tree<T, C> subtree) {
+        if (index == 0) {
+            return subtree;
+        }
+        int index1 = index - 1;
+        if (arg1 != null && index1 < arg1.size) {
+            return new Tree<>(operation, arg1.replace(index1, subtree), arg2);
+        }
+        int index2 = index1 - (arg1 != null ? arg1.size : 0);
+        return new Tree<>(operation, arg1, arg2.replace(index2, subtree));
+    }
+
     /**
      * Performs a crossover operation between two trees to produce a new pair
      * of trees.
@@ -400,11 +548,8 @@ public class Tree<T, C> implements Individual {
     ) {
 
 
-        var child1 = parent1.copyTreeWithMetadata();
-        var child2 = parent2.copyTreeWithMetadata();
-
-        var height1 = child1.height();
-        var height2 = child2.height();
+        var height1 = parent1.height();
+        var height2 = parent2.height();
         if (height1 <= 1 || height2 <= 1) {
             // cannot crossover: small trees
             return Pair.pair(parent1, parent2);
@@ -459,15 +604,20 @@ public class Tree<T, C> implements Individual {
             }
         }
 
-        List<Cutpoint<T, C>> cutpoints1 = child1.selectCutpoints(selH1);
-        List<Cutpoint<T, C>> cutpoints2 = child2.selectCutpoints(selH2);
-        Cutpoint<T, C> cp1 = random.pick(new ArrayList<>(cutpoints1));
-        Cutpoint<T, C> cp2 = random.pick(new ArrayList<>(cutpoints2));
+        List<Cutpoint<T, C>> cutpoints1 = parent1.selectCutpoints(selH1);
+        List<Cutpoint<T, C>> cutpoints2 = parent2.selectCutpoints(selH2);
+        Cutpoint<T, C> cp1 = random.pick(cutpoints1);
+        Cutpoint<T, C> cp2 = random.pick(cutpoints2);
         if (cp1 != null && cp2 != null) {
-            cp1.getTreeConsumer().accept(cp2.getCurrentSubTree());
-            cp2.getTreeConsumer().accept(cp1.getCurrentSubTree());
+            return Pair.pair(
+                    parent1.replace(cp1, cp2.getCurrentSubTree()),
+                    parent2.replace(cp2, cp1.getCurrentSubTree())
+            );
         }
-        return Pair.pair(child1, child2);
+        return Pair.pair(
+                parent1.copyTreeWithMetadata(),
+                parent2.copyTreeWithMetadata()
+        );
     }
 
     /**
@@ -528,22 +678,22 @@ public class Tree<T, C> implements Individual {
         if (height <= 1) {
             return randomTree(random, candidateOps, 1, TreeInitMethod.FULL);
         }
-        Tree<T, C> copy = tree.copyTreeWithMetadata();
         int selH = random.nextInt(height - 1) + 2;
-        List<Cutpoint<T, C>> cutpoints = copy.selectCutpoints(selH);
-        Cutpoint<T, C> cutpoint = random.pick(new ArrayList<>(cutpoints));
+        List<Cutpoint<T, C>> cutpoints = tree.selectCutpoints(selH);
+        Cutpoint<T, C> cutpoint = random.pick(cutpoints);
         if (cutpoint != null) {
-            Tree<T, C> subtree = cutpoint.getCurrentSubTree()
-                    .copyTreeWithMetadata();
+            Tree<T, C> subtree = cutpoint.getCurrentSubTree();
             Operation<T, C> newOp = random.pick(candidateOps.stream()
                     .filter(co -> co.arity() == subtree.operation.arity())
                     .collect(Collectors.toList()));
             if (newOp != null) {
-                subtree.operation = newOp;
+                return tree.replace(
+                        cutpoint,
+                        treeNode(newOp, subtree.arg1, subtree.arg2)
+                );
             }
-            cutpoint.getTreeConsumer().accept(subtree);
         }
-        return copy;
+        return tree.copyTreeWithMetadata();
     }
 
     /**
@@ -620,16 +770,15 @@ public class Tree<T, C> implements Individual {
         if (height <= 1) {
             return tree;
         }
-        var mutatedTree = tree.copyTreeWithMetadata();
         int mutationHeight =
                 random.randomInt(1, Math.min(maxMutationHeight, height));
         List<Cutpoint<T, C>> cutpoints =
-                mutatedTree.selectCutpoints(mutationHeight);
+                tree.selectCutpoints(mutationHeight);
 
         if (cutpoints.isEmpty()) {
             return tree;
         }
-        Cutpoint<T, C> cutpoint = random.pick(new ArrayList<>(cutpoints));
+        Cutpoint<T, C> cutpoint = random.pick(cutpoints);
 
         var maxHeight2 = maxFinalHeight - height;
         Tree<T, C> subtree = randomTree(
@@ -639,9 +788,9 @@ public class Tree<T, C> implements Individual {
                 TreeInitMethod.GROW
         );
         if (cutpoint != null) {
-            cutpoint.getTreeConsumer().accept(subtree);
+            return tree.replace(cutpoint, subtree);
         }
-        return mutatedTree;
+        return tree.copyTreeWithMetadata();
     }
 
 }
@@ -0,0 +1,110 @@
+package it.unipr.sowide.gpj.tree;
+
+import it.unipr.sowide.util.BinaryCodec;
+import it.unipr.sowide.util.Require;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the structure of trees in pre-order: each node is a byte of flags
+ * followed by the index of its operation in a fixed set of operations, or by
+ * the value of its {@link Constant}. The operations are matched by name, so
+ * the encoder and the decoder must be created with the same operations, in
+ * the same order. The metadata of the trees (fitness, birth generation) are
+ * not encoded.
+ *
+ * @param <T> the type of the result of the evaluation of the trees
+ * @param <C> the type of the context of the evaluation of the trees
+ */
+public class TreeCodec<T, C> implements BinaryCodec<Tree<T, C>> {
+
+    private static final byte CONSTANT = 1;
+    private static final byte HAS_ARG1 = 2;
+    private static final byte HAS_ARG2 = 4;
+
+    private final List<Operation<T, C>> operations;
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final BinaryCodec<T> constantCodec;
+
+    /**
+     * @param operations    the operations that can appear in the trees,
+     *                      except the constants
+     * @param constantCodec the codec of the values of the constants; it can be
+     *                      null if the trees have no constants
+     */
+    public TreeCodec(
+            Collection<? extends Operation<T, C>> operations,
+            BinaryCodec<T> constantCodec
+    ) {
+        Require.nonNull(operations);
+        this.operations = new ArrayList<>(operations);
+        if (this.operations.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many operations");
+        }
+        for (int i = 0; i < this.operations.size(); i++) {
+            if (indices.putIfAbsent(this.operations.get(i).getName(), i) != null) {
+                throw new IllegalArgumentException(
+                        "Duplicate operation name: " + this.operations.get(i).getName()
+                );
+            }
+        }
+        this.constantCodec = constantCodec;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void encode(Tree<T, C> tree, ByteBuffer out) {
+        Operation<T, C> operation = tree.getOperation();
+        byte flags = (byte) ((tree.getArg1() != null ? HAS_ARG1 : 0) |
+                (tree.getArg2() != null ? HAS_ARG2 : 0));
+
+        if (operation instanceof Constant) {
+            if (constantCodec == null) {
+                throw new IllegalStateException("Missing codec of the constants");
+            }
+            out.put((byte) (flags | CONSTANT));
+            constantCodec.encode(((Constant<T, C>) operation).getValue(), out);
+        } else {
+            Integer index = indices.get(operation.getName());
+            if (index == null) {
+                throw new IllegalArgumentException(
+                        "Unknown operation: " + operation.getName()
+                );
+            }
+            out.put(flags);
+            out.putShort((short) (int) index);
+        }
+
+        if (tree.getArg1() != null) {
+            encode(tree.getArg1(), out);
+        }
+        if (tree.getArg2() != null) {
+            encode(tree.getArg2(), out);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public Tree<T, C> decode(ByteBuffer in) {
+        byte flags = in.get();
+        Operation<T, C> operation;
+        if ((flags & CONSTANT) != 0) {
+            operation = new Constant<>(constantCodec.decode(in));
+        } else {
+            operation = operations.get(Short.toUnsignedInt(in.getShort())).copy();
+        }
+
+        Tree<T, C> arg1 = (flags & HAS_ARG1) != 0 ? decode(in) : null;
+        Tree<T, C> arg2 = (flags & HAS_ARG2) != 0 ? decode(in) : null;
+        return Tree.treeNode(operation, arg1, arg2);
+    }
+}
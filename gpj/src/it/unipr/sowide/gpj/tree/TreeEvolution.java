@@ -12,10 +12,10 @@ import it.unipr.sowide.gpj.core.evaluation.PopulationEvaluator;
 import it.unipr.sowide.gpj.core.evaluation.SyncParallelPopEvaluator;
 import it.unipr.sowide.util.RandomUtils;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Scanner;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * The evolution of a population of trees.
@@ -73,66 +73,85 @@ public class TreeEvolution<T, C> extends Evolution<Tree<T, C>> {
         Scanner sc = new Scanner(System.in);
         RandomUtils random = new RandomUtils(12L);
 
-        List<Operation<Double, HashMap<String, Double>>> operations = List.of(
+        // the variables are read from the slots of the frame passed as
+        // context
+        VariableSlots slots = new VariableSlots();
+        DoubleVariable variableX = DoubleVariable.bind(slots, "X");
+        List<Operation<Double, double[]>> operations = List.of(
                 new EphemeralRandomDouble<>(random, -5.0, 5.0),
-                new NamedVariable<>("X"),
+                variableX,
                 new BinaryFunction<>("SUM", Double::sum),
                 new BinaryFunction<>("SUB", (x, y) -> x - y),
                 new BinaryFunction<>("MUL", (x, y) -> x * y),
                 new BinaryFunction<>("DIV", (x, y) -> y == 0.0 ? 1.0 : x / y)
         );
 
-        HashMap<String, Double> context = new HashMap<>();
-
         Function<Double, Double> functionToApproximate = (x) -> {
             return x * x + x + 1;
         };
 
+        // the constant subexpressions are evaluated once, when the trees are
+        // bred
+        TreeSimplifier<Double, double[]> simplifier =
+                new TreeSimplifier<Double, double[]>()
+                        .addRule(TreeSimplifier.foldConstants(operations.stream()
+                                .filter(op -> op.arity() > 0)
+                                .collect(Collectors.toList())));
+
         double cxPb = 0.70;
         double mutPb = 0.10;
         double repPb = 0.20;
-        TreeEvolution<Double, HashMap<String, Double>>
+        TreeEvolution<Double, double[]>
                 evolution = new TreeEvolution<>(
                 random,
                 1000, 5,
                 7,
                 operations,
-                new SyncParallelPopEvaluator<>(individual -> {
-                    var errorIntegral = 0.0;
-                    double interval = 0.1;
-                    for (double x = -1.0; x <= 1.0; x += interval) {
-                        context.put("X", x);
-                        errorIntegral += Math.abs(
-                                individual.eval(context)
-                                        - functionToApproximate.apply(x)
-                        ) * interval;
-                    }
-                    return errorIntegral;
-                }),
-                new PartitionedBreeding<Tree<Double, HashMap<String, Double>>>(
-                ).addPartition(
-                        "crossover",
-                        new SequentialBreeding<Tree<Double, HashMap<String, Double>>>()
-                                .addBreedingPhase(new TournamentSelection<>(7))
-                                .addBreedingPhase(new Mating<>(new TreeCrossover<>(15))),
-                        cxPb
-                ).addPartition(
-                        "reproduction",
-                        new SequentialBreeding<Tree<Double, HashMap<String, Double>>>()
-                                .addBreedingPhase(new TournamentSelection<>(7))
-                                .addBreedingPhase(new FillingReproduction<>()),
-                        repPb
-                ).addPartition(
-                        "mutation",
-                        new Mutation<>(
-                                (evoInterf, individual) -> Tree.headlessChickenMutation(
-                                        evoInterf.getRandom(),
-                                        individual,
-                                        operations,
-                                        6,
-                                        10
-                                )),
-                        mutPb
+                // each thread evaluates the trees in its own frame
+                new SyncParallelPopEvaluator<>(
+                        slots::newDoubleFrame,
+                        (individual, frame) -> {
+                            var errorIntegral = 0.0;
+                            double interval = 0.1;
+                            for (double x = -1.0; x <= 1.0; x += interval) {
+                                frame[variableX.getSlot()] = x;
+                                errorIntegral += Math.abs(
+                                        individual.eval(frame)
+                                                - functionToApproximate.apply(x)
+                                ) * interval;
+                            }
+                            return errorIntegral;
+                        }
+                ),
+                new SequentialBreeding<Tree<Double, double[]>>(
+                ).addBreedingPhase(
+                        new PartitionedBreeding<Tree<Double, double[]>>(
+                        ).addPartition(
+                                "crossover",
+                                new SequentialBreeding<Tree<Double, double[]>>()
+                                        .addBreedingPhase(new TournamentSelection<>(7))
+                                        .addBreedingPhase(new Mating<>(new TreeCrossover<>(15))),
+                                cxPb
+                        ).addPartition(
+                                "reproduction",
+                                new SequentialBreeding<Tree<Double, double[]>>()
+                                        .addBreedingPhase(new TournamentSelection<>(7))
+                                        .addBreedingPhase(new FillingReproduction<>()),
+                                repPb
+                        ).addPartition(
+                                "mutation",
+                                new Mutation<>(
+                                        (evoInterf, individual) -> Tree.headlessChickenMutation(
+                                                evoInterf.getRandom(),
+                                                individual,
+                                                operations,
+                                                6,
+                                                10
+                                        )),
+                                mutPb
+                        )
+                ).addBreedingPhase(
+                        new TreeSimplification<>(simplifier)
                 )
         );
 
@@ -0,0 +1,60 @@
+package it.unipr.sowide.gpj.tree;
+
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.core.breeding.BreedingStrategy;
+import it.unipr.sowide.util.promise.Promise;
+import it.unipr.sowide.util.promise.Promises;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A breeding strategy that simplifies the trees of the population and
+ * interns them in a {@link TreeStore}, so the equal subtrees of the
+ * population are stored once and the equal subtrees of a tree are evaluated
+ * once. It is meant to be the last phase of the breeding.
+ * <p>
+ * The store is cleared at each generation, so it holds only the nodes of the
+ * current population.
+ *
+ * @param <T> the type of the result of the evaluation of the tree
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class TreeSimplification<T, C> implements BreedingStrategy<Tree<T, C>> {
+    private final TreeStore<T, C> store;
+
+    /**
+     * @param simplifier the simplifier of the trees, or null to only intern
+     *                   them
+     */
+    public TreeSimplification(TreeSimplifier<T, C> simplifier) {
+        this.store = new TreeStore<>(simplifier);
+    }
+
+    @Override
+    public Promise<List<Tree<T, C>>, Throwable> breed(
+            EvolutionContext evolutionContext,
+            List<Tree<T, C>> oldPopulation,
+            int targetPopSize
+    ) {
+        store.clear();
+        List<Tree<T, C>> offspring = new ArrayList<>(oldPopulation.size());
+        int simplifiedCount = 0;
+        int removedNodes = 0;
+        for (Tree<T, C> tree : oldPopulation) {
+            Tree<T, C> interned = store.intern(tree);
+            if (interned.size() < tree.size()) {
+                simplifiedCount++;
+                removedNodes += tree.size() - interned.size();
+            }
+            offspring.add(interned);
+        }
+        evolutionContext.putStatistic(
+                "simplified_count", (double) simplifiedCount
+        );
+        evolutionContext.putStatistic("removed_nodes", (double) removedNodes);
+        evolutionContext.putStatistic("distinct_nodes", (double) store.size());
+        return Promises.immediatelyResolve(offspring);
+    }
+}
@@ -0,0 +1,285 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Simplifies trees with a set of rewriting rules, specific to an operation
+ * set (e.g. {@code NOT(NOT(x)) -> x} or {@code AND(x, 0) -> 0}), without
+ * changing their value in any context.
+ * <p>
+ * The trees are rewritten bottom-up: the rules are applied to a node after
+ * its children have been simplified, and again to the result, until no rule
+ * applies. Each rule must return a tree smaller than the node it rewrites,
+ * so the simplification always ends.
+ * <p>
+ * The rules created by the static methods of this class compare the
+ * subtrees with {@link Tree#equals(Object)}, which is fast for the trees of
+ * a {@link TreeStore}, where equal subtrees are the same node.
+ *
+ * @param <T> the type of the result of the evaluation of the tree
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class TreeSimplifier<T, C> {
+
+    /**
+     * A rewriting rule.
+     *
+     * @param <T> the type of the result of the evaluation of the tree
+     * @param <C> the type of the "context" in which the evaluation of the
+     *            tree is done
+     */
+    @FunctionalInterface
+    public interface Rule<T, C> {
+        /**
+         * Rewrites a node, whose children are already simplified.
+         *
+         * @param node the node
+         * @return an equivalent tree smaller than {@code node}, or null if
+         * the rule does not apply to the node
+         */
+        Tree<T, C> rewrite(Tree<T, C> node);
+    }
+
+    private final List<Rule<T, C>> rules = new ArrayList<>();
+
+    /**
+     * Adds a rule; the rules are tried in the order in which they have been
+     * added.
+     *
+     * @param rule the rule
+     * @return this simplifier
+     */
+    public TreeSimplifier<T, C> addRule(Rule<T, C> rule) {
+        this.rules.add(rule);
+        return this;
+    }
+
+    /**
+     * Simplifies a tree. The result is a new tree, with the metadata of the
+     * input tree and the subtrees shared with it; if it is smaller, its
+     * fitness is reset. To simplify many trees, use a {@link TreeStore},
+     * which also shares their equal subtrees.
+     *
+     * @param tree the tree
+     * @return the simplified tree
+     */
+    public Tree<T, C> simplify(Tree<T, C> tree) {
+        return new TreeStore<>(this).intern(tree);
+    }
+
+    /**
+     * Applies the first rule that rewrites a node.
+     *
+     * @return the rewritten tree, or null if no rule applies
+     */
+    Tree<T, C> rewrite(Tree<T, C> node) {
+        for (Rule<T, C> rule : rules) {
+            Tree<T, C> result = rule.rewrite(node);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates the nodes whose arguments are all constants:
+     * {@code op(c1, c2) -> c}. The operations are evaluated with a null
+     * context, so they must not use it.
+     *
+     * @param operations the operations that can be evaluated
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> foldConstants(
+            Collection<? extends Operation<T, C>> operations
+    ) {
+        Set<Operation<T, C>> foldable =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        foldable.addAll(operations);
+        return node -> {
+            Operation<T, C> operation = node.getOperation();
+            if (!foldable.contains(operation)) {
+                return null;
+            }
+            if (operation instanceof Function1) {
+                Tree<T, C> arg = node.getArg1() != null
+                        ? node.getArg1()
+                        : node.getArg2();
+                if (isConstant(arg)) {
+                    return constant(((Function1<T, C>) operation)
+                            .apply(valueOf(arg), null));
+                }
+            } else if (operation instanceof Function2) {
+                if (isConstant(node.getArg1()) && isConstant(node.getArg2())) {
+                    return constant(((Function2<T, C>) operation).apply(
+                            valueOf(node.getArg1()),
+                            valueOf(node.getArg2()),
+                            null
+                    ));
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * {@code op(op(x)) -> x}, e.g. for {@code NOT}.
+     *
+     * @param operation an unary operation that is its own inverse
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> involution(Function1<T, C> operation) {
+        return node -> {
+            if (node.getOperation() == operation) {
+                Tree<T, C> arg = node.getArg1();
+                if (arg != null && arg.getOperation() == operation) {
+                    return arg.getArg1();
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * {@code outer(inner(x, y)) -> fused(x, y)}, e.g. for
+     * {@code NOT(AND(x, y)) -> NAND(x, y)}.
+     *
+     * @param outer the unary operation
+     * @param inner the binary operation
+     * @param fused the binary operation equivalent to their composition
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> fuse(
+            Function1<T, C> outer,
+            Function2<T, C> inner,
+            Function2<T, C> fused
+    ) {
+        return node -> {
+            if (node.getOperation() == outer) {
+                Tree<T, C> arg = node.getArg1();
+                if (arg != null && arg.getOperation() == inner) {
+                    return Tree.treeNode(fused, arg.getArg1(), arg.getArg2());
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * {@code op(x, x) -> x}, e.g. for {@code AND} and {@code OR}.
+     *
+     * @param operation an idempotent binary operation
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> idempotent(Function2<T, C> operation) {
+        return node -> node.getOperation() == operation
+                && node.getArg1().equals(node.getArg2())
+                ? node.getArg1()
+                : null;
+    }
+
+    /**
+     * {@code op(x, x) -> result(x)}, e.g. for
+     * {@code NAND(x, x) -> NOT(x)}.
+     *
+     * @param operation the binary operation
+     * @param result    the unary operation equivalent to {@code operation}
+     *                  with equal arguments
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> sameArguments(
+            Function2<T, C> operation,
+            Function1<T, C> result
+    ) {
+        return node -> node.getOperation() == operation
+                && node.getArg1().equals(node.getArg2())
+                ? Tree.treeNode(result, node.getArg1(), null)
+                : null;
+    }
+
+    /**
+     * {@code op(x, x) -> value}, e.g. for {@code XOR(x, x) -> 0}.
+     *
+     * @param operation the binary operation
+     * @param value     its result with equal arguments
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> selfCancelling(
+            Function2<T, C> operation,
+            T value
+    ) {
+        return node -> node.getOperation() == operation
+                && node.getArg1().equals(node.getArg2())
+                ? constant(value)
+                : null;
+    }
+
+    /**
+     * {@code op(x, argument) -> result} and
+     * {@code op(argument, x) -> result}, e.g. for {@code AND(x, 0) -> 0}.
+     *
+     * @param operation a commutative binary operation
+     * @param argument  the value of the constant argument
+     * @param result    the result of the operation with that argument
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> annihilator(
+            Function2<T, C> operation,
+            T argument,
+            T result
+    ) {
+        return node -> node.getOperation() == operation
+                && (isConstant(node.getArg1(), argument)
+                || isConstant(node.getArg2(), argument))
+                ? constant(result)
+                : null;
+    }
+
+    /**
+     * {@code op(x, value) -> x} and {@code op(value, x) -> x}, e.g. for
+     * {@code OR(x, 0) -> x}.
+     *
+     * @param operation a commutative binary operation
+     * @param value     the identity element of the operation
+     * @return the rule
+     */
+    public static <T, C> Rule<T, C> identity(
+            Function2<T, C> operation,
+            T value
+    ) {
+        return node -> {
+            if (node.getOperation() != operation) {
+                return null;
+            } else if (isConstant(node.getArg2(), value)) {
+                return node.getArg1();
+            } else if (isConstant(node.getArg1(), value)) {
+                return node.getArg2();
+            }
+            return null;
+        };
+    }
+
+    private static boolean isConstant(Tree<?, ?> tree) {
+        return tree != null && tree.getOperation() instanceof Constant;
+    }
+
+    private static boolean isConstant(Tree<?, ?> tree, Object value) {
+        return isConstant(tree) && Objects.equals(valueOf(tree), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T valueOf(Tree<T, ?> tree) {
+        return ((Constant<T, ?>) tree.getOperation()).getValue();
+    }
+
+    private static <T, C> Tree<T, C> constant(T value) {
+        return new Tree<>(new Constant<T, C>(value));
+    }
+}
@@ -0,0 +1,239 @@
+package it.unipr.sowide.gpj.tree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A hash-consing table of the nodes of a population of trees: interning a
+ * tree replaces each of its subtrees with the node of the table with the
+ * same structure, so structurally equal subtrees of the population are
+ * stored once. Two nodes have the same structure if they have the same
+ * operation (or {@link Constant}s with equal values) and the same children.
+ * <p>
+ * The store can also simplify the trees, while interning them, with the
+ * rules of a {@link TreeSimplifier}.
+ * <p>
+ * Since the subtrees of an interned tree that occur more than once are the
+ * same node, its {@link CompiledTree} evaluates them once (see
+ * {@link Tree#compile()}): interning assumes that the value of a subtree
+ * depends only on the context, i.e. that the operations do not modify the
+ * context.
+ * <p>
+ * The table keeps the nodes alive until it is cleared, so it should be
+ * cleared when the population is replaced (e.g. at each generation, like
+ * {@link TreeSimplification}). Instances are not thread-safe.
+ *
+ * @param <T> the type of the result of the evaluation of the tree
+ * @param <C> the type of the "context" in which the evaluation of the tree is
+ *            done
+ */
+public class TreeStore<T, C> {
+    private final TreeSimplifier<T, C> simplifier;
+
+    private final Map<Key, Tree<T, C>> table = new HashMap<>();
+
+    /**
+     * the interned node of each node already visited, so the subtrees
+     * shared by many trees are visited once
+     */
+    private final Map<Tree<T, C>, Tree<T, C>> interned =
+            new IdentityHashMap<>();
+
+    /**
+     * Creates a store that does not simplify the trees.
+     */
+    public TreeStore() {
+        this(null);
+    }
+
+    /**
+     * @param simplifier the simplifier applied to the trees while they are
+     *                   interned, or null
+     */
+    public TreeStore(TreeSimplifier<T, C> simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    /**
+     * Interns a tree. The result is an equivalent tree, whose subtrees are
+     * nodes of the store; it is a new root with the metadata of the input
+     * tree, unless the input tree is already interned. If the tree has been
+     * simplified, its fitness is reset.
+     *
+     * @param tree the tree
+     * @return the interned tree
+     */
+    public Tree<T, C> intern(Tree<T, C> tree) {
+        return tree.internedCopy(internNode(tree));
+    }
+
+    private Tree<T, C> internNode(Tree<T, C> node) {
+        Tree<T, C> result = interned.get(node);
+        if (result != null) {
+            return result;
+        }
+        Tree<T, C> arg1 = node.getArg1();
+        Tree<T, C> arg2 = node.getArg2();
+        Tree<T, C> internedArg1 = arg1 != null ? internNode(arg1) : null;
+        Tree<T, C> internedArg2 = arg2 != null ? internNode(arg2) : null;
+        result = internedArg1 == arg1 && internedArg2 == arg2
+                ? node
+                : Tree.treeNode(node.getOperation(), internedArg1, internedArg2);
+
+        Tree<T, C> simplified = simplifier != null
+                ? simplifier.rewrite(result)
+                : null;
+        if (simplified != null) {
+            // the rules can create new nodes above the interned ones
+            result = internNode(simplified);
+        } else {
+            Tree<T, C> existing = table.putIfAbsent(new Key(result), result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        interned.put(node, result);
+        interned.put(result, result);
+        return result;
+    }
+
+    /**
+     * Counts the nodes of some trees, counting once the nodes shared by
+     * many trees (or by many subtrees of a tree), i.e. the nodes that the
+     * trees keep in memory.
+     *
+     * @param trees the trees
+     * @return the number of distinct nodes of the trees
+     */
+    public static int countNodes(Collection<? extends Tree<?, ?>> trees) {
+        Set<Tree<?, ?>> nodes =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Tree<?, ?> tree : trees) {
+            collectNodes(tree, nodes);
+        }
+        return nodes.size();
+    }
+
+    private static void collectNodes(Tree<?, ?> tree, Set<Tree<?, ?>> nodes) {
+        if (nodes.add(tree)) {
+            if (tree.getArg1() != null) {
+                collectNodes(tree.getArg1(), nodes);
+            }
+            if (tree.getArg2() != null) {
+                collectNodes(tree.getArg2(), nodes);
+            }
+        }
+    }
+
+    /**
+     * Tells whether two trees have the same structure, i.e. whether they
+     * are interned as the same node: the same operations (or
+     * {@link Constant}s with equal values) in the same positions. Interned
+     * nodes are compared by identity.
+     *
+     * @param tree1 the first tree
+     * @param tree2 the second tree
+     * @return true if the trees have the same structure
+     */
+    static boolean sameStructure(Tree<?, ?> tree1, Tree<?, ?> tree2) {
+        if (tree1 == tree2) {
+            return true;
+        }
+        if (tree1 == null || tree2 == null
+                || tree1.size() != tree2.size()
+                || tree1.structuralHash() != tree2.structuralHash()
+                || !operationKey(tree1.getOperation())
+                .equals(operationKey(tree2.getOperation()))) {
+            return false;
+        }
+        return sameStructure(tree1.getArg1(), tree2.getArg1())
+                && sameStructure(tree1.getArg2(), tree2.getArg2());
+    }
+
+    /**
+     * @return an object equal to the ones of the operations interchangeable
+     * with the specified one
+     */
+    private static Object operationKey(Operation<?, ?> op) {
+        // equal constants are interchangeable, other operations are not
+        return op.getClass() == Constant.class
+                ? new ConstantValue(((Constant<?, ?>) op).getValue())
+                : op;
+    }
+
+    /**
+     * @return the number of distinct nodes in the store
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Removes all the nodes from the store. The trees interned so far are
+     * not changed.
+     */
+    public void clear() {
+        table.clear();
+        interned.clear();
+    }
+
+    /**
+     * The key of a node in the table: its children are interned, so they
+     * are compared by identity.
+     */
+    private static final class Key {
+        private final Object operation;
+        private final Tree<?, ?> arg1;
+        private final Tree<?, ?> arg2;
+        private final int hash;
+
+        private Key(Tree<?, ?> node) {
+            this.operation = operationKey(node.getOperation());
+            this.arg1 = node.getArg1();
+            this.arg2 = node.getArg2();
+            this.hash = 31 * (31 * operation.hashCode()
+                    + System.identityHashCode(arg1))
+                    + System.identityHashCode(arg2);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return arg1 == other.arg1
+                    && arg2 == other.arg2
+                    && operation.equals(other.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class ConstantValue {
+        private final Object value;
+
+        private ConstantValue(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ConstantValue
+                    && Objects.equals(value, ((ConstantValue) obj).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(value);
+        }
+    }
+}
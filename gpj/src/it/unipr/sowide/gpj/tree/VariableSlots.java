@@ -0,0 +1,93 @@
+package it.unipr.sowide.gpj.tree;
+
+import it.unipr.sowide.util.Require;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds the names of the variables of a problem to the slots of a frame: a
+ * primitive array, used as the context of the evaluation of the trees, that
+ * holds the value of each variable at the index of its slot. The variables
+ * are bound when the set of operations is built (see
+ * {@link DoubleVariable#bind(VariableSlots, String)} and
+ * {@link LongVariable#bind(VariableSlots, String)}), so their values are read
+ * by index during the evaluation, instead of being looked up by name like
+ * the ones of a {@link NamedVariable}.
+ * <p>
+ * The frames are mutable, so the evaluations running in parallel must use
+ * distinct frames, e.g. one for each worker thread (see
+ * {@link it.unipr.sowide.gpj.core.evaluation.SyncContextIndividualEvaluator}).
+ */
+public class VariableSlots {
+    private final Map<String, Integer> slots = new LinkedHashMap<>();
+
+    /**
+     * @param names the names of the variables bound to the first slots, in
+     *              order
+     */
+    public VariableSlots(String... names) {
+        for (String name : names) {
+            bind(name);
+        }
+    }
+
+    /**
+     * Binds a variable to the next free slot, unless it is already bound.
+     *
+     * @param name the name of the variable
+     * @return the slot of the variable
+     */
+    public int bind(String name) {
+        Require.notBlankString(name);
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * @param name the name of the variable
+     * @return the slot of the variable
+     * @throws IllegalArgumentException if the variable is not bound
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unbound variable: " + name);
+        }
+        return slot;
+    }
+
+    /**
+     * @return the number of bound variables, i.e. the length of the frames
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return the names of the bound variables, in the order of their slots
+     */
+    public List<String> getNames() {
+        return new ArrayList<>(slots.keySet());
+    }
+
+    /**
+     * @return a new frame for variables of type {@code double}
+     */
+    public double[] newDoubleFrame() {
+        return new double[slots.size()];
+    }
+
+    /**
+     * @return a new frame for variables of type {@code long}
+     */
+    public long[] newLongFrame() {
+        return new long[slots.size()];
+    }
+}
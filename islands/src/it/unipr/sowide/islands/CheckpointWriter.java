@@ -0,0 +1,104 @@
+package it.unipr.sowide.islands;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the checkpoints of a run in a background thread, so that the
+ * controller never waits for the disk. Only the latest checkpoint matters:
+ * if a checkpoint is submitted while the previous one is still waiting to
+ * be written, the previous one is discarded. Each checkpoint is written to
+ * a temporary file that then replaces the previous checkpoint, so that the
+ * file is never left truncated by a crash.
+ */
+class CheckpointWriter implements AutoCloseable {
+    private final Path path;
+    private final Path temporaryPath;
+    private final Thread writer;
+    private byte[] pending = null;
+    private boolean closed = false;
+
+    /**
+     * @param path the path of the checkpoint file
+     */
+    CheckpointWriter(Path path) {
+        this.path = path;
+        this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.writer = new Thread(this::writeCheckpoints, "checkpoint-writer-" + path.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Schedules the writing of a checkpoint, replacing the one waiting to
+     * be written, if any.
+     *
+     * @param checkpoint the encoded checkpoint
+     */
+    synchronized void submit(byte[] checkpoint) {
+        if (closed) {
+            throw new IllegalStateException("The writer is closed");
+        }
+        pending = checkpoint;
+        notifyAll();
+    }
+
+    /**
+     * Writes the checkpoint waiting to be written, if any, and waits for the
+     * writer to terminate.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized byte[] take() throws InterruptedException {
+        while (pending == null && !closed) {
+            wait();
+        }
+        byte[] checkpoint = pending;
+        pending = null;
+        return checkpoint;
+    }
+
+    private void writeCheckpoints() {
+        try {
+            byte[] checkpoint;
+            while ((checkpoint = take()) != null) {
+                try {
+                    write(checkpoint);
+                } catch (IOException e) {
+                    // a lost checkpoint does not stop the run
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(byte[] checkpoint) throws IOException {
+        Files.write(temporaryPath, checkpoint);
+        try {
+            Files.move(
+                    temporaryPath,
+                    path,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package it.unipr.sowide.islands;
 
+import java.io.Serializable;
+
 /**
  * Contains the results of an evaluation angainst a particular environment for an individual
  *
  */
-public class Evaluation {
+public class Evaluation implements Serializable {
     public final IslandIndividual individual;
     public final double evaluationFitness;
     public final int fitnessFunctionsCalls;
 
+    /**
+     * the training fitness of the individual when it was evaluated, NaN if
+     * not available; the individual can change afterwards in its island
+     */
+    public final double individualFitness;
+
     public Evaluation(IslandIndividual individual, double trainingFitness, int fitnessFunctionsCalls) {
         this.individual = individual;
         this.evaluationFitness = trainingFitness;
         this.fitnessFunctionsCalls = fitnessFunctionsCalls;
+        this.individualFitness = individual.getFitness().orElse(Double.NaN);
     }
 
     @Override
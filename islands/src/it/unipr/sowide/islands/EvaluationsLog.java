@@ -0,0 +1,327 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.islands.settings.EvaluationsLogFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An append-only log of the evaluations reported to an
+ * {@link EvaluationsReporter}. The records are collected in columnar
+ * batches, which are written by a background thread, so that the reporter
+ * never waits for the disk unless the writer falls behind by many batches.
+ * <p>
+ * The CSV format has a header and a row for each record. The binary format
+ * is little-endian: a header ({@link #MAGIC}, {@link #VERSION}) followed by
+ * blocks, each starting with a type byte:
+ * <ul>
+ *     <li>{@link #ISLANDS_BLOCK}: the number of islands, then for each one
+ *     its id (int), its name and its group (both as a short length and UTF-8
+ *     bytes);</li>
+ *     <li>{@link #RECORDS_BLOCK}: the number of records n, then the columns
+ *     of the records: island ids (n ints), generations (n longs),
+ *     evaluation fitnesses (n doubles), training fitnesses (n doubles, NaN
+ *     if not available) and fitness function calls (n ints).</li>
+ * </ul>
+ * The ids of the islands are declared before their first record.
+ */
+class EvaluationsLog implements AutoCloseable {
+    static final int MAGIC = 0x45564C47;
+    static final int VERSION = 1;
+    static final byte ISLANDS_BLOCK = 1;
+    static final byte RECORDS_BLOCK = 2;
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static final String CSV_HEADER = "island,group,generation," +
+            "evaluation_fitness,training_fitness,fitness_function_calls";
+
+    /**
+     * A batch of records, stored by column.
+     */
+    private static final class Batch {
+        final List<String[]> newIslands = new ArrayList<>();
+        final int[] island = new int[BATCH_SIZE];
+        final long[] generation = new long[BATCH_SIZE];
+        final double[] evaluationFitness = new double[BATCH_SIZE];
+        final double[] trainingFitness = new double[BATCH_SIZE];
+        final int[] fitnessFunctionsCalls = new int[BATCH_SIZE];
+        int size = 0;
+    }
+
+    private static final Batch END = new Batch();
+
+    private final EvaluationsLogFormat format;
+    private final Path path;
+    private final Map<String, Integer> islandIds = new HashMap<>();
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private Batch batch = new Batch();
+    private volatile IOException failure = null;
+    private boolean closed = false;
+
+    /**
+     * Opens a log, appending to the file if it exists.
+     *
+     * @param format the format of the log, either CSV or BINARY
+     * @param path   the path of the file
+     */
+    EvaluationsLog(EvaluationsLogFormat format, Path path) {
+        if (format == EvaluationsLogFormat.NONE) {
+            throw new IllegalArgumentException("No format for the log");
+        }
+        this.format = format;
+        this.path = path;
+        this.writer = new Thread(this::writeBatches, "evaluations-log-" + path.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param islandName            the name of the island
+     * @param group                 the group of the island
+     * @param generation            the index of the evaluation in the
+     *                              history of the island
+     * @param evaluationFitness     the fitness of the evaluation
+     * @param trainingFitness       the training fitness of the evaluated
+     *                              individual, NaN if not available
+     * @param fitnessFunctionsCalls the calls of the fitness function
+     */
+    void append(
+            String islandName,
+            String group,
+            long generation,
+            double evaluationFitness,
+            double trainingFitness,
+            int fitnessFunctionsCalls
+    ) {
+        Integer id = islandIds.get(islandName);
+        if (id == null) {
+            id = islandIds.size();
+            islandIds.put(islandName, id);
+            batch.newIslands.add(new String[]{String.valueOf(id), islandName, group});
+        }
+
+        int i = batch.size++;
+        batch.island[i] = id;
+        batch.generation[i] = generation;
+        batch.evaluationFitness[i] = evaluationFitness;
+        batch.trainingFitness[i] = trainingFitness;
+        batch.fitnessFunctionsCalls[i] = fitnessFunctionsCalls;
+        if (batch.size == BATCH_SIZE) {
+            enqueue(batch);
+            batch = new Batch();
+        }
+    }
+
+    /**
+     * Hands the pending records to the writer.
+     */
+    void flush() {
+        if (batch.size > 0 || !batch.newIslands.isEmpty()) {
+            enqueue(batch);
+            batch = new Batch();
+        }
+    }
+
+    /**
+     * Writes the pending records and waits for the writer to terminate.
+     *
+     * @throws IOException if the writer failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            flush();
+            enqueue(END);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void enqueue(Batch b) {
+        try {
+            queue.put(b);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatches() {
+        try {
+            if (format == EvaluationsLogFormat.CSV) {
+                writeCsv();
+            } else {
+                writeBinary();
+            }
+        } catch (IOException e) {
+            failure = e;
+            // discards the following batches
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (queue.take() != END) {
+                // nothing to do
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeCsv() throws IOException, InterruptedException {
+        boolean empty = !Files.exists(path) || Files.size(path) == 0;
+        try (BufferedWriter out = Files.newBufferedWriter(
+                path,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND
+        )) {
+            if (empty) {
+                out.write(CSV_HEADER);
+                out.newLine();
+            }
+            // the names of the islands, by id; only read by this thread
+            List<String[]> islands = new ArrayList<>();
+            Batch b;
+            while ((b = queue.take()) != END) {
+                islands.addAll(b.newIslands);
+                for (int i = 0; i < b.size; i++) {
+                    String[] island = islands.get(b.island[i]);
+                    out.write(csvField(island[1]));
+                    out.write(',');
+                    out.write(csvField(island[2]));
+                    out.write(',');
+                    out.write(Long.toString(b.generation[i]));
+                    out.write(',');
+                    out.write(Double.toString(b.evaluationFitness[i]));
+                    out.write(',');
+                    out.write(Double.isNaN(b.trainingFitness[i]) ?
+                            "" :
+                            Double.toString(b.trainingFitness[i]));
+                    out.write(',');
+                    out.write(Integer.toString(b.fitnessFunctionsCalls[i]));
+                    out.newLine();
+                }
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private void writeBinary() throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        )) {
+            if (channel.size() == 0) {
+                ByteBuffer header = newBuffer(2 * Integer.BYTES);
+                header.putInt(MAGIC).putInt(VERSION);
+                writeFully(channel, header);
+            }
+            Batch b;
+            while ((b = queue.take()) != END) {
+                if (!b.newIslands.isEmpty()) {
+                    writeFully(channel, islandsBlock(b.newIslands));
+                }
+                if (b.size > 0) {
+                    writeFully(channel, recordsBlock(b));
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer islandsBlock(List<String[]> islands) {
+        List<byte[]> names = new ArrayList<>();
+        int size = 1 + Integer.BYTES;
+        for (String[] island : islands) {
+            byte[] name = utf8(island[1]);
+            byte[] group = utf8(island[2]);
+            names.add(name);
+            names.add(group);
+            size += Integer.BYTES + 2 * Short.BYTES + name.length + group.length;
+        }
+        ByteBuffer buffer = newBuffer(size);
+        buffer.put(ISLANDS_BLOCK).putInt(islands.size());
+        for (int i = 0; i < islands.size(); i++) {
+            buffer.putInt(Integer.parseInt(islands.get(i)[0]));
+            byte[] name = names.get(2 * i);
+            byte[] group = names.get(2 * i + 1);
+            buffer.putShort((short) name.length).put(name);
+            buffer.putShort((short) group.length).put(group);
+        }
+        return buffer;
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Name too long: " + s);
+        }
+        return bytes;
+    }
+
+    private static ByteBuffer recordsBlock(Batch b) {
+        int n = b.size;
+        ByteBuffer buffer = newBuffer(1 + Integer.BYTES +
+                n * (2 * Integer.BYTES + Long.BYTES + 2 * Double.BYTES));
+        buffer.put(RECORDS_BLOCK).putInt(n);
+        for (int i = 0; i < n; i++) buffer.putInt(b.island[i]);
+        for (int i = 0; i < n; i++) buffer.putLong(b.generation[i]);
+        for (int i = 0; i < n; i++) buffer.putDouble(b.evaluationFitness[i]);
+        for (int i = 0; i < n; i++) buffer.putDouble(b.trainingFitness[i]);
+        for (int i = 0; i < n; i++) buffer.putInt(b.fitnessFunctionsCalls[i]);
+        return buffer;
+    }
+
+    private static ByteBuffer newBuffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(
+            FileChannel channel,
+            ByteBuffer buffer
+    ) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
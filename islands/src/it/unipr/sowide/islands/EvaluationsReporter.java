@@ -1,12 +1,15 @@
 package it.unipr.sowide.islands;
 
 import it.unipr.sowide.islands.content.ReportEvaluations;
+import it.unipr.sowide.islands.content.ResumeRun;
+import it.unipr.sowide.islands.content.RunResults;
 import it.unipr.sowide.islands.content.SaveResults;
 import it.unipr.sowide.actodata.core.actodesext.ActoDataBaseBehavior;
 import it.unipr.sowide.actodata.core.actodesext.ActoDataCaseFactory;
 import it.unipr.sowide.actodes.actor.Shutdown;
 import it.unipr.sowide.actodes.interaction.Error;
 import it.unipr.sowide.actodes.registry.Reference;
+import it.unipr.sowide.islands.settings.EvaluationsLogFormat;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
 import it.unipr.sowide.util.Sets;
 import it.unipr.sowide.util.Streams;
@@ -20,7 +23,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.*;
@@ -31,11 +34,45 @@ import java.util.stream.Collectors;
  * An actor that stores the evaluations of an Island simulation. Can also
  * show a set of real-time graphs about the outgoing performances of the evolved
  * the best individuals for each island.
+ * <p>
+ * The evaluations are not retained: only the scalars needed by the report
+ * and, when the GUI is shown, the last {@code plotHistorySize} values of
+ * each plotted statistic are kept, so the memory does not grow with the
+ * number of generations. The evaluations can be appended to a log (see
+ * {@link IslandsSimulationSettings#evaluationsLog}), and the graphs are
+ * redrawn at most {@link #FRAMES_PER_SECOND} times per second.
  */
 public class EvaluationsReporter extends ActoDataBaseBehavior {
 
-    private final HashMap<Reference, List<Evaluation>> evaluations = new HashMap<>();
+    private static final int FRAMES_PER_SECOND = 10;
+
+    /**
+     * What is kept of the evaluations of an island.
+     */
+    private static final class IslandHistory {
+        int generations;
+        int maxFitnessFunctionsCalls = 0;
+        final Map<String, ScalarRing> statistics = new HashMap<>();
+
+        IslandHistory(int generations) {
+            this.generations = generations;
+        }
+    }
+
+    private final Map<Reference, IslandHistory> histories = new HashMap<>();
+    private final Map<String, Map<String, ScalarRing>> groupHistories = new HashMap<>();
     private final Map<Reference, String> groups = new HashMap<>();
+    private final String logName;
+
+    /**
+     * the generations and the calls of the fitness function reported before
+     * the checkpoint from which the run was resumed, if any
+     */
+    private int resumedGenerations = 0;
+    private int resumedFitnessFunctionCalls = 0;
+    private EvaluationsLog log = null;
+    private long lastPlotTime = 0;
+    private boolean plotPending = false;
     private final Map<String, Plot2DPanel> plotPanels = new HashMap<>();
     private Map<String, Function<Evaluation, Double>> statistics = null;
     private Map<String, Function<List<Evaluation>, Double>> aggregateStatistics = null;
@@ -60,8 +97,25 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
      * @param showGui true if the GUI with real-time graphs should be shown.
      */
     public EvaluationsReporter(IslandsSimulationSettings settings, boolean showGui) {
+        this(settings, showGui, null);
+    }
+
+    /**
+     * A reporter that stores the history of the evaluations, and appends them
+     * to a log if enabled by the settings.
+     *
+     * @param showGui true if the GUI with real-time graphs should be shown.
+     * @param logName the name of the log file, without extension; if null,
+     *                the evaluations are not logged
+     */
+    public EvaluationsReporter(
+            IslandsSimulationSettings settings,
+            boolean showGui,
+            String logName
+    ) {
         this.settings = settings;
         this.showGui = showGui;
+        this.logName = logName;
     }
 
     @Override
@@ -86,20 +140,14 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
                 double fitness = evaluation.evaluationFitness;
                 if (fitness <= bestIndividualFitness) {
                     bestIndividualFitness = fitness;
-                    bestIndividualIsland = reference.getName();
+                    bestIndividualIsland = islandName(reference);
                     bestIndividualGroup = groups.getOrDefault(reference, "");
                     bestIndividual = evaluation.individual;
                 }
-                if (evaluations.containsKey(reference)) {
-                    evaluations.get(reference).add(evaluation);
-                } else {
-                    List<Evaluation> d = new ArrayList<>();
-                    d.add(evaluation);
-                    evaluations.put(reference, d);
-                }
             }
 
             groups.putAll(genericReport.getGroups());
+            record(genericReport.getEvaluations());
 
             // if the best individual is found, update the best individual
             if (bestIndividual != null && allTimeBestIndividualFitness < bestIndividualFitness) {
@@ -112,30 +160,51 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
                 );
             }
 
-            // replots all the graphs with the new data
+            // replots all the graphs with the new data, at a limited rate
             if (showGui) {
-                replot();
+                plotPending = true;
+                long now = System.nanoTime();
+                if (now - lastPlotTime >= 1_000_000_000L / FRAMES_PER_SECOND) {
+                    replot();
+                }
             }
 
         });
 
+        /*
+        The run is resumed from a checkpoint: the histories continue from
+        the generation of the checkpoint.
+         */
+        c.onContentOfType(ResumeRun.class, (resumeRun, message) -> {
+            resumedGenerations = resumeRun.generation;
+            resumedFitnessFunctionCalls = resumeRun.fitnessFunctionCalls;
+            done(message);
+        });
+
         /*
         Requests to save the current results of the simulation.
          */
         c.onContentOfType(SaveResults.class, (saveResults, message) -> {
+            if (showGui && plotPending) {
+                replot();
+            }
+            closeLog();
+
             File f = new File(saveResults.getFilePath());
 
+            RunResults results;
             try (BufferedWriter writer =
                          new BufferedWriter(new FileWriter(f, true))) {
 
-                outputReport(writer, saveResults);
-
-                //replies with a Done.DONE
-                done(message);
+                results = outputReport(writer, saveResults);
             } catch (IOException e) {
                 e.printStackTrace();
                 send(message, Error.FAILEDEXECUTION);
+                return;
             }
+
+            // replies with the outcome of the run, once the file is closed
+            send(message, results);
         });
 
         /*
@@ -153,6 +222,7 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
      * swing objects.
      */
     private void clean() {
+        closeLog();
         this.groups.clear();
         this.plotPanels.clear();
         this.frames.forEach(frame -> {
@@ -163,21 +233,14 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
             ));
         });
         this.frames.clear();
-        this.evaluations.clear();
+        this.histories.clear();
+        this.groupHistories.clear();
         this.statistics = null;
         this.aggregateStatistics = null;
         this.bestIndividualTextArea = null;
         this.allTimeBestIndividualFitness = Double.MAX_VALUE;
     }
 
-    private static final DecimalFormat percentageFormatter = new DecimalFormat("##.###%");
-    private static final DecimalFormat doubleFormatter = new DecimalFormat("#0.000");
-
-    private static int counter = 0;
-    private static int successes = 0;
-    private static int totalGenerations = 0;
-    private static int totalFitnessFunctionCalls = 0;
-
     private final IslandsSimulationSettings settings;
 
     /**
@@ -186,9 +249,10 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
      *
      * @param bufferedWriter the buffer
      * @param saveResults    the message that requested the save
+     * @return the outcome of the run
      * @throws IOException if there are problems during the writing
      */
-    private void outputReport(
+    private RunResults outputReport(
             BufferedWriter bufferedWriter,
             SaveResults saveResults
     ) throws IOException {
@@ -219,49 +283,16 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
 //        w.write("*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*");
 //        w.write("*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*");
 
-        List<Map.Entry<Reference, List<Evaluation>>> entries =
-                evaluations.entrySet().stream()
-                        .sorted((entry1, entry2) -> {
-                            var evaluations1 = entry1.getValue();
-                            var evaluations2 = entry2.getValue();
-                            var last1 = evaluations1.get(evaluations1.size() - 1);
-                            var last2 = evaluations2.get(evaluations2.size() - 1);
-                            return -Double.compare(
-                                    last1.evaluationFitness,
-                                    last2.evaluationFitness
-                            );
-                        }).collect(Collectors.toList());
-
-        int runFitnessFunctionCalls = entries.stream()
-                .map(entry -> entry.getValue().stream().mapToInt(e -> e.fitnessFunctionsCalls).max())
-                .mapToInt(o -> o.isPresent() ? o.getAsInt() : 0).sum();
+        int runFitnessFunctionCalls = histories.isEmpty() ?
+                resumedFitnessFunctionCalls :
+                histories.values().stream()
+                        .mapToInt(history -> history.maxFitnessFunctionsCalls)
+                        .sum();
 
-        OptionalInt opt = entries.stream().mapToInt(e->e.getValue().size()).max();
-        int runGenerations = opt.isPresent() ? opt.getAsInt() : entries.get(0).getValue().size();
-
-        synchronized (EvaluationsReporter.class) {
-            counter++;
-            if (runGenerations != settings.maxGenerations) {
-                successes++;
-                totalGenerations += runGenerations;
-                totalFitnessFunctionCalls += runFitnessFunctionCalls;
-            }
-
-            if (counter == settings.numberOfRuns) {
-
-                w.write("Runs: " + counter);
-                w.write("Successes: " + percentageFormatter.format(successes / (double) counter));
-
-                if (successes != 0) {
-                    double genAverage = totalGenerations / (double) successes;
-                    double fitnessFunctionCallsAverage = totalFitnessFunctionCalls / (double) successes;
-                    w.write("Succeses Average Generations : " + doubleFormatter.format(genAverage));
-                    w.write("Succeses Average Fitness Function Calls: " + doubleFormatter.format(fitnessFunctionCallsAverage));
-                }
-
-                System.exit(0);
-            }
-        }
+        int runGenerations = histories.values().stream()
+                .mapToInt(history -> history.generations)
+                .max()
+                .orElse(resumedGenerations);
 
 //        for (var entry : entries) {
 //            if (saveResults.getForOnlyGroup() != null
@@ -288,7 +319,6 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
 
             for (var statistic : aggregateStatistics.entrySet()) {
                 var statisticName = statistic.getKey();
-                var statisticFunc = statistic.getValue();
                 w.write("STATISTIC: " + statisticName);
                 Iterator<String> iterator = groups.values().stream()
                         .filter(gname -> {
@@ -299,9 +329,12 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
                         .distinct().sorted().iterator();
                 while (iterator.hasNext()) {
                     String groupName = iterator.next();
-                    ArrayList<ArrayList<Evaluation>> groupHistory = getGroupHistory(groupName);
-                    var last = groupHistory.get(groupHistory.size() - 1);
-                    w.write(groupName + ": " + statisticFunc.apply(last));
+                    ScalarRing groupHistory = groupHistories
+                            .getOrDefault(groupName, Map.of())
+                            .get(statisticName);
+                    if (groupHistory != null && groupHistory.size() > 0) {
+                        w.write(groupName + ": " + groupHistory.last());
+                    }
                 }
                 w.write("*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*");
             }
@@ -312,93 +345,170 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
 //        w.write("*=*=*=*=*=*=*=*=*=*=*   END   =*=*=*=*=*=*=*=*=*=*=");
 //        w.write("*=*=*=*=*=*=*=*=*=*=*         =*=*=*=*=*=*=*=*=*=*=");
 //        w.write("*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*=*");
+
+        return new RunResults(
+                runGenerations,
+                runFitnessFunctionCalls,
+                saveResults.isStagnated()
+        );
+    }
+
+    /**
+     * @param reference an island
+     * @return the name of the island in the log and in the plots; the
+     * islands on other nodes, whose names can be the same of the local ones,
+     * are qualified by their location
+     */
+    private String islandName(Reference reference) {
+        return reference.getLocation().equals(getReference().getLocation()) ?
+                reference.getName() :
+                reference.toString();
+    }
+
+    /**
+     * Updates the histories of the islands and of the groups, and the log,
+     * with the evaluations of a report.
+     *
+     * @param evaluations the reported evaluations
+     */
+    private void record(Map<Reference, Evaluation> evaluations) {
+        Map<String, List<Evaluation>> byGroup = new HashMap<>();
+        evaluations.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> islandName(entry.getKey())))
+                .forEach(entry -> {
+                    Reference reference = entry.getKey();
+                    Evaluation evaluation = entry.getValue();
+                    String group = groups.getOrDefault(reference, "");
+                    IslandHistory history = histories.computeIfAbsent(
+                            reference,
+                            (__) -> new IslandHistory(resumedGenerations)
+                    );
+
+                    if (log != null || openLog()) {
+                        log.append(
+                                islandName(reference),
+                                group,
+                                history.generations,
+                                evaluation.evaluationFitness,
+                                evaluation.individualFitness,
+                                evaluation.fitnessFunctionsCalls
+                        );
+                    }
+
+                    history.generations++;
+                    history.maxFitnessFunctionsCalls = Math.max(
+                            history.maxFitnessFunctionsCalls,
+                            evaluation.fitnessFunctionsCalls
+                    );
+                    if (statistics != null) {
+                        statistics.forEach((name, statistic) -> history
+                                .statistics
+                                .computeIfAbsent(name, (__) -> new ScalarRing(settings.plotHistorySize))
+                                .add(statistic.apply(evaluation)));
+                    }
+                    byGroup.computeIfAbsent(group, (__) -> new ArrayList<>())
+                            .add(evaluation);
+                });
+
+        if (aggregateStatistics != null) {
+            byGroup.forEach((group, groupEvaluations) -> {
+                Map<String, ScalarRing> groupHistory =
+                        groupHistories.computeIfAbsent(group, (__) -> new HashMap<>());
+                aggregateStatistics.forEach((name, statistic) -> groupHistory
+                        .computeIfAbsent(name, (__) -> new ScalarRing(settings.plotHistorySize))
+                        .add(statistic.apply(groupEvaluations)));
+            });
+        }
+    }
+
+    /**
+     * Opens the log of the evaluations, if enabled.
+     *
+     * @return true if the log has been opened
+     */
+    private boolean openLog() {
+        if (logName == null || settings.evaluationsLog == EvaluationsLogFormat.NONE) {
+            return false;
+        }
+        String extension = settings.evaluationsLog == EvaluationsLogFormat.CSV ?
+                ".csv" :
+                ".bin";
+        log = new EvaluationsLog(settings.evaluationsLog, Path.of(logName + extension));
+        return true;
+    }
+
+    /**
+     * Writes the pending records of the log, if open, and closes it.
+     */
+    private void closeLog() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            log = null;
+        }
     }
 
     /**
      * Updates the graphs in the GUI.
      */
     private void replot() {
+        lastPlotTime = System.nanoTime();
+        plotPending = false;
 
         Map<String, Color> groupColors = getGroupColors();
 
-
         for (var statistic : statistics.entrySet()) {
             var plot = plotPanels.get(statistic.getKey());
             if (plot != null) {
                 plot.removeAllPlots();
-                evaluations.keySet().stream()
+                histories.keySet().stream()
                         .sorted((r1, r2) ->
                                 String.CASE_INSENSITIVE_ORDER.compare(
-                                        r1.getName(), r2.getName()))
+                                        islandName(r1), islandName(r2)))
                         .forEach(reference -> {
                             String group = groups.getOrDefault(reference, "");
                             Color color = groupColors.getOrDefault(
                                     group,
                                     Color.gray
                             );
-                            plot.addLinePlot(
-                                    reference.getName() + " (" + group + ")",
-                                    color,
-                                    evaluations.get(reference).stream()
-                                            .mapToDouble(ev -> statistic
-                                                    .getValue()
-                                                    .apply(ev)
-                                            ).toArray()
-                            );
+                            ScalarRing history = histories.get(reference)
+                                    .statistics
+                                    .get(statistic.getKey());
+                            if (history != null) {
+                                plot.addLinePlot(
+                                        islandName(reference) + " (" + group + ")",
+                                        color,
+                                        history.toArray()
+                                );
+                            }
                         });
             }
         }
-        Map<String, ArrayList<ArrayList<Evaluation>>> histories =
-                new HashMap<>();
-
-        groups.values().forEach(group -> {
-            ArrayList<ArrayList<Evaluation>> groupHistory = getGroupHistory(group);
-            histories.put(group, groupHistory);
-        });
 
         for (var statistic : aggregateStatistics.entrySet()) {
             var plot = plotPanels.get(statistic.getKey());
             if (plot != null) {
                 plot.removeAllPlots();
-                Function<List<Evaluation>, Double> operator = statistic.getValue();
 
                 groups.values().stream().distinct().sorted().forEach(group -> {
-                    var groupHistory = histories.get(group);
-                    if (groupHistory != null) {
-                        double[] groupStatistics = groupHistory.stream()
-                                .mapToDouble(operator::apply)
-                                .toArray();
-                        if (groupStatistics.length > 0) {
-                            plot.addLinePlot(
-                                    group,
-                                    groupColors.getOrDefault(group, Color.GRAY),
-                                    groupStatistics
-                            );
-                        }
+                    ScalarRing groupHistory = groupHistories
+                            .getOrDefault(group, Map.of())
+                            .get(statistic.getKey());
+                    if (groupHistory != null && groupHistory.size() > 0) {
+                        plot.addLinePlot(
+                                group,
+                                groupColors.getOrDefault(group, Color.GRAY),
+                                groupHistory.toArray()
+                        );
                     }
                 });
             }
         }
-
-
     }
 
-    /**
-     * Transposes the matrices of saved data about the evaluations. It actually
-     * returns the "evaluation" history of a specific group of islands.
-     *
-     * @param group the group of islands
-     * @return the history of the group
-     */
-    private ArrayList<ArrayList<Evaluation>> getGroupHistory(String group) {
-        return transpose(evaluations.entrySet().stream()
-                .filter(e -> groups.get(e.getKey()).equals(group))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList())
-        );
-    }
-
-
     private Map<String, Color> getGroupColors() {
         Map<String, Color> groupColors = new HashMap<>();
 
@@ -433,31 +543,6 @@ public class EvaluationsReporter extends ActoDataBaseBehavior {
         }
     }
 
-    /**
-     * Transposes a matrix in the form of a list of lists.
-     * <p></p>
-     * <b>NOTE: this assumes that all sublists in input are of same size.</b>
-     */
-    private static <T> ArrayList<ArrayList<T>> transpose(
-            List<? extends List<T>> input
-    ) {
-        if (input.isEmpty()) {
-            return new ArrayList<>();
-        }
-        var size = input.get(0).size();
-        ArrayList<ArrayList<T>> result = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            ArrayList<T> l = new ArrayList<>();
-            for (List<T> ts : input) {
-                l.add(ts.get(i));
-            }
-            result.add(l);
-        }
-
-        return result;
-
-    }
-
     /**
      * Sets up the graphical user interface with all the real-time graphs.
      */
@@ -0,0 +1,425 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.islands.IslandEnvironment.Instance;
+import it.unipr.sowide.islands.aggregates.InstanceAggregate;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The instances of an {@link IslandEnvironment}, kept in a dense array and
+ * linked in a circular list sorted by their natural order. As in a sorted
+ * set, instances that compare equal to an instance already present are not
+ * added, and the iteration follows the natural order.
+ * <p>
+ * The slots of the array are also the nodes of a treap (a binary search
+ * tree balanced by random priorities) on the natural order, so adding an
+ * instance costs O(log n), and adding k instances O(k log n). Removals move
+ * the last slot of the array into the removed one, so choosing k random
+ * instances, or a run of k contiguous instances starting from a random one,
+ * costs O(k), and unlinking them from the treap O(k log n).
+ * <p>
+ * The registered {@link InstanceAggregate}s are notified of each instance
+ * actually added or removed.
+ */
+public class InstanceStore extends AbstractCollection<Instance> {
+
+    private Instance[] items = new Instance[16];
+
+    /**
+     * the slots of the next and previous instances in the natural order
+     */
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+
+    /**
+     * the slot of the first instance in the natural order, -1 if empty
+     */
+    private int head = -1;
+
+    /**
+     * the slots of the children and of the parent of each slot in the treap,
+     * -1 if missing, and its priority
+     */
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] parent = new int[16];
+    private int[] priority = new int[16];
+
+    /**
+     * the slot of the root of the treap, -1 if empty
+     */
+    private int root = -1;
+
+    /**
+     * the state of the generator of the priorities, which only affect the
+     * balance of the treap
+     */
+    private long priorityState = 0x9E3779B97F4A7C15L;
+
+    private int size = 0;
+    private int modCount = 0;
+
+    private final List<InstanceAggregate> aggregates = new ArrayList<>();
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an instance, in O(log n).
+     *
+     * @param instance the instance
+     * @return true if the instance has been added
+     */
+    @Override
+    public boolean add(Instance instance) {
+        if (size == 0) {
+            insertFirst(instance);
+            return true;
+        }
+
+        // descends the treap, keeping the closest instances on both sides
+        int predecessor = -1;
+        int successor = -1;
+        int cur = root;
+        int last = -1;
+        int c = 0;
+        while (cur != -1) {
+            last = cur;
+            c = instance.compareTo(items[cur]);
+            if (c == 0) {
+                return false;
+            }
+            if (c < 0) {
+                successor = cur;
+                cur = left[cur];
+            } else {
+                predecessor = cur;
+                cur = right[cur];
+            }
+        }
+
+        // inserting before the head appends after the last instance
+        int slot = insertBefore(successor != -1 ? successor : head, instance);
+        if (predecessor == -1) {
+            head = slot;
+        }
+
+        left[slot] = -1;
+        right[slot] = -1;
+        parent[slot] = last;
+        priority[slot] = nextPriority();
+        if (c < 0) {
+            left[last] = slot;
+        } else {
+            right[last] = slot;
+        }
+        while (parent[slot] != -1 && priority[slot] > priority[parent[slot]]) {
+            rotateUp(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the instances, in O(log n) each. They are added in their natural
+     * order, so the slots they take do not depend on the order of the
+     * collection.
+     *
+     * @param collection the instances to add
+     * @return true if at least an instance has been added
+     */
+    @Override
+    public boolean addAll(Collection<? extends Instance> collection) {
+        Instance[] incoming = collection.toArray(new Instance[0]);
+        Arrays.sort(incoming);
+        ensureCapacity(size + incoming.length);
+
+        boolean changed = false;
+        for (Instance instance : incoming) {
+            changed |= add(instance);
+        }
+        return changed;
+    }
+
+    /**
+     * Removes some instances chosen at random, by a partial Fisher-Yates
+     * shuffle of the array.
+     *
+     * @param random      a random generation utility instance
+     * @param howMany     how many instances to remove
+     * @return the removed instances; fewer than {@code howMany} if there are
+     * not enough instances
+     */
+    public List<Instance> removeRandom(RandomUtils random, int howMany) {
+        List<Instance> removed = new ArrayList<>(Math.min(howMany, size));
+        while (removed.size() < howMany && size > 0) {
+            int slot = random.randomInt(0, size);
+            removed.add(items[slot]);
+            removeSlot(slot);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes a run of instances contiguous in the natural order, starting
+     * from an instance chosen at random and wrapping around after the last
+     * instance.
+     *
+     * @param random      a random generation utility instance
+     * @param howMany     how many instances to remove
+     * @return the removed instances, in the order of the run; fewer than
+     * {@code howMany} if there are not enough instances
+     */
+    public List<Instance> removeRun(RandomUtils random, int howMany) {
+        List<Instance> removed = new ArrayList<>(Math.min(howMany, size));
+        if (size == 0) {
+            return removed;
+        }
+
+        int slot = random.randomInt(0, size);
+        while (removed.size() < howMany && size > 0) {
+            int following = next[slot];
+            int lastSlot = size - 1;
+            removed.add(items[slot]);
+            removeSlot(slot);
+            // the last slot may have been moved into the removed one
+            slot = following == lastSlot ? slot : following;
+        }
+        return removed;
+    }
+
+    /**
+     * Registers an aggregate, after adding to it the present instances.
+     *
+     * @param aggregate the aggregate
+     */
+    void addAggregate(InstanceAggregate aggregate) {
+        for (Instance instance : this) {
+            aggregate.add(instance);
+        }
+        aggregates.add(aggregate);
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void clear() {
+        for (Instance instance : this) {
+            for (InstanceAggregate aggregate : aggregates) {
+                aggregate.remove(instance);
+            }
+        }
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        head = -1;
+        root = -1;
+        modCount++;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public Iterator<Instance> iterator() {
+        return new Iterator<>() {
+            private int cur = head;
+            private int remaining = size;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Instance next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                Instance instance = items[cur];
+                cur = InstanceStore.this.next[cur];
+                remaining--;
+                return instance;
+            }
+        };
+    }
+
+    private void insertFirst(Instance instance) {
+        ensureCapacity(1);
+        items[0] = instance;
+        next[0] = 0;
+        prev[0] = 0;
+        head = 0;
+        left[0] = -1;
+        right[0] = -1;
+        parent[0] = -1;
+        priority[0] = nextPriority();
+        root = 0;
+        size = 1;
+        modCount++;
+        notifyAdded(instance);
+    }
+
+    /**
+     * Inserts an instance in a new slot, linked before the specified one.
+     *
+     * @return the new slot
+     */
+    private int insertBefore(int slot, Instance instance) {
+        ensureCapacity(size + 1);
+        int newSlot = size++;
+        int before = prev[slot];
+        items[newSlot] = instance;
+        prev[newSlot] = before;
+        next[newSlot] = slot;
+        next[before] = newSlot;
+        prev[slot] = newSlot;
+        modCount++;
+        notifyAdded(instance);
+        return newSlot;
+    }
+
+    private void removeSlot(int slot) {
+        Instance removed = items[slot];
+        if (size == 1) {
+            head = -1;
+            root = -1;
+        } else {
+            next[prev[slot]] = next[slot];
+            prev[next[slot]] = prev[slot];
+            if (head == slot) {
+                head = next[slot];
+            }
+            unlinkFromTreap(slot);
+        }
+
+        int last = --size;
+        if (slot != last) {
+            // moves the last slot into the removed one
+            int lastPrev = prev[last] == last ? slot : prev[last];
+            int lastNext = next[last] == last ? slot : next[last];
+            items[slot] = items[last];
+            prev[slot] = lastPrev;
+            next[slot] = lastNext;
+            next[lastPrev] = slot;
+            prev[lastNext] = slot;
+            if (head == last) {
+                head = slot;
+            }
+
+            left[slot] = left[last];
+            right[slot] = right[last];
+            parent[slot] = parent[last];
+            priority[slot] = priority[last];
+            if (left[slot] != -1) {
+                parent[left[slot]] = slot;
+            }
+            if (right[slot] != -1) {
+                parent[right[slot]] = slot;
+            }
+            replaceChild(parent[slot], last, slot);
+        }
+        items[last] = null;
+        modCount++;
+        for (InstanceAggregate aggregate : aggregates) {
+            aggregate.remove(removed);
+        }
+    }
+
+    /**
+     * Removes a slot from the treap, rotating it down until it has at most
+     * a child, which takes its place.
+     */
+    private void unlinkFromTreap(int slot) {
+        while (left[slot] != -1 && right[slot] != -1) {
+            rotateUp(priority[left[slot]] > priority[right[slot]]
+                    ? left[slot]
+                    : right[slot]);
+        }
+        int child = left[slot] != -1 ? left[slot] : right[slot];
+        if (child != -1) {
+            parent[child] = parent[slot];
+        }
+        replaceChild(parent[slot], slot, child);
+    }
+
+    /**
+     * Rotates a slot of the treap above its parent.
+     */
+    private void rotateUp(int slot) {
+        int up = parent[slot];
+        if (left[up] == slot) {
+            left[up] = right[slot];
+            if (right[slot] != -1) {
+                parent[right[slot]] = up;
+            }
+            right[slot] = up;
+        } else {
+            right[up] = left[slot];
+            if (left[slot] != -1) {
+                parent[left[slot]] = up;
+            }
+            left[slot] = up;
+        }
+        parent[slot] = parent[up];
+        parent[up] = slot;
+        replaceChild(parent[slot], up, slot);
+    }
+
+    /**
+     * Replaces a child of a slot of the treap, or the root if the slot is
+     * -1.
+     */
+    private void replaceChild(int slot, int child, int newChild) {
+        if (slot == -1) {
+            root = newChild;
+        } else if (left[slot] == child) {
+            left[slot] = newChild;
+        } else {
+            right[slot] = newChild;
+        }
+    }
+
+    private int nextPriority() {
+        // splitmix64
+        long z = priorityState += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (z ^ (z >>> 31));
+    }
+
+    private void notifyAdded(Instance instance) {
+        for (InstanceAggregate aggregate : aggregates) {
+            aggregate.add(instance);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > items.length) {
+            int newCapacity = Math.max(capacity, items.length * 2);
+            items = Arrays.copyOf(items, newCapacity);
+            next = Arrays.copyOf(next, newCapacity);
+            prev = Arrays.copyOf(prev, newCapacity);
+            left = Arrays.copyOf(left, newCapacity);
+            right = Arrays.copyOf(right, newCapacity);
+            parent = Arrays.copyOf(parent, newCapacity);
+            priority = Arrays.copyOf(priority, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package it.unipr.sowide.islands;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cheap measures of the diversity of the population of an island, computed
+ * after each generation from the genomes and the training fitnesses that the
+ * evolution has already computed.
+ */
+public class IslandDiversity implements Serializable {
+    /**
+     * the number of individuals of the population
+     */
+    public final int populationSize;
+
+    /**
+     * the number of distinct genomes, by their structural hash (see
+     * {@link IslandIndividual#structuralHash()})
+     */
+    public final int distinctGenomes;
+
+    /**
+     * the mean of the training fitnesses of the population
+     */
+    public final double fitnessMean;
+
+    /**
+     * the variance of the training fitnesses of the population
+     */
+    public final double fitnessVariance;
+
+    public IslandDiversity(
+            int populationSize,
+            int distinctGenomes,
+            double fitnessMean,
+            double fitnessVariance
+    ) {
+        this.populationSize = populationSize;
+        this.distinctGenomes = distinctGenomes;
+        this.fitnessMean = fitnessMean;
+        this.fitnessVariance = fitnessVariance;
+    }
+
+    /**
+     * Measures the diversity of a population.
+     *
+     * @param population the population
+     * @return the diversity
+     */
+    public static IslandDiversity of(List<IslandIndividual> population) {
+        int size = population.size();
+
+        // mean and variance in a single pass (Welford)
+        int evaluated = 0;
+        double mean = 0;
+        double squares = 0;
+        for (IslandIndividual individual : population) {
+            if (individual.getFitness().isPresent()) {
+                double fitness = individual.getFitness().get();
+                evaluated++;
+                double delta = fitness - mean;
+                mean += delta / evaluated;
+                squares += delta * (fitness - mean);
+            }
+        }
+        double variance = evaluated > 0 ? squares / evaluated : 0;
+
+        return new IslandDiversity(size, distinctGenomes(population), mean, variance);
+    }
+
+    /**
+     * @return the number of distinct structural hashes of the population
+     */
+    private static int distinctGenomes(List<IslandIndividual> population) {
+        long[] hashes = new long[population.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = population.get(i).structuralHash();
+        }
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * @return the fraction of the population with a distinct genome, or 1
+     * if the population is empty
+     */
+    public double distinctRatio() {
+        if (populationSize == 0) {
+            return 1;
+        }
+        return distinctGenomes / (double) populationSize;
+    }
+
+    @Override
+    public String toString() {
+        return "IslandDiversity{" +
+                "populationSize=" + populationSize +
+                ", distinctGenomes=" + distinctGenomes +
+                ", fitnessMean=" + fitnessMean +
+                ", fitnessVariance=" + fitnessVariance +
+                '}';
+    }
+}
@@ -12,6 +12,8 @@ import it.unipr.sowide.actodata.core.engine.trainable.TrainableEngineComponent;
 import it.unipr.sowide.actodata.core.engine.trainable.content.NoParameters;
 import it.unipr.sowide.actodata.core.engine.trainable.content.TrainingOutcome;
 import it.unipr.sowide.actodes.interaction.Done;
+import it.unipr.sowide.actodes.interaction.Error;
+import it.unipr.sowide.actodes.registry.Reference;
 import it.unipr.sowide.gpj.core.Evolution;
 import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.gpj.core.IndividualGenerator;
@@ -28,17 +30,35 @@ import it.unipr.sowide.gpj.core.breeding.selection.DistinctRandomSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.EliteSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.RandomSelection;
 import it.unipr.sowide.gpj.core.breeding.selection.Selection;
-import it.unipr.sowide.gpj.core.evaluation.SyncParallelPopEvaluator;
+import it.unipr.sowide.gpj.core.evaluation.CachingPopEvaluator;
+import it.unipr.sowide.gpj.core.evaluation.ForkJoinPopEvaluator;
+import it.unipr.sowide.gpj.core.evaluation.SyncPopulationEvaluator;
+import it.unipr.sowide.islands.content.IslandCheckpoint;
+import it.unipr.sowide.islands.content.IslandProgress;
 import it.unipr.sowide.islands.content.IslandTrained;
 import it.unipr.sowide.islands.content.Migration;
 import it.unipr.sowide.islands.content.MigrationData;
+import it.unipr.sowide.islands.content.NextGeneration;
+import it.unipr.sowide.islands.content.RestoreCheckpoint;
+import it.unipr.sowide.islands.content.StartAsyncEvolution;
+import it.unipr.sowide.islands.content.StopEvolution;
+import it.unipr.sowide.islands.content.TakeCheckpoint;
 import it.unipr.sowide.islands.content.TrainSignal;
 import it.unipr.sowide.islands.evolution.TournamentSelection;
 import it.unipr.sowide.islands.settings.EnvironmentSplit;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.RandomUtils;
+import it.unipr.sowide.util.promise.Promise;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
@@ -46,9 +66,17 @@ public abstract class IslandEngine
         extends Engine
         implements IndividualGenerator<IslandIndividual>, MateOperator<IslandIndividual>, MutationOperator<IslandIndividual> {
 
+    private static final int CHECKPOINT_BUFFER_SIZE = 1 << 16;
+
     protected final RandomUtils random;
     protected Evolution<IslandIndividual> evolution;
 
+    /**
+     * evaluates the individuals on the training set and on the validation
+     * set, in the pool shared by the islands of this JVM
+     */
+    private ForkJoinPopEvaluator<IslandIndividual> populationEvaluator;
+
     private final IslandsSimulationSettings settings;
 
     /**
@@ -84,8 +112,52 @@ public abstract class IslandEngine
      */
     private Evaluation bestEvaluation = null;
 
+    /**
+     * the version of the validation set on which the validation fitnesses
+     * stored in the individuals have been computed
+     */
+    private long validatedVersion;
+
     private final AtomicBoolean isTraining = new AtomicBoolean(false);
 
+    /**
+     * the islands to which the emigrants are pushed during an asynchronous
+     * evolution
+     */
+    private List<Reference> neighbours = List.of();
+
+    /**
+     * how many generations have been executed by this island during an
+     * asynchronous evolution
+     */
+    private int asyncGeneration = 0;
+
+    /**
+     * true while this island is evolving asynchronously
+     */
+    private boolean evolvingAsync = false;
+
+    /**
+     * the migrations received since the last generation, by the address of
+     * their sender; they are absorbed in this order before the next
+     * generation, so that the population does not depend on the order in
+     * which the migrations arrive
+     */
+    private final SortedMap<String, List<Migration>> receivedMigrations = new TreeMap<>();
+
+    /**
+     * the version of the training set saved by the last checkpoint, and its
+     * encoding, reused by the next checkpoints while the training set does
+     * not change
+     */
+    private long checkpointedVersion = -1;
+    private byte[] checkpointedInstances = null;
+
+    /**
+     * The diversity of the population after the last generation
+     */
+    private IslandDiversity diversity = null;
+
     /**
      * The selection strategy used to select the emigrants
      */
@@ -109,6 +181,7 @@ public abstract class IslandEngine
     ) {
         this.trainingEnv = trainingEnv;
         this.validationEnv = validationEnv;
+        this.validatedVersion = validationEnv.getVersion();
         this.settings = settings;
         this.random = random;
     }
@@ -116,9 +189,34 @@ public abstract class IslandEngine
     @Override
     protected void setup() {
 
+        populationEvaluator = new ForkJoinPopEvaluator<>(
+                individual -> evaluate(individual, trainingEnv),
+                IslandIndividual::evaluationCost
+        );
+        SyncPopulationEvaluator<IslandIndividual> trainingEvaluator = populationEvaluator;
+        if (settings.fitnessCacheSize > 0) {
+            BinaryCodec<IslandIndividual> codec = individualCodec();
+            if (codec == null) {
+                throw new IllegalStateException(
+                        "The fitness cache (fitnessCacheSize > 0) requires the"
+                                + " codec of the individuals"
+                );
+            }
+            // the genomes are compared by their encodings, and the cached
+            // fitnesses are dropped when instances migrate
+            trainingEvaluator = new CachingPopEvaluator<>(
+                    populationEvaluator,
+                    IslandIndividual::structuralHash,
+                    individual -> ByteBuffer.wrap(BinaryCodec.toByteArray(
+                            out -> codec.encode(individual, out), 64
+                    )),
+                    trainingEnv::getVersion,
+                    settings.fitnessCacheSize
+            );
+        }
         evolution = new Evolution<>(
                 this,
-                new SyncParallelPopEvaluator<>(individual -> evaluate(individual, trainingEnv)),
+                trainingEvaluator,
                 new PreserveIndividuals<>(
                         1,
                         new EliteSelection<>(),
@@ -138,11 +236,330 @@ public abstract class IslandEngine
 
     public abstract double evaluate(IslandIndividual individual, IslandEnvironment environment);
 
+    /**
+     * Returns the codec used to encode the genome of the individuals of this
+     * engine in binary migrations (see
+     * {@link IslandsSimulationSettings#binaryMigration}); the metadata of the
+     * individuals are encoded separately.
+     *
+     * @return the codec, or null if the individuals cannot be encoded
+     */
+    protected BinaryCodec<IslandIndividual> individualCodec() {
+        return null;
+    }
+
     @Override
     public IslandIndividual mutate(EvolutionContext evolutionContext, IslandIndividual individual) {
         return individual.mutate(evolutionContext);
     }
 
+    /**
+     * Executes an iteration of evolution and validates the individuals that
+     * changed or immigrated since their last validation.
+     *
+     * @return the evaluation of the best validated individual
+     */
+    private Evaluation trainAndValidate() {
+        absorbMigrations();
+        try {
+            // executes the actual iteration of evolution
+            evolution.syncIteration();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        // measured on the fitnesses just computed by the evolution
+        List<IslandIndividual> population = evolution.getCurrentPopulation();
+        diversity = IslandDiversity.of(population);
+
+        /*
+        evaluate on the validation set, in parallel, only the individuals
+        that changed or immigrated since their last validation
+         */
+        if (validationEnv.getVersion() != validatedVersion) {
+            population.forEach(IslandIndividual::resetValidationFitness);
+            validatedVersion = validationEnv.getVersion();
+        }
+        List<IslandIndividual> toValidate = new ArrayList<>();
+        for (IslandIndividual individual : population) {
+            if (individual.getValidationFitness().isEmpty()) {
+                toValidate.add(individual);
+            }
+        }
+        double[] validationFitnesses = populationEvaluator.evaluateAll(
+                toValidate,
+                individual -> evaluate(individual, validationEnv)
+        );
+        for (int i = 0; i < validationFitnesses.length; i++) {
+            toValidate.get(i).setValidationFitness(validationFitnesses[i]);
+            /*
+             if the fitness is better than the current best
+             individual, update it. The individuals validated in the
+             previous generations have already been compared with it.
+             */
+            if (bestEvaluation == null || validationFitnesses[i] > bestEvaluation.evaluationFitness) {
+                bestEvaluation = new Evaluation(
+                        toValidate.get(i),
+                        validationFitnesses[i],
+                        evolution.evaluationsCount.get()
+                );
+            }
+        }
+
+        return bestEvaluation;
+    }
+
+    /**
+     * Adds to the population the immigrants, and to the training set the
+     * instances, received since the last generation. The migrations are
+     * merged in the order of their origins, so they are absorbed at once.
+     */
+    private void absorbMigrations() {
+        if (receivedMigrations.isEmpty()) {
+            return;
+        }
+        List<Migration> parts = new ArrayList<>();
+        receivedMigrations.values().forEach(parts::addAll);
+        receivedMigrations.clear();
+        Migration migration = Migration.merge(parts);
+
+        if (!migration.getIndividuals().isEmpty()) {
+            // immigrants were validated by another island
+            migration.getIndividuals().forEach(IslandIndividual::resetValidationFitness);
+            evolution.immigrate(migration.getIndividuals());
+        }
+
+        // note that no duplicate instances of data are used.
+        if (!migration.getInstances().isEmpty()) {
+            trainingEnv.addInstances(migration.getInstances());
+        }
+    }
+
+    /**
+     * Encodes the state of this island between two generations: the
+     * counters of the evolution, the state of the random generator, the
+     * population, the hall of fame, the best validated individual and the
+     * training set. The individuals in the hall of fame that belong to the
+     * population are encoded by their index. The training set is encoded
+     * again only if it changed since the last checkpoint, and it is not
+     * saved if the environment has no codec.
+     *
+     * @return the encoded state
+     * @throws IllegalStateException if the individuals have no codec
+     */
+    private byte[] saveState() {
+        BinaryCodec<IslandIndividual> codec = individualCodec();
+        if (codec == null) {
+            throw new IllegalStateException("Missing codec of the individuals");
+        }
+        absorbMigrations();
+        byte[] randomState = random.saveState();
+        byte[] instancesState = encodeInstances();
+
+        List<IslandIndividual> population = evolution.getCurrentPopulation();
+        List<IslandIndividual> hallOfFame = evolution.getHallOfFame().getBestIndividuals();
+        Map<IslandIndividual, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < population.size(); i++) {
+            indices.put(population.get(i), i);
+        }
+
+        return BinaryCodec.toByteArray(out -> {
+            out.putInt(evolution.getLogbook().getGenerationCount());
+            out.putInt(evolution.evaluationsCount.get());
+            BinaryCodec.putBytes(out, randomState);
+
+            out.putInt(population.size());
+            for (IslandIndividual individual : population) {
+                IslandIndividual.encode(individual, codec, out);
+            }
+            out.putInt(hallOfFame.size());
+            for (IslandIndividual individual : hallOfFame) {
+                encodeMember(individual, indices, codec, out);
+            }
+
+            out.put((byte) (bestEvaluation != null ? 1 : 0));
+            if (bestEvaluation != null) {
+                encodeMember(bestEvaluation.individual, indices, codec, out);
+                out.putDouble(bestEvaluation.evaluationFitness);
+                out.putInt(bestEvaluation.fitnessFunctionsCalls);
+            }
+
+            out.put((byte) (instancesState != null ? 1 : 0));
+            if (instancesState != null) {
+                BinaryCodec.putBytes(out, instancesState);
+            }
+        }, CHECKPOINT_BUFFER_SIZE);
+    }
+
+    /**
+     * @return the encoding of the training set, or null if the environment
+     * has no codec
+     */
+    private byte[] encodeInstances() {
+        BinaryCodec<IslandEnvironment.Instance> codec = trainingEnv.instanceCodec();
+        if (codec == null) {
+            return null;
+        }
+        if (checkpointedInstances == null || checkpointedVersion != trainingEnv.getVersion()) {
+            checkpointedInstances = BinaryCodec.toByteArray(out -> {
+                out.putInt(trainingEnv.instances.size());
+                for (IslandEnvironment.Instance instance : trainingEnv.instances) {
+                    codec.encode(instance, out);
+                }
+            }, CHECKPOINT_BUFFER_SIZE);
+            checkpointedVersion = trainingEnv.getVersion();
+        }
+        return checkpointedInstances;
+    }
+
+    private static void encodeMember(
+            IslandIndividual individual,
+            Map<IslandIndividual, Integer> indices,
+            BinaryCodec<IslandIndividual> codec,
+            ByteBuffer out
+    ) {
+        int index = indices.getOrDefault(individual, -1);
+        out.putInt(index);
+        if (index < 0) {
+            IslandIndividual.encode(individual, codec, out);
+        }
+    }
+
+    private static IslandIndividual decodeMember(
+            List<IslandIndividual> population,
+            BinaryCodec<IslandIndividual> codec,
+            ByteBuffer in
+    ) {
+        int index = in.getInt();
+        return index >= 0 ? population.get(index) : IslandIndividual.decode(codec, in);
+    }
+
+    /**
+     * Replaces the state of this island with one encoded by
+     * {@link #saveState()}.
+     *
+     * @param state the encoded state
+     * @throws IllegalStateException if the individuals or the instances have
+     *                               no codec
+     */
+    private void restoreState(byte[] state) {
+        BinaryCodec<IslandIndividual> codec = individualCodec();
+        if (codec == null) {
+            throw new IllegalStateException("Missing codec of the individuals");
+        }
+        ByteBuffer in = ByteBuffer.wrap(state);
+        int generation = in.getInt();
+        int evaluations = in.getInt();
+        random.restoreState(BinaryCodec.getBytes(in));
+
+        int populationSize = in.getInt();
+        List<IslandIndividual> population = new ArrayList<>(populationSize);
+        for (int i = 0; i < populationSize; i++) {
+            population.add(IslandIndividual.decode(codec, in));
+        }
+        int hallOfFameSize = in.getInt();
+        List<IslandIndividual> hallOfFame = new ArrayList<>(hallOfFameSize);
+        for (int i = 0; i < hallOfFameSize; i++) {
+            hallOfFame.add(decodeMember(population, codec, in));
+        }
+
+        bestEvaluation = null;
+        if (in.get() != 0) {
+            IslandIndividual individual = decodeMember(population, codec, in);
+            double fitness = in.getDouble();
+            bestEvaluation = new Evaluation(individual, fitness, in.getInt());
+        }
+
+        if (in.get() != 0) {
+            BinaryCodec<IslandEnvironment.Instance> instanceCodec = trainingEnv.instanceCodec();
+            if (instanceCodec == null) {
+                throw new IllegalStateException("Missing codec of the instances");
+            }
+            ByteBuffer instancesState = ByteBuffer.wrap(BinaryCodec.getBytes(in));
+            int instancesNumber = instancesState.getInt();
+            List<IslandEnvironment.Instance> instances = new ArrayList<>(instancesNumber);
+            for (int i = 0; i < instancesNumber; i++) {
+                instances.add(instanceCodec.decode(instancesState));
+            }
+            trainingEnv.restoreInstances(instances);
+        }
+        checkpointedVersion = -1;
+        checkpointedInstances = null;
+
+        evolution.restore(population, hallOfFame, generation, evaluations);
+        validatedVersion = validationEnv.getVersion();
+    }
+
+    /**
+     * Selects at once the emigrants and the instances of the training set for
+     * some destinations, and splits them in one migration for each
+     * destination.
+     *
+     * @param destinationsNumber how many destinations
+     * @param individualsNumber  how many individuals to migrate to each
+     *                           destination
+     * @param instancesNumber    how many instances to migrate to each
+     *                           destination
+     * @return a promise of the migrations, one for each destination
+     */
+    private Promise<List<Migration>, Error> emigrate(
+            int destinationsNumber,
+            int individualsNumber,
+            int instancesNumber
+    ) {
+        // an async computation:
+        return ActoPromises.Do().thenAwait((__) -> ActoPromise.throwableToFailed(
+                // first, selects the emigrants of all the destinations, and await
+                evolution.emigrate(emigrantsSelection, individualsNumber * destinationsNumber)
+        )).map((migrants) -> {
+            /*
+             the destination changes the emigrants in place, so this island
+             keeps its own copy of the best validated individual
+             */
+            if (bestEvaluation != null && migrants.stream().anyMatch(m -> m == bestEvaluation.individual)) {
+                IslandIndividual best = bestEvaluation.individual.copyIndividualWithoutMetaData();
+                bestEvaluation.individual.copyMetaDataTo(best);
+                bestEvaluation = new Evaluation(
+                        best,
+                        bestEvaluation.evaluationFitness,
+                        bestEvaluation.fitnessFunctionsCalls
+                );
+            }
+
+            // then, build a Migration message for each destination
+            List<IslandEnvironment.Instance> instances = new ArrayList<>(
+                    settings.environmentSplit == EnvironmentSplit.RANDOM ?
+                            trainingEnv.randomSplit(random, instancesNumber * destinationsNumber) :
+                            trainingEnv.contiguousSplit(random, instancesNumber * destinationsNumber)
+            );
+            List<Migration> migrations = new ArrayList<>(destinationsNumber);
+            for (int i = 0; i < destinationsNumber; i++) {
+                List<IslandIndividual> destinationMigrants = chunk(migrants, i, destinationsNumber);
+                List<IslandEnvironment.Instance> destinationInstances = chunk(instances, i, destinationsNumber);
+                migrations.add(settings.binaryMigration ?
+                        Migration.encode(
+                                destinationMigrants,
+                                destinationInstances,
+                                individualCodec(),
+                                trainingEnv.instanceCodec()
+                        ) :
+                        new Migration(destinationMigrants, destinationInstances));
+            }
+            return migrations;
+        });
+    }
+
+    /**
+     * @return the {@code index}-th of {@code chunks} contiguous parts of the
+     * list, of nearly equal size
+     */
+    private static <T> List<T> chunk(List<T> list, int index, int chunks) {
+        return list.subList(
+                (int) ((long) list.size() * index / chunks),
+                (int) ((long) list.size() * (index + 1) / chunks)
+        );
+    }
+
     // Components
 
     @Override
@@ -158,48 +575,8 @@ public abstract class IslandEngine
         public void startTraining(TrainSignal inputData, NoParameters parameters, Consumer<TrainingOutcome> outcomeAcceptor) {
             isTraining.set(true);
 
-            try {
-                // executes the actual iteration of evolution
-                evolution.syncIteration();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-
-            /*
-            evaluate the new population on the validation set
-             */
-            evolution.getCurrentPopulation().stream()
-                    .parallel() // done in parallel
-                    .forEach(individual -> {
-                        // evaluates an individual
-                        Evaluation evaluation =
-                                new Evaluation(individual, evaluate(individual, validationEnv), evolution.evaluationsCount.get());
-
-                        /*
-                         if the fitness is better than the current best
-                         individual, update it and reset the
-                         noImprovementsCount.
-                         */
-                        synchronized (IslandEngine.this) {
-                            if(bestEvaluation == null || evaluation.evaluationFitness > bestEvaluation.evaluationFitness) {
-                                bestEvaluation = evaluation;
-                                // when there actually is an improvement,
-                                //   noImprovementsCount will be set to 0...
-                            }
-                        }
-
-//                        actorLog(settings.islandGroupName + " " + getReference().getName() + "\n"
-//                                + bestEvaluation
-//                                + "\n"
-//                                + trainingEnv
-//                        );
-                    });
-
-            // when there actually is an improvement,
-            //   noImprovementsCount is set to 0:
-
             // returns the result to the requester
-            outcomeAcceptor.accept(new IslandTrained(bestEvaluation));
+            outcomeAcceptor.accept(new IslandTrained(trainAndValidate(), diversity));
 
             isTraining.set(false);
         }
@@ -237,7 +614,7 @@ public abstract class IslandEngine
         public void evaluate(IslandEnvironment input, Consumer<EvaluationOutcome> outcomeAcceptor) {
             IslandIndividual ind = bestEvaluation != null ?
                     bestEvaluation.individual :
-                    evolution.getHallOfFame().getBestIndividuals().first();
+                    evolution.getHallOfFame().bestIndividual();
 
             Evaluation evaluation =
                     new Evaluation(ind, IslandEngine.this.evaluate(ind, input), evolution.evaluationsCount.get());
@@ -254,18 +631,17 @@ public abstract class IslandEngine
         /*
          a set of individuals and/or data arrives to this engine
          */
-        c.onContentOfType(Migration.class, (migration, message) -> {
-
-            if (!migration.getIndividuals().isEmpty()) {
-//                actorLog("Received " + migration.getIndividuals().size() + " individuals from " + message.getSender().getName());
-                evolution.immigrate(migration.getIndividuals());
-            }
-
-            // note that no duplicate instances of data are used.
-            if (!migration.getInstances().isEmpty()) {
-//                actorLog("Received " + migration.getInstances().size() + " instances from " + message.getSender().getName());
-                trainingEnv.instances.addAll(migration.getInstances());
-            }
+        c.onContentOfType(Migration.class, (received, message) -> {
+            Migration migration = received.decode(
+                    individualCodec(),
+                    trainingEnv.instanceCodec()
+            );
+
+            // absorbed before the next generation
+            receivedMigrations.computeIfAbsent(
+                    message.getSender().toString(),
+                    (__) -> new ArrayList<>()
+            ).add(migration);
 
             // sends Done.DONE
             done(message);
@@ -276,27 +652,23 @@ public abstract class IslandEngine
          */
         c.onContentOfType(MigrationData.class, (migrate, message) -> {
 
-            // an async computation:
-            ActoPromises.Do().thenAwait((__) -> ActoPromise.throwableToFailed(
-                    // first, selects the emigrants, and await
-                    evolution.emigrate(emigrantsSelection, migrate.individualsNumber)
-            )).thenAwait((migrants) -> {
-                // then, build the Migration message
-                Migration migration = new Migration(
-                        migrants,
-                        settings.environmentSplit == EnvironmentSplit.RANDOM ?
-                                trainingEnv.randomSplit(random, migrate.instancesNumber) :
-                                trainingEnv.contiguousSplit(random, migrate.instancesNumber)
-                );
-
-                // send the migration message, and await the Done response
-                return promiseFuture(
-                        migrate.destination,
-                        migration,
-                        (Done) null
-                );
+            emigrate(
+                    migrate.destinations.size(),
+                    migrate.individualsNumber,
+                    migrate.instancesNumber
+            ).thenAwait((migrations) -> {
+                // sends each migration directly to its destination
+                List<Promise<Done, Error>> deliveries = new ArrayList<>();
+                for (int i = 0; i < migrate.destinations.size(); i++) {
+                    deliveries.add(promiseFuture(
+                            migrate.destinations.get(i),
+                            migrations.get(i),
+                            (Done) null
+                    ));
+                }
+                return ActoPromises.all(deliveries);
             }).then((__) -> {
-                // the destination island responded "Done"
+                // all the destinations responded "Done"
                 // replies Done to the requester of the migration
                 done(message);
             }).onError(err -> {
@@ -305,6 +677,91 @@ public abstract class IslandEngine
             }).compel();
         });
 
+        /*
+         starts the asynchronous evolution: the island loops on its own,
+         requesting each generation to itself
+         */
+        c.onContentOfType(StartAsyncEvolution.class, (start, message) -> {
+            neighbours = start.getNeighbours();
+            asyncGeneration = 0;
+            evolvingAsync = true;
+            send(getReference(), NextGeneration.INSTANCE);
+            done(message);
+        });
+
+        /*
+         a generation of the asynchronous evolution; the immigrants received
+         during the previous generation are already in the population
+         */
+        c.onContentOfType(NextGeneration.class, (__, message) -> {
+            if (!evolvingAsync) {
+                return;
+            }
+
+            Evaluation best = trainAndValidate();
+            asyncGeneration++;
+
+            // pushes the emigrants when this island's own interval elapses
+            if (settings.migrationRate > 0 && asyncGeneration % settings.migrationRate == 0) {
+                List<Reference> destinations = neighbours;
+                emigrate(
+                        destinations.size(),
+                        settings.individualsMigration,
+                        settings.instancesMigration
+                ).then((migrations) -> {
+                    for (int i = 0; i < destinations.size(); i++) {
+                        promiseFuture(destinations.get(i), migrations.get(i), (Done) null)
+                                .onError(err -> {
+                                    // a lost migration does not stop the evolution
+                                }).compel();
+                    }
+                }).compel();
+            }
+
+            boolean finished = asyncGeneration >= settings.maxGenerations;
+            sendMessageToControllers(new IslandProgress(asyncGeneration, best, finished));
+
+            if (finished) {
+                evolvingAsync = false;
+            } else {
+                send(getReference(), NextGeneration.INSTANCE);
+            }
+        });
+
+        /*
+         stops the asynchronous evolution before the next generation
+         */
+        c.onContentOfType(StopEvolution.class, (__, message) -> {
+            evolvingAsync = false;
+            done(message);
+        });
+
+        /*
+         saves the state of this island between two generations
+         */
+        c.onContentOfType(TakeCheckpoint.class, (__, message) -> {
+            try {
+                send(message, new IslandCheckpoint(saveState()));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                send(message, Error.FAILEDEXECUTION);
+            }
+        });
+
+        /*
+         replaces the state of this island with a saved one, before the
+         run is resumed
+         */
+        c.onContentOfType(RestoreCheckpoint.class, (restore, message) -> {
+            try {
+                restoreState(restore.getState());
+                done(message);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                send(message, Error.FAILEDEXECUTION);
+            }
+        });
+
         // replies with the best validated individual
         c.serveProperty(
                 "bestValidatedIndividual",
@@ -0,0 +1,38 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.actodes.actor.Behavior;
+import it.unipr.sowide.actodes.actor.CaseFactory;
+
+/**
+ * The initial behavior of an island placed on a worker node (see
+ * {@link it.unipr.sowide.islands.settings.IslandsSimulationSettings#placement}):
+ * when the actor starts, it asks the master of its node to create the engine
+ * of the island, and becomes that engine.
+ * <p>
+ * Only the indices of the run and of the island are sent to the worker node,
+ * since each node loads the same settings and datasets, and derives the same
+ * starting split and random generators from the root seed.
+ */
+class IslandEngineLoader extends Behavior {
+    private final long rootSeed;
+    private final int run;
+    private final int island;
+
+    /**
+     * @param rootSeed the seed of the root random generator of the master
+     * @param run      the index of the run, starting from 1
+     * @param island   the index of the island in the run
+     */
+    IslandEngineLoader(long rootSeed, int run, int island) {
+        this.rootSeed = rootSeed;
+        this.run = run;
+        this.island = island;
+    }
+
+    @Override
+    public void cases(CaseFactory c) {
+        c.define(START, (__) ->
+                IslandsMaster.nodeMaster().createIslandEngine(rootSeed, run, island)
+        );
+    }
+}
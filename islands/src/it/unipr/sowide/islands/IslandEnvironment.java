@@ -1,17 +1,93 @@
 package it.unipr.sowide.islands;
 
+import it.unipr.sowide.islands.aggregates.InstanceAggregate;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.RandomUtils;
 
+import java.io.Serializable;
 import java.util.*;
 
 public abstract class IslandEnvironment {
 
-    public abstract static class Instance implements Comparable<Instance> { }
+    public abstract static class Instance implements Comparable<Instance>, Serializable { }
 
-    protected final SortedSet<Instance> instances = new TreeSet<>();
+    protected final InstanceStore instances = new InstanceStore();
+
+    /**
+     * Incremented each time the instances change after a migration, so that
+     * the fitnesses computed on a previous version can be discarded
+     */
+    private long version = 0;
+
+    /**
+     * @return the current version of the instances of this environment
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Adds the specified instances to the environment, e.g. when they
+     * immigrate from another island.
+     *
+     * @param newInstances the instances to add
+     */
+    void addInstances(Collection<Instance> newInstances) {
+        if (instances.addAll(newInstances)) {
+            version++;
+        }
+    }
+
+    /**
+     * Replaces all the instances of the environment, e.g. when a run is
+     * resumed from a checkpoint.
+     *
+     * @param newInstances the instances
+     */
+    void restoreInstances(Collection<Instance> newInstances) {
+        instances.clear();
+        instances.addAll(newInstances);
+        version++;
+    }
+
+    /**
+     * Registers an aggregate that is kept up to date with the instances of
+     * this environment, including the ones already present; typically
+     * called in the initializer of a field of a subclass.
+     *
+     * @param aggregate the aggregate
+     * @param <A>       the type of the aggregate
+     * @return the aggregate
+     */
+    protected <A extends InstanceAggregate> A registerAggregate(A aggregate) {
+        instances.addAggregate(aggregate);
+        return aggregate;
+    }
 
     protected abstract IslandEnvironment createEnvironment();
 
+    /**
+     * Returns the codec used to encode the instances of this environment in
+     * binary migrations (see
+     * {@link it.unipr.sowide.islands.settings.IslandsSimulationSettings#binaryMigration}).
+     *
+     * @return the codec, or null if the instances cannot be encoded
+     */
+    protected BinaryCodec<Instance> instanceCodec() {
+        return null;
+    }
+
+    /**
+     * @return a new environment with the same instances, e.g. for an island
+     * that starts with all the instances, since the islands change their
+     * environments when the instances migrate
+     */
+    IslandEnvironment copyEnvironment() {
+        IslandEnvironment environment = createEnvironment();
+        environment.instances.addAll(instances);
+        return environment;
+    }
+
     List<IslandEnvironment> startingSplitContiguous(int numIslands) {
         // Create environments
         List<IslandEnvironment> environments = new ArrayList<>(numIslands);
@@ -36,10 +112,12 @@ public abstract class IslandEnvironment {
         List<Instance> shuffledInstances = new ArrayList<>(instances);
         Collections.shuffle(shuffledInstances, random.getJavaRandom());
 
-        // Random split
+        // Random split, each part added in bulk
         int splitSize = instances.size() / numIslands;
-        for(int i = 0; i < shuffledInstances.size(); i++) {
-            environments.get(i / splitSize).instances.add(shuffledInstances.get(i));
+        for(int i = 0; i < numIslands; i++) {
+            int from = Math.min(i * splitSize, shuffledInstances.size());
+            int to = i == numIslands - 1 ? shuffledInstances.size() : Math.min(from + splitSize, shuffledInstances.size());
+            environments.get(i).instances.addAll(shuffledInstances.subList(from, to));
         }
 
         return environments;
@@ -60,36 +138,17 @@ public abstract class IslandEnvironment {
     }
 
     Collection<Instance> randomSplit(RandomUtils randomUtils, int instancesNumber) {
-        // Shuffled instances
-        List<Instance> shuffledInstances = new ArrayList<>(instances);
-        Collections.shuffle(shuffledInstances, randomUtils.getJavaRandom());
-
-        // Create split instances
-        List<Instance> splitInstances = new ArrayList<>();
-
-        // Try to take n instances
-        for(int i = 0; i < instancesNumber && i < shuffledInstances.size(); i++) {
-            Instance instance = shuffledInstances.get(i);
-            instances.remove(instance);
-            splitInstances.add(instance);
-        }
+        // Try to take n instances, by a partial shuffle
+        List<Instance> splitInstances = instances.removeRandom(randomUtils, instancesNumber);
+        if (!splitInstances.isEmpty()) version++;
 
         return splitInstances;
     }
 
     Collection<Instance> contiguousSplit(RandomUtils randomUtils, int instancesNumber) {
-        // Sorted instances
-        List<Instance> sortedInstances = new ArrayList<>(instances);
-
-        // Create split instances
-        List<Instance> splitInstances = new ArrayList<>();
-
-        // Try to take n instances
-        for(int i = 0, startingIndex = randomUtils.randomInt(0, instances.size()); i < instancesNumber && i < sortedInstances.size(); i++) {
-            Instance instance = sortedInstances.get((i + startingIndex) % instances.size());
-            instances.remove(instance);
-            splitInstances.add(instance);
-        }
+        // Try to take n instances, contiguous in the natural order
+        List<Instance> splitInstances = instances.removeRun(randomUtils, instancesNumber);
+        if (!splitInstances.isEmpty()) version++;
 
         return splitInstances;
     }
@@ -1,15 +1,22 @@
 package it.unipr.sowide.islands;
 
 import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.promise.Promise;
 import it.unipr.sowide.util.promise.Promises;
 
+import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
-public abstract class IslandIndividual implements it.unipr.sowide.gpj.core.Individual {
+public abstract class IslandIndividual implements it.unipr.sowide.gpj.core.Individual, Serializable {
+
+    private static final byte HAS_FITNESS = 1;
+    private static final byte HAS_VALIDATION_FITNESS = 2;
 
     private int birthGeneration;
     private Double fitness;
+    private Double validationFitness;
     private boolean inHallOfFame;
 
     @Override
@@ -32,9 +39,30 @@ public abstract class IslandIndividual implements it.unipr.sowide.gpj.core.Indiv
         fitness = value;
     }
 
+    /**
+     * Resets both the training fitness and the validation fitness, since the
+     * individual changed.
+     */
     @Override
     public void resetFitness() {
         fitness = null;
+        validationFitness = null;
+    }
+
+    /**
+     * @return the fitness of this individual on the validation set, if it
+     * has been computed since the last change of the individual
+     */
+    public Optional<Double> getValidationFitness() {
+        return Optional.ofNullable(validationFitness);
+    }
+
+    public void setValidationFitness(double value) {
+        validationFitness = value;
+    }
+
+    public void resetValidationFitness() {
+        validationFitness = null;
     }
 
     @Override
@@ -63,10 +91,80 @@ public abstract class IslandIndividual implements it.unipr.sowide.gpj.core.Indiv
         islandIndividual.setBirthGeneration(getBirthGeneration());
         if(getFitness().isPresent()) islandIndividual.setFitness(getFitness().get());
         else islandIndividual.resetFitness();
+        if(getValidationFitness().isPresent()) islandIndividual.setValidationFitness(getValidationFitness().get());
+        else islandIndividual.resetValidationFitness();
     }
 
     public abstract IslandIndividual mutate(EvolutionContext evolutionContext);
 
+    /**
+     * Writes an individual with its birth generation and fitnesses; the
+     * genome is written by the specified codec.
+     *
+     * @param individual the individual
+     * @param codec      the codec of the genome
+     * @param out        the buffer
+     */
+    public static void encode(
+            IslandIndividual individual,
+            BinaryCodec<IslandIndividual> codec,
+            ByteBuffer out
+    ) {
+        out.putInt(individual.birthGeneration);
+        out.put((byte) ((individual.fitness != null ? HAS_FITNESS : 0) |
+                (individual.validationFitness != null ? HAS_VALIDATION_FITNESS : 0)));
+        if (individual.fitness != null) out.putDouble(individual.fitness);
+        if (individual.validationFitness != null) out.putDouble(individual.validationFitness);
+        codec.encode(individual, out);
+    }
+
+    /**
+     * Reads an individual written by
+     * {@link #encode(IslandIndividual, BinaryCodec, ByteBuffer)}.
+     *
+     * @param codec the codec of the genome
+     * @param in    the buffer
+     * @return the individual
+     */
+    public static IslandIndividual decode(
+            BinaryCodec<IslandIndividual> codec,
+            ByteBuffer in
+    ) {
+        int birthGeneration = in.getInt();
+        byte flags = in.get();
+        Double fitness = (flags & HAS_FITNESS) != 0 ? in.getDouble() : null;
+        Double validationFitness = (flags & HAS_VALIDATION_FITNESS) != 0 ? in.getDouble() : null;
+
+        IslandIndividual individual = codec.decode(in);
+        individual.birthGeneration = birthGeneration;
+        individual.fitness = fitness;
+        individual.validationFitness = validationFitness;
+        return individual;
+    }
+
+    /**
+     * Estimates the relative cost of evaluating this individual, used to
+     * balance the parallel evaluation of a population. By default, all the
+     * individuals have the same cost; subclasses with individuals of variable
+     * size (e.g. trees) should return their size.
+     *
+     * @return a positive estimate of the cost of an evaluation
+     */
+    public long evaluationCost() {
+        return 1;
+    }
+
+    /**
+     * Computes a 64-bit hash that depends only on the genome of this
+     * individual, used to reuse the fitnesses of equal individuals when the
+     * fitness cache is enabled (see
+     * {@link it.unipr.sowide.islands.settings.IslandsSimulationSettings#fitnessCacheSize}).
+     * Individuals with the same genome must have the same hash.
+     *
+     * @return the hash of the genome
+     */
+    public abstract long structuralHash();
+
     @Override
     public abstract String toString();
 }
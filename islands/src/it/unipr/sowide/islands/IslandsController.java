@@ -15,14 +15,22 @@ import it.unipr.sowide.actodes.interaction.Done;
 import it.unipr.sowide.actodes.interaction.Error;
 import it.unipr.sowide.actodes.registry.Reference;
 import it.unipr.sowide.islands.content.*;
+import it.unipr.sowide.islands.migration.AdaptiveMigrationPolicy;
+import it.unipr.sowide.islands.migration.FullyConnectedMigration;
+import it.unipr.sowide.islands.migration.HypercubeMigration;
 import it.unipr.sowide.islands.migration.MigrationSystem;
+import it.unipr.sowide.islands.migration.RandomRegularMigration;
 import it.unipr.sowide.islands.migration.RingMigration;
 import it.unipr.sowide.islands.migration.SpreadMigration;
+import it.unipr.sowide.islands.migration.TorusMigration;
 import it.unipr.sowide.islands.migration.graph.GraphMigration;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
 import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.util.RandomUtils;
+import it.unipr.sowide.util.promise.Promise;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -71,24 +79,130 @@ public class IslandsController extends Controller
      */
     private MigrationSystem migrationSystem;
 
+    /**
+     * The request that initiated an asynchronous loop, null if no
+     * asynchronous loop is running
+     */
+    private Message asyncLoopRequest = null;
+
+    /**
+     * How many generations have been executed by each island during an
+     * asynchronous loop
+     */
+    private final Map<Reference, Integer> islandGenerations = new HashMap<>();
+
+    /**
+     * The islands that completed their generations during an asynchronous
+     * loop
+     */
+    private final Set<Reference> finishedIslands = new HashSet<>();
+
+    /**
+     * True while the islands are being evaluated on the test set during an
+     * asynchronous loop
+     */
+    private boolean evaluatingAsync = false;
+
+    /**
+     * The file to which the results of the run are saved
+     */
+    private final String resultsFile;
+
+    /**
+     * The random generator of this controller, saved in the checkpoints
+     */
+    private final RandomUtils random;
+
+    /**
+     * The file to which the checkpoints of the run are saved
+     */
+    private final Path checkpointFile;
+
+    /**
+     * If true, the run is resumed from its checkpoint, if it exists
+     */
+    private final boolean resume;
+
+    /**
+     * Writes the checkpoints in background; created at the first checkpoint
+     */
+    private CheckpointWriter checkpointWriter = null;
+
+    /**
+     * The calls of the fitness function of all the islands at the last
+     * report, saved in the checkpoints
+     */
+    private int reportedFitnessFunctionCalls = 0;
+
+    /**
+     * Adapts the migrations to the diversity of the islands, null if the
+     * migrations are not adaptive
+     */
+    private final AdaptiveMigrationPolicy migrationPolicy;
+
+    /**
+     * How many generations have been executed since the last migration
+     */
+    private int generationsSinceMigration = 0;
+
+    /**
+     * The generation at which the best fitness on the validation set has
+     * last improved
+     */
+    private int lastImprovementGeneration = 0;
+
     /**
      * Creates the controller with the specified settings.
      * @param settings            settings
      * @param testEnv             the test environment used to evaluate the islands
      * @param random              a random generation utility instance
+     * @param runName             the name of the run, used to name the file
+     *                            of the results
      */
     public IslandsController(
             IslandsSimulationSettings settings,
             IslandEnvironment testEnv,
-            RandomUtils random
+            RandomUtils random,
+            String runName
+    ) {
+        this(settings, testEnv, random, runName, false);
+    }
+
+    /**
+     * Creates the controller with the specified settings.
+     * @param settings            settings
+     * @param testEnv             the test environment used to evaluate the islands
+     * @param random              a random generation utility instance
+     * @param runName             the name of the run, used to name the files
+     *                            of the results and of the checkpoints
+     * @param resume              if true, the run is resumed from the last
+     *                            checkpoint, if any
+     */
+    public IslandsController(
+            IslandsSimulationSettings settings,
+            IslandEnvironment testEnv,
+            RandomUtils random,
+            String runName,
+            boolean resume
     ) {
         this.settings = settings;
         this.testEnv = testEnv;
+        this.resultsFile = runName + ".txt";
+        this.random = random;
+        this.checkpointFile = Path.of(runName + ".ckpt");
+        this.resume = resume;
+        this.migrationPolicy = settings.adaptiveMigration ?
+                new AdaptiveMigrationPolicy(settings) :
+                null;
 
         switch (settings.migrationSystemType) {
             case RING -> this.migrationSystem = new RingMigration(random, settings.permutateIslands);
             case SPREAD -> this.migrationSystem = new SpreadMigration();
             case GRAPH -> this.migrationSystem = new GraphMigration(settings);
+            case TORUS -> this.migrationSystem = new TorusMigration(settings.torusWidth);
+            case HYPERCUBE -> this.migrationSystem = new HypercubeMigration();
+            case RANDOM_REGULAR -> this.migrationSystem = new RandomRegularMigration(random, settings.migrationDegree);
+            case FULLY_CONNECTED -> this.migrationSystem = new FullyConnectedMigration(random, settings.migrationBudget);
         }
     }
 
@@ -107,25 +221,77 @@ public class IslandsController extends Controller
          */
         d.onContentOfType(StartIslandsLoop.class, (__, message) -> {
             this.startTime = Instant.now();
-            trainIslands(message);
+            if (settings.asynchronous) {
+                startAsyncIslands(message);
+            } else if (resume) {
+                resumeIslands(message);
+            } else {
+                trainIslands(message);
+            }
         });
     }
 
+    /**
+     * Receives the progress of the islands evolving asynchronously.
+     *
+     * @param message the received message.
+     */
+    @Override
+    public void onEngineMessage(Message message) {
+        if (message.getContent() instanceof IslandProgress) {
+            onIslandProgress(
+                    message.getSender(),
+                    (IslandProgress) message.getContent()
+            );
+        }
+    }
+
     /**
      * Terminates the training, asking the reporter to save the results and
-     * replying {@link Done#DONE} to the requester of the loop.
+     * replying to the requester of the loop with the {@link RunResults} of
+     * the reporter, once they are saved.
      *
      * @param loopRequest the message of the request that initiated the loop
+     * @param stagnated   true if the training is terminated because the best
+     *                    fitness has not improved for
+     *                    {@link IslandsSimulationSettings#stagnationWindow}
+     *                    generations
      */
-    private void terminateTraining(Message loopRequest) {
-        if (startTime != null && reporter != null) {
-            send(reporter, new SaveResults(
-                    startTime,
-                    Instant.now(),
-                    settings.islandGroupName
+    private void terminateTraining(Message loopRequest, boolean stagnated) {
+        if (checkpointWriter != null) {
+            // marks the run as completed, so that it is not resumed
+            checkpointWriter.submit(new RunCheckpoint(
+                    true,
+                    stagnated,
+                    generationCount,
+                    bestValidatedIndividualFitness,
+                    reportedFitnessFunctionCalls,
+                    generationsSinceMigration,
+                    lastImprovementGeneration,
+                    random.saveState(),
+                    List.of()
+            ).toBytes());
+            checkpointWriter.close();
+            checkpointWriter = null;
+        }
+        if (startTime == null || reporter == null) {
+            send(loopRequest, new RunResults(
+                    generationCount,
+                    reportedFitnessFunctionCalls,
+                    stagnated
             ));
+            return;
         }
-        send(loopRequest, Done.DONE);
+        promiseFuture(
+                reporter,
+                new SaveResults(startTime, Instant.now(), resultsFile, stagnated),
+                RunResults.class
+        ).then((results) -> {
+            send(loopRequest, results);
+        }).onError(err -> {
+            // the results could not be saved; forwards the error to the requester
+            send(loopRequest, err);
+        }).compel();
     }
 
     /**
@@ -138,7 +304,7 @@ public class IslandsController extends Controller
         if (this.generationCount >= settings.maxGenerations) {
 //            actorLog("Generation Limit Reached");
             // terminate the loop
-            terminateTraining(loopRequest);
+            terminateTraining(loopRequest, false);
             return;
         }
 
@@ -176,13 +342,24 @@ public class IslandsController extends Controller
                     // if there is an improvement:
                     if (fit > bestValidatedIndividualFitness) {
                         bestValidatedIndividualFitness = fit;
+                        lastImprovementGeneration = generationCount + 1;
                     }
                 }
 
+                if (migrationPolicy != null) {
+                    migrationPolicy.update(outcomes.stream()
+                            .filter(o -> o instanceof IslandTrained)
+                            .map(o -> ((IslandTrained) o).diversity)
+                            .collect(Collectors.toList()));
+                }
+
                 if (bestValidatedIndividualFitness >= settings.targetFitness) {
 //                    actorLog("Target Fitness reached!");
                     // terminate the training.
-                    terminateTraining(loopRequest);
+                    terminateTraining(loopRequest, false);
+                } else if (isStagnated(generationCount + 1)) {
+                    // the islands have stopped improving: terminate early
+                    terminateTraining(loopRequest, true);
                 } else {
                     // otherwise, proceed with evaluation.
                     evaluateIslands(loopRequest);
@@ -206,7 +383,7 @@ public class IslandsController extends Controller
          */
         ActoPromises.all(getControlledEngines().getReferences().stream()
                 .map((engineRef) ->
-                        evaluateEngine(wrapData(testEnv), engineRef)
+                        evaluateEngine(new TestEnvironmentData(testEnv), engineRef)
                                 .map(outcome -> Pair.pair(engineRef, outcome))
                 )
                 .collect(Collectors.toList())
@@ -226,6 +403,9 @@ public class IslandsController extends Controller
                     evaluations.put(engine, (Evaluation) evaluationDone.getEvaluationData());
                 }
             }
+            reportedFitnessFunctionCalls = evaluations.values().stream()
+                    .mapToInt(evaluation -> evaluation.fitnessFunctionsCalls)
+                    .sum();
 
             // ... and sends it to the reporter
             if (reporter != null) {
@@ -241,34 +421,329 @@ public class IslandsController extends Controller
         }).compel();
     }
 
+    /**
+     * @param generation the last completed generation
+     * @return true if the best fitness on the validation set has not improved
+     * for {@link IslandsSimulationSettings#stagnationWindow} generations
+     */
+    private boolean isStagnated(int generation) {
+        return settings.stagnationWindow > 0
+                && generation - lastImprovementGeneration >= settings.stagnationWindow;
+    }
+
+    /**
+     * @return true if, according to the migrationRate or to the adaptive
+     * policy, the migration should be performed in this iteration
+     */
+    private boolean isMigrationDue() {
+        if (settings.numIslands < 2 || settings.migrationRate <= 0) {
+            return false;
+        }
+        if (migrationPolicy != null) {
+            return generationsSinceMigration >= migrationPolicy.interval();
+        }
+        return generationCount % settings.migrationRate == 0;
+    }
+
     private void performMigration(Message loopRequest) {
         generationCount++; // updates the generation count
+        generationsSinceMigration++;
 
         /*
          if, according the migrationRate, this is an iteration where the
          migration should be performed:
         */
-        if (settings.numIslands >= 2 && settings.migrationRate > 0 && generationCount % settings.migrationRate == 0) {
+        if (isMigrationDue()) {
 //            actorLog("MIGRATING...");
+            generationsSinceMigration = 0;
 
-            Collection<ActoPromise<? extends Done>> migrationPromises = migrationSystem.getMigrationPromises(
+            // a single batched round, one request for each origin and one
+            // merged migration for each destination
+            migrationSystem.migrate(
                     this,
                     getControlledEngines().getReferences(),
-                    settings.individualsMigration,
-                    settings.instancesMigration
-            );
-
-            // compels all the built migration promises
-            ActoPromises.all(
-                    migrationPromises
-            ).then((__) -> { // when all are resolved
+                    migrationPolicy != null ? migrationPolicy.individualsNumber() : settings.individualsMigration,
+                    migrationPolicy != null ? migrationPolicy.instancesNumber() : settings.instancesMigration
+            ).then((__) -> { // when all are delivered
+                takeCheckpoint();
                 trainIslands(loopRequest); // restart the loop (next iteration)
             }).onError((err) -> { // if error, forward it to the requester
                 send(loopRequest, err);
             }).compel();
         } else {
             // skipping the migration in this iteration.
+            takeCheckpoint();
             trainIslands(loopRequest);
         }
     }
+
+    /**
+     * @return the references of the controlled engines, sorted by name, so
+     * that the islands of a checkpoint are restored in the same order
+     */
+    private List<Reference> sortedEngines() {
+        List<Reference> engines = new ArrayList<>(getControlledEngines().getReferences());
+        engines.sort(Comparator.comparing(Reference::getName)
+                .thenComparing(Reference::toString));
+        return engines;
+    }
+
+    /**
+     * If a checkpoint is due at this generation, asks the islands to save
+     * their states and hands the checkpoint to the background writer when
+     * all the states are received. The loop does not wait for the
+     * checkpoint: the islands save their state before the next generation,
+     * since the requests are delivered before the training requests.
+     */
+    private void takeCheckpoint() {
+        if (settings.checkpointInterval == 0 || generationCount % settings.checkpointInterval != 0) {
+            return;
+        }
+        if (checkpointWriter == null) {
+            checkpointWriter = new CheckpointWriter(checkpointFile);
+        }
+        CheckpointWriter writer = checkpointWriter;
+        int generation = generationCount;
+        double bestFitness = bestValidatedIndividualFitness;
+        int fitnessFunctionCalls = reportedFitnessFunctionCalls;
+        int sinceMigration = generationsSinceMigration;
+        int lastImprovement = lastImprovementGeneration;
+        byte[] randomState = random.saveState();
+
+        List<Reference> engines = sortedEngines();
+        List<Promise<Pair<Integer, IslandCheckpoint>, Error>> checkpointPromises = new ArrayList<>();
+        for (int i = 0; i < engines.size(); i++) {
+            int index = i;
+            checkpointPromises.add(promiseFuture(
+                    engines.get(i),
+                    TakeCheckpoint.INSTANCE,
+                    IslandCheckpoint.class
+            ).map(checkpoint -> Pair.pair(index, checkpoint)));
+        }
+
+        ActoPromises.all(checkpointPromises).then(checkpoints -> {
+            // the states are received in any order
+            byte[][] islands = new byte[engines.size()][];
+            for (Pair<Integer, IslandCheckpoint> checkpoint : checkpoints) {
+                islands[checkpoint.get1()] = checkpoint.get2().getState();
+            }
+            // the run may have been completed in the meantime
+            if (writer == checkpointWriter) {
+                writer.submit(new RunCheckpoint(
+                        false,
+                        false,
+                        generation,
+                        bestFitness,
+                        fitnessFunctionCalls,
+                        sinceMigration,
+                        lastImprovement,
+                        randomState,
+                        Arrays.asList(islands)
+                ).toBytes());
+            }
+        }).onError((err) -> {
+            // a lost checkpoint does not stop the run
+            System.err.println("Checkpoint of generation " + generation + " of " + checkpointFile + " failed: " + err);
+        }).compel();
+    }
+
+    /**
+     * Resumes the run from its checkpoint: restores the state of the islands
+     * and of this controller, tells the reporter from which generation the
+     * run continues, then continues the loop. A completed run is terminated
+     * immediately; if there is no checkpoint, the run starts from the
+     * beginning.
+     *
+     * @param loopRequest the message of the request that initiated the loop
+     */
+    private void resumeIslands(Message loopRequest) {
+        RunCheckpoint checkpoint;
+        try {
+            checkpoint = RunCheckpoint.read(checkpointFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            send(loopRequest, Error.FAILEDEXECUTION);
+            return;
+        }
+        if (checkpoint == null) {
+            trainIslands(loopRequest);
+            return;
+        }
+
+        List<Reference> engines = sortedEngines();
+        if (!checkpoint.finished && checkpoint.islands.size() != engines.size()) {
+            System.err.println(checkpointFile + " has " + checkpoint.islands.size()
+                    + " islands instead of " + engines.size());
+            send(loopRequest, Error.FAILEDEXECUTION);
+            return;
+        }
+
+        List<ActoPromise<Done>> restorePromises = new ArrayList<>();
+        if (!checkpoint.finished) {
+            for (int i = 0; i < engines.size(); i++) {
+                restorePromises.add(promiseFuture(
+                        engines.get(i),
+                        new RestoreCheckpoint(checkpoint.islands.get(i)),
+                        Done.class
+                ));
+            }
+        }
+        if (reporter != null) {
+            restorePromises.add(promiseFuture(
+                    reporter,
+                    new ResumeRun(checkpoint.generation, checkpoint.fitnessFunctionCalls),
+                    Done.class
+            ));
+        }
+
+        Runnable resumed = () -> {
+            generationCount = checkpoint.generation;
+            bestValidatedIndividualFitness = checkpoint.bestValidatedIndividualFitness;
+            reportedFitnessFunctionCalls = checkpoint.fitnessFunctionCalls;
+            generationsSinceMigration = checkpoint.generationsSinceMigration;
+            lastImprovementGeneration = checkpoint.lastImprovementGeneration;
+            random.restoreState(checkpoint.randomState);
+
+            if (checkpoint.finished) {
+                terminateTraining(loopRequest, checkpoint.stagnated);
+            } else {
+                trainIslands(loopRequest);
+            }
+        };
+        if (restorePromises.isEmpty()) {
+            resumed.run();
+            return;
+        }
+        ActoPromises.all(restorePromises).then((__) -> {
+            resumed.run();
+        }).onError((err) -> {
+            send(loopRequest, err);
+        }).compel();
+    }
+
+    /**
+     * Starts the asynchronous loop: each island evolves on its own and pushes
+     * its emigrants to its neighbours, while this controller only aggregates
+     * the progress of the islands and handles the termination.
+     *
+     * @param loopRequest the message of the request that initiated the loop
+     */
+    private void startAsyncIslands(Message loopRequest) {
+        asyncLoopRequest = loopRequest;
+        islandGenerations.clear();
+        finishedIslands.clear();
+
+        Set<Reference> references = getControlledEngines().getReferences();
+        Map<Reference, List<Reference>> neighbours =
+                settings.numIslands >= 2 && settings.migrationRate > 0 ?
+                        migrationSystem.getNeighbours(references) :
+                        Map.of();
+
+        for (Reference engineRef : references) {
+            islandGenerations.put(engineRef, 0);
+            send(engineRef, new StartAsyncEvolution(
+                    neighbours.getOrDefault(engineRef, List.of())
+            ));
+        }
+    }
+
+    private void onIslandProgress(Reference engineRef, IslandProgress progress) {
+        if (asyncLoopRequest == null) {
+            return;
+        }
+
+        islandGenerations.put(engineRef, progress.generation);
+        if (progress.finished) {
+            finishedIslands.add(engineRef);
+        }
+        if (progress.bestEvaluation != null
+                && progress.bestEvaluation.evaluationFitness > bestValidatedIndividualFitness) {
+            bestValidatedIndividualFitness = progress.bestEvaluation.evaluationFitness;
+            lastImprovementGeneration = progress.generation;
+        }
+
+        if (!evaluatingAsync) {
+            evaluateAsyncIslands();
+        }
+    }
+
+    /**
+     * Evaluates all the islands on the test set when the slowest island
+     * completes a generation, so that the histories sent to the reporter
+     * stay aligned; terminates the loop if the target fitness has been
+     * reached, the islands have stagnated or all the islands have finished.
+     */
+    private void evaluateAsyncIslands() {
+        int slowestGeneration = Collections.min(islandGenerations.values());
+        boolean stagnated = bestValidatedIndividualFitness < settings.targetFitness
+                && isStagnated(slowestGeneration);
+        boolean terminating = bestValidatedIndividualFitness >= settings.targetFitness
+                || stagnated
+                || finishedIslands.size() == islandGenerations.size();
+
+        if (slowestGeneration <= generationCount && !terminating) {
+            return;
+        }
+
+        evaluatingAsync = true;
+        generationCount = slowestGeneration;
+
+        ActoPromises.all(getControlledEngines().getReferences().stream()
+                .map((engineRef) ->
+                        evaluateEngine(new TestEnvironmentData(testEnv), engineRef)
+                                .map(outcome -> Pair.pair(engineRef, outcome))
+                )
+                .collect(Collectors.toList())
+        ).then(outcomePairs -> {
+            Map<Reference, Evaluation> evaluations = new HashMap<>();
+            Map<Reference, String> groups = new HashMap<>();
+            for (Pair<Reference, EvaluationOutcome> pair : outcomePairs) {
+                groups.put(pair.get1(), settings.islandGroupName);
+                if (pair.get2() instanceof EvaluationDone) {
+                    EvaluationDone<?> evaluationDone = (EvaluationDone<?>) pair.get2();
+
+                    evaluations.put(pair.get1(), (Evaluation) evaluationDone.getEvaluationData());
+                }
+            }
+
+            if (reporter != null) {
+                send(reporter, new ReportEvaluations(evaluations, groups));
+            }
+
+            evaluatingAsync = false;
+            if (terminating) {
+                stopAsyncIslands(stagnated);
+            } else {
+                // some islands may have progressed in the meantime
+                evaluateAsyncIslands();
+            }
+        }).onError((err) -> {
+            send(asyncLoopRequest, err);
+            asyncLoopRequest = null;
+        }).compel();
+    }
+
+    /**
+     * Stops all the islands evolving asynchronously and terminates the loop.
+     *
+     * @param stagnated true if the loop is terminated because the islands
+     *                  have stagnated
+     */
+    private void stopAsyncIslands(boolean stagnated) {
+        Message loopRequest = asyncLoopRequest;
+        asyncLoopRequest = null;
+
+        ActoPromises.all(getControlledEngines().getReferences().stream()
+                .map((engineRef) -> promiseFuture(
+                        engineRef,
+                        StopEvolution.INSTANCE,
+                        Done.class
+                ))
+                .collect(Collectors.toList())
+        ).then((__) -> {
+            terminateTraining(loopRequest, stagnated);
+        }).onError((err) -> {
+            send(loopRequest, err);
+        }).compel();
+    }
 }
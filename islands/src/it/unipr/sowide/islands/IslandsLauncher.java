@@ -0,0 +1,134 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Launches a simulation whose islands are placed on several nodes (see
+ * {@link IslandsSimulationSettings#workers}) on this host, e.g. for testing:
+ * it starts the node of the master, then, when the master accepts
+ * connections, a JVM for each worker node, with the same class path. The
+ * workers are stopped when the master terminates.
+ * <p>
+ * Usage: {@code IslandsLauncher <master class> <master arguments>}, where the
+ * arguments must include {@code -config}.
+ */
+public final class IslandsLauncher {
+    // maximum time waited for the master to accept connections
+    private static final long BROKER_TIMEOUT = 30_000;
+
+    private IslandsLauncher() {
+    } // do not instantiate
+
+    public static void main(String[] argv) throws IOException, InterruptedException {
+        if (argv.length < 1) {
+            System.out.println("Usage: IslandsLauncher <master class> <master arguments>");
+            System.exit(1);
+        }
+        List<String> masterArguments = Arrays.asList(argv).subList(1, argv.length);
+        if (configFile(masterArguments) == null) {
+            System.out.println("Missing -config <config-file>");
+            System.exit(1);
+        }
+        System.exit(launch(argv[0], masterArguments, null));
+    }
+
+    /**
+     * @param masterArguments the arguments of the master
+     * @return the configuration file in the arguments, or null if missing
+     */
+    static File configFile(List<String> masterArguments) {
+        int configIndex = masterArguments.indexOf("-config");
+        if (configIndex < 0 || configIndex + 1 >= masterArguments.size()) {
+            return null;
+        }
+        return new File(masterArguments.get(configIndex + 1));
+    }
+
+    /**
+     * Starts the node of the master and its worker nodes, and waits for the
+     * master to terminate.
+     *
+     * @param masterClass     the class of the master
+     * @param masterArguments the arguments of the master, including
+     *                        {@code -config}
+     * @param output          the file to which the output of all the nodes
+     *                        is appended, or null to inherit the output of
+     *                        this JVM
+     * @return the exit code of the master
+     */
+    static int launch(String masterClass, List<String> masterArguments, File output)
+            throws IOException, InterruptedException {
+        IslandsSimulationSettings settings = IslandsSimulationSettings.parseFromFile(
+                configFile(masterArguments)
+        );
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(masterClass);
+        command.addAll(masterArguments);
+
+        List<Process> processes = new ArrayList<>();
+        Thread stopNodes = new Thread(() -> processes.forEach(Process::destroy));
+        Runtime.getRuntime().addShutdownHook(stopNodes);
+        try {
+            Process master = start(command, output);
+            processes.add(master);
+
+            if (settings.workers > 0) {
+                awaitBroker(master, settings.brokerHost, settings.brokerPort);
+                command.add("-worker");
+                for (int i = 0; i < settings.workers; i++) {
+                    processes.add(start(command, output));
+                }
+            }
+
+            return master.waitFor();
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+            for (Process process : processes) {
+                process.waitFor();
+            }
+            Runtime.getRuntime().removeShutdownHook(stopNodes);
+        }
+    }
+
+    private static Process start(List<String> command, File output) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (output == null) {
+            return builder.inheritIO().start();
+        }
+        return builder.redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(output))
+                .start();
+    }
+
+    /**
+     * Waits until the master accepts connections on its port.
+     */
+    private static void awaitBroker(Process master, String host, int port)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + BROKER_TIMEOUT;
+        while (master.isAlive() && System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), 1000);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("The master does not accept connections on " + host + ":" + port);
+    }
+}
@@ -1,8 +1,10 @@
 package it.unipr.sowide.islands;
 
 
+import it.unipr.sowide.actodata.core.actodesext.ActoDataCaseFactory;
 import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromise;
 import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromises;
+import it.unipr.sowide.actodata.core.controller.content.AssignEngine;
 import it.unipr.sowide.actodata.core.initialstructure.ActoDataStructure;
 import it.unipr.sowide.actodata.core.initialstructure.ControllerDescriptor;
 import it.unipr.sowide.actodata.core.master.Master;
@@ -10,16 +12,21 @@ import it.unipr.sowide.actodata.core.master.nodeinterfaces.ControllerInterface;
 import it.unipr.sowide.actodata.core.master.nodeinterfaces.NodeInterface;
 import it.unipr.sowide.actodes.configuration.Configuration;
 import it.unipr.sowide.actodes.controller.SpaceInfo;
+import it.unipr.sowide.actodes.distribution.rmi.RmiConnector;
 import it.unipr.sowide.actodes.executor.active.ThreadCoordinator;
+import it.unipr.sowide.actodes.interaction.Create;
 import it.unipr.sowide.actodes.interaction.Done;
 import it.unipr.sowide.actodes.interaction.Error;
 import it.unipr.sowide.actodes.interaction.Kill;
 import it.unipr.sowide.actodes.registry.Reference;
+import it.unipr.sowide.actodes.service.creation.Creator;
 import it.unipr.sowide.actodes.service.logging.ConsoleWriter;
 import it.unipr.sowide.actodes.service.logging.Logger;
 import it.unipr.sowide.actodes.service.logging.TextualFormatter;
 import it.unipr.sowide.actodes.service.logging.util.NoCycleProcessing;
 import it.unipr.sowide.islands.content.AssignReporter;
+import it.unipr.sowide.islands.content.CheckWorkerNodes;
+import it.unipr.sowide.islands.content.RunResults;
 import it.unipr.sowide.islands.content.StartIslandsLoop;
 import it.unipr.sowide.islands.settings.EnvironmentStartingSplit;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
@@ -28,15 +35,35 @@ import it.unipr.sowide.util.promise.Promise;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /**
  * An initiator/master that creates a controller and set of island-engines for
  * each simulation defined, according to the set of the loaded
  * {@link IslandsSimulationSettings}.
+ * <p>
+ * The islands can be placed on several nodes (JVMs, see
+ * {@link IslandsSimulationSettings#workers}): the node of the master hosts the
+ * controllers, and the worker nodes, started with the same arguments plus
+ * {@code -worker}, host the islands placed on them. The worker nodes connect
+ * to the node of the master, which waits for all of them before starting the
+ * runs, and fails the simulation if they are not connected within
+ * {@link IslandsSimulationSettings#workersTimeout}.
  */
 public abstract class IslandsMaster extends Master {
 
@@ -46,76 +73,336 @@ public abstract class IslandsMaster extends Master {
 
     // if true, the EvaluationsReporter shows a gui with real-time graphs
     protected boolean showGui;
+    // if true, the runs are resumed from their checkpoints
+    protected boolean resume;
+    // if true, this node is a worker node, which only hosts islands
+    protected boolean worker;
     private IslandsSimulationSettings settings;
 
+    /**
+     * the master of this node, which creates the islands placed on it
+     */
+    private static IslandsMaster nodeMaster;
+
+    // the seed of the root random generator of the runs
+    private long rootSeed;
+    // the islands placed on the worker nodes, created at the global start
+    private final List<RemoteIsland> remoteIslands = new ArrayList<>();
+    // on a worker node, the starting split of each run, by index
+    private final Map<Integer, RunSplit> runSplits = new HashMap<>();
+    // the settings of the simulation of each run, by name
+    private final Map<String, IslandsSimulationSettings> runSettings = new HashMap<>();
+    // the results of the completed runs, by name
+    private final Map<String, RunResults> runResults = new TreeMap<>();
+    // the wall-clock time taken by the loop of each completed run, by name
+    private final Map<String, Duration> runDurations = new HashMap<>();
+
+    // interval between two checks of the connected worker nodes, in ms
+    private static final long WORKERS_POLL_INTERVAL = 100;
+    // schedules the checks of the connected worker nodes
+    private final Timer workersTimer = new Timer(true);
+    // the time after which the wait for the worker nodes fails, if any
+    private Instant workersDeadline;
+    // true while the master waits for the worker nodes
+    private boolean awaitingWorkers;
+
     public IslandsMaster(ActoDataStructure structure) {
         super(structure);
     }
 
+    /**
+     * @return the master of this node
+     */
+    static IslandsMaster nodeMaster() {
+        return nodeMaster;
+    }
+
     @Override
     public void onGlobalStart() {
         super.onGlobalStart();
 
-        // keeps the reference for a reporter, which is created.
-        AtomicReference<Reference> reporter = new AtomicReference<>(
-                actor(new EvaluationsReporter(settings, showGui))
+        if (remoteIslands.isEmpty()) {
+            startRuns();
+            return;
+        }
+
+        awaitWorkerNodes();
+    }
+
+    @Override
+    public void masterCases(ActoDataCaseFactory c) {
+        super.masterCases(c);
+
+        c.onContentOfType(CheckWorkerNodes.class, (__, message) ->
+                checkWorkerNodes()
         );
+    }
 
-        /*
-         will be filled with the promises; each promise represents the request
-         of the master to a controller to perform the simulation loop;
-         at the end, all the promises are compelled sequentially.
-        */
-        List<Promise<Done, Error>> promises = new ArrayList<>();
+    /**
+     * Starts checking periodically whether all the worker nodes are
+     * connected, without blocking the master.
+     */
+    private void awaitWorkerNodes() {
+        System.out.println("Waiting for " + settings.workers + " workers");
+        workersDeadline = settings.workersTimeout > 0
+                ? Instant.now().plusSeconds(settings.workersTimeout)
+                : null;
+        awaitingWorkers = true;
+        workersTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                send(getReference(), CheckWorkerNodes.INSTANCE);
+            }
+        }, 0, WORKERS_POLL_INTERVAL);
+    }
+
+    /**
+     * Creates the remote islands and starts the runs if all the worker nodes
+     * are connected, or fails the simulation if the wait timed out.
+     */
+    private void checkWorkerNodes() {
+        if (!awaitingWorkers) {
+            // a check scheduled before the end of the wait
+            return;
+        }
+        List<Reference> connected = new ArrayList<>(SpaceInfo.INFO.getProviders());
+        if (connected.size() >= settings.workers) {
+            awaitingWorkers = false;
+            workersTimer.cancel();
+
+            // the i-th worker node, by address, is the node i + 1 of the placement
+            connected.sort(Comparator.comparing(Reference::toString));
+            List<Reference> workerNodes = connected.subList(0, settings.workers);
+            ActoPromises.all(remoteIslands.stream()
+                    .map(island -> createRemoteIsland(island, workerNodes))
+                    .collect(Collectors.toList())
+            ).then((__) -> startRuns()).compel();
+        } else if (workersDeadline != null && Instant.now().isAfter(workersDeadline)) {
+            awaitingWorkers = false;
+            workersTimer.cancel();
+
+            List<Integer> missing = new ArrayList<>();
+            for (int node = connected.size() + 1; node <= settings.workers; node++) {
+                missing.add(node);
+            }
+            System.out.println("Timed out after " + settings.workersTimeout
+                    + " s waiting for the workers on "
+                    + settings.brokerHost + ":" + settings.brokerPort
+                    + ": connected " + connected + ", missing the worker nodes "
+                    + missing + " of " + settings.workers);
+            System.exit(1);
+        }
+    }
 
-        var i = 0;
+    /**
+     * Creates an island on its worker node, and assigns it to the controller
+     * of its run.
+     */
+    private Promise<Done, Error> createRemoteIsland(
+            RemoteIsland island,
+            List<Reference> workerNodes
+    ) {
+        Reference controller = getControllerByName(island.runName)
+                .orElseThrow()
+                .getReference();
+        return promiseFuture(
+                workerNodes.get(island.node - 1),
+                new Create(new IslandEngineLoader(rootSeed, island.run, island.index)),
+                Reference.class
+        ).thenAwait((engine) -> promiseFuture(
+                controller,
+                new AssignEngine(engine),
+                Done.class
+        ));
+    }
 
+    private void startRuns() {
         List<ControllerInterface> controllers =
                 new ArrayList<>(getControllers());
 
+        sortRuns(controllers);
+
+        /*
+         the runs are distributed round-robin between runParallelism lanes;
+         the runs of a lane are performed in sequence, while the lanes are
+         performed in parallel.
+        */
+        int parallelism = Math.max(
+                1,
+                Math.min(settings.runParallelism, controllers.size())
+        );
+        List<List<Promise<Done, Error>>> lanes = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < controllers.size(); i++) {
+            lanes.get(i % parallelism).add(runPromise(controllers.get(i)));
+        }
+
+        // executes the lanes, in parallel, then aggregates the results
+        ActoPromises.all(lanes.stream()
+                .map(ActoPromises::sequentially)
+                .collect(Collectors.toList())
+        ).then((__) -> {
+            // one summary for each simulation, in the order of their names
+            Map<IslandsSimulationSettings, List<String>> bySimulation = new LinkedHashMap<>();
+            runResults.keySet().forEach((runName) -> bySimulation
+                    .computeIfAbsent(runSettings.get(runName), (___) -> new ArrayList<>())
+                    .add(runName)
+            );
+            bySimulation.forEach(this::saveSummary);
+            onAllRunsCompleted();
+            System.exit(0);
+        }).compel();
+    }
+
+    /**
+     * Sorts the controllers in the order in which their runs are started;
+     * by default, by name.
+     *
+     * @param controllers the controllers of the runs
+     */
+    protected void sortRuns(List<ControllerInterface> controllers) {
         // controllers (and therefore simulations) are sorted by their name
         controllers.sort(Comparator.comparing(NodeInterface::getName));
+    }
 
-        // builds a promise for each controller
-        for (ControllerInterface controller : controllers) {
-            int finalI = i;
-            promises.add(
-                    new ActoPromise<Done>((rs, rj) -> rs.resolve(Done.DONE)
-                    ).thenAwait((__) -> {
-                        // tells the controller to use its dedicated reporter
-                        return promiseFuture(
-                                controller.getReference(),
-                                new AssignReporter(reporter.get()),
-                                Done.class
-                        );
-                        //then awaits for Done.DONE...
-                    }).thenAwait((__) -> {
-                        // then asks the controller to start the loop
-                        return promiseFuture(
-                                controller.getReference(),
-                                StartIslandsLoop.INSTANCE,
-                                Done.class
-                        );
-                        //then awaits for Done.DONE...
-                    }).then((__) -> {
-                        //then, if we are not talking with the last controller
-                        if (finalI < controllers.size() - 1) {
-                            // asks the reporter to kill himself
-                            send(reporter.get(), Kill.KILL);
-                            // creates a new reporter for the next controller
-                            reporter.set(
-                                    actor(new EvaluationsReporter(settings, showGui))
-                            );
-                        }
-                    })
-            );
-            i++;
+    /**
+     * Writes the aggregate results of the runs of a simulation to
+     * {@code [simulationName]_summary.txt}, and to the standard output.
+     * <p>
+     * Besides the successes, the summary reports the throughput of the
+     * runs: the generations performed by all their islands, divided by the
+     * wall-clock time of their loops, which does not include the start of
+     * the nodes and the creation of the islands.
+     *
+     * @param settings the settings of the simulation
+     * @param runNames the names of its runs
+     */
+    private void saveSummary(
+            IslandsSimulationSettings settings,
+            List<String> runNames
+    ) {
+        int successes = 0;
+        int stagnations = 0;
+        long totalGenerations = 0;
+        long totalFitnessFunctionCalls = 0;
+        long islandGenerations = 0;
+        Duration loopsTime = Duration.ZERO;
+        for (String runName : runNames) {
+            RunResults results = runResults.get(runName);
+            islandGenerations += (long) results.generations * settings.numIslands;
+            loopsTime = loopsTime.plus(runDurations.get(runName));
+            // a run terminated early because it stagnated is not a success
+            if (results.stagnated) {
+                stagnations++;
+            } else if (results.isSuccess(settings.maxGenerations)) {
+                successes++;
+                totalGenerations += results.generations;
+                totalFitnessFunctionCalls += results.fitnessFunctionCalls;
+            }
         }
 
-        // executes all the promises, in sequence (not in parallel!)
-        ActoPromises.sequentially(promises)
-//                .then((__) -> actorLog("ALL RUNS COMPLETED!"))
-                .compel();
+        DecimalFormat percentageFormatter = new DecimalFormat("##.###%");
+        DecimalFormat doubleFormatter = new DecimalFormat("#0.000");
+        int runs = runNames.size();
+        List<String> lines = new ArrayList<>();
+        lines.add("Simulation: " + settings.simulationName);
+        lines.add("Runs: " + runs);
+        lines.add("Successes: " + percentageFormatter.format(successes / (double) runs));
+        if (settings.stagnationWindow > 0) {
+            lines.add("Stagnated: " + percentageFormatter.format(stagnations / (double) runs));
+        }
+        if (successes != 0) {
+            double genAverage = totalGenerations / (double) successes;
+            double fitnessFunctionCallsAverage = totalFitnessFunctionCalls / (double) successes;
+            lines.add("Succeses Average Generations : " + doubleFormatter.format(genAverage));
+            lines.add("Succeses Average Fitness Function Calls: " + doubleFormatter.format(fitnessFunctionCallsAverage));
+        }
+        lines.add("Island Generations: " + islandGenerations);
+        lines.add("Loops Time (s): " + doubleFormatter.format(loopsTime.toMillis() / 1000.0));
+        if (loopsTime.toMillis() > 0) {
+            lines.add("Island Generations Per Second: " + doubleFormatter.format(
+                    islandGenerations * 1000.0 / loopsTime.toMillis()
+            ));
+        }
+
+        lines.forEach(System.out::println);
+        try {
+            Files.write(Path.of(settings.simulationName + "_summary.txt"), lines);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builds the promise of the request to a controller to perform its
+     * simulation loop, using a dedicated reporter that is killed when the
+     * loop is completed.
+     *
+     * @param controller the controller
+     * @return the promise
+     */
+    private Promise<Done, Error> runPromise(ControllerInterface controller) {
+        // keeps the reference for the reporter of this run
+        AtomicReference<Reference> reporter = new AtomicReference<>();
+        AtomicReference<Instant> runStart = new AtomicReference<>();
+
+        return new ActoPromise<Done>((rs, rj) -> rs.resolve(Done.DONE)
+        ).thenAwait((__) -> {
+            // creates the reporter when the run actually starts
+            reporter.set(actor(new EvaluationsReporter(
+                    settings,
+                    showGui,
+                    controller.getName() + "_evaluations"
+            )));
+
+            // tells the controller to use its dedicated reporter
+            return promiseFuture(
+                    controller.getReference(),
+                    new AssignReporter(reporter.get()),
+                    Done.class
+            );
+            //then awaits for Done.DONE...
+        }).thenAwait((__) -> {
+            // then asks the controller to start the loop
+            runStart.set(Instant.now());
+            return promiseFuture(
+                    controller.getReference(),
+                    StartIslandsLoop.INSTANCE,
+                    RunResults.class
+            );
+            //then awaits for the results of the run...
+        }).map((results) -> {
+            Duration elapsed = Duration.between(runStart.get(), Instant.now());
+            runResults.put(controller.getName(), results);
+            runDurations.put(controller.getName(), elapsed);
+            onRunCompleted(controller, elapsed);
+            // asks the reporter to kill himself
+            send(reporter.get(), Kill.KILL);
+            return Done.DONE;
+        });
+    }
+
+    /**
+     * Called when all the runs are completed and their summaries saved,
+     * right before the application exits.
+     */
+    protected void onAllRunsCompleted() {
+        // override if needed
+    }
+
+    /**
+     * Called when a controller completed its simulation loop.
+     *
+     * @param controller the controller
+     * @param elapsed    the wall-clock time taken by the loop
+     */
+    protected void onRunCompleted(
+            ControllerInterface controller,
+            Duration elapsed
+    ) {
+        // override if needed
     }
 
     /**
@@ -126,7 +413,14 @@ public abstract class IslandsMaster extends Master {
      * <li>testset-file: the test set;
      * </ul>
      * <p>
-     * Optionally, use "-gui" as first option to activate the reporters' gui.
+     * Optionally, use "-gui" as first option to activate the reporters' gui,
+     * and "-resume" to resume the runs from their checkpoints (see
+     * {@link IslandsSimulationSettings#checkpointInterval}): the completed
+     * runs are not executed again, and the runs without a checkpoint start
+     * from the beginning; it is rejected if the runs are
+     * {@link IslandsSimulationSettings#asynchronous}. The worker nodes (see
+     * {@link IslandsSimulationSettings#workers}) are started with the same
+     * arguments plus "-worker".
      */
     protected abstract String usageString();
 
@@ -142,12 +436,26 @@ public abstract class IslandsMaster extends Master {
         for (int i = 0; i < argv.length; i++) {
             switch (argv[i]) {
                 case "-gui" -> showGui = true;
+                case "-resume" -> resume = true;
+                case "-worker" -> worker = true;
                 case "-config" -> {
                     if (++i >= argv.length) unexpectedArguments();
-                    settings = IslandsSimulationSettings.parseFromFile(new File(argv[i]));
+                    try {
+                        settings = IslandsSimulationSettings.parseFromFile(new File(argv[i]));
+                    } catch (IllegalArgumentException e) {
+                        // the settings are not valid: nothing can be started
+                        System.out.println("Invalid settings in " + argv[i] + ": " + e.getMessage());
+                        System.exit(1);
+                    }
                 }
             }
         }
+        // only the synchronous loop is checkpointed, so it alone can be resumed
+        if (resume && settings != null && settings.asynchronous) {
+            System.out.println("-resume cannot be used with asynchronous=true:"
+                    + " the asynchronous runs have no checkpoints.");
+            System.exit(1);
+        }
     }
 
     /**
@@ -161,16 +469,35 @@ public abstract class IslandsMaster extends Master {
 
         parseFileArgs(argv);
 
-        createRuns(getStructure(), settings);
+        nodeMaster = this;
 
         Configuration configuration = SpaceInfo.INFO.getConfiguration();
         configuration.setFilter(Logger.ACTORCREATION | Logger.ACTORSHUTDOWN);
         configuration.setLogFilter(new NoCycleProcessing());
         configuration.addWriter(new ConsoleWriter(new TextualFormatter()));
-        configuration.setExecutor(new ThreadCoordinator(this));
+
+        if (worker) {
+            // the islands are created on request of the node of the master
+            configuration.setConnector(new RmiConnector(settings.brokerHost, settings.brokerPort));
+            configuration.addService(new Creator());
+            configuration.setExecutor(new ThreadCoordinator());
+        } else {
+            /*
+             the seed is shared with the worker nodes, which derive from it the
+             same starting split and random generators of the master
+            */
+            rootSeed = settings.seed != null ?
+                    settings.seed :
+                    new RandomUtils().nextLong();
+            createRuns(getStructure(), settings);
+            if (settings.workers > 0) {
+                configuration.setConnector(new RmiConnector(settings.brokerPort));
+            }
+            configuration.setExecutor(new ThreadCoordinator(this));
+        }
 
         configuration.start();
-        System.out.println("Started");
+        System.out.println(worker ? "Worker started" : "Started");
     }
 
     protected abstract IslandEngine generateIslandEngine(
@@ -180,42 +507,144 @@ public abstract class IslandsMaster extends Master {
             RandomUtils random
     );
 
+    /**
+     * Creates the controllers and the islands of the runs of a simulation,
+     * named {@code [simulationName]_RUN[i]}. It can be called more than once,
+     * with different simulations: the random generators of the runs derive
+     * from the same root seed, so the {@code i}-th runs of all the
+     * simulations start from the same split.
+     *
+     * @param actoDataStructure the structure of the application
+     * @param settings          the settings of the simulation
+     */
     protected void createRuns(
             ActoDataStructure actoDataStructure,
             IslandsSimulationSettings settings
     ) {
-        RandomUtils random = new RandomUtils();
+        RandomUtils rootRandom = new RandomUtils(rootSeed);
 
         for (int i = 1; i <= settings.numberOfRuns; i++) {
             String runName = settings.simulationName + "_RUN" + i;
+            runSettings.put(runName, settings);
+
+            /*
+             each run has its own random generator, so that concurrent runs
+             do not interfere with the sequence of each other
+            */
+            RandomUtils random = rootRandom.childRandom(i);
             ControllerDescriptor groupController = actoDataStructure.controllerNode(runName, () -> {
                 return new IslandsController(
                         settings,
                         testEnv,
-                        random
+                        random,
+                        runName,
+                        resume
                 );
             });
 
-            List<IslandEnvironment> trainEnvironments;
-            switch (settings.startingSplit) {
-                case RANDOM -> trainEnvironments = trainEnv.startingSplitRandom(settings.numIslands, random);
-                case CONTIGUOUS -> trainEnvironments = trainEnv.startingSplitContiguous(settings.numIslands);
-                case ROUNDROBIN -> trainEnvironments = trainEnv.startingSplitRoundRobin(settings.numIslands);
-                default -> trainEnvironments = new ArrayList<>();
-            }
+            List<IslandEnvironment> trainEnvironments = startingSplit(random);
 
             for (int j = 0; j < settings.numIslands; j++) {
+                int node = settings.nodeOf(j);
+                if (node != 0) {
+                    remoteIslands.add(new RemoteIsland(runName, i, j, node));
+                    continue;
+                }
+
                 int finalJ = j;
+                /*
+                 the generator of each island is split here, since the
+                 engines can be created in any order
+                */
+                RandomUtils islandRandom = random.childRandom(j);
                 groupController.linkEngine(
-                        actoDataStructure.engineNode(() -> generateIslandEngine(
-                                        settings.startingSplit == EnvironmentStartingSplit.NONE ? trainEnv : trainEnvironments.get(finalJ),
-                                        validationEnv,
-                                        settings,
-                                        random.childRandom()
-                                )
+                        actoDataStructure.engineNode(() ->
+                                createIslandEngine(trainEnvironments, finalJ, islandRandom)
                         )
                 );
             }
         }
     }
+
+    /**
+     * Creates, on a worker node, an island of a run defined by the master.
+     *
+     * @param rootSeed the seed of the root random generator of the master
+     * @param run      the index of the run, starting from 1
+     * @param island   the index of the island in the run
+     * @return the engine of the island
+     */
+    synchronized IslandEngine createIslandEngine(long rootSeed, int run, int island) {
+        RunSplit split = runSplits.computeIfAbsent(run, (__) -> {
+            RandomUtils random = new RandomUtils(rootSeed).childRandom(run);
+            return new RunSplit(random, startingSplit(random));
+        });
+        return createIslandEngine(
+                split.trainEnvironments,
+                island,
+                split.random.childRandom(island)
+        );
+    }
+
+    private IslandEngine createIslandEngine(
+            List<IslandEnvironment> trainEnvironments,
+            int island,
+            RandomUtils islandRandom
+    ) {
+        return generateIslandEngine(
+                settings.startingSplit == EnvironmentStartingSplit.NONE ?
+                        trainEnv.copyEnvironment() :
+                        trainEnvironments.get(island),
+                validationEnv,
+                settings,
+                islandRandom
+        );
+    }
+
+    /**
+     * Splits the training environment between the islands of a run.
+     *
+     * @param random the random generator of the run
+     * @return the training environment of each island, or an empty list if
+     * the islands start with all the instances
+     */
+    private List<IslandEnvironment> startingSplit(RandomUtils random) {
+        return switch (settings.startingSplit) {
+            case RANDOM -> trainEnv.startingSplitRandom(settings.numIslands, random);
+            case CONTIGUOUS -> trainEnv.startingSplitContiguous(settings.numIslands);
+            case ROUNDROBIN -> trainEnv.startingSplitRoundRobin(settings.numIslands);
+            default -> new ArrayList<>();
+        };
+    }
+
+    /**
+     * An island placed on a worker node.
+     */
+    private static final class RemoteIsland {
+        final String runName;
+        final int run;
+        final int index;
+        final int node;
+
+        RemoteIsland(String runName, int run, int index, int node) {
+            this.runName = runName;
+            this.run = run;
+            this.index = index;
+            this.node = node;
+        }
+    }
+
+    /**
+     * The starting split of a run, and the random generator of the run after
+     * the split, from which the generators of the islands are derived.
+     */
+    private static final class RunSplit {
+        final RandomUtils random;
+        final List<IslandEnvironment> trainEnvironments;
+
+        RunSplit(RandomUtils random, List<IslandEnvironment> trainEnvironments) {
+            this.random = random;
+            this.trainEnvironments = trainEnvironments;
+        }
+    }
 }
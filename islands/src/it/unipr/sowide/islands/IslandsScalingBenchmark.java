@@ -0,0 +1,132 @@
+package it.unipr.sowide.islands;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Measures how the throughput of a simulation scales with the number of
+ * nodes: the simulation is launched (see {@link IslandsLauncher}) once for
+ * each number of worker nodes, with the islands placed round-robin on them,
+ * and the island generations per second of its runs (see the summary written
+ * by {@link IslandsMaster}) are reported against the number of workers. 0
+ * workers means that the whole simulation runs in the JVM of the master.
+ * <p>
+ * The simulation of {@code N} workers is named
+ * {@code [simulationName]_NODES[N]}, and the output of its nodes is written
+ * to {@code [simulationName]_NODES[N].log}. The throughput is measured on the
+ * loops of the runs, so it does not include the start of the JVMs; the runs
+ * should not be concurrent ({@code runParallelism=1}), and each worker node
+ * should have its own cores.
+ * <p>
+ * Usage: {@code IslandsScalingBenchmark [-nodes 0,1,2,4] <master class>
+ * <master arguments>}, where the arguments of the master must include
+ * {@code -config}.
+ */
+public final class IslandsScalingBenchmark {
+    private static final String THROUGHPUT = "Island Generations Per Second: ";
+
+    private IslandsScalingBenchmark() {
+    } // do not instantiate
+
+    public static void main(String[] argv) throws IOException, InterruptedException {
+        int first = 0;
+        int[] workers = {0, 1, 2, 4};
+        if (argv.length >= 2 && "-nodes".equals(argv[0])) {
+            workers = Arrays.stream(argv[1].split(","))
+                    .mapToInt(nodes -> Integer.parseInt(nodes.trim()))
+                    .toArray();
+            first = 2;
+        }
+        if (argv.length <= first) {
+            System.out.println("Usage: IslandsScalingBenchmark [-nodes 0,1,2,4] <master class> <master arguments>");
+            System.exit(1);
+        }
+        String masterClass = argv[first];
+        List<String> masterArguments = Arrays.asList(argv).subList(first + 1, argv.length);
+        File configFile = IslandsLauncher.configFile(masterArguments);
+        if (configFile == null) {
+            System.out.println("Missing -config <config-file>");
+            System.exit(1);
+        }
+        Properties properties = new Properties();
+        try (BufferedReader reader = new BufferedReader(new FileReader(configFile))) {
+            properties.load(reader);
+        }
+        String simulationName = properties.getProperty("simulationName");
+
+        List<Double> throughputs = new ArrayList<>();
+        for (int nodes : workers) {
+            String name = simulationName + "_NODES" + nodes;
+            properties.setProperty("simulationName", name);
+            properties.setProperty("workers", Integer.toString(nodes));
+            properties.remove("placement");
+
+            File nodesConfig = File.createTempFile(name, ".properties");
+            nodesConfig.deleteOnExit();
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(nodesConfig))) {
+                properties.store(writer, "workers=" + nodes);
+            }
+            List<String> nodesArguments = new ArrayList<>(masterArguments);
+            nodesArguments.set(nodesArguments.indexOf("-config") + 1, nodesConfig.getPath());
+
+            System.out.println("Running " + name);
+            int exitCode = IslandsLauncher.launch(
+                    masterClass,
+                    nodesArguments,
+                    new File(name + ".log")
+            );
+            if (exitCode != 0) {
+                System.out.println(name + " failed with exit code " + exitCode + ", see " + name + ".log");
+                System.exit(1);
+            }
+            double throughput = readThroughput(Path.of(name + "_summary.txt"));
+            throughputs.add(throughput);
+            System.out.println(String.format("%s: %.1f island generations/s", name, throughput));
+        }
+
+        System.out.println(simulationName);
+        System.out.println(String.format("%8s %8s %16s %8s", "workers", "JVMs", "generations/s", "speedup"));
+        for (int i = 0; i < workers.length; i++) {
+            System.out.println(String.format(
+                    "%8d %8d %16.1f %8.2f",
+                    workers[i],
+                    workers[i] + 1,
+                    throughputs.get(i),
+                    throughputs.get(i) / throughputs.get(0)
+            ));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Reads the island generations per second from the summary of a
+     * simulation.
+     */
+    private static double readThroughput(Path summary) throws IOException {
+        for (String line : Files.readAllLines(summary)) {
+            if (line.startsWith(THROUGHPUT)) {
+                try {
+                    // written by IslandsMaster with the same format
+                    return new DecimalFormat("#0.000")
+                            .parse(line.substring(THROUGHPUT.length()))
+                            .doubleValue();
+                } catch (ParseException e) {
+                    throw new IOException("Invalid throughput in " + summary, e);
+                }
+            }
+        }
+        throw new IOException("Missing throughput in " + summary);
+    }
+}
@@ -0,0 +1,133 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.util.BinaryCodec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state of a run saved by an {@link IslandsController}: the counters of
+ * the controller, the state of its random generator and the states of its
+ * islands, as encoded by the islands themselves, in the order of their
+ * names.
+ * <p>
+ * The format is a header ({@link #MAGIC}, {@link #VERSION}) followed by: a
+ * byte that is 1 if the run was completed, a byte that is 1 if it was
+ * terminated because it stagnated, the number of generations (int), the best
+ * fitness on the validation set (double), the calls of the fitness function
+ * at the last report (int), the generations since the last migration (int),
+ * the generation of the last improvement (int), the state of the random
+ * generator and the number of islands, then the state of each island. The states are
+ * written as an int length followed by the bytes.
+ */
+final class RunCheckpoint {
+    static final int MAGIC = 0x49534350;
+    static final int VERSION = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    final boolean finished;
+    final boolean stagnated;
+    final int generation;
+    final double bestValidatedIndividualFitness;
+    final int fitnessFunctionCalls;
+    final int generationsSinceMigration;
+    final int lastImprovementGeneration;
+    final byte[] randomState;
+    final List<byte[]> islands;
+
+    RunCheckpoint(
+            boolean finished,
+            boolean stagnated,
+            int generation,
+            double bestValidatedIndividualFitness,
+            int fitnessFunctionCalls,
+            int generationsSinceMigration,
+            int lastImprovementGeneration,
+            byte[] randomState,
+            List<byte[]> islands
+    ) {
+        this.finished = finished;
+        this.stagnated = stagnated;
+        this.generation = generation;
+        this.bestValidatedIndividualFitness = bestValidatedIndividualFitness;
+        this.fitnessFunctionCalls = fitnessFunctionCalls;
+        this.generationsSinceMigration = generationsSinceMigration;
+        this.lastImprovementGeneration = lastImprovementGeneration;
+        this.randomState = randomState;
+        this.islands = islands;
+    }
+
+    /**
+     * @return the encoded checkpoint
+     */
+    byte[] toBytes() {
+        return BinaryCodec.toByteArray(out -> {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.put((byte) (finished ? 1 : 0));
+            out.put((byte) (stagnated ? 1 : 0));
+            out.putInt(generation);
+            out.putDouble(bestValidatedIndividualFitness);
+            out.putInt(fitnessFunctionCalls);
+            out.putInt(generationsSinceMigration);
+            out.putInt(lastImprovementGeneration);
+            BinaryCodec.putBytes(out, randomState);
+            out.putInt(islands.size());
+            for (byte[] island : islands) {
+                BinaryCodec.putBytes(out, island);
+            }
+        }, BUFFER_SIZE);
+    }
+
+    /**
+     * Reads a checkpoint from a file.
+     *
+     * @param path the path of the file
+     * @return the checkpoint, or null if the file does not exist
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     checkpoint
+     */
+    static RunCheckpoint read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a checkpoint of version " + VERSION + ": " + path);
+            }
+            boolean finished = in.get() != 0;
+            boolean stagnated = in.get() != 0;
+            int generation = in.getInt();
+            double bestValidatedIndividualFitness = in.getDouble();
+            int fitnessFunctionCalls = in.getInt();
+            int generationsSinceMigration = in.getInt();
+            int lastImprovementGeneration = in.getInt();
+            byte[] randomState = BinaryCodec.getBytes(in);
+            int islandsNumber = in.getInt();
+            List<byte[]> islands = new ArrayList<>(islandsNumber);
+            for (int i = 0; i < islandsNumber; i++) {
+                islands.add(BinaryCodec.getBytes(in));
+            }
+            return new RunCheckpoint(
+                    finished,
+                    stagnated,
+                    generation,
+                    bestValidatedIndividualFitness,
+                    fitnessFunctionCalls,
+                    generationsSinceMigration,
+                    lastImprovementGeneration,
+                    randomState,
+                    islands
+            );
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated checkpoint: " + path, e);
+        }
+    }
+}
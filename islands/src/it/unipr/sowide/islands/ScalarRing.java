@@ -0,0 +1,52 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.util.Require;
+
+/**
+ * A fixed-capacity history of double values: when it is full, adding a
+ * value overwrites the oldest one.
+ */
+class ScalarRing {
+    private final double[] values;
+    private int start = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity how many values are kept
+     */
+    ScalarRing(int capacity) {
+        Require.strictlyPositive(capacity, "capacity");
+        values = new double[capacity];
+    }
+
+    void add(double value) {
+        if (size < values.length) {
+            values[(start + size++) % values.length] = value;
+        } else {
+            values[start] = value;
+            start = (start + 1) % values.length;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the last added value, NaN if the history is empty
+     */
+    double last() {
+        return size == 0 ? Double.NaN : values[(start + size - 1) % values.length];
+    }
+
+    /**
+     * @return the values, the oldest first
+     */
+    double[] toArray() {
+        double[] result = new double[size];
+        int firstPart = Math.min(size, values.length - start);
+        System.arraycopy(values, start, result, 0, firstPart);
+        System.arraycopy(values, 0, result, firstPart, size - firstPart);
+        return result;
+    }
+}
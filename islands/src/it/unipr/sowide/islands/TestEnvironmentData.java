@@ -0,0 +1,36 @@
+package it.unipr.sowide.islands;
+
+import it.unipr.sowide.actodata.core.actodesext.ActoDataBaseBehavior;
+import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromise;
+import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromises;
+import it.unipr.sowide.actodata.core.dataflow.Data;
+
+/**
+ * The test environment sent by a controller to its islands to evaluate them.
+ * <p>
+ * In the node of the controller, the message carries the environment itself;
+ * the environment is not serialized, so an island placed on a worker node
+ * (see {@link it.unipr.sowide.islands.settings.IslandsSimulationSettings#workers})
+ * uses the test environment of its own node, which loads the same datasets.
+ */
+class TestEnvironmentData implements Data<IslandEnvironment> {
+    private final transient IslandEnvironment environment;
+
+    TestEnvironmentData(IslandEnvironment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public ActoPromise<IslandEnvironment> getData(ActoDataBaseBehavior behavior) {
+        return ActoPromises.immediatelyResolve(
+                environment != null ? environment : IslandsMaster.nodeMaster().testEnv
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "TestEnvironmentData{" +
+                "environment=" + environment +
+                '}';
+    }
+}
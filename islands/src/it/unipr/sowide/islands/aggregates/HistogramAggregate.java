@@ -0,0 +1,104 @@
+package it.unipr.sowide.islands.aggregates;
+
+import it.unipr.sowide.islands.IslandEnvironment.Instance;
+import it.unipr.sowide.util.Require;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A histogram of a value of the instances, with bins of the same width in
+ * a fixed range. The values below the range are counted in the first bin,
+ * the values above (or equal to the upper bound) in the last one.
+ */
+public class HistogramAggregate implements InstanceAggregate {
+
+    private final ToDoubleFunction<Instance> value;
+    private final double lowerBound;
+    private final double binWidth;
+    private final long[] counts;
+    private long total = 0;
+
+    /**
+     * @param value      extracts the value from an instance
+     * @param lowerBound the lower bound of the range (inclusive)
+     * @param upperBound the upper bound of the range (exclusive)
+     * @param bins       the number of bins
+     */
+    public HistogramAggregate(
+            ToDoubleFunction<Instance> value,
+            double lowerBound,
+            double upperBound,
+            int bins
+    ) {
+        Require.nonNull(value);
+        Require.strictlyPositive(bins, "bins");
+        if (!(lowerBound < upperBound)) {
+            throw new IllegalArgumentException(
+                    "Expected lowerBound < upperBound, got " +
+                            lowerBound + " and " + upperBound
+            );
+        }
+        this.value = value;
+        this.lowerBound = lowerBound;
+        this.binWidth = (upperBound - lowerBound) / bins;
+        this.counts = new long[bins];
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void add(Instance instance) {
+        counts[binOf(value.applyAsDouble(instance))]++;
+        total++;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void remove(Instance instance) {
+        counts[binOf(value.applyAsDouble(instance))]--;
+        total--;
+    }
+
+    /**
+     * @param x a value
+     * @return the index of the bin of the value
+     */
+    public int binOf(double x) {
+        int bin = (int) Math.floor((x - lowerBound) / binWidth);
+        return Math.max(0, Math.min(counts.length - 1, bin));
+    }
+
+    /**
+     * @return the number of bins
+     */
+    public int getBins() {
+        return counts.length;
+    }
+
+    /**
+     * @param bin the index of a bin
+     * @return the number of instances in the bin
+     */
+    public long getCount(int bin) {
+        return counts[bin];
+    }
+
+    /**
+     * @param bin the index of a bin
+     * @return the fraction of the instances in the bin, 0 if there are no
+     * instances
+     */
+    public double getFrequency(int bin) {
+        return total == 0 ? 0.0 : counts[bin] / (double) total;
+    }
+
+    /**
+     * @return the number of instances
+     */
+    public long getTotal() {
+        return total;
+    }
+}
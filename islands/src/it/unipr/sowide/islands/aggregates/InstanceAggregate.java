@@ -0,0 +1,31 @@
+package it.unipr.sowide.islands.aggregates;
+
+import it.unipr.sowide.islands.IslandEnvironment.Instance;
+
+/**
+ * A statistic on the instances of an {@link it.unipr.sowide.islands.IslandEnvironment}
+ * that is updated each time an instance is added or removed, including the
+ * migrations of instances, so that evaluators can read it in O(1) instead of
+ * iterating the instances.
+ * <p>
+ * An aggregate is registered with
+ * {@link it.unipr.sowide.islands.IslandEnvironment#registerAggregate(InstanceAggregate)}
+ * and it should be read only while the instances do not change, e.g. during
+ * the evaluation of a generation.
+ */
+public interface InstanceAggregate {
+
+    /**
+     * Called after an instance has been added to the environment.
+     *
+     * @param instance the added instance
+     */
+    void add(Instance instance);
+
+    /**
+     * Called after an instance has been removed from the environment.
+     *
+     * @param instance the removed instance
+     */
+    void remove(Instance instance);
+}
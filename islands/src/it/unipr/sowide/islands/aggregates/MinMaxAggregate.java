@@ -0,0 +1,69 @@
+package it.unipr.sowide.islands.aggregates;
+
+import it.unipr.sowide.islands.IslandEnvironment.Instance;
+import it.unipr.sowide.util.Require;
+
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The minimum and the maximum of a value of the instances. The values are
+ * counted in a sorted map, so that an update costs O(log d), where d is the
+ * number of distinct values, and a read costs O(1).
+ */
+public class MinMaxAggregate implements InstanceAggregate {
+
+    private final ToDoubleFunction<Instance> value;
+    private final TreeMap<Double, Integer> counts = new TreeMap<>();
+    private Double min = null;
+    private Double max = null;
+
+    /**
+     * @param value extracts the value from an instance
+     */
+    public MinMaxAggregate(ToDoubleFunction<Instance> value) {
+        Require.nonNull(value);
+        this.value = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void add(Instance instance) {
+        counts.merge(value.applyAsDouble(instance), 1, Integer::sum);
+        update();
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void remove(Instance instance) {
+        counts.computeIfPresent(
+                value.applyAsDouble(instance),
+                (__, count) -> count == 1 ? null : count - 1
+        );
+        update();
+    }
+
+    private void update() {
+        min = counts.isEmpty() ? null : counts.firstKey();
+        max = counts.isEmpty() ? null : counts.lastKey();
+    }
+
+    /**
+     * @return the minimum value, if there are instances
+     */
+    public Optional<Double> getMin() {
+        return Optional.ofNullable(min);
+    }
+
+    /**
+     * @return the maximum value, if there are instances
+     */
+    public Optional<Double> getMax() {
+        return Optional.ofNullable(max);
+    }
+}
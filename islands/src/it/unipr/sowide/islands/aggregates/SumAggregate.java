@@ -0,0 +1,83 @@
+package it.unipr.sowide.islands.aggregates;
+
+import it.unipr.sowide.islands.IslandEnvironment.Instance;
+import it.unipr.sowide.util.Require;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The count, the sum and the mean of a value of the instances. The sum is
+ * compensated (Kahan-Babuska-Neumaier), so that the rounding errors do not
+ * accumulate across additions and removals.
+ */
+public class SumAggregate implements InstanceAggregate {
+
+    private final ToDoubleFunction<Instance> value;
+    private long count = 0;
+    private double sum = 0;
+    private double compensation = 0;
+
+    /**
+     * @param value extracts the value to be summed from an instance
+     */
+    public SumAggregate(ToDoubleFunction<Instance> value) {
+        Require.nonNull(value);
+        this.value = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void add(Instance instance) {
+        count++;
+        accumulate(value.applyAsDouble(instance));
+    }
+
+    /**
+     * {@inheritDoc}
+     **/
+    @Override
+    public void remove(Instance instance) {
+        count--;
+        if (count == 0) {
+            // discards the residual error
+            sum = 0;
+            compensation = 0;
+        } else {
+            accumulate(-value.applyAsDouble(instance));
+        }
+    }
+
+    private void accumulate(double x) {
+        double t = sum + x;
+        if (Math.abs(sum) >= Math.abs(x)) {
+            compensation += (sum - t) + x;
+        } else {
+            compensation += (x - t) + sum;
+        }
+        sum = t;
+    }
+
+    /**
+     * @return the number of instances
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the values of the instances
+     */
+    public double getSum() {
+        return sum + compensation;
+    }
+
+    /**
+     * @return the mean of the values of the instances, 0 if there are no
+     * instances
+     */
+    public double getMean() {
+        return count == 0 ? 0.0 : getSum() / count;
+    }
+}
@@ -0,0 +1,15 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+import it.unipr.sowide.util.annotations.Singleton;
+
+/**
+ * Message sent periodically by the master to itself while it waits for the
+ * worker nodes to connect, to check whether they are all connected or the
+ * wait timed out.
+ *
+ */
+@Singleton
+public enum CheckWorkerNodes implements Request {
+    INSTANCE
+}
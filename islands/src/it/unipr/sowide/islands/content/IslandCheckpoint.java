@@ -0,0 +1,27 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Response;
+
+/**
+ * Message used by an island engine to reply to a {@link TakeCheckpoint} with
+ * its state, encoded in a compact binary form that can be restored with a
+ * {@link RestoreCheckpoint}.
+ *
+ */
+public class IslandCheckpoint implements Response {
+    private final byte[] state;
+
+    /**
+     * @param state the encoded state of the island
+     */
+    public IslandCheckpoint(byte[] state) {
+        this.state = state;
+    }
+
+    /**
+     * @return the encoded state of the island
+     */
+    public byte[] getState() {
+        return state;
+    }
+}
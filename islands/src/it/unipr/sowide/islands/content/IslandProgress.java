@@ -0,0 +1,31 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Inform;
+import it.unipr.sowide.islands.Evaluation;
+
+/**
+ * Message used by island engines evolving asynchronously to notify their
+ * controllers that a generation has been completed and validated.
+ *
+ */
+public class IslandProgress implements Inform {
+    public final int generation;
+    public final Evaluation bestEvaluation;
+    public final boolean finished;
+
+    /**
+     * @param generation     how many generations the island has executed
+     * @param bestEvaluation the best found individual on the validation set
+     * @param finished       true if the island reached the maximum number of
+     *                       generations and stopped evolving
+     */
+    public IslandProgress(
+            int generation,
+            Evaluation bestEvaluation,
+            boolean finished
+    ) {
+        this.generation = generation;
+        this.bestEvaluation = bestEvaluation;
+        this.finished = finished;
+    }
+}
@@ -1,6 +1,7 @@
 package it.unipr.sowide.islands.content;
 
 import it.unipr.sowide.actodata.core.engine.trainable.content.TrainingDone;
+import it.unipr.sowide.islands.IslandDiversity;
 import it.unipr.sowide.islands.IslandIndividual;
 import it.unipr.sowide.islands.Evaluation;
 
@@ -8,19 +9,23 @@ import it.unipr.sowide.islands.Evaluation;
  * Message used by island engines to notify the controller that the island has
  * completed an iteration of the evolution algorithm and the individuals have
  * been validated against the validation set. The message contains also the
- * best validated individuals found on the island with its fitness.
+ * best validated individuals found on the island with its fitness, and the
+ * diversity of the population of the island.
  *
  */
 public class IslandTrained extends TrainingDone {
     public final Evaluation bestEvaluation;
+    public final IslandDiversity diversity;
 
     /**
      * A message to signal that the island has done training.
      *
      * @param bestEvaluation                the best found individual on the
      *                                       validation set
+     * @param diversity                     the diversity of the population
      */
-    public IslandTrained(Evaluation bestEvaluation) {
+    public IslandTrained(Evaluation bestEvaluation, IslandDiversity diversity) {
         this.bestEvaluation = bestEvaluation;
+        this.diversity = diversity;
     }
 }
@@ -1,23 +1,43 @@
 package it.unipr.sowide.islands.content;
 
 import it.unipr.sowide.actodes.interaction.Request;
-import it.unipr.sowide.gpj.core.Individual;
 import it.unipr.sowide.islands.IslandEnvironment;
 import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.util.BinaryCodec;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
  * A message used by islands to send individuals and/or instances of data to
  * other islands.
+ * <p>
+ * A migration can carry the individuals and the instances as objects, or
+ * encoded in a compact binary payload (see
+ * {@link #encode(Collection, Collection, BinaryCodec, BinaryCodec)}), which
+ * is much cheaper to serialize when the islands run on different nodes.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
 
 public class Migration implements Request {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * the buffer in which each thread encodes its migrations
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+
     private final List<IslandIndividual> individuals = new ArrayList<>();
     private final List<IslandEnvironment.Instance> instances = new ArrayList<>();
 
+    /**
+     * the encoded parts of this migration, empty if it is not encoded
+     */
+    private final List<byte[]> payloads;
+
 
     public Migration(
             Collection<IslandIndividual> individuals,
@@ -25,17 +45,166 @@ public class Migration implements Request {
     ) {
         this.individuals.addAll(individuals);
         this.instances.addAll(instances);
+        this.payloads = List.of();
+    }
+
+    private Migration(byte[] payload) {
+        this.payloads = List.of(payload);
+    }
+
+    private Migration(
+            Collection<IslandIndividual> individuals,
+            Collection<IslandEnvironment.Instance> instances,
+            List<byte[]> payloads
+    ) {
+        this.individuals.addAll(individuals);
+        this.instances.addAll(instances);
+        this.payloads = payloads;
+    }
+
+    /**
+     * Merges some migrations directed to the same island in a single one,
+     * which carries their individuals and instances in the same order. The
+     * encoded migrations are not decoded.
+     *
+     * @param migrations the migrations to merge
+     * @return the merged migration
+     */
+    public static Migration merge(List<Migration> migrations) {
+        if (migrations.size() == 1) {
+            return migrations.get(0);
+        }
+
+        List<IslandIndividual> mergedIndividuals = new ArrayList<>();
+        List<IslandEnvironment.Instance> mergedInstances = new ArrayList<>();
+        List<byte[]> mergedPayloads = new ArrayList<>();
+        for (Migration migration : migrations) {
+            mergedIndividuals.addAll(migration.individuals);
+            mergedInstances.addAll(migration.instances);
+            mergedPayloads.addAll(migration.payloads);
+        }
+        return new Migration(mergedIndividuals, mergedInstances, mergedPayloads);
+    }
+
+    /**
+     * Creates a migration whose individuals and instances are encoded in a
+     * binary payload. The individuals are encoded with their birth
+     * generation and fitnesses.
+     *
+     * @param individuals     the individuals to migrate
+     * @param instances       the data instances to send
+     * @param individualCodec the codec of the individuals; it can be null if
+     *                        there are no individuals
+     * @param instanceCodec   the codec of the instances; it can be null if
+     *                        there are no instances
+     * @return the encoded migration
+     * @throws IllegalStateException if a codec is needed but missing
+     */
+    public static Migration encode(
+            Collection<IslandIndividual> individuals,
+            Collection<IslandEnvironment.Instance> instances,
+            BinaryCodec<IslandIndividual> individualCodec,
+            BinaryCodec<IslandEnvironment.Instance> instanceCodec
+    ) {
+        if (individualCodec == null && !individuals.isEmpty()) {
+            throw new IllegalStateException("Missing codec of the individuals");
+        }
+        if (instanceCodec == null && !instances.isEmpty()) {
+            throw new IllegalStateException("Missing codec of the instances");
+        }
+
+        ByteBuffer buffer = BUFFER.get();
+        while (true) {
+            buffer.clear();
+            try {
+                buffer.putInt(individuals.size());
+                for (IslandIndividual individual : individuals) {
+                    IslandIndividual.encode(individual, individualCodec, buffer);
+                }
+                buffer.putInt(instances.size());
+                for (IslandEnvironment.Instance instance : instances) {
+                    instanceCodec.encode(instance, buffer);
+                }
+                return new Migration(Arrays.copyOf(buffer.array(), buffer.position()));
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                BUFFER.set(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return true if (some of) the individuals and the instances are
+     * encoded, and must be decoded with {@link #decode(BinaryCodec, BinaryCodec)}
+     */
+    public boolean isEncoded() {
+        return !payloads.isEmpty();
+    }
+
+    /**
+     * @return the size in bytes of the encoded payload, 0 if this migration
+     * is not encoded
+     */
+    public int payloadSize() {
+        int size = 0;
+        for (byte[] payload : payloads) {
+            size += payload.length;
+        }
+        return size;
+    }
+
+    /**
+     * Decodes an encoded migration.
+     *
+     * @param individualCodec the codec of the individuals
+     * @param instanceCodec   the codec of the instances
+     * @return a migration with the decoded individuals and instances, or this
+     * migration if it is not encoded
+     * @throws IllegalStateException if a codec is needed but missing
+     */
+    public Migration decode(
+            BinaryCodec<IslandIndividual> individualCodec,
+            BinaryCodec<IslandEnvironment.Instance> instanceCodec
+    ) {
+        if (payloads.isEmpty()) {
+            return this;
+        }
+
+        List<IslandIndividual> decodedIndividuals = new ArrayList<>(individuals);
+        List<IslandEnvironment.Instance> decodedInstances = new ArrayList<>(instances);
+        for (byte[] payload : payloads) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            int individualsNumber = buffer.getInt();
+            if (individualCodec == null && individualsNumber > 0) {
+                throw new IllegalStateException("Missing codec of the individuals");
+            }
+            for (int i = 0; i < individualsNumber; i++) {
+                decodedIndividuals.add(IslandIndividual.decode(individualCodec, buffer));
+            }
+
+            int instancesNumber = buffer.getInt();
+            if (instanceCodec == null && instancesNumber > 0) {
+                throw new IllegalStateException("Missing codec of the instances");
+            }
+            for (int i = 0; i < instancesNumber; i++) {
+                decodedInstances.add(instanceCodec.decode(buffer));
+            }
+        }
+
+        return new Migration(decodedIndividuals, decodedInstances);
     }
 
     /**
-     * @return the individuals to migrate
+     * @return the individuals to migrate; the encoded ones are not included
+     * until the migration is decoded
      */
     public List<IslandIndividual> getIndividuals() {
         return individuals;
     }
 
     /**
-     * @return the data instances to send
+     * @return the data instances to send; the encoded ones are not included
+     * until the migration is decoded
      */
     public Collection<IslandEnvironment.Instance> getInstances() {
         return instances;
@@ -3,31 +3,38 @@ package it.unipr.sowide.islands.content;
 import it.unipr.sowide.actodes.interaction.Request;
 import it.unipr.sowide.actodes.registry.Reference;
 
+import java.util.List;
+
 /**
  * Message used by a controller to ask an island engine to initiate a migration.
+ * The island selects at once the emigrants and the instances for all the
+ * destinations, sends a {@link Migration} directly to each of them, and
+ * replies {@code Done} when all the destinations received it.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
 
 
 public class MigrationData implements Request {
-    public final Reference destination;
+    public final List<Reference> destinations;
     public final int individualsNumber;
     public final int instancesNumber;
 
     /**
-     * @param destination   the island representing the destination of the
-     *                      migration
-     * @param individualsNumber how many individuals to migrate
-     * @param instancesNumber how many instances to migrate
+     * @param destinations      the islands representing the destinations of
+     *                          the migration
+     * @param individualsNumber how many individuals to migrate to each
+     *                          destination
+     * @param instancesNumber   how many instances to migrate to each
+     *                          destination
      */
     public MigrationData(
-            Reference destination,
+            List<Reference> destinations,
             int individualsNumber,
             int instancesNumber
     ) {
         this.individualsNumber = individualsNumber;
         this.instancesNumber = instancesNumber;
-        this.destination = destination;
+        this.destinations = List.copyOf(destinations);
     }
 }
@@ -0,0 +1,15 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+import it.unipr.sowide.util.annotations.Singleton;
+
+/**
+ * Message sent by an island engine to itself to perform the next generation
+ * of an asynchronous evolution. Since it passes through the mailbox, the
+ * migrations received in the meantime are absorbed between two generations.
+ *
+ */
+@Singleton
+public enum NextGeneration implements Request {
+    INSTANCE
+}
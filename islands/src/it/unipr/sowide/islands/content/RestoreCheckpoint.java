@@ -0,0 +1,26 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+
+/**
+ * Message used by the controller to ask an island engine to replace its
+ * state with the one of an {@link IslandCheckpoint}, before resuming a run.
+ *
+ */
+public class RestoreCheckpoint implements Request {
+    private final byte[] state;
+
+    /**
+     * @param state the encoded state of the island
+     */
+    public RestoreCheckpoint(byte[] state) {
+        this.state = state;
+    }
+
+    /**
+     * @return the encoded state of the island
+     */
+    public byte[] getState() {
+        return state;
+    }
+}
@@ -0,0 +1,26 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+import it.unipr.sowide.islands.EvaluationsReporter;
+
+/**
+ * Message sent by the controller to the {@link EvaluationsReporter} when a
+ * run is resumed from a checkpoint, so that the histories of the islands
+ * continue from the generation of the checkpoint.
+ *
+ */
+public class ResumeRun implements Request {
+    public final int generation;
+    public final int fitnessFunctionCalls;
+
+    /**
+     * @param generation           how many generations had been reported
+     *                             when the checkpoint was taken
+     * @param fitnessFunctionCalls the calls of the fitness function of all
+     *                             the islands at the last report
+     */
+    public ResumeRun(int generation, int fitnessFunctionCalls) {
+        this.generation = generation;
+        this.fitnessFunctionCalls = fitnessFunctionCalls;
+    }
+}
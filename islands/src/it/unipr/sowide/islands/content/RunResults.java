@@ -0,0 +1,39 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Response;
+import it.unipr.sowide.islands.EvaluationsReporter;
+
+/**
+ * Message used by the {@link EvaluationsReporter} to reply to a
+ * {@link SaveResults} once the results of a run are saved, and by the
+ * controller to reply to {@link StartIslandsLoop} with the outcome of its
+ * run, which the master aggregates with the ones of the other runs.
+ *
+ */
+public class RunResults implements Response {
+    public final int generations;
+    public final int fitnessFunctionCalls;
+    public final boolean stagnated;
+
+    /**
+     * @param generations          the generations performed by the run
+     * @param fitnessFunctionCalls the calls of the fitness function of all
+     *                             the islands of the run
+     * @param stagnated            true if the run was terminated early
+     *                             because the best fitness stopped improving
+     */
+    public RunResults(int generations, int fitnessFunctionCalls, boolean stagnated) {
+        this.generations = generations;
+        this.fitnessFunctionCalls = fitnessFunctionCalls;
+        this.stagnated = stagnated;
+    }
+
+    /**
+     * @param maxGenerations the maximum number of generations of the runs
+     * @return true if the run reached the target fitness, i.e. it was
+     * neither stopped by the generation limit nor stagnated
+     */
+    public boolean isSuccess(int maxGenerations) {
+        return !stagnated && generations != maxGenerations;
+    }
+}
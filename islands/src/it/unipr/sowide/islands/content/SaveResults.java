@@ -16,6 +16,7 @@ public class SaveResults implements Request {
     private final Instant endTime;
     private final String filePath;
     private final String forOnlyGroup;
+    private final boolean stagnated;
 
     /**
      * Requests to save the results to the specified filepath.
@@ -25,10 +26,29 @@ public class SaveResults implements Request {
      * @param filePath  the path of the file to which results are saved.
      */
     public SaveResults(Instant startTime, Instant endTime, String filePath) {
+        this(startTime, endTime, filePath, false);
+    }
+
+    /**
+     * Requests to save the results to the specified filepath.
+     *
+     * @param startTime the instant at which the simulation started
+     * @param endTime   the instant at which the simulation ended
+     * @param filePath  the path of the file to which results are saved.
+     * @param stagnated true if the simulation was terminated early because
+     *                  the best fitness stopped improving
+     */
+    public SaveResults(
+            Instant startTime,
+            Instant endTime,
+            String filePath,
+            boolean stagnated
+    ) {
         this.startTime = startTime;
         this.endTime = endTime;
         this.filePath = filePath;
         this.forOnlyGroup = null;
+        this.stagnated = stagnated;
     }
 
     /**
@@ -51,6 +71,7 @@ public class SaveResults implements Request {
         this.endTime = endTime;
         this.filePath = filePath;
         this.forOnlyGroup = forOnlyGroup;
+        this.stagnated = false;
     }
 
     public String getFilePath() {
@@ -68,4 +89,8 @@ public class SaveResults implements Request {
     public String getForOnlyGroup() {
         return forOnlyGroup;
     }
+
+    public boolean isStagnated() {
+        return stagnated;
+    }
 }
@@ -0,0 +1,33 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+import it.unipr.sowide.actodes.registry.Reference;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Message used by the controller to ask an island engine to start evolving
+ * asynchronously, without waiting for the other islands at each generation.
+ * The island pushes its emigrants to the specified neighbours each time its
+ * own migration interval elapses.
+ *
+ */
+public class StartAsyncEvolution implements Request {
+    private final List<Reference> neighbours = new ArrayList<>();
+
+    /**
+     * @param neighbours the islands to which the emigrants are sent
+     */
+    public StartAsyncEvolution(Collection<Reference> neighbours) {
+        this.neighbours.addAll(neighbours);
+    }
+
+    /**
+     * @return the islands to which the emigrants are sent
+     */
+    public List<Reference> getNeighbours() {
+        return neighbours;
+    }
+}
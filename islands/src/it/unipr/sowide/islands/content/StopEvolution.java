@@ -0,0 +1,14 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+import it.unipr.sowide.util.annotations.Singleton;
+
+/**
+ * Message used by the controller to ask an island engine to stop an
+ * asynchronous evolution at the end of the current generation.
+ *
+ */
+@Singleton
+public enum StopEvolution implements Request {
+    INSTANCE
+}
@@ -0,0 +1,15 @@
+package it.unipr.sowide.islands.content;
+
+import it.unipr.sowide.actodes.interaction.Request;
+import it.unipr.sowide.util.annotations.Singleton;
+
+/**
+ * Message used by the controller to ask an island engine to save its state
+ * between two generations. The engine replies with an
+ * {@link IslandCheckpoint}.
+ *
+ */
+@Singleton
+public enum TakeCheckpoint implements Request {
+    INSTANCE
+}
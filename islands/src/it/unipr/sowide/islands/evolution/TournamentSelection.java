@@ -1,39 +1,19 @@
 package it.unipr.sowide.islands.evolution;
 
 
-import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.gpj.core.Individual;
-import it.unipr.sowide.gpj.core.breeding.selection.Selection;
-import it.unipr.sowide.util.promise.Promise;
-import it.unipr.sowide.util.promise.Promises;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
-
-public class TournamentSelection<I extends Individual> extends Selection<I> {
-
-    private final int tournamentSize;
+/**
+ * The tournament selection used by the islands: each tournament picks
+ * exactly {@code tournamentSize} individuals, possibly with the same fitness,
+ * as the tournament selection of gpj does.
+ *
+ * @param <I> the type of the individuals
+ */
+public class TournamentSelection<I extends Individual>
+        extends it.unipr.sowide.gpj.core.breeding.selection.TournamentSelection<I> {
 
     public TournamentSelection(int tournamentSize) {
-        this.tournamentSize = tournamentSize;
-    }
-
-    @Override
-    public Promise<List<I>, Throwable> select(EvolutionContext evolutionContext, List<I> oldPopulation, int targetPopSize) {
-
-        List<I> result = new ArrayList<>();
-        for (int i = 0; i < targetPopSize; i++) {
-
-            SortedSet<I> picked = new TreeSet<>();
-            for (int j = 0; j < tournamentSize; j++) {
-                picked.add(evolutionContext.getRandom().pick(oldPopulation));
-            }
-
-            result.add(picked.first());
-
-        }
-        return Promises.immediatelyResolve(result);
+        super(tournamentSize);
     }
 }
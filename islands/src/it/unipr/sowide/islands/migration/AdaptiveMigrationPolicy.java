@@ -0,0 +1,94 @@
+package it.unipr.sowide.islands.migration;
+
+import it.unipr.sowide.islands.IslandDiversity;
+import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+
+import java.util.Collection;
+
+/**
+ * Adapts the migrations to the diversity of the islands (see
+ * {@link IslandsSimulationSettings#adaptiveMigration}): the more islands
+ * have converged, the more often the islands migrate and the more
+ * individuals and instances they exchange, while diverse islands are left to
+ * explore on their own.
+ * <p>
+ * An island has converged if the fraction of its population with a distinct
+ * genome is below {@link IslandsSimulationSettings#diversityThreshold}, or if
+ * all its individuals have the same fitness. With a fraction {@code c} of
+ * converged islands, the interval between two migrations is
+ * {@code migrationRate * 2^(1 - 2c)} generations, from twice the migration
+ * rate when no island has converged to half of it when all have, and the
+ * migrated individuals and instances are scaled by {@code 2^(2c - 1)}.
+ */
+public class AdaptiveMigrationPolicy {
+    private final IslandsSimulationSettings settings;
+
+    /**
+     * the fraction of converged islands; before the first update, the
+     * migrations are the ones of the settings
+     */
+    private double convergence = 0.5;
+
+    public AdaptiveMigrationPolicy(IslandsSimulationSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Updates the policy with the last diversities of the islands.
+     *
+     * @param diversities the diversities, one for each island
+     */
+    public void update(Collection<IslandDiversity> diversities) {
+        if (diversities.isEmpty()) {
+            return;
+        }
+        int converged = 0;
+        for (IslandDiversity diversity : diversities) {
+            if (isConverged(diversity)) {
+                converged++;
+            }
+        }
+        convergence = converged / (double) diversities.size();
+    }
+
+    /**
+     * @param diversity the diversity of an island
+     * @return true if the island has converged
+     */
+    public boolean isConverged(IslandDiversity diversity) {
+        return diversity.distinctRatio() < settings.diversityThreshold
+                || diversity.fitnessVariance == 0;
+    }
+
+    /**
+     * @return the fraction of converged islands at the last update
+     */
+    public double getConvergence() {
+        return convergence;
+    }
+
+    /**
+     * @return the number of generations between two migrations
+     */
+    public int interval() {
+        return Math.max(1, (int) Math.round(settings.migrationRate * Math.pow(2, 1 - 2 * convergence)));
+    }
+
+    /**
+     * @return how many individuals an island sends to each destination
+     */
+    public int individualsNumber() {
+        return scale(settings.individualsMigration);
+    }
+
+    /**
+     * @return how many instances an island sends to each destination
+     */
+    public int instancesNumber() {
+        return scale(settings.instancesMigration);
+    }
+
+    private int scale(int number) {
+        return (int) Math.round(number * Math.pow(2, 2 * convergence - 1));
+    }
+}
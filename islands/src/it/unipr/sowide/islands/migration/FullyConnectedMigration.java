@@ -0,0 +1,68 @@
+package it.unipr.sowide.islands.migration;
+
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Each island can send its emigrants to any other island. With a budget,
+ * at each migration each island sends its emigrants only to {@code budget}
+ * other islands, sampled at random, so that the number of arcs of a round
+ * grows linearly with the number of islands.
+ */
+public class FullyConnectedMigration extends MigrationSystem {
+
+    private final RandomUtils random;
+    private final int budget;
+
+    /**
+     * @param random the generator of the samples of the destinations
+     * @param budget the number of destinations of each island at each
+     *               migration; if 0, all the other islands
+     */
+    public FullyConnectedMigration(RandomUtils random, int budget) {
+        this.random = random;
+        this.budget = budget;
+    }
+
+    @Override
+    protected Graph buildGraph(int islandsNumber) {
+        List<Arc> arcs = new ArrayList<>();
+
+        for (int island = 0; island < islandsNumber; island++) {
+            for (int other = 0; other < islandsNumber; other++) {
+                if (other != island) {
+                    arcs.add(new Arc(island, other));
+                }
+            }
+        }
+
+        return new Graph(arcs);
+    }
+
+    @Override
+    protected MigrationPlan nextRound(MigrationPlan compiledPlan) {
+        int islandsNumber = compiledPlan.getIslands().size();
+        if (budget <= 0 || budget >= islandsNumber - 1) {
+            return compiledPlan;
+        }
+
+        // samples the destinations of each island by a partial shuffle
+        List<Arc> arcs = new ArrayList<>(islandsNumber * budget);
+        for (int island = 0; island < islandsNumber; island++) {
+            int[] others = compiledPlan.destinationsOf(island);
+            for (int i = 0; i < budget; i++) {
+                int j = i + random.nextInt(others.length - i);
+                int swap = others[i];
+                others[i] = others[j];
+                others[j] = swap;
+                arcs.add(new Arc(island, others[i]));
+            }
+        }
+
+        return MigrationPlan.compile(compiledPlan.getIslands(), new Graph(arcs));
+    }
+}
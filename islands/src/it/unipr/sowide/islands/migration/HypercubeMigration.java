@@ -0,0 +1,31 @@
+package it.unipr.sowide.islands.migration;
+
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Each island sends its emigrants to the islands whose index differs from
+ * its own in exactly one bit. If the number of islands is not a power of
+ * two, the missing vertices of the hypercube are skipped.
+ */
+public class HypercubeMigration extends MigrationSystem {
+
+    @Override
+    protected Graph buildGraph(int islandsNumber) {
+        List<Arc> arcs = new ArrayList<>();
+
+        for (int island = 0; island < islandsNumber; island++) {
+            for (int bit = 1; bit < islandsNumber; bit <<= 1) {
+                int neighbour = island ^ bit;
+                if (neighbour < islandsNumber) {
+                    arcs.add(new Arc(island, neighbour));
+                }
+            }
+        }
+
+        return new Graph(arcs);
+    }
+}
@@ -0,0 +1,191 @@
+package it.unipr.sowide.islands.migration;
+
+import it.unipr.sowide.actodes.registry.Reference;
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A migration topology compiled for a set of islands: for each island, the
+ * islands to which it sends its emigrants and the islands from which it
+ * receives its immigrants. A plan is immutable, so it can be compiled once
+ * and reused at each migration.
+ * <p>
+ * The islands are identified by their index in {@link #getIslands()}; the
+ * duplicated arcs and the arcs from an island to itself are dropped.
+ */
+public final class MigrationPlan {
+    private final List<Reference> islands;
+    private final int[][] destinations;
+    private final int[][] origins;
+    private final int arcsNumber;
+
+    private MigrationPlan(
+            List<Reference> islands,
+            int[][] destinations,
+            int[][] origins,
+            int arcsNumber
+    ) {
+        this.islands = islands;
+        this.destinations = destinations;
+        this.origins = origins;
+        this.arcsNumber = arcsNumber;
+    }
+
+    /**
+     * Compiles a topology for the specified islands.
+     *
+     * @param islands the islands; the arcs of the graph refer to their
+     *                indices in this list
+     * @param graph   the topology
+     * @return the plan
+     * @throws IndexOutOfBoundsException if an arc refers to a missing island
+     */
+    public static MigrationPlan compile(List<Reference> islands, Graph graph) {
+        int n = islands.size();
+        List<Arc> arcs = new ArrayList<>(graph.getArcs().size());
+        Set<Long> present = new HashSet<>();
+        int[] outDegree = new int[n];
+        int[] inDegree = new int[n];
+        for (Arc arc : graph.getArcs()) {
+            int origin = arc.originIndex;
+            int destination = arc.destinationIndex;
+            if (origin < 0 || origin >= n || destination < 0 || destination >= n) {
+                throw new IndexOutOfBoundsException(
+                        "Arc " + origin + "->" + destination + " with " + n + " islands"
+                );
+            }
+            if (origin != destination && present.add((long) origin * n + destination)) {
+                arcs.add(arc);
+                outDegree[origin]++;
+                inDegree[destination]++;
+            }
+        }
+
+        int[][] destinations = new int[n][];
+        int[][] origins = new int[n][];
+        for (int i = 0; i < n; i++) {
+            destinations[i] = new int[outDegree[i]];
+            origins[i] = new int[inDegree[i]];
+        }
+        // the arcs keep the order of the graph for each origin
+        int[] outFilled = new int[n];
+        for (Arc arc : arcs) {
+            destinations[arc.originIndex][outFilled[arc.originIndex]++] = arc.destinationIndex;
+        }
+        // the origins of each destination are sorted by index
+        int[] inFilled = new int[n];
+        for (int origin = 0; origin < n; origin++) {
+            for (int destination : destinations[origin]) {
+                origins[destination][inFilled[destination]++] = origin;
+            }
+        }
+        int arcsNumber = arcs.size();
+
+        return new MigrationPlan(
+                Collections.unmodifiableList(new ArrayList<>(islands)),
+                destinations,
+                origins,
+                arcsNumber
+        );
+    }
+
+    /**
+     * Returns a plan with the same arcs between indices, but for another
+     * assignment of the islands to the indices (e.g. a permutation of the
+     * islands of this plan). The arcs are not compiled again.
+     *
+     * @param islands the islands, as many as the islands of this plan
+     * @return the plan
+     * @throws IllegalArgumentException if the number of islands is different
+     */
+    public MigrationPlan withIslands(List<Reference> islands) {
+        if (islands.size() != this.islands.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + this.islands.size() + " islands, found " + islands.size()
+            );
+        }
+        return new MigrationPlan(
+                Collections.unmodifiableList(new ArrayList<>(islands)),
+                destinations,
+                origins,
+                arcsNumber
+        );
+    }
+
+    /**
+     * @return the islands of this plan, by index
+     */
+    public List<Reference> getIslands() {
+        return islands;
+    }
+
+    /**
+     * @param origin the index of an island
+     * @return the indices of the islands to which the island sends its
+     * emigrants
+     */
+    public int[] destinationsOf(int origin) {
+        return destinations[origin].clone();
+    }
+
+    /**
+     * @param destination the index of an island
+     * @return the indices of the islands from which the island receives its
+     * immigrants, in increasing order
+     */
+    public int[] originsOf(int destination) {
+        return origins[destination].clone();
+    }
+
+    /**
+     * @return the number of arcs of this plan
+     */
+    public int getArcsNumber() {
+        return arcsNumber;
+    }
+
+    /**
+     * @return for each island with at least one destination, the islands to
+     * which it sends its emigrants
+     */
+    public Map<Reference, List<Reference>> getNeighbours() {
+        Map<Reference, List<Reference>> neighbours = new HashMap<>();
+        for (int origin = 0; origin < islands.size(); origin++) {
+            if (destinations[origin].length > 0) {
+                neighbours.put(islands.get(origin), referencesOf(destinations[origin]));
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * @param indices indices of islands
+     * @return the islands with the specified indices
+     */
+    public List<Reference> referencesOf(int[] indices) {
+        List<Reference> references = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            references.add(islands.get(index));
+        }
+        return references;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("MigrationPlan[");
+        for (int origin = 0; origin < islands.size(); origin++) {
+            if (origin > 0) s.append(", ");
+            s.append(origin).append("->").append(Arrays.toString(destinations[origin]));
+        }
+        return s.append("]").toString();
+    }
+}
@@ -2,38 +2,137 @@ package it.unipr.sowide.islands.migration;
 
 import it.unipr.sowide.actodata.core.actodesext.ActoDataBaseBehavior;
 import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromise;
+import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromises;
 import it.unipr.sowide.actodes.interaction.Done;
 import it.unipr.sowide.actodes.registry.Reference;
+import it.unipr.sowide.islands.content.Migration;
 import it.unipr.sowide.islands.content.MigrationData;
+import it.unipr.sowide.islands.migration.graph.Graph;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * A migration topology. The topology is built on the indices of the islands
+ * sorted by name, and compiled once in a {@link MigrationPlan}; the
+ * topologies that change at each migration derive the plan of each round
+ * from the compiled one.
+ * <p>
+ * In a migration round each origin receives a single {@link MigrationData}
+ * request for all its destinations, and sends a {@link Migration} directly
+ * to each of them; the controller only waits for the acknowledgements of the
+ * origins, and the migrations never pass through its node.
+ */
 public abstract class MigrationSystem {
 
-    public abstract Collection<ActoPromise<? extends Done>> getMigrationPromises(
-            ActoDataBaseBehavior actoDataBaseBehavior,
+    /**
+     * the plan compiled for the islands in {@link #plannedIslands}
+     */
+    private MigrationPlan plan = null;
+    private Set<Reference> plannedIslands = Set.of();
+
+    /**
+     * Builds the arcs of the topology.
+     *
+     * @param islandsNumber the number of islands
+     * @return the topology, on the indices of the islands sorted by name
+     */
+    protected abstract Graph buildGraph(int islandsNumber);
+
+    /**
+     * Derives the plan of the next migration round from the compiled one;
+     * the topologies that change at each migration override this.
+     *
+     * @param compiledPlan the compiled plan
+     * @return the plan of the round
+     */
+    protected MigrationPlan nextRound(MigrationPlan compiledPlan) {
+        return compiledPlan;
+    }
+
+    /**
+     * Returns the plan of the next migration round, compiling the topology
+     * only if the islands changed since the previous round.
+     *
+     * @param references the islands
+     * @return the plan of the round
+     */
+    public MigrationPlan getPlan(Set<Reference> references) {
+        if (plan == null || !plannedIslands.equals(references)) {
+            List<Reference> sortedIslands = new ArrayList<>(references);
+            // the islands on different nodes can have the same name
+            sortedIslands.sort(Comparator
+                    .comparing(Reference::getName, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(Reference::toString)
+            );
+            plan = MigrationPlan.compile(sortedIslands, buildGraph(sortedIslands.size()));
+            plannedIslands = new HashSet<>(references);
+        }
+        return nextRound(plan);
+    }
+
+    /**
+     * Builds the topology used by islands that migrate asynchronously. The
+     * topologies that change at each migration are fixed at the moment of
+     * this call.
+     *
+     * @param references the islands
+     * @return for each island, the islands to which it sends its emigrants
+     */
+    public Map<Reference, List<Reference>> getNeighbours(
+            Set<Reference> references
+    ) {
+        return getPlan(references).getNeighbours();
+    }
+
+    /**
+     * Performs a migration round: asks each origin of the plan to send the
+     * migrations to all its destinations. The origins send them directly to
+     * the destinations, which absorb them at the next generation.
+     *
+     * @param behavior          the behavior of the requester
+     * @param references        the islands
+     * @param individualsNumber how many individuals to migrate on each arc
+     * @param instancesNumber   how many instances to migrate on each arc
+     * @return a promise resolved when all the destinations received their
+     * migrations
+     */
+    public ActoPromise<Done> migrate(
+            ActoDataBaseBehavior behavior,
             Set<Reference> references,
-            int individualsPercentage,
-            int instancePercentage
-    );
-
-    protected void addMigrationPromise(
-            ArrayList<ActoPromise<? extends Done>> migrationPromises,
-            ActoDataBaseBehavior actoDataBaseBehavior,
-            Reference originIsland,
-            Reference destinationIsland,
-            int individualsPercentage,
-            int instancesPercentage
+            int individualsNumber,
+            int instancesNumber
     ) {
-        migrationPromises.add(actoDataBaseBehavior.promiseFuture(
-                originIsland,
-                new MigrationData(
-                        destinationIsland,
-                        individualsPercentage,
-                        instancesPercentage
-                )
-        ));
+        MigrationPlan roundPlan = getPlan(references);
+        List<Reference> islands = roundPlan.getIslands();
+        if (roundPlan.getArcsNumber() == 0) {
+            return ActoPromises.Do();
+        }
+
+        // one request for each origin, with all its destinations
+        List<ActoPromise<Done>> emigrations = new ArrayList<>();
+        for (int origin = 0; origin < islands.size(); origin++) {
+            int[] destinations = roundPlan.destinationsOf(origin);
+            if (destinations.length == 0) {
+                continue;
+            }
+            emigrations.add(ActoPromise.actoPromise(behavior.promiseFuture(
+                    islands.get(origin),
+                    new MigrationData(
+                            roundPlan.referencesOf(destinations),
+                            individualsNumber,
+                            instancesNumber
+                    ),
+                    (Done) null
+            )));
+        }
+
+        return ActoPromise.actoPromise(
+                ActoPromises.all(emigrations).map(__ -> Done.DONE)
+        );
     }
 }
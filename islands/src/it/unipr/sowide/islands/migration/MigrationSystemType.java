@@ -3,5 +3,9 @@ package it.unipr.sowide.islands.migration;
 public enum MigrationSystemType {
     RING,
     SPREAD,
-    GRAPH
+    GRAPH,
+    TORUS,
+    HYPERCUBE,
+    RANDOM_REGULAR,
+    FULLY_CONNECTED
 }
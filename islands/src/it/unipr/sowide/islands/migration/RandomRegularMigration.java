@@ -0,0 +1,67 @@
+package it.unipr.sowide.islands.migration;
+
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A random topology, fixed for the whole run, where each island sends its
+ * emigrants to {@code degree} islands and receives immigrants from as many
+ * islands. The islands are placed on a ring in random order, and each one
+ * sends its emigrants to the islands at {@code degree} distinct random
+ * distances along the ring.
+ */
+public class RandomRegularMigration extends MigrationSystem {
+
+    private final RandomUtils random;
+    private final int degree;
+
+    /**
+     * @param random the generator of the topology
+     * @param degree the number of destinations of each island; it is
+     *               reduced to the number of the other islands
+     */
+    public RandomRegularMigration(RandomUtils random, int degree) {
+        this.random = random;
+        this.degree = degree;
+    }
+
+    @Override
+    protected Graph buildGraph(int islandsNumber) {
+        List<Arc> arcs = new ArrayList<>();
+        int destinationsNumber = Math.min(degree, islandsNumber - 1);
+        if (destinationsNumber <= 0) {
+            return new Graph(arcs);
+        }
+
+        int[] ring = shuffledIndices(islandsNumber);
+
+        // the first destinationsNumber of a permutation of 1..n-1
+        int[] distances = shuffledIndices(islandsNumber - 1);
+        for (int position = 0; position < islandsNumber; position++) {
+            for (int d = 0; d < destinationsNumber; d++) {
+                int distance = distances[d] + 1;
+                arcs.add(new Arc(ring[position], ring[(position + distance) % islandsNumber]));
+            }
+        }
+
+        return new Graph(arcs);
+    }
+
+    private int[] shuffledIndices(int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indices[i];
+            indices[i] = indices[j];
+            indices[j] = swap;
+        }
+        return indices;
+    }
+}
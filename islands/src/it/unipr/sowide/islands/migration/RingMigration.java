@@ -1,9 +1,8 @@
 package it.unipr.sowide.islands.migration;
 
-import it.unipr.sowide.actodata.core.actodesext.ActoDataBaseBehavior;
-import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromise;
-import it.unipr.sowide.actodes.interaction.Done;
 import it.unipr.sowide.actodes.registry.Reference;
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
 import it.unipr.sowide.util.RandomUtils;
 
 import java.util.*;
@@ -19,76 +18,33 @@ public class RingMigration extends MigrationSystem {
     }
 
     @Override
-    public Collection<ActoPromise<? extends Done>> getMigrationPromises(
-            ActoDataBaseBehavior actoDataBaseBehavior,
-            Set<Reference> references,
-            int individualsPercentage,
-            int instancePercentage
-    ) {
+    protected Graph buildGraph(int islandsNumber) {
+        List<Arc> arcs = new ArrayList<>();
 
-        // will be populated of promises for the actual migration requests
-        ArrayList<ActoPromise<? extends Done>> migrationPromises = new ArrayList<>();
-        // the islands that shloud migrate
-        List<Reference> migratingIslands = new ArrayList<>(references);
-
-        // if a permutation is required
-        if (permutateRing) {
-            // shuffle randomly
-            Collections.shuffle(migratingIslands, random.getJavaRandom());
-        }
-        else {
-            // otherwise, sort according the reference name of the island
-            // to guarantee that the ring never changes
-            migratingIslands.sort((o1, o2) ->
-                    String.CASE_INSENSITIVE_ORDER.compare(
-                            o1.getName(),
-                            o2.getName()
-                    )
-            );
+        // there must be at least two islands...
+        if (islandsNumber < 2) {
+            return new Graph(arcs);
         }
 
-        // there must be at least an island...
-        if (migratingIslands.size() < 2) {
-            return migrationPromises;
+        // each island sends its emigrants to the next one in the ring; the
+        // last island sends them to the first one
+        for (int i = 0; i < islandsNumber; i++) {
+            arcs.add(new Arc(i, (i + 1) % islandsNumber));
         }
 
-        /*
-          for each island, create a promise with the request to migrate
-          the individual to the next island; the last island is
-          skipped
-         */
-        for (int i = 1; i < migratingIslands.size(); i++) {
-            Reference originIsland = migratingIslands.get(i - 1);
-            Reference destinationIsland = migratingIslands.get(i);
-
-            addMigrationPromise(
-                    migrationPromises,
-                    actoDataBaseBehavior,
-                    originIsland,
-                    destinationIsland,
-                    individualsPercentage,
-                    instancePercentage
-            );
+        return new Graph(arcs);
+    }
 
+    @Override
+    protected MigrationPlan nextRound(MigrationPlan compiledPlan) {
+        if (!permutateRing) {
+            return compiledPlan;
         }
 
-        /*
-         does the same thing for the last island, that migrates its
-         individuals and/or the data to the first island
-         */
-        Reference lastIsland = migratingIslands.get(
-                migratingIslands.size() - 1);
-        Reference firstIsland = migratingIslands.get(0);
-
-        addMigrationPromise(
-                migrationPromises,
-                actoDataBaseBehavior,
-                lastIsland,
-                firstIsland,
-                individualsPercentage,
-                instancePercentage
-        );
-
-        return migrationPromises;
+        // the compiled islands are sorted by name, so that the permutations
+        // depend only on the random generator
+        List<Reference> migratingIslands = new ArrayList<>(compiledPlan.getIslands());
+        Collections.shuffle(migratingIslands, random.getJavaRandom());
+        return compiledPlan.withIslands(migratingIslands);
     }
 }
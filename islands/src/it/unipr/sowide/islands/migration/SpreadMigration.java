@@ -1,75 +1,73 @@
 package it.unipr.sowide.islands.migration;
 
-import it.unipr.sowide.actodata.core.actodesext.ActoDataBaseBehavior;
-import it.unipr.sowide.actodata.core.actodesext.promise.ActoPromise;
-import it.unipr.sowide.actodes.interaction.Done;
-import it.unipr.sowide.actodes.registry.Reference;
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 public class SpreadMigration extends MigrationSystem {
 
     private int currentIslandIndex = 0;
 
-    @Override
-    public Collection<ActoPromise<? extends Done>> getMigrationPromises(
-            ActoDataBaseBehavior actoDataBaseBehavior,
-            Set<Reference> references,
-            int individualsPercentage,
-            int instancePercentage
-    ) {
-        // Will be populated of promises for the actual migration requests
-        ArrayList<ActoPromise<? extends Done>> migrationPromises = new ArrayList<>();
-
-        // The islands that should migrate
-        List<Reference> migratingIslands = new ArrayList<>(references);
-
-        migratingIslands.sort((o1, o2) ->
-                String.CASE_INSENSITIVE_ORDER.compare(
-                        o1.getName(),
-                        o2.getName()
-                )
-        );
+    /**
+     * the plans of the rounds, by index of the spreading island; they are
+     * derived from the compiled plan, which has the first island as hub
+     */
+    private MigrationPlan compiledPlan = null;
+    private MigrationPlan[] roundPlans = new MigrationPlan[0];
 
-        // Get current spreading island
-        Reference spreadingIsland = migratingIslands.get(currentIslandIndex);
+    @Override
+    protected Graph buildGraph(int islandsNumber) {
+        return hubGraph(islandsNumber, 0);
+    }
 
-        // Increase current island index
-        currentIslandIndex = (currentIslandIndex + 1) / references.size();
+    private static Graph hubGraph(int islandsNumber, int spreadingIsland) {
+        List<Arc> arcs = new ArrayList<>();
 
         // there must be at least two islands
-        if (migratingIslands.size() >= 2) {
-
-            for (Reference island : migratingIslands) {
+        if (islandsNumber >= 2) {
+            for (int island = 0; island < islandsNumber; island++) {
 
                 // Skip spreading island
-                if(spreadingIsland == island) continue;
+                if (island == spreadingIsland) continue;
 
                 // Migrate from spreading island to island
-                addMigrationPromise(
-                        migrationPromises,
-                        actoDataBaseBehavior,
-                        spreadingIsland,
-                        island,
-                        individualsPercentage,
-                        instancePercentage
-                );
+                arcs.add(new Arc(spreadingIsland, island));
 
                 // Migrate from island to spreading island
-                addMigrationPromise(
-                        migrationPromises,
-                        actoDataBaseBehavior,
-                        island,
-                        spreadingIsland,
-                        individualsPercentage,
-                        instancePercentage
-                );
+                arcs.add(new Arc(island, spreadingIsland));
             }
         }
 
-        return migrationPromises;
+        return new Graph(arcs);
+    }
+
+    @Override
+    protected MigrationPlan nextRound(MigrationPlan compiledPlan) {
+        int islandsNumber = compiledPlan.getIslands().size();
+        if (this.compiledPlan != compiledPlan) {
+            this.compiledPlan = compiledPlan;
+            this.roundPlans = new MigrationPlan[islandsNumber];
+            this.roundPlans[0] = compiledPlan;
+            currentIslandIndex = 0;
+        }
+        if (islandsNumber == 0) {
+            return compiledPlan;
+        }
+
+        // Get current spreading island
+        int spreadingIsland = currentIslandIndex;
+        if (roundPlans[spreadingIsland] == null) {
+            roundPlans[spreadingIsland] = MigrationPlan.compile(
+                    compiledPlan.getIslands(),
+                    hubGraph(islandsNumber, spreadingIsland)
+            );
+        }
+
+        // Increase current island index
+        currentIslandIndex = (currentIslandIndex + 1) % islandsNumber;
+
+        return roundPlans[spreadingIsland];
     }
 }
@@ -0,0 +1,66 @@
+package it.unipr.sowide.islands.migration;
+
+import it.unipr.sowide.islands.migration.graph.Arc;
+import it.unipr.sowide.islands.migration.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The islands are the cells of a grid whose borders wrap around, filled by
+ * rows; each island sends its emigrants to the four adjacent islands.
+ */
+public class TorusMigration extends MigrationSystem {
+
+    private final int width;
+
+    /**
+     * @param width the number of islands in each row of the grid; if 0, the
+     *              grid is as square as possible
+     */
+    public TorusMigration(int width) {
+        this.width = width;
+    }
+
+    @Override
+    protected Graph buildGraph(int islandsNumber) {
+        List<Arc> arcs = new ArrayList<>();
+        if (islandsNumber < 2) {
+            return new Graph(arcs);
+        }
+
+        int columns = width > 0 ? width : squarestWidth(islandsNumber);
+        if (islandsNumber % columns != 0) {
+            throw new IllegalArgumentException(
+                    "The number of islands (" + islandsNumber + ") " +
+                            "is not a multiple of the width of the torus (" + columns + ")"
+            );
+        }
+        int rows = islandsNumber / columns;
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int island = row * columns + column;
+                // right, left, down, up
+                arcs.add(new Arc(island, row * columns + (column + 1) % columns));
+                arcs.add(new Arc(island, row * columns + (column + columns - 1) % columns));
+                arcs.add(new Arc(island, ((row + 1) % rows) * columns + column));
+                arcs.add(new Arc(island, ((row + rows - 1) % rows) * columns + column));
+            }
+        }
+
+        return new Graph(arcs);
+    }
+
+    /**
+     * @return the greatest divisor of {@code n} not greater than its square
+     * root
+     */
+    private static int squarestWidth(int n) {
+        int width = (int) Math.sqrt(n);
+        while (n % width != 0) {
+            width--;
+        }
+        return width;
+    }
+}
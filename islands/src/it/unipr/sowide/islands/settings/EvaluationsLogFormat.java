@@ -0,0 +1,7 @@
+package it.unipr.sowide.islands.settings;
+
+public enum EvaluationsLogFormat {
+    NONE,
+    CSV,
+    BINARY
+}
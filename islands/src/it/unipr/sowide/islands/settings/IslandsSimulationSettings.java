@@ -37,12 +37,32 @@ public class IslandsSimulationSettings {
     public final String islandGroupName;
 
     /**
-     * How many runs of this simulation to execute.
+     * How many runs of this simulation to execute. The results of each run
+     * are saved to {@code [simulationName]_RUN[i].txt}, and the aggregate
+     * results of all the runs to {@code [simulationName]_summary.txt}.
      *
      * (default: 1)
      */
     public int numberOfRuns = 1;
 
+    /**
+     * How many runs are executed at the same time. The islands of all the
+     * runs share the same evaluation pool, so running more runs at once
+     * does not use more threads for the evaluations.
+     *
+     * (default: 1)
+     */
+    public int runParallelism = 1;
+
+    /**
+     * The seed of the random generators of the runs. With the same seed, a
+     * synchronous simulation evolves the same individuals, also when the
+     * individuals are evaluated in parallel. If null, a random seed is used.
+     *
+     * (default: null)
+     */
+    public Long seed = null;
+
     /**
      * The number of islands.
      *
@@ -96,6 +116,67 @@ public class IslandsSimulationSettings {
      */
     public int instancesMigration = 10;
 
+    /**
+     * The maximum number of training fitnesses cached by each island, to
+     * avoid evaluating again individuals equal to already evaluated ones.
+     * If 0, the cache is disabled. The engine must provide the codec of the
+     * individuals (see {@code IslandEngine.individualCodec()}), since a
+     * cached fitness is reused only for individuals with the same encoding.
+     * <p>
+     * (default: 0)
+     */
+    public int fitnessCacheSize = 0;
+
+    /**
+     * If true, each island evolves on its own without waiting for the others
+     * at each generation, and pushes its emigrants to its neighbours each
+     * {@code migrationRate} of its own generations. The migration topology
+     * is fixed at the beginning of the simulation.
+     * <p>
+     * (default: false)
+     */
+    public boolean asynchronous = false;
+
+    /**
+     * If true, the individuals and the instances that migrate are encoded in
+     * a compact binary payload, using the codecs of the island engine and of
+     * the environment, instead of being sent as objects. Useful when the
+     * islands run on different nodes.
+     * <p>
+     * (default: false)
+     */
+    public boolean binaryMigration = false;
+
+    /**
+     * If not NONE, each evaluation reported during a run is appended to a
+     * log called {@code [runName]_evaluations.csv} (or {@code .bin}), written
+     * in batches by a background thread.
+     * <p>
+     * (default: NONE)
+     */
+    public EvaluationsLogFormat evaluationsLog = EvaluationsLogFormat.NONE;
+
+    /**
+     * How many of the last reported evaluations of each island are plotted
+     * when the GUI is shown.
+     * <p>
+     * (default: 10000)
+     */
+    public int plotHistorySize = 10_000;
+
+    /**
+     * If positive, the state of each run (controller and islands) is saved
+     * each {@code checkpointInterval} generations to a file called
+     * {@code [runName].ckpt}, from which the run can be resumed. Only the
+     * synchronous loop is checkpointed, so a positive interval is rejected
+     * if {@link #asynchronous}. The individuals must have a codec
+     * (see {@code IslandEngine.individualCodec()}); the training sets are
+     * saved only if the environments have a codec.
+     * <p>
+     * (default: 0)
+     */
+    public int checkpointInterval = 0;
+
     /**
      * How to split the training environment between the islands at the
      * beginning of the simulation.
@@ -132,11 +213,173 @@ public class IslandsSimulationSettings {
      */
     public Graph grapStructure = new Graph(new ArrayList<>());
 
+    /**
+     * Number of islands in each row of the grid used by Torus Migration
+     * Systems; 0 for a grid as square as possible.
+     *
+     * (default: 0)
+     */
+    public int torusWidth = 0;
+
+    /**
+     * Number of destinations of each island used by Random Regular Migration
+     * Systems.
+     *
+     * (default: 2)
+     */
+    public int migrationDegree = 2;
+
+    /**
+     * Number of destinations sampled for each island at each migration by
+     * Fully Connected Migration Systems; 0 to migrate to all the other
+     * islands.
+     *
+     * (default: 0)
+     */
+    public int migrationBudget = 0;
+
+    /**
+     * If true, the migrations adapt to the diversity of the islands (see
+     * {@code AdaptiveMigrationPolicy}): the islands migrate more often, and
+     * exchange more individuals and instances, when they converge, and less
+     * when they are diverse, around {@link #migrationRate},
+     * {@link #individualsMigration} and {@link #instancesMigration}.
+     * Considered only if not {@link #asynchronous}, since the islands
+     * evolving asynchronously would lose more individuals than they receive.
+     *
+     * (default: false)
+     */
+    public boolean adaptiveMigration = false;
+
+    /**
+     * The fraction of the population with a distinct genome below which an
+     * island is considered converged by the adaptive migrations.
+     *
+     * (default: 0.3)
+     */
+    public double diversityThreshold = 0.3;
+
+    /**
+     * If positive, a run is stopped when the best fitness on the validation
+     * set has not improved for {@code stagnationWindow} generations; the
+     * stagnated runs are not counted as successes.
+     *
+     * (default: 0)
+     */
+    public int stagnationWindow = 0;
+
+    /**
+     * Number of worker nodes (JVMs) on which the islands are placed, in
+     * addition to the node of the master and the controllers; 0 to run all
+     * the islands in the node of the master. The workers are started with the
+     * same arguments of the master, plus {@code -worker} (see
+     * {@code IslandsLauncher}).
+     *
+     * (default: 0)
+     */
+    public int workers = 0;
+
+    /**
+     * The node of each island, by index: 0 is the node of the master, from 1
+     * to {@link #workers} the worker nodes. If null, the islands are placed
+     * round-robin on the worker nodes.
+     *
+     * (default: null)
+     */
+    public int[] placement = null;
+
+    /**
+     * The host of the node of the master, to which the worker nodes connect.
+     *
+     * (default: 127.0.0.1)
+     */
+    public String brokerHost = "127.0.0.1";
+
+    /**
+     * The port of the RMI registry of the node of the master.
+     *
+     * (default: 1099)
+     */
+    public int brokerPort = 1099;
+
+    /**
+     * Maximum time, in seconds, that the master waits for the worker nodes
+     * to connect before failing the simulation; 0 to wait indefinitely.
+     *
+     * (default: 120)
+     */
+    public int workersTimeout = 120;
+
     public IslandsSimulationSettings(String simulationName, String islandGroupName) {
         this.simulationName = simulationName;
         this.islandGroupName = islandGroupName;
     }
 
+    /**
+     * Copies these settings under another name.
+     *
+     * @param simulationName  the name of the copy
+     * @param islandGroupName the name of the group of islands of the copy
+     * @return the copy
+     */
+    public IslandsSimulationSettings copy(
+            String simulationName,
+            String islandGroupName
+    ) {
+        IslandsSimulationSettings copy = new IslandsSimulationSettings(
+                simulationName,
+                islandGroupName
+        );
+        copy.numberOfRuns = numberOfRuns;
+        copy.runParallelism = runParallelism;
+        copy.seed = seed;
+        copy.numIslands = numIslands;
+        copy.islandStartingPopulation = islandStartingPopulation;
+        copy.maxGenerations = maxGenerations;
+        copy.targetFitness = targetFitness;
+        copy.migrationRate = migrationRate;
+        copy.individualsMigration = individualsMigration;
+        copy.instancesMigration = instancesMigration;
+        copy.fitnessCacheSize = fitnessCacheSize;
+        copy.asynchronous = asynchronous;
+        copy.binaryMigration = binaryMigration;
+        copy.evaluationsLog = evaluationsLog;
+        copy.plotHistorySize = plotHistorySize;
+        copy.checkpointInterval = checkpointInterval;
+        copy.startingSplit = startingSplit;
+        copy.environmentSplit = environmentSplit;
+        copy.migrationSystemType = migrationSystemType;
+        copy.permutateIslands = permutateIslands;
+        copy.grapStructure = grapStructure;
+        copy.torusWidth = torusWidth;
+        copy.migrationDegree = migrationDegree;
+        copy.migrationBudget = migrationBudget;
+        copy.adaptiveMigration = adaptiveMigration;
+        copy.diversityThreshold = diversityThreshold;
+        copy.stagnationWindow = stagnationWindow;
+        copy.workers = workers;
+        copy.placement = placement;
+        copy.brokerHost = brokerHost;
+        copy.brokerPort = brokerPort;
+        copy.workersTimeout = workersTimeout;
+        return copy;
+    }
+
+    /**
+     * @param island the index of an island
+     * @return the node on which the island is placed: 0 for the node of the
+     * master, from 1 to {@link #workers} for the worker nodes
+     */
+    public int nodeOf(int island) {
+        if (workers == 0) {
+            return 0;
+        }
+        if (placement != null) {
+            return placement[island];
+        }
+        return 1 + island % workers;
+    }
+
     public static IslandsSimulationSettings parseFromFile(File file)
             throws IOException {
         Properties properties = new Properties();
@@ -155,6 +398,16 @@ public class IslandsSimulationSettings {
             Require.strictlyPositive(numberOfRuns, "numberOfRuns");
             settings.numberOfRuns = numberOfRuns;
         }
+        String runParallelismText = properties.getProperty("runParallelism");
+        if (runParallelismText != null) {
+            int runParallelism = Integer.parseInt(runParallelismText);
+            Require.strictlyPositive(runParallelism, "runParallelism");
+            settings.runParallelism = runParallelism;
+        }
+        String seedText = properties.getProperty("seed");
+        if (seedText != null) {
+            settings.seed = Long.parseLong(seedText.trim());
+        }
         String targetFitnessText = properties.getProperty("targetFitness");
         if (targetFitnessText != null) {
             settings.targetFitness = Double.parseDouble(targetFitnessText);
@@ -178,6 +431,40 @@ public class IslandsSimulationSettings {
             Require.nonNegative(instancesMigration, "instancesMigration");
             settings.instancesMigration = instancesMigration;
         }
+        String fitnessCacheSizeText = properties.getProperty("fitnessCacheSize");
+        if (fitnessCacheSizeText != null) {
+            int fitnessCacheSize = Integer.parseInt(fitnessCacheSizeText);
+            Require.nonNegative(fitnessCacheSize, "fitnessCacheSize");
+            settings.fitnessCacheSize = fitnessCacheSize;
+        }
+        String asynchronousText = properties.getProperty("asynchronous");
+        if (asynchronousText != null) {
+            settings.asynchronous = Boolean.parseBoolean(asynchronousText);
+        }
+        String binaryMigrationText = properties.getProperty("binaryMigration");
+        if (binaryMigrationText != null) {
+            settings.binaryMigration = Boolean.parseBoolean(binaryMigrationText);
+        }
+        String evaluationsLogText = properties.getProperty("evaluationsLog");
+        if (evaluationsLogText != null) {
+            Require.inEnum(EvaluationsLogFormat.class, evaluationsLogText, "evaluationsLog");
+            settings.evaluationsLog = EvaluationsLogFormat.valueOf(evaluationsLogText);
+        }
+        String plotHistorySizeText = properties.getProperty("plotHistorySize");
+        if (plotHistorySizeText != null) {
+            int plotHistorySize = Integer.parseInt(plotHistorySizeText);
+            Require.strictlyPositive(plotHistorySize, "plotHistorySize");
+            settings.plotHistorySize = plotHistorySize;
+        }
+        String checkpointIntervalText = properties.getProperty("checkpointInterval");
+        if (checkpointIntervalText != null) {
+            int checkpointInterval = Integer.parseInt(checkpointIntervalText);
+            Require.nonNegative(checkpointInterval, "checkpointInterval");
+            if (checkpointInterval > 0 && settings.asynchronous) {
+                throw new IllegalArgumentException("checkpointInterval cannot be used with asynchronous: only the synchronous loop is checkpointed");
+            }
+            settings.checkpointInterval = checkpointInterval;
+        }
         String startingSplitText = properties.getProperty("startingSplit");
         if (startingSplitText != null) {
             Require.inEnum(EnvironmentStartingSplit.class, startingSplitText, "startingSplit");
@@ -241,6 +528,93 @@ public class IslandsSimulationSettings {
             }
         }
 
+        if(settings.migrationSystemType == MigrationSystemType.TORUS) {
+            String torusWidthText = properties.getProperty("torusWidth");
+            if(torusWidthText != null) {
+                int torusWidth = Integer.parseInt(torusWidthText);
+                Require.strictlyPositive(torusWidth, "torusWidth");
+                if(settings.numIslands % torusWidth != 0) {
+                    throw new IllegalArgumentException("numIslands must be a multiple of torusWidth");
+                }
+                settings.torusWidth = torusWidth;
+            }
+        }
+
+        if(settings.migrationSystemType == MigrationSystemType.RANDOM_REGULAR) {
+            String migrationDegreeText = properties.getProperty("migrationDegree");
+            if(migrationDegreeText != null) {
+                int migrationDegree = Integer.parseInt(migrationDegreeText);
+                Require.strictlyPositive(migrationDegree, "migrationDegree");
+                settings.migrationDegree = migrationDegree;
+            }
+        }
+
+        if(settings.migrationSystemType == MigrationSystemType.FULLY_CONNECTED) {
+            String migrationBudgetText = properties.getProperty("migrationBudget");
+            if(migrationBudgetText != null) {
+                int migrationBudget = Integer.parseInt(migrationBudgetText);
+                Require.nonNegative(migrationBudget, "migrationBudget");
+                settings.migrationBudget = migrationBudget;
+            }
+        }
+
+        String adaptiveMigrationText = properties.getProperty("adaptiveMigration");
+        if (adaptiveMigrationText != null) {
+            settings.adaptiveMigration = Boolean.parseBoolean(adaptiveMigrationText);
+        }
+        if (settings.adaptiveMigration) {
+            String diversityThresholdText = properties.getProperty("diversityThreshold");
+            if (diversityThresholdText != null) {
+                double diversityThreshold = Double.parseDouble(diversityThresholdText);
+                Require.inRange(0.0, 1.0, diversityThreshold);
+                settings.diversityThreshold = diversityThreshold;
+            }
+        }
+        String stagnationWindowText = properties.getProperty("stagnationWindow");
+        if (stagnationWindowText != null) {
+            int stagnationWindow = Integer.parseInt(stagnationWindowText);
+            Require.nonNegative(stagnationWindow, "stagnationWindow");
+            settings.stagnationWindow = stagnationWindow;
+        }
+
+        String workersText = properties.getProperty("workers");
+        if (workersText != null) {
+            int workers = Integer.parseInt(workersText);
+            Require.nonNegative(workers, "workers");
+            settings.workers = workers;
+        }
+        if (settings.workers > 0) {
+            String placementText = properties.getProperty("placement");
+            if (placementText != null) {
+                String[] nodesText = placementText.split(",");
+                if (nodesText.length != settings.numIslands) {
+                    throw new IllegalArgumentException("placement must define the node of each island");
+                }
+                int[] placement = new int[nodesText.length];
+                for (int i = 0; i < nodesText.length; i++) {
+                    placement[i] = Integer.parseInt(nodesText[i].trim());
+                    Require.inRange(0, settings.workers, placement[i]);
+                }
+                settings.placement = placement;
+            }
+            String brokerHostText = properties.getProperty("brokerHost");
+            if (brokerHostText != null) {
+                settings.brokerHost = brokerHostText.trim();
+            }
+            String brokerPortText = properties.getProperty("brokerPort");
+            if (brokerPortText != null) {
+                int brokerPort = Integer.parseInt(brokerPortText);
+                Require.strictlyPositive(brokerPort, "brokerPort");
+                settings.brokerPort = brokerPort;
+            }
+            String workersTimeoutText = properties.getProperty("workersTimeout");
+            if (workersTimeoutText != null) {
+                int workersTimeout = Integer.parseInt(workersTimeoutText);
+                Require.nonNegative(workersTimeout, "workersTimeout");
+                settings.workersTimeout = workersTimeout;
+            }
+        }
+
         return settings;
     }
 }
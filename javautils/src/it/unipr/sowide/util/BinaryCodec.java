@@ -0,0 +1,146 @@
+package it.unipr.sowide.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Encodes values of a type to a compact binary form, and decodes them back.
+ * <p>
+ * {@link #encode(Object, ByteBuffer)} writes at the current position of the
+ * buffer; if the buffer has not enough space it throws
+ * {@link BufferOverflowException}, and the caller is expected to retry with
+ * a larger buffer. {@link #decode(ByteBuffer)} reads exactly the bytes
+ * written by the corresponding encoding.
+ *
+ * @param <T> the type of the values
+ */
+public interface BinaryCodec<T> {
+
+    /**
+     * Writes a value at the current position of the buffer.
+     *
+     * @param value the value
+     * @param out   the buffer
+     * @throws BufferOverflowException if the buffer has not enough space
+     */
+    void encode(T value, ByteBuffer out);
+
+    /**
+     * Reads a value from the current position of the buffer.
+     *
+     * @param in the buffer
+     * @return the value
+     */
+    T decode(ByteBuffer in);
+
+    /**
+     * Creates a codec from a pair of functions.
+     *
+     * @param encoder writes a value to a buffer
+     * @param decoder reads a value from a buffer
+     * @param <T>     the type of the values
+     * @return the codec
+     */
+    static <T> BinaryCodec<T> of(
+            BiConsumer<T, ByteBuffer> encoder,
+            Function<ByteBuffer, T> decoder
+    ) {
+        Require.nonNull(encoder, decoder);
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(T value, ByteBuffer out) {
+                encoder.accept(value, out);
+            }
+
+            @Override
+            public T decode(ByteBuffer in) {
+                return decoder.apply(in);
+            }
+        };
+    }
+
+    /**
+     * Runs a writer on a new buffer and returns the written bytes; each time
+     * the writer overflows, it is run again on a buffer of double capacity.
+     *
+     * @param writer          writes to a buffer, from its beginning
+     * @param initialCapacity the capacity of the first buffer
+     * @return the written bytes
+     */
+    static byte[] toByteArray(Consumer<ByteBuffer> writer, int initialCapacity) {
+        Require.strictlyPositive(initialCapacity);
+        ByteBuffer buffer = ByteBuffer.allocate(initialCapacity);
+        while (true) {
+            try {
+                writer.accept(buffer);
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Writes an array of bytes, preceded by its length.
+     */
+    static void putBytes(ByteBuffer out, byte[] values) {
+        out.putInt(values.length);
+        out.put(values);
+    }
+
+    /**
+     * Reads an array of bytes written by {@link #putBytes(ByteBuffer, byte[])}.
+     */
+    static byte[] getBytes(ByteBuffer in) {
+        byte[] values = new byte[in.getInt()];
+        in.get(values);
+        return values;
+    }
+
+    /**
+     * Writes an array of longs, preceded by its length.
+     */
+    static void putLongs(ByteBuffer out, long[] values) {
+        out.putInt(values.length);
+        for (long value : values) {
+            out.putLong(value);
+        }
+    }
+
+    /**
+     * Reads an array of longs written by {@link #putLongs(ByteBuffer, long[])}.
+     */
+    static long[] getLongs(ByteBuffer in) {
+        long[] values = new long[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getLong();
+        }
+        return values;
+    }
+
+    /**
+     * Writes an array of doubles, preceded by its length.
+     */
+    static void putDoubles(ByteBuffer out, double[] values) {
+        out.putInt(values.length);
+        for (double value : values) {
+            out.putDouble(value);
+        }
+    }
+
+    /**
+     * Reads an array of doubles written by
+     * {@link #putDoubles(ByteBuffer, double[])}.
+     */
+    static double[] getDoubles(ByteBuffer in) {
+        double[] values = new double[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getDouble();
+        }
+        return values;
+    }
+}
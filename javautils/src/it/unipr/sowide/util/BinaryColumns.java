@@ -0,0 +1,151 @@
+package it.unipr.sowide.util;
+
+import it.unipr.sowide.util.annotations.Namespace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes and reads columns of primitive values to and from a
+ * {@link FileChannel}, in little-endian order and without any framing.
+ * Columns are read by memory-mapping their region of the file, so each
+ * column must be smaller than 2 GiB.
+ */
+@Namespace
+public class BinaryColumns {
+    private BinaryColumns() {
+    }// do not instantiate
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes the first {@code length} values of {@code values} at the
+     * current position of the channel.
+     */
+    public static void writeLongs(
+            FileChannel channel,
+            long[] values,
+            int length
+    ) throws IOException {
+        ByteBuffer buffer = newBuffer();
+        int step = BUFFER_SIZE / Long.BYTES;
+        for (int from = 0; from < length; from += step) {
+            int count = Math.min(step, length - from);
+            buffer.clear();
+            buffer.asLongBuffer().put(values, from, count);
+            buffer.limit(count * Long.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the first {@code length} values of {@code values} at the
+     * current position of the channel.
+     */
+    public static void writeInts(
+            FileChannel channel,
+            int[] values,
+            int length
+    ) throws IOException {
+        ByteBuffer buffer = newBuffer();
+        int step = BUFFER_SIZE / Integer.BYTES;
+        for (int from = 0; from < length; from += step) {
+            int count = Math.min(step, length - from);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, from, count);
+            buffer.limit(count * Integer.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the first {@code length} values of {@code values} at the
+     * current position of the channel.
+     */
+    public static void writeBytes(
+            FileChannel channel,
+            byte[] values,
+            int length
+    ) throws IOException {
+        writeFully(channel, ByteBuffer.wrap(values, 0, length));
+    }
+
+    /**
+     * Reads {@code length} values from the channel, starting at
+     * {@code position}, into the first elements of {@code destination}.
+     *
+     * @return the position following the last value read
+     */
+    public static long readLongs(
+            FileChannel channel,
+            long position,
+            long[] destination,
+            int length
+    ) throws IOException {
+        long bytes = (long) length * Long.BYTES;
+        map(channel, position, bytes).asLongBuffer()
+                .get(destination, 0, length);
+        return position + bytes;
+    }
+
+    /**
+     * Reads {@code length} values from the channel, starting at
+     * {@code position}, into the first elements of {@code destination}.
+     *
+     * @return the position following the last value read
+     */
+    public static long readInts(
+            FileChannel channel,
+            long position,
+            int[] destination,
+            int length
+    ) throws IOException {
+        long bytes = (long) length * Integer.BYTES;
+        map(channel, position, bytes).asIntBuffer()
+                .get(destination, 0, length);
+        return position + bytes;
+    }
+
+    /**
+     * Reads {@code length} values from the channel, starting at
+     * {@code position}, into the first elements of {@code destination}.
+     *
+     * @return the position following the last value read
+     */
+    public static long readBytes(
+            FileChannel channel,
+            long position,
+            byte[] destination,
+            int length
+    ) throws IOException {
+        map(channel, position, length).get(destination, 0, length);
+        return position + length;
+    }
+
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer map(
+            FileChannel channel,
+            long position,
+            long length
+    ) throws IOException {
+        if (position + length > channel.size()) {
+            throw new IOException("Unexpected end of file");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(
+            FileChannel channel,
+            ByteBuffer buffer
+    ) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
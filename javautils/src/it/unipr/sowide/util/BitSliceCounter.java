@@ -0,0 +1,54 @@
+package it.unipr.sowide.util;
+
+import it.unipr.sowide.util.annotations.Mutable;
+
+/**
+ * Counts, for each of the 64 bit positions, how many of the added words have
+ * that bit set.
+ * <p>
+ * The 64 counters are stored "vertically": the {@code k}-th plane contains
+ * the {@code k}-th bit of every counter. Adding a word is then a binary
+ * addition with carry propagation on whole words, that costs about two
+ * bitwise steps on average, instead of 64 tests of single bits.
+ */
+@Mutable
+public class BitSliceCounter {
+    private final long[] planes = new long[Long.SIZE];
+
+    /**
+     * Increments the counters of the bits set in {@code word}.
+     *
+     * @param word the word
+     */
+    public void add(long word) {
+        long carry = word;
+        for (int k = 0; carry != 0; k++) {
+            long plane = planes[k];
+            planes[k] = plane ^ carry;
+            carry &= plane;
+        }
+    }
+
+    /**
+     * Returns how many of the added words have the specified bit set.
+     *
+     * @param bit the position of the bit, between 0 and 63
+     * @return the count
+     */
+    public long count(int bit) {
+        long result = 0;
+        for (int k = 0; k < planes.length; k++) {
+            result |= ((planes[k] >>> bit) & 1L) << k;
+        }
+        return result;
+    }
+
+    /**
+     * Sets all the counters to zero.
+     */
+    public void reset() {
+        for (int k = 0; k < planes.length; k++) {
+            planes[k] = 0L;
+        }
+    }
+}
@@ -2,33 +2,56 @@ package it.unipr.sowide.util;
 
 import it.unipr.sowide.util.annotations.Mutable;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A wrapper around {@link Random} that adds some utilities.
+ * A random generator with some utilities.
+ * <p>
+ * The generator is the SplitMix64 algorithm of {@link java.util.SplittableRandom}:
+ * unlike {@link Random}, it is not synchronized, so it must not be shared
+ * between threads. Instead, each thread (e.g. each island, or each worker of
+ * a parallel computation) should use its own child generator, obtained by
+ * {@link #childRandom()} or {@link #childRandom(long)}. Since the children
+ * are derived deterministically, the whole tree of generators created from
+ * a seeded generator always produces the same sequences.
  *
  * @author Giuseppe Petrosino (giuseppe.petrosino@studenti.unipr.it)
  */
 @Mutable
 public class RandomUtils {
-    private final Random random;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final int STATE_SIZE = 2 * Long.BYTES;
+
+    /**
+     * generates the seeds of the generators created without a seed
+     */
+    private static final AtomicLong SEEDER = new AtomicLong(mix64(System.nanoTime()));
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * the view of this generator as a {@link Random}, created on demand
+     */
+    private Random javaRandom = null;
 
     /**
      * Creates a new random generator with random seed.
      */
     public RandomUtils() {
-        this.random = new Random();
+        this(mix64(SEEDER.getAndAdd(2 * GOLDEN_GAMMA)) ^ mix64(System.nanoTime()));
     }
 
     /**
-     * Creates a new random generator using the specified {@code random} as
-     * internal random generator.
+     * Creates a new random generator seeded by the specified {@code random}.
      *
-     * @param random the {@link Random} used as internal generator.
+     * @param random the {@link Random} that provides the seed.
      */
     public RandomUtils(Random random) {
-        this.random = random;
+        this(random.nextLong());
     }
 
     /**
@@ -37,7 +60,33 @@ public class RandomUtils {
      * @param seed the seed
      */
     public RandomUtils(long seed) {
-        this.random = new Random(seed);
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private RandomUtils(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return an odd gamma with enough transitions between 0 and 1 bits
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
     }
 
     /**
@@ -51,7 +100,7 @@ public class RandomUtils {
         if (list.isEmpty()) {
             return null;
         }
-        return list.get(random.nextInt(list.size()));
+        return list.get(nextInt(list.size()));
     }
 
     /**
@@ -64,7 +113,7 @@ public class RandomUtils {
      */
     public boolean probabilityOutcome(double value) {
         Require.inRange(0.0, 1.0, value);
-        return random.nextDouble() < value;
+        return nextDouble() < value;
     }
 
     /**
@@ -92,7 +141,7 @@ public class RandomUtils {
         }
 
 
-        double rand = random.nextDouble() * weights.stream()
+        double rand = nextDouble() * weights.stream()
                 .mapToDouble(i -> i)
                 .sum();
         double sum = weights.get(0);
@@ -121,15 +170,30 @@ public class RandomUtils {
             throw new IllegalArgumentException(
                     "max must be > of min, instead: " + max + " <= " + min);
         }
-        return random.nextInt(max - min) + min;
+        return nextInt(max - min) + min;
     }
 
     /**
-     * @return a new random generator object using a random long from this
-     * generator as seed.
+     * @return a new random generator, whose sequence is independent from
+     * the one of this generator; this generator advances by two values.
      */
     public RandomUtils childRandom() {
-        return new RandomUtils(random.nextLong());
+        return new RandomUtils(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Returns the child generator with the specified index, e.g. the
+     * generator of the {@code index}-th island, worker or generation. The
+     * child depends only on the current state of this generator and on the
+     * index, and this generator does not advance, so the children can be
+     * created in any order.
+     *
+     * @param index the index of the child
+     * @return the child generator
+     */
+    public RandomUtils childRandom(long index) {
+        long key = mix64(seed ^ mix64(index * GOLDEN_GAMMA + gamma));
+        return new RandomUtils(mix64(key), mixGamma(key + GOLDEN_GAMMA));
     }
 
     /**
@@ -137,7 +201,7 @@ public class RandomUtils {
      * @see Random#nextDouble()
      */
     public double nextDouble() {
-        return random.nextDouble();
+        return (nextLong() >>> 11) * 0x1.0p-53;
     }
 
     /**
@@ -145,15 +209,27 @@ public class RandomUtils {
      * @see Random#nextInt()
      */
     public int nextInt() {
-        return random.nextInt();
+        return (int) (nextLong() >>> 32);
     }
 
     /**
-     * @return a random int.
+     * @return a random int between 0, inclusive, and {@code bound},
+     * exclusive.
      * @see Random#nextInt(int)
      */
     public int nextInt(int bound) {
-        return random.nextInt(bound);
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            // a power of two
+            return r & m;
+        }
+        // rejects the values of the last, partial, range of size bound
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) ;
+        return r;
     }
 
     /**
@@ -161,7 +237,7 @@ public class RandomUtils {
      * @see Random#nextBoolean()
      */
     public boolean nextBoolean() {
-        return random.nextBoolean();
+        return nextInt() < 0;
     }
 
     /**
@@ -169,13 +245,91 @@ public class RandomUtils {
      * @see Random#nextLong()
      */
     public long nextLong() {
-        return random.nextLong();
+        return mix64(nextSeed());
+    }
+
+    /**
+     * Saves the state of this generator, so that it can be restored with
+     * {@link #restoreState(byte[])} to produce again the same sequence.
+     *
+     * @return the state of this generator
+     */
+    public byte[] saveState() {
+        return ByteBuffer.allocate(STATE_SIZE).putLong(seed).putLong(gamma).array();
+    }
+
+    /**
+     * Restores a state saved by {@link #saveState()}.
+     *
+     * @param state the state
+     * @throws IllegalArgumentException if the state is not valid
+     */
+    public void restoreState(byte[] state) {
+        Require.nonNull(state);
+        if (state.length != STATE_SIZE) {
+            throw new IllegalArgumentException("Invalid random generator state");
+        }
+        ByteBuffer in = ByteBuffer.wrap(state);
+        this.seed = in.getLong();
+        this.gamma = in.getLong();
     }
 
     /**
-     * @return the wrapped {@link Random}
+     * @return this generator as a {@link Random}, e.g. to be used with
+     * {@link java.util.Collections#shuffle(List, Random)}; it shares the
+     * state of this generator, and it cannot be reseeded.
      */
     public Random getJavaRandom() {
-        return this.random;
+        if (javaRandom == null) {
+            javaRandom = new JavaRandomView(this);
+        }
+        return javaRandom;
+    }
+
+    private static final class JavaRandomView extends Random {
+        private final RandomUtils source;
+
+        JavaRandomView(RandomUtils source) {
+            super(0);
+            this.source = source;
+        }
+
+        @Override
+        public synchronized void setSeed(long seed) {
+            // called by the constructor of Random
+            if (source != null) {
+                throw new UnsupportedOperationException();
+            }
+        }
+
+        @Override
+        protected int next(int bits) {
+            return (int) (source.nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public int nextInt() {
+            return source.nextInt();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return source.nextInt(bound);
+        }
+
+        @Override
+        public long nextLong() {
+            return source.nextLong();
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return source.nextBoolean();
+        }
+
+        @Override
+        public double nextDouble() {
+            return source.nextDouble();
+        }
     }
 }
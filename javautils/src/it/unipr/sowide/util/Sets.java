@@ -2,6 +2,7 @@ package it.unipr.sowide.util;
 
 import it.unipr.sowide.util.annotations.Namespace;
 
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -17,7 +18,8 @@ public class Sets {
     }// do not instantiate
 
     /**
-     * Returns the union of two sets.
+     * Returns the union of two sets, which iterates the elements of the
+     * first set, then the ones of the second set.
      *
      * @param s1  the first set
      * @param s2  the second set
@@ -26,7 +28,7 @@ public class Sets {
      */
     public static <E> Set<E> union(Set<? extends E> s1, Set<? extends E> s2) {
         return Stream.concat(s1.stream(), s2.stream())
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     /**
@@ -0,0 +1,282 @@
+package it.unipr.sowide.util;
+
+import it.unipr.sowide.util.annotations.Namespace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Parses text files made of rows of unsigned decimal numbers separated by
+ * blanks, such as the datasets of the SMCGP problems.
+ * <p>
+ * The file is memory-mapped and split into chunks at line boundaries; the
+ * chunks are parsed in parallel by a hand-written parser and the values are
+ * returned by column, in the order of the rows in the file.
+ */
+@Namespace
+public class UnsignedTextColumns {
+    private UnsignedTextColumns() {
+    }// do not instantiate
+
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final long MAX_DIV_10 = Long.divideUnsigned(-1L, 10);
+    private static final long MAX_MOD_10 = Long.remainderUnsigned(-1L, 10);
+
+    /**
+     * Parses the rows of the specified file, after the first
+     * {@code skipLines} lines. Each row must begin with {@code columns}
+     * unsigned decimal numbers separated by spaces or tabs; the rest of the
+     * row is ignored. Empty rows and rows that do not begin with a digit are
+     * skipped.
+     *
+     * @param file      the file to parse
+     * @param skipLines the number of header lines
+     * @param columns   the number of values to read from each row
+     * @return an array of {@code columns} arrays of the same length, one for
+     * each column
+     * @throws IOException           if the file cannot be read
+     * @throws NumberFormatException if a row is malformed or a value does
+     *                               not fit in an unsigned 64-bit integer
+     */
+    public static long[][] parse(
+            Path file,
+            int skipLines,
+            int columns
+    ) throws IOException {
+        Require.nonNull(file);
+        Require.nonNegative(skipLines);
+        Require.strictlyPositive(columns);
+        try (FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.READ
+        )) {
+            long fileSize = channel.size();
+            long start = 0;
+            for (int i = 0; i < skipLines; i++) {
+                start = nextLineStart(channel, start);
+            }
+            long[] bounds = chunkBounds(channel, start, fileSize);
+            Chunk[] chunks;
+            try {
+                chunks = IntStream.range(0, bounds.length - 1)
+                        .parallel()
+                        .mapToObj(i -> parseChunk(
+                                channel,
+                                bounds[i],
+                                bounds[i + 1],
+                                columns
+                        ))
+                        .toArray(Chunk[]::new);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return concatenate(chunks, columns);
+        }
+    }
+
+    /**
+     * @return the position following the first line feed at or after
+     * {@code position}, or the size of the file if there is none
+     */
+    private static long nextLineStart(
+            FileChannel channel,
+            long position
+    ) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long p = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, p);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += read;
+        }
+    }
+
+    /**
+     * Splits the range from {@code start} to {@code end} in chunks of
+     * similar size, that begin at the start of a line.
+     */
+    private static long[] chunkBounds(
+            FileChannel channel,
+            long start,
+            long end
+    ) throws IOException {
+        long length = end - start;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long byParallelism = Math.min(
+                parallelism * 4L,
+                (length + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE
+        );
+        long bySize = (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE;
+        int count = (int) Math.max(1, Math.max(byParallelism, bySize));
+        long[] bounds = new long[count + 1];
+        bounds[0] = start;
+        for (int i = 1; i < count; i++) {
+            long nominal = start + length / count * i;
+            bounds[i] = Math.max(
+                    bounds[i - 1],
+                    nextLineStart(channel, nominal)
+            );
+        }
+        bounds[count] = end;
+        return bounds;
+    }
+
+    private static Chunk parseChunk(
+            FileChannel channel,
+            long from,
+            long to,
+            int columns
+    ) {
+        Chunk chunk = new Chunk(columns);
+        if (to - from > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException(
+                    "Line too long at offset " + from
+            ));
+        }
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    from,
+                    to - from
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int end = buffer.limit();
+        int p = 0;
+        while (p < end) {
+            p = skipBlanks(buffer, p, end);
+            if (p == end) {
+                break;
+            }
+            if (!isDigit(buffer.get(p))) {
+                // empty or not a row of numbers
+                p = skipLine(buffer, p, end);
+                continue;
+            }
+            long[] row = chunk.row;
+            for (int c = 0; c < columns; c++) {
+                p = skipBlanks(buffer, p, end);
+                if (p == end || !isDigit(buffer.get(p))) {
+                    throw malformed(from + p);
+                }
+                long value = 0;
+                while (p < end && isDigit(buffer.get(p))) {
+                    int digit = buffer.get(p) - '0';
+                    if (Long.compareUnsigned(value, MAX_DIV_10) > 0
+                            || (value == MAX_DIV_10 && digit > MAX_MOD_10)) {
+                        throw new NumberFormatException(
+                                "Value out of range at offset " + (from + p)
+                        );
+                    }
+                    value = value * 10 + digit;
+                    p++;
+                }
+                if (p < end && !isSeparator(buffer.get(p))) {
+                    throw malformed(from + p);
+                }
+                row[c] = value;
+            }
+            chunk.commitRow();
+            p = skipLine(buffer, p, end);
+        }
+        return chunk;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isSeparator(byte b) {
+        return isBlank(b) || b == '\n';
+    }
+
+    private static int skipBlanks(ByteBuffer buffer, int p, int end) {
+        while (p < end && isBlank(buffer.get(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    private static int skipLine(ByteBuffer buffer, int p, int end) {
+        while (p < end && buffer.get(p) != '\n') {
+            p++;
+        }
+        return p + 1;
+    }
+
+    private static NumberFormatException malformed(long offset) {
+        return new NumberFormatException("Malformed row at offset " + offset);
+    }
+
+    private static long[][] concatenate(Chunk[] chunks, int columns) {
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total = Math.addExact(total, chunk.rows);
+        }
+        long[][] result = new long[columns][total];
+        int offset = 0;
+        for (Chunk chunk : chunks) {
+            for (int c = 0; c < columns; c++) {
+                System.arraycopy(
+                        chunk.values[c],
+                        0,
+                        result[c],
+                        offset,
+                        chunk.rows
+                );
+            }
+            offset += chunk.rows;
+        }
+        return result;
+    }
+
+    /**
+     * The rows parsed from a chunk, stored by column.
+     */
+    private static class Chunk {
+        private final long[][] values;
+        private final long[] row;
+        private int rows = 0;
+
+        private Chunk(int columns) {
+            this.values = new long[columns][1024];
+            this.row = new long[columns];
+        }
+
+        private void commitRow() {
+            if (rows == values[0].length) {
+                for (int c = 0; c < values.length; c++) {
+                    values[c] = Arrays.copyOf(values[c], rows * 2);
+                }
+            }
+            for (int c = 0; c < values.length; c++) {
+                values[c][rows] = row[c];
+            }
+            rows++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import it.unipr.sowide.islands.IslandEnvironment;
+import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.islands.content.Migration;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the binary encoding of the migrations of pattern individuals and
+ * instances: the bytes per migrant, the size of the migration message once
+ * serialized with Java serialization (as done by the distribution
+ * connectors), and the encoding and decoding latency.
+ * <p>
+ * Usage: {@code MigrationCodecBenchmark [iterations]}
+ */
+public class MigrationCodecBenchmark {
+
+    private static final int[] SIDES = {16, 64, 256};
+    private static final int MIGRANTS = 10;
+    private static final int INSTANCES = 100;
+
+    /**
+     * prevents the JIT from removing the benchmarked code
+     */
+    private static long blackhole = 0;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        RandomUtils random = new RandomUtils(42);
+
+        for (int side : SIDES) {
+            Pattern.HEIGHT = side;
+            Pattern.WIDTH = side;
+            Pattern.SIZE = side * side;
+
+            List<IslandIndividual> individuals = new ArrayList<>();
+            for (int i = 0; i < MIGRANTS; i++) {
+                PatternIndividual individual = new PatternIndividual(random);
+                individual.setFitness(random.nextDouble());
+                individuals.add(individual);
+            }
+            List<IslandEnvironment.Instance> instances = new ArrayList<>();
+            for (int i = 0; i < INSTANCES; i++) {
+                instances.add(new PatternEnvironment.PatternInstance(
+                        random.randomInt(0, Pattern.SIZE),
+                        random.nextBoolean()
+                ));
+            }
+
+            Migration encoded = encode(individuals, instances);
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+                out.writeObject(encoded);
+            }
+
+            System.out.println("pattern size: " + side + "x" + side +
+                    " (" + MIGRANTS + " individuals, " + INSTANCES + " instances)");
+            System.out.printf("  %-30s %10d bytes%n", "payload", encoded.payloadSize());
+            System.out.printf("  %-30s %10d bytes%n", "serialized message", serialized.size());
+            System.out.printf("  %-30s %10.1f bytes%n", "per individual",
+                    (encode(individuals, List.of()).payloadSize() - 8) / (double) MIGRANTS);
+            System.out.printf("  %-30s %10.1f bytes%n", "per instance",
+                    (encode(List.of(), instances).payloadSize() - 8) / (double) INSTANCES);
+
+            run("encode", iterations, () -> blackhole += encode(individuals, instances).payloadSize());
+            run("decode", iterations, () -> blackhole += decode(encoded).getIndividuals().size());
+        }
+        System.out.println("(" + blackhole + ")");
+    }
+
+    private static Migration encode(
+            List<IslandIndividual> individuals,
+            List<IslandEnvironment.Instance> instances
+    ) {
+        return Migration.encode(
+                individuals,
+                instances,
+                PatternIndividual.CODEC,
+                PatternEnvironment.PatternInstance.CODEC
+        );
+    }
+
+    private static Migration decode(Migration migration) {
+        return migration.decode(
+                PatternIndividual.CODEC,
+                PatternEnvironment.PatternInstance.CODEC
+        );
+    }
+
+    private static void run(String name, int iterations, Runnable operation) {
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / iterations;
+        System.out.printf("  %-30s %10.2f us/migration%n", name, micros);
+    }
+}
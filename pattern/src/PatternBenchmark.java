@@ -0,0 +1,171 @@
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.util.Pair;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Compares the generations per second of the bitset pattern individuals with
+ * the {@code boolean[]} individuals evaluated on a {@link TreeSet} of
+ * instances that they replaced, on patterns of increasing size. A generation
+ * evaluates the population, then replaces it by binary tournament, two-point
+ * crossover and mutation of the children.
+ * <p>
+ * Usage: {@code PatternBenchmark [generations] [populationSize]}
+ */
+public class PatternBenchmark {
+
+    private static final int[] SIDES = {16, 64, 256, 1024};
+
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int populationSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        RandomUtils random = new RandomUtils(42);
+        EvolutionContext context = new EvolutionContext() {
+            @Override
+            public RandomUtils getRandom() {
+                return random;
+            }
+
+            @Override
+            public void putStatistic(String key, Double value) {
+            }
+
+            @Override
+            public int getCurrentGeneration() {
+                return 0;
+            }
+        };
+
+        for (int side : SIDES) {
+            Pattern.HEIGHT = side;
+            Pattern.WIDTH = side;
+            Pattern.SIZE = side * side;
+
+            List<PatternEnvironment.PatternInstance> instances = new ArrayList<>();
+            for (int i = 0; i < Pattern.SIZE; i++) {
+                instances.add(new PatternEnvironment.PatternInstance(i, random.nextBoolean()));
+            }
+            PatternEnvironment environment = new PatternEnvironment(instances);
+            SortedSet<PatternEnvironment.PatternInstance> legacyEnvironment = new TreeSet<>(
+                    (a, b) -> Integer.compare(a.index, b.index)
+            );
+            legacyEnvironment.addAll(instances);
+
+            System.out.println("pattern size: " + side + "x" + side);
+            run("boolean[] + TreeSet", generations, () -> {
+                List<boolean[]> population = new ArrayList<>();
+                for (int i = 0; i < populationSize; i++) {
+                    boolean[] values = new boolean[Pattern.SIZE];
+                    for (int j = 0; j < Pattern.SIZE; j++) values[j] = random.nextBoolean();
+                    population.add(values);
+                }
+                return (Runnable) () -> legacyGeneration(random, legacyEnvironment, population);
+            });
+            run("long[] bitsets", generations, () -> {
+                List<PatternIndividual> population = new ArrayList<>();
+                for (int i = 0; i < populationSize; i++) {
+                    population.add(new PatternIndividual(random));
+                }
+                return (Runnable) () -> bitsetGeneration(random, context, environment, population);
+            });
+        }
+    }
+
+    private static void run(
+            String name,
+            int generations,
+            Supplier<Runnable> setUp
+    ) {
+        Runnable generation = setUp.get();
+        for (int i = 0; i < generations; i++) {
+            generation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < generations; i++) {
+            generation.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-20s %12.1f generations/s%n", name, generations / seconds);
+    }
+
+    private static void legacyGeneration(
+            RandomUtils random,
+            SortedSet<PatternEnvironment.PatternInstance> environment,
+            List<boolean[]> population
+    ) {
+        double[] fitnesses = new double[population.size()];
+        for (int i = 0; i < population.size(); i++) {
+            boolean[] values = population.get(i);
+            int correct = 0;
+            for (Iterator<PatternEnvironment.PatternInstance> it =
+                 environment.stream().iterator(); it.hasNext(); ) {
+                PatternEnvironment.PatternInstance instance = it.next();
+                if (instance.value == values[instance.index]) correct++;
+            }
+            fitnesses[i] = correct / (double) Pattern.SIZE;
+        }
+
+        List<boolean[]> next = new ArrayList<>(population.size());
+        while (next.size() < population.size()) {
+            boolean[] parent1 = population.get(tournament(random, fitnesses));
+            boolean[] parent2 = population.get(tournament(random, fitnesses));
+            boolean[] child1 = new boolean[Pattern.SIZE];
+            boolean[] child2 = new boolean[Pattern.SIZE];
+            int point1 = random.randomInt(1, Pattern.SIZE - 2);
+            int point2 = random.randomInt(point1 + 1, Pattern.SIZE - 1);
+            for (int i = 0; i < Pattern.SIZE; i++) {
+                boolean swap = i >= point1 && i < point2;
+                child1[i] = swap ? parent2[i] : parent1[i];
+                child2[i] = swap ? parent1[i] : parent2[i];
+            }
+            int index = random.randomInt(0, Pattern.SIZE);
+            child1[index] = !child1[index];
+            index = random.randomInt(0, Pattern.SIZE);
+            child2[index] = !child2[index];
+            next.add(child1);
+            next.add(child2);
+        }
+        population.clear();
+        population.addAll(next);
+    }
+
+    private static void bitsetGeneration(
+            RandomUtils random,
+            EvolutionContext context,
+            PatternEnvironment environment,
+            List<PatternIndividual> population
+    ) {
+        double[] fitnesses = new double[population.size()];
+        for (int i = 0; i < population.size(); i++) {
+            fitnesses[i] = population.get(i).countCorrect(environment) / (double) Pattern.SIZE;
+        }
+
+        List<PatternIndividual> next = new ArrayList<>(population.size());
+        while (next.size() < population.size()) {
+            PatternIndividual parent1 = population.get(tournament(random, fitnesses));
+            PatternIndividual parent2 = population.get(tournament(random, fitnesses));
+            int point1 = random.randomInt(1, Pattern.SIZE - 2);
+            int point2 = random.randomInt(point1 + 1, Pattern.SIZE - 1);
+            Pair<PatternIndividual, PatternIndividual> children =
+                    PatternIndividual.crossover(parent1, parent2, point1, point2);
+            children.get1().mutate(context);
+            children.get2().mutate(context);
+            next.add(children.get1());
+            next.add(children.get2());
+        }
+        population.clear();
+        population.addAll(next);
+    }
+
+    private static int tournament(RandomUtils random, double[] fitnesses) {
+        int a = random.randomInt(0, fitnesses.length);
+        int b = random.randomInt(0, fitnesses.length);
+        return fitnesses[a] >= fitnesses[b] ? a : b;
+    }
+}
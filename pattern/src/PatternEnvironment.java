@@ -1,4 +1,6 @@
 import it.unipr.sowide.islands.IslandEnvironment;
+import it.unipr.sowide.islands.aggregates.InstanceAggregate;
+import it.unipr.sowide.util.BinaryCodec;
 
 import java.util.Collection;
 import java.util.Iterator;
@@ -7,6 +9,18 @@ import java.util.Optional;
 public class PatternEnvironment extends IslandEnvironment {
 
     public static class PatternInstance extends Instance {
+
+        /**
+         * Encodes the instances in binary migrations.
+         */
+        static final BinaryCodec<Instance> CODEC = BinaryCodec.of(
+                (instance, out) -> {
+                    out.putInt(((PatternInstance)instance).index);
+                    out.put((byte) (((PatternInstance)instance).value ? 1 : 0));
+                },
+                in -> new PatternInstance(in.getInt(), in.get() != 0)
+        );
+
         int index;
         boolean value;
 
@@ -21,6 +35,31 @@ public class PatternEnvironment extends IslandEnvironment {
         }
     }
 
+    /**
+     * The known cells as bitsets (see {@link PatternIndividual}), updated
+     * when the instances change.
+     */
+    private static final class KnownCells implements InstanceAggregate {
+        final long[] values = new long[PatternIndividual.wordsFor(Pattern.SIZE)];
+        final long[] known = new long[values.length];
+
+        @Override
+        public void add(Instance value) {
+            PatternInstance instance = (PatternInstance) value;
+            known[instance.index >>> 6] |= 1L << instance.index;
+            if (instance.value) values[instance.index >>> 6] |= 1L << instance.index;
+        }
+
+        @Override
+        public void remove(Instance value) {
+            PatternInstance instance = (PatternInstance) value;
+            known[instance.index >>> 6] &= ~(1L << instance.index);
+            values[instance.index >>> 6] &= ~(1L << instance.index);
+        }
+    }
+
+    private final KnownCells knownCells = registerAggregate(new KnownCells());
+
     public PatternEnvironment() { }
 
     public PatternEnvironment(Collection<PatternInstance> instances) {
@@ -32,12 +71,31 @@ public class PatternEnvironment extends IslandEnvironment {
         return new PatternEnvironment();
     }
 
+    @Override
+    protected BinaryCodec<Instance> instanceCodec() {
+        return PatternInstance.CODEC;
+    }
+
     public Optional<Boolean> getValue(int index) {
-        for (Instance value : instances) {
-            PatternInstance instance = (PatternInstance) value;
-            if (index == instance.index) return Optional.of(instance.value);
-        }
-        return Optional.empty();
+        long bit = 1L << index;
+        if ((knownCells.known[index >>> 6] & bit) == 0) return Optional.empty();
+        return Optional.of((knownCells.values[index >>> 6] & bit) != 0);
+    }
+
+    /**
+     * @return the values of the known cells as a bitset; the other bits are
+     * 0. The array must not be modified.
+     */
+    long[] getValues() {
+        return knownCells.values;
+    }
+
+    /**
+     * @return the bitset of the known cells. The array must not be
+     * modified.
+     */
+    long[] getKnown() {
+        return knownCells.known;
     }
 
     public Iterator<PatternInstance> iterator() {
@@ -1,48 +1,144 @@
 import it.unipr.sowide.gpj.core.EvolutionContext;
 import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.util.BinaryCodec;
+import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.util.RandomUtils;
 
 import java.util.Arrays;
 
+/**
+ * An individual whose genome is a bitset of {@link Pattern#SIZE} cells: the
+ * cell {@code i} is the bit {@code i % 64} of the word {@code i / 64}. The
+ * bits after the last cell are always 0.
+ */
 public class PatternIndividual extends IslandIndividual {
 
-    private final boolean[] values;
+    /**
+     * Encodes the genome in binary migrations.
+     */
+    static final BinaryCodec<IslandIndividual> CODEC = BinaryCodec.of(
+            (individual, out) -> BinaryCodec.putLongs(out, ((PatternIndividual) individual).words),
+            in -> new PatternIndividual(BinaryCodec.getLongs(in))
+    );
+
+    private final long[] words;
 
     public PatternIndividual(RandomUtils random) {
-        values = new boolean[Pattern.SIZE];
-        for(int i = 0; i < Pattern.SIZE; i++) {
-            values[i] = random.nextBoolean();
+        words = new long[wordsFor(Pattern.SIZE)];
+        for(int i = 0; i < words.length; i++) {
+            words[i] = random.nextLong();
         }
+        words[words.length - 1] &= lastWordMask(Pattern.SIZE);
+    }
+
+    public PatternIndividual(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * @param size a number of cells
+     * @return the number of words of a bitset of the specified size
+     */
+    static int wordsFor(int size) {
+        return (size + 63) >>> 6;
     }
 
-    public PatternIndividual(boolean[] values) {
-        this.values = values;
+    /**
+     * @param size a number of cells
+     * @return the mask of the bits of the last word of a bitset of the
+     * specified size that correspond to cells
+     */
+    static long lastWordMask(int size) {
+        return -1L >>> -size;
     }
 
     public boolean getValue(int index) {
-        return values[index];
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Counts the cells of this individual that are equal to the known cells
+     * of the environment.
+     *
+     * @param environment the environment
+     * @return the number of correct cells
+     */
+    public int countCorrect(PatternEnvironment environment) {
+        long[] values = environment.getValues();
+        long[] known = environment.getKnown();
+        int correct = 0;
+        for(int i = 0; i < words.length; i++) {
+            correct += Long.bitCount(~(words[i] ^ values[i]) & known[i]);
+        }
+        return correct;
+    }
+
+    /**
+     * Two-point crossover: the children take the cells in
+     * {@code [point1, point2)} from the other parent.
+     *
+     * @param parent1 the first parent
+     * @param parent2 the second parent
+     * @param point1  the first cell taken from the other parent
+     * @param point2  the first cell after {@code point1} taken from the same
+     *                parent
+     * @return the two children
+     */
+    public static Pair<PatternIndividual, PatternIndividual> crossover(
+            PatternIndividual parent1,
+            PatternIndividual parent2,
+            int point1,
+            int point2
+    ) {
+        long[] child1 = parent1.words.clone();
+        long[] child2 = parent2.words.clone();
+
+        if (point1 < point2) {
+            int firstWord = point1 >>> 6;
+            int lastWord = (point2 - 1) >>> 6;
+            for(int i = firstWord; i <= lastWord; i++) {
+                long mask = -1L;
+                if (i == firstWord) mask &= -1L << point1;
+                if (i == lastWord) mask &= -1L >>> -point2;
+                long diff = (child1[i] ^ child2[i]) & mask;
+                child1[i] ^= diff;
+                child2[i] ^= diff;
+            }
+        }
+
+        return new Pair<>(new PatternIndividual(child1), new PatternIndividual(child2));
     }
 
     @Override
     public IslandIndividual copyIndividualWithoutMetaData() {
-        return new PatternIndividual(values);
+        return new PatternIndividual(words.clone());
     }
 
     @Override
     public IslandIndividual mutate(EvolutionContext evolutionContext) {
         int index = evolutionContext.getRandom().randomInt(0, Pattern.SIZE);
-        values[index] = !values[index];
+        words[index >>> 6] ^= 1L << index;
         resetFitness();
         return this;
     }
 
+    @Override
+    public long structuralHash() {
+        long hash = 0;
+        for (long word : words) {
+            hash = (hash ^ word) * 0x100000001B3L;
+            hash = Long.rotateLeft(hash, 7);
+        }
+        return hash;
+    }
+
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder();
         s.append("\n");
         for(int y = 0; y < Pattern.HEIGHT; y++) {
             for(int x = 0;  x < Pattern.WIDTH; x++) {
-                s.append(values[x + Pattern.WIDTH * y] ? "\u2588\u2588" : "  ");
+                s.append(getValue(x + Pattern.WIDTH * y) ? "\u2588\u2588" : "  ");
             }
             s.append("\n");
         }
@@ -56,7 +152,7 @@ public class PatternIndividual extends IslandIndividual {
 
             if(compareTo(that) == 0) return true;
 
-            return Arrays.equals(values, that.values);
+            return Arrays.equals(words, that.words);
         }
         return super.equals(o);
     }
@@ -3,11 +3,10 @@ import it.unipr.sowide.islands.IslandEngine;
 import it.unipr.sowide.islands.IslandEnvironment;
 import it.unipr.sowide.islands.IslandIndividual;
 import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.BinaryCodec;
 import it.unipr.sowide.util.Pair;
 import it.unipr.sowide.util.RandomUtils;
 
-import java.util.Iterator;
-
 public class PatternIslandEngine extends IslandEngine {
 
     /**
@@ -35,28 +34,16 @@ public class PatternIslandEngine extends IslandEngine {
         PatternIndividual patterParent1 = (PatternIndividual) parent1;
         PatternIndividual patterParent2 = (PatternIndividual) parent2;
 
-        boolean[] child1values = new boolean[Pattern.SIZE];
-        boolean[] child2values = new boolean[Pattern.SIZE];
-
         int point1 = random.randomInt(1, Pattern.SIZE - 2);
         int point2 = random.randomInt(point1 + 1, Pattern.SIZE - 1);
 
-        for(int i = 0; i < point1; i++) {
-            child1values[i] = patterParent1.getValue(i);
-            child2values[i] = patterParent2.getValue(i);
-        }
-
-        for(int i = point1; i < point2; i++) {
-            child1values[i] = patterParent2.getValue(i);
-            child2values[i] = patterParent1.getValue(i);
-        }
-
-        for(int i = point2; i < Pattern.SIZE; i++) {
-            child1values[i] = patterParent1.getValue(i);
-            child2values[i] = patterParent2.getValue(i);
-        }
+        Pair<PatternIndividual, PatternIndividual> children = PatternIndividual.crossover(patterParent1, patterParent2, point1, point2);
+        return new Pair<>(children.get1(), children.get2());
+    }
 
-        return new Pair<>(new PatternIndividual(child1values), new PatternIndividual(child2values));
+    @Override
+    protected BinaryCodec<IslandIndividual> individualCodec() {
+        return PatternIndividual.CODEC;
     }
 
     @Override
@@ -65,14 +52,7 @@ public class PatternIslandEngine extends IslandEngine {
         PatternEnvironment patternEnvironment = (PatternEnvironment) environment;
         PatternIndividual patternIndividual = (PatternIndividual) individual;
 
-        int correct = 0;
-        for (Iterator<PatternEnvironment.PatternInstance> it = patternEnvironment.iterator(); it.hasNext(); ) {
-            PatternEnvironment.PatternInstance instance = it.next();
-            if(instance.value == patternIndividual.getValue(instance.index)) {
-                correct++;
-            }
-        }
-
+        int correct = patternIndividual.countCorrect(patternEnvironment);
         return correct / (double) Pattern.SIZE;
     }
 }
@@ -0,0 +1,178 @@
+import it.unipr.sowide.actodata.core.initialstructure.ActoDataStructure;
+import it.unipr.sowide.actodata.core.master.nodeinterfaces.ControllerInterface;
+import it.unipr.sowide.actodata.core.master.nodeinterfaces.NodeInterface;
+import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the simulation defined by the configuration file both in synchronous
+ * and in asynchronous mode, and compares the wall-clock time taken by the
+ * runs of each mode to reach the target fitness (or the maximum number of
+ * generations).
+ * <p>
+ * Each mode runs on its own copy of the settings, as a simulation named
+ * {@code [simulationName]_SYNC} or {@code [simulationName]_ASYNC}. The
+ * {@code i}-th runs of the two modes start from the same split, and are
+ * performed one after the other, in a random order; before them, some
+ * warm-up runs of each mode are performed and not measured. The times are
+ * comparable only if the runs are not concurrent, i.e. with
+ * {@code runParallelism=1}.
+ * <p>
+ * Accepts the same arguments of {@link PatternMaster}, plus
+ * {@code -warmup [runs]}, the warm-up runs of each mode (default: 1).
+ */
+public class PatternModesBenchmark extends PatternMaster {
+
+    private static final String SYNC = "SYNC";
+    private static final String ASYNC = "ASYNC";
+    private static final String WARMUP = "WARMUP_";
+
+    private int warmupRuns = 1;
+    private RandomUtils orderRandom;
+
+    // the mode of each run, by name; null for the warm-up runs
+    private final Map<String, String> runModes = new HashMap<>();
+    // the index of each measured run, by name
+    private final Map<String, Integer> runIndices = new HashMap<>();
+    private final TreeMap<String, List<Long>> runTimes = new TreeMap<>();
+
+    public PatternModesBenchmark(ActoDataStructure structure) {
+        super(structure);
+    }
+
+    @Override
+    protected void parseFileArgs(String[] argv) throws IOException {
+        super.parseFileArgs(argv);
+        for (int i = 0; i < argv.length; i++) {
+            if ("-warmup".equals(argv[i])) {
+                i++;
+                if (i >= argv.length) unexpectedArguments();
+                warmupRuns = Integer.parseInt(argv[i]);
+            }
+        }
+    }
+
+    @Override
+    protected void createRuns(
+            ActoDataStructure actoDataStructure,
+            IslandsSimulationSettings settings
+    ) {
+        orderRandom = new RandomUtils(
+                settings.seed != null ? settings.seed : new RandomUtils().nextLong()
+        );
+        if (warmupRuns > 0) {
+            super.createRuns(actoDataStructure, modeSettings(settings, WARMUP + SYNC, false, warmupRuns));
+            super.createRuns(actoDataStructure, modeSettings(settings, WARMUP + ASYNC, true, warmupRuns));
+        }
+        for (String mode : List.of(SYNC, ASYNC)) {
+            IslandsSimulationSettings modeSettings = modeSettings(
+                    settings,
+                    mode,
+                    mode.equals(ASYNC),
+                    settings.numberOfRuns
+            );
+            super.createRuns(actoDataStructure, modeSettings);
+            for (int i = 1; i <= settings.numberOfRuns; i++) {
+                String runName = modeSettings.simulationName + "_RUN" + i;
+                runModes.put(runName, mode);
+                runIndices.put(runName, i);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the settings for the runs of a mode
+     */
+    private static IslandsSimulationSettings modeSettings(
+            IslandsSimulationSettings settings,
+            String name,
+            boolean asynchronous,
+            int runs
+    ) {
+        IslandsSimulationSettings copy = settings.copy(
+                settings.simulationName + "_" + name,
+                settings.islandGroupName + "_" + name
+        );
+        copy.asynchronous = asynchronous;
+        copy.numberOfRuns = runs;
+        if (asynchronous) {
+            // only the synchronous loop is checkpointed
+            copy.checkpointInterval = 0;
+        }
+        return copy;
+    }
+
+    /**
+     * Starts the warm-up runs first, then the measured runs by index; the
+     * two runs of each index are started in a random order.
+     */
+    @Override
+    protected void sortRuns(List<ControllerInterface> controllers) {
+        controllers.sort(Comparator
+                .comparing((ControllerInterface controller) ->
+                        runModes.containsKey(controller.getName()))
+                .thenComparing(controller ->
+                        runIndices.getOrDefault(controller.getName(), 0))
+                .thenComparing(NodeInterface::getName)
+        );
+        for (int i = 0; i + 1 < controllers.size(); i++) {
+            String name = controllers.get(i).getName();
+            String following = controllers.get(i + 1).getName();
+            if (runModes.containsKey(name)
+                    && runIndices.get(name).equals(runIndices.get(following))) {
+                if (orderRandom.nextBoolean()) {
+                    controllers.set(i + 1, controllers.set(i, controllers.get(i + 1)));
+                }
+                i++;
+            }
+        }
+        System.out.println("Runs order: " + controllers.stream()
+                .map(NodeInterface::getName)
+                .toList());
+    }
+
+    @Override
+    protected void onRunCompleted(
+            ControllerInterface controller,
+            Duration elapsed
+    ) {
+        String mode = runModes.get(controller.getName());
+        System.out.println(
+                controller.getName() + ": " + elapsed.toMillis() + " ms"
+                        + (mode == null ? " (warm-up)" : "")
+        );
+        if (mode != null) {
+            runTimes.computeIfAbsent(mode, (__) -> new ArrayList<>())
+                    .add(elapsed.toMillis());
+        }
+    }
+
+    @Override
+    protected void onAllRunsCompleted() {
+        runTimes.forEach((runMode, times) -> {
+            times.sort(Long::compare);
+            System.out.println(String.format(
+                    "%s: %d runs, mean %.1f ms, median %d ms",
+                    runMode,
+                    times.size(),
+                    times.stream().mapToLong(t -> t).average().orElse(0),
+                    times.get(times.size() / 2)
+            ));
+        });
+    }
+
+    public static void main(String[] argv) throws IOException {
+        PatternModesBenchmark benchmark =
+                new PatternModesBenchmark(new ActoDataStructure());
+        benchmark.setUp(argv);
+    }
+}
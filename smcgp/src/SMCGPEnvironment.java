@@ -0,0 +1,107 @@
+import it.unipr.sowide.gpj.smcgp64.SMCGP64DataSet;
+import it.unipr.sowide.islands.IslandEnvironment;
+import it.unipr.sowide.islands.aggregates.InstanceAggregate;
+import it.unipr.sowide.util.BinaryCodec;
+
+import java.util.Collection;
+
+public class SMCGPEnvironment extends IslandEnvironment {
+
+    public static class SMCGPInstance extends Instance {
+
+        /**
+         * Encodes the instances in binary migrations.
+         */
+        static final BinaryCodec<Instance> CODEC = BinaryCodec.of(
+                (instance, out) -> {
+                    SMCGPInstance smcgpInstance = (SMCGPInstance) instance;
+                    out.putInt(smcgpInstance.index);
+                    out.putLong(smcgpInstance.pattern1);
+                    out.putLong(smcgpInstance.pattern2);
+                    out.put((byte) smcgpInstance.clas);
+                },
+                in -> new SMCGPInstance(in.getInt(), in.getLong(), in.getLong(), in.get())
+        );
+
+        // the position of the instance in its dataset
+        final int index;
+        final long pattern1;
+        final long pattern2;
+        final int clas;
+
+        SMCGPInstance(int index, long pattern1, long pattern2, int clas) {
+            this.index = index;
+            this.pattern1 = pattern1;
+            this.pattern2 = pattern2;
+            this.clas = clas;
+        }
+
+        @Override
+        public int compareTo(Instance o) {
+            return Integer.compare(index, ((SMCGPInstance) o).index);
+        }
+    }
+
+    /**
+     * Marks the columns of the instances to be rebuilt when the instances
+     * change.
+     */
+    private static final class ChangedInstances implements InstanceAggregate {
+        volatile boolean changed = true;
+
+        @Override
+        public void add(Instance value) {
+            changed = true;
+        }
+
+        @Override
+        public void remove(Instance value) {
+            changed = true;
+        }
+    }
+
+    private final ChangedInstances changedInstances = registerAggregate(new ChangedInstances());
+
+    /**
+     * The instances as the columns evaluated by the SMCGP-64 classifiers,
+     * in their natural order; rebuilt on demand after the instances change.
+     */
+    private SMCGP64DataSet dataSet;
+
+    public SMCGPEnvironment() { }
+
+    public SMCGPEnvironment(Collection<SMCGPInstance> instances) {
+        this.instances.addAll(instances);
+    }
+
+    @Override
+    protected IslandEnvironment createEnvironment() {
+        return new SMCGPEnvironment();
+    }
+
+    @Override
+    protected BinaryCodec<Instance> instanceCodec() {
+        return SMCGPInstance.CODEC;
+    }
+
+    /**
+     * @return the instances as a dataset. It must not be modified.
+     */
+    synchronized SMCGP64DataSet getDataSet() {
+        if (changedInstances.changed) {
+            changedInstances.changed = false;
+            dataSet = new SMCGP64DataSet();
+            dataSet.ensureCapacity(instances.size());
+            for (Instance value : instances) {
+                SMCGPInstance instance = (SMCGPInstance) value;
+                dataSet.put(instance.pattern1, instance.pattern2, instance.clas);
+            }
+        }
+        return dataSet;
+    }
+
+    @Override
+    public String toString() {
+        return "Instances: " + instances.size();
+    }
+}
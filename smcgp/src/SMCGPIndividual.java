@@ -0,0 +1,103 @@
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.smcgp64.SMC64PatternArguments;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.tree.Constant;
+import it.unipr.sowide.gpj.tree.LateInitConstant;
+import it.unipr.sowide.gpj.tree.Tree;
+import it.unipr.sowide.gpj.tree.TreeCodec;
+import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.util.BinaryCodec;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.stream.Collectors;
+
+/**
+ * An individual whose genome is a SMCGP-64 classifier (see {@link SMCGP64}).
+ * The trees are not serializable, so they are serialized, e.g. when the
+ * individuals are sent to another node, with their binary encoding.
+ */
+public class SMCGPIndividual extends IslandIndividual {
+
+    /**
+     * The maximum height of the trees.
+     */
+    static final int MAX_HEIGHT = 12;
+
+    /**
+     * Encodes the trees: the operations are matched by name, and the
+     * (ephemeral) constants by value.
+     */
+    private static final TreeCodec<Long, SMC64PatternArguments> TREE_CODEC = new TreeCodec<>(
+            SMCGP64.createOperationsSet(new RandomUtils(0)).stream()
+                    .filter(op -> !(op instanceof Constant) && !(op instanceof LateInitConstant))
+                    .collect(Collectors.toList()),
+            BinaryCodec.of((value, out) -> out.putLong(value), ByteBuffer::getLong)
+    );
+
+    /**
+     * Encodes the genome in binary migrations.
+     */
+    static final BinaryCodec<IslandIndividual> CODEC = BinaryCodec.of(
+            (individual, out) -> TREE_CODEC.encode(((SMCGPIndividual) individual).tree, out),
+            in -> new SMCGPIndividual(TREE_CODEC.decode(in))
+    );
+
+    private transient Tree<Long, SMC64PatternArguments> tree;
+
+    public SMCGPIndividual(Tree<Long, SMC64PatternArguments> tree) {
+        this.tree = tree;
+    }
+
+    public Tree<Long, SMC64PatternArguments> getTree() {
+        return tree;
+    }
+
+    @Override
+    public IslandIndividual copyIndividualWithoutMetaData() {
+        // the trees are persistent, so they can be shared
+        return new SMCGPIndividual(tree);
+    }
+
+    /**
+     * Shuffles the structure of the tree, without new operations.
+     */
+    @Override
+    public IslandIndividual mutate(EvolutionContext evolutionContext) {
+        tree = Tree.structuralMutation(evolutionContext.getRandom(), tree, MAX_HEIGHT);
+        resetFitness();
+        return this;
+    }
+
+    @Override
+    public long evaluationCost() {
+        return tree.size();
+    }
+
+    @Override
+    public long structuralHash() {
+        return tree.structuralHash();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        byte[] bytes = BinaryCodec.toByteArray(buffer -> TREE_CODEC.encode(tree, buffer), 256);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        tree = TREE_CODEC.decode(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public String toString() {
+        return tree.toString();
+    }
+}
@@ -0,0 +1,96 @@
+import it.unipr.sowide.gpj.core.EvolutionContext;
+import it.unipr.sowide.gpj.smcgp64.SMC64PatternArguments;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.tree.Operation;
+import it.unipr.sowide.gpj.tree.RandomTreeGenerator;
+import it.unipr.sowide.gpj.tree.Tree;
+import it.unipr.sowide.islands.IslandEngine;
+import it.unipr.sowide.islands.IslandEnvironment;
+import it.unipr.sowide.islands.IslandIndividual;
+import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.BinaryCodec;
+import it.unipr.sowide.util.Pair;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.util.List;
+
+public class SMCGPIslandEngine extends IslandEngine {
+
+    /**
+     * the operations of the trees; their ephemeral constants are drawn from
+     * the generator of this island
+     */
+    private final List<Operation<Long, SMC64PatternArguments>> operations;
+
+    /**
+     * generates the trees of the starting population, with the heights used
+     * by {@link SMCGP64#main}
+     */
+    private final RandomTreeGenerator<Long, SMC64PatternArguments> treeGenerator;
+
+    /**
+     * An engine that evolves the classifiers using the specified
+     * hyperparameters.
+     *
+     * @param trainingEnv   the set of data used to evolve the classifiers
+     * @param validationEnv the set of data used to validate the
+     *                      classifiers
+     * @param settings      settings
+     * @param random        a random generation utility instance
+     */
+    public SMCGPIslandEngine(IslandEnvironment trainingEnv, IslandEnvironment validationEnv, IslandsSimulationSettings settings, RandomUtils random) {
+        super(trainingEnv, validationEnv, settings, random);
+        operations = SMCGP64.createOperationsSet(random);
+        treeGenerator = new RandomTreeGenerator<>(random, 5, 7, operations);
+    }
+
+    @Override
+    public SMCGPIndividual generateIndividual() {
+        return new SMCGPIndividual(treeGenerator.generateIndividual());
+    }
+
+    @Override
+    public Pair<IslandIndividual, IslandIndividual> mate(EvolutionContext evolutionContext, IslandIndividual parent1, IslandIndividual parent2) {
+        Pair<Tree<Long, SMC64PatternArguments>, Tree<Long, SMC64PatternArguments>> children = Tree.crossover(
+                evolutionContext.getRandom(),
+                ((SMCGPIndividual) parent1).getTree(),
+                ((SMCGPIndividual) parent2).getTree(),
+                SMCGPIndividual.MAX_HEIGHT
+        );
+        return new Pair<>(new SMCGPIndividual(children.get1()), new SMCGPIndividual(children.get2()));
+    }
+
+    /**
+     * Replaces a subtree with a random one, like {@link SMCGP64#main}.
+     */
+    @Override
+    public IslandIndividual mutate(EvolutionContext evolutionContext, IslandIndividual individual) {
+        return new SMCGPIndividual(Tree.changeSubTreeMutation(
+                evolutionContext.getRandom(),
+                ((SMCGPIndividual) individual).getTree(),
+                operations,
+                9,
+                6,
+                SMCGPIndividual.MAX_HEIGHT
+        ));
+    }
+
+    @Override
+    protected BinaryCodec<IslandIndividual> individualCodec() {
+        return SMCGPIndividual.CODEC;
+    }
+
+    /**
+     * The islands maximize the fitness, so the error of the classifier (see
+     * {@link SMCGP64#fitnessSMCTreeBatch}) is adjusted to
+     * {@code 1 / (1 + error / maxFitness)}, in (0, 1].
+     */
+    @Override
+    public double evaluate(IslandIndividual individual, IslandEnvironment environment) {
+        double error = SMCGP64.fitnessSMCTreeBatch(
+                ((SMCGPIndividual) individual).getTree(),
+                ((SMCGPEnvironment) environment).getDataSet()
+        );
+        return 1.0 / (1.0 + error / SMCGP64.maxFitness);
+    }
+}
@@ -0,0 +1,111 @@
+import it.unipr.sowide.actodata.core.initialstructure.ActoDataStructure;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64;
+import it.unipr.sowide.gpj.smcgp64.SMCGP64DataSet;
+import it.unipr.sowide.islands.IslandEngine;
+import it.unipr.sowide.islands.IslandEnvironment;
+import it.unipr.sowide.islands.IslandsMaster;
+import it.unipr.sowide.islands.settings.IslandsSimulationSettings;
+import it.unipr.sowide.util.RandomUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evolves SMCGP-64 classifiers of the class 0 (see {@link SMCGP64}) on
+ * islands.
+ * <p>
+ * Besides {@code -config}, it accepts {@code -train [file]}, the training
+ * set, also used as validation set, and {@code -test [file]}, in the text
+ * format of {@link SMCGP64DataSet#loadInstancesFromFile(File)}; or
+ * {@code -synthetic [instances]}, which generates a training set and a test
+ * set of random patterns, whose class is the number of bits set in both
+ * patterns, modulo {@link SMCGP64#N_CLASSES}. The synthetic sets are the same
+ * on every node.
+ */
+public class SMCGPMaster extends IslandsMaster {
+
+    // the seed of the synthetic datasets, the same on every node
+    private static final long SYNTHETIC_SEED = 0x5EED;
+
+    public SMCGPMaster(ActoDataStructure structure) {
+        super(structure);
+    }
+
+    @Override
+    protected String usageString() {
+        // todo
+        return "todo";
+    }
+
+    @Override
+    protected boolean checkNumberOfArguemnts(String[] argv) {
+        // todo
+        return true;
+    }
+
+    @Override
+    protected IslandEngine generateIslandEngine(IslandEnvironment trainingSet, IslandEnvironment validationData, IslandsSimulationSettings settings, RandomUtils random) {
+        return new SMCGPIslandEngine(trainingSet, validationData, settings, random);
+    }
+
+    @Override
+    protected void parseFileArgs(String[] argv) throws IOException {
+        super.parseFileArgs(argv);
+        for(int i = 0; i < argv.length; i++) {
+            if ("-train".equals(argv[i])) {
+                i++;
+                if (i >= argv.length) unexpectedArguments();
+                List<SMCGPEnvironment.SMCGPInstance> instances = loadInstances(new File(argv[i]));
+                trainEnv = new SMCGPEnvironment(instances);
+                validationEnv = new SMCGPEnvironment(instances);
+            } else if ("-test".equals(argv[i])) {
+                i++;
+                if (i >= argv.length) unexpectedArguments();
+                testEnv = new SMCGPEnvironment(loadInstances(new File(argv[i])));
+            } else if ("-synthetic".equals(argv[i])) {
+                i++;
+                if (i >= argv.length) unexpectedArguments();
+                int size = Integer.parseInt(argv[i]);
+                RandomUtils random = new RandomUtils(SYNTHETIC_SEED);
+                List<SMCGPEnvironment.SMCGPInstance> instances = syntheticInstances(random, size);
+                trainEnv = new SMCGPEnvironment(instances);
+                validationEnv = new SMCGPEnvironment(instances);
+                testEnv = new SMCGPEnvironment(syntheticInstances(random, size));
+            }
+        }
+    }
+
+    public List<SMCGPEnvironment.SMCGPInstance> loadInstances(File file) throws IOException {
+        SMCGP64DataSet dataSet = new SMCGP64DataSet();
+        dataSet.loadInstancesWithSidecar(file);
+
+        List<SMCGPEnvironment.SMCGPInstance> instances = new ArrayList<>(dataSet.size());
+        for(int i = 0; i < dataSet.size(); i++) {
+            instances.add(new SMCGPEnvironment.SMCGPInstance(
+                    i,
+                    dataSet.getPattern1(i),
+                    dataSet.getPattern2(i),
+                    dataSet.getClass(i)
+            ));
+        }
+        return instances;
+    }
+
+    private static List<SMCGPEnvironment.SMCGPInstance> syntheticInstances(RandomUtils random, int size) {
+        List<SMCGPEnvironment.SMCGPInstance> instances = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            long pattern1 = random.nextLong();
+            long pattern2 = random.nextLong();
+            int clas = Long.bitCount(pattern1 & pattern2) % SMCGP64.N_CLASSES;
+            instances.add(new SMCGPEnvironment.SMCGPInstance(i, pattern1, pattern2, clas));
+        }
+        return instances;
+    }
+
+    public static void main(String[] argv) throws IOException {
+        SMCGPMaster master = new SMCGPMaster(new ActoDataStructure());
+        master.setUp(argv);
+    }
+}